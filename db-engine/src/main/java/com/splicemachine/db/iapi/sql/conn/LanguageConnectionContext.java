@@ -917,6 +917,24 @@ public interface LanguageConnectionContext extends Context {
 		PreparedStatement prepareInternalStatement(String sqlText)
 	    throws StandardException;
 
+	/**
+	 * Return an Activation for the query with the literals it compares columns with
+	 * replaced by parameters, and bound to them. The parameterized query is looked up
+	 * in, or compiled into, the statement cache like any other, so that queries which
+	 * only differ in those literals share one compiled plan.
+	 *
+	 * @param compilationSchema schema
+	 * @param sqlText sql query string, without parameters
+	 * @param isForReadOnly read only status for resultset
+	 * @param scrollable whether the resultset is scroll insensitive
+	 * @return the activation, or null if the query has no literals which can be replaced,
+	 * or the parameterized query cannot be compiled, or the literals cannot be bound to
+	 * the parameters without changing their values. The query is then to be prepared as is.
+	 */
+	Activation getParameterizedActivation(SchemaDescriptor compilationSchema, String sqlText,
+										  boolean isForReadOnly, boolean scrollable)
+		throws StandardException;
+
 	/**
 	 * Control whether or not optimizer trace is on.
 	 *
@@ -1420,5 +1438,6 @@ public interface LanguageConnectionContext extends Context {
 
 	CommentStripper getCommentStripper();
 	boolean getIgnoreCommentOptEnabled();
+	boolean getAutoParameterizeEnabled();
 
 }
@@ -880,6 +880,18 @@ public interface DataDictionary{
     void addTableStatistics(ExecRow tableStatistics,
                             TransactionController tc) throws StandardException;
 
+    /**
+     *
+     * Replace the statistics of a single partition in SYS.SYSTABLESTATS, leaving its
+     * column statistics as they are.
+     *
+     * @param partitionStatistics
+     * @param tc
+     * @throws StandardException
+     */
+    void updatePartitionStatistics(PartitionStatisticsDescriptor partitionStatistics,
+                                   TransactionController tc) throws StandardException;
+
     /**
      * Convert a constraint descriptor list into a list
      * of active constraints, that is, constraints which
@@ -207,6 +207,15 @@ public class GenericPreparedStatement implements ExecPreparedStatement {
         return isValid && (activationClass != null) && !compilingStatement;
     }
 
+    /**
+     * Check, while this statement is being compiled, whether the plan it was compiled to is still up to date.
+     *
+     * @return {@code true} if nothing this statement depends on has changed since it was compiled
+     */
+    public synchronized boolean isCompiledUpToDate() {
+        return isValid && (activationClass != null) && !invalidatedWhileCompiling;
+    }
+
     @Override
     public void rePrepare(LanguageConnectionContext lcc) throws StandardException {
         if (!upToDate()) {
@@ -49,8 +49,13 @@ import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
 import com.splicemachine.db.iapi.util.ByteArray;
 import com.splicemachine.db.iapi.util.InterruptStatus;
 import com.splicemachine.db.impl.ast.JsonTreeBuilderVisitor;
+import com.splicemachine.db.impl.sql.catalog.PersistentStatementCache;
+import com.splicemachine.db.impl.sql.compile.CursorNode;
+import com.splicemachine.db.impl.sql.compile.DeleteNode;
 import com.splicemachine.db.impl.sql.compile.ExplainNode;
+import com.splicemachine.db.impl.sql.compile.InsertNode;
 import com.splicemachine.db.impl.sql.compile.StatementNode;
+import com.splicemachine.db.impl.sql.compile.UpdateNode;
 import com.splicemachine.db.impl.sql.conn.GenericLanguageConnectionContext;
 import com.splicemachine.db.impl.sql.misc.CommentStripper;
 import org.apache.log4j.Logger;
@@ -76,6 +81,7 @@ public class GenericStatement implements Statement{
     private GenericStorablePreparedStatement preparedStmt;
     private String sessionPropertyValues = "null";
     private final String statementTextTrimed;
+    private boolean compiled;
 
     /**
      * Constructor for a Statement given the text of the statement in a String
@@ -216,6 +222,12 @@ public class GenericStatement implements Statement{
 
     public String getCompilationSchema(){ return compilationSchema.getDescriptorName(); }
 
+    public SchemaDescriptor getCompilationSchemaDescriptor(){ return compilationSchema; }
+
+    public boolean isForReadOnly(){ return isForReadOnly; }
+
+    public int getPrepareIsolationLevel(){ return prepareIsolationLevel; }
+
     /**
      * Return the {@link PreparedStatement} currently associated with this
      * statement.
@@ -224,6 +236,11 @@ public class GenericStatement implements Statement{
      */
     public PreparedStatement getPreparedStatement(){ return preparedStmt; }
 
+    /**
+     * @return true if preparing this statement compiled it, false if it found it compiled in the statement cache
+     */
+    public boolean wasCompiled(){ return compiled; }
+
     public boolean equals(Object other){
         if(other instanceof GenericStatement){
             GenericStatement os=(GenericStatement)other;
@@ -510,7 +527,7 @@ public class GenericStatement implements Statement{
             }
             cc.setDisablePredicateSimplification(disablePredicateSimplification);
 
-            fourPhasePrepare(lcc,paramDefaults,timestamps,beginTimestamp,foundInCache,cc);
+            compiled=fourPhasePrepare(lcc,paramDefaults,timestamps,beginTimestamp,foundInCache,cacheMe,cc);
         }catch(StandardException se){
             if(foundInCache)
                 ((GenericLanguageConnectionContext)lcc).removeStatement(this);
@@ -539,16 +556,26 @@ public class GenericStatement implements Statement{
      * 2. bind: Bind tables and variables. Also performs some error detection (missing tables/columns,etc)
      * 3. optimize: Perform cost-based optimization
      * 4. generate: Generate the actual byte code to be executed
+     *
+     * The statement is only compiled if its plan isn't in the persistent statement cache.
+     *
+     * @return true if the statement was compiled, false if its plan was loaded
      */
-    private void fourPhasePrepare(LanguageConnectionContext lcc,
-                                  Object[] paramDefaults,
-                                  long[] timestamps,
-                                  Timestamp beginTimestamp,
-                                  boolean foundInCache,
-                                  CompilerContext cc) throws StandardException{
+    private boolean fourPhasePrepare(LanguageConnectionContext lcc,
+                                     Object[] paramDefaults,
+                                     long[] timestamps,
+                                     Timestamp beginTimestamp,
+                                     boolean foundInCache,
+                                     boolean cacheMe,
+                                     CompilerContext cc) throws StandardException{
         lcc.logStartCompiling(getSource());
         long startTime = System.nanoTime();
         try {
+            PersistentStatementCache persistentCache = cacheMe ? getPersistentStatementCache(lcc) : null;
+            if (persistentCache != null && loadPlan(lcc, persistentCache)) {
+                lcc.logEndCompiling(getSource(), System.nanoTime() - startTime);
+                return false;
+            }
 
             StatementNode qt = parse(lcc, paramDefaults, timestamps, cc);
 
@@ -575,7 +602,12 @@ public class GenericStatement implements Statement{
 
             saveTree(qt, CompilationPhase.AFTER_GENERATE);
 
-            lcc.logEndCompiling(getSource(), System.nanoTime() - startTime);
+            long compileTime = System.nanoTime() - startTime;
+            if (persistentCache != null)
+                storePlan(lcc, persistentCache, qt, compileTime);
+
+            lcc.logEndCompiling(getSource(), compileTime);
+            return true;
         } catch (StandardException e) {
             lcc.logErrorCompiling(getSource(), e, System.nanoTime() - startTime);
             throw e;
@@ -584,6 +616,38 @@ public class GenericStatement implements Statement{
         }
     }
 
+    private static PersistentStatementCache getPersistentStatementCache(LanguageConnectionContext lcc){
+        // the permissions a plan needs are checked when it is compiled, so only keep plans which need none
+        if(lcc.usesSqlAuthorization())
+            return null;
+        return lcc.getDataDictionary().getDataDictionaryCache().getPersistentStatementCache();
+    }
+
+    /*
+     * Load the plan from the persistent statement cache. It is loaded in a nested transaction as it would be
+     * compiled in, which prepMinion commits once the plan is valid.
+     */
+    private boolean loadPlan(LanguageConnectionContext lcc,PersistentStatementCache persistentCache) throws StandardException{
+        lcc.beginNestedTransaction(true);
+        if(persistentCache.load(this,preparedStmt,lcc))
+            return true;
+        lcc.commitNestedTransaction();
+        return false;
+    }
+
+    private void storePlan(LanguageConnectionContext lcc,
+                           PersistentStatementCache persistentCache,
+                           StatementNode qt,
+                           long compileTime){
+        // only queries and DML run often enough to be worth keeping, and their plans only depend on the dictionary
+        if(!(qt instanceof CursorNode || qt instanceof InsertNode || qt instanceof UpdateNode || qt instanceof DeleteNode)
+                || preparedStmt.referencesSessionSchema())
+            return;
+        byte[] entry=persistentCache.toEntry(this,preparedStmt,compileTime,lcc);
+        if(entry!=null)
+            persistentCache.store(this,entry);
+    }
+
     private StatementNode parse(LanguageConnectionContext lcc,
                                 Object[] paramDefaults,
                                 long[] timestamps,
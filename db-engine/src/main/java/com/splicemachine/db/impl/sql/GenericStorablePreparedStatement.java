@@ -132,6 +132,17 @@ public class GenericStorablePreparedStatement extends GenericPreparedStatement
         setActivationClass(gc);
     }
 
+    /**
+     * Make a statement read with {@link #readExternal} ready to execute, as {@link #completeCompile} does for a
+     * compiled one.  Only statements which need no permissions are stored, so none are required.
+     */
+    public void completeLoad() throws StandardException {
+        loadGeneratedClass();
+        setRequiredPermissionsList(null);
+        incrementVersionCounter();
+        isValid = true;
+    }
+
     @Override
     public ExecPreparedStatement getClone() throws StandardException {
         GenericStorablePreparedStatement clone = new GenericStorablePreparedStatement(statement);
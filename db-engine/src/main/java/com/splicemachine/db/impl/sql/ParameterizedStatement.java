@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.iapi.types.TypeId;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The text of a statement with the literals it compares columns with replaced by parameters, together with those
+ * literals, so that statements which only differ in such literals share one compiled plan.
+ *
+ * Only the literals which the plan does not depend on are replaced, that is the ones
+ * <ul>
+ *     <li>on the right hand side of a comparison (=, &lt;&gt;, !=, &lt;, &lt;=, &gt;, &gt;=),</li>
+ *     <li>bounding a BETWEEN,</li>
+ *     <li>in an IN list of literals, or</li>
+ *     <li>in the VALUES of an INSERT,</li>
+ * </ul>
+ * and not part of an expression. LIKE patterns (which decide whether a prefix can be scanned), row limits, typed
+ * literals (DATE '...', X'...'), select list and ORDER BY literals are kept, as are comments, which may hold
+ * optimizer hints. Statements which have parameters already, or use JDBC escapes, are not parameterized.
+ */
+public final class ParameterizedStatement{
+    private static final Set<String> STATEMENTS=new HashSet<>(Arrays.asList("SELECT","INSERT","UPDATE","DELETE"));
+    private static final Set<String> COMPARISONS=new HashSet<>(Arrays.asList("=","<>","!=","<","<=",">",">="));
+    private static final Set<String> OPERATORS=new HashSet<>(Arrays.asList("+","-","*","/","||","(","."));
+
+    private static final int WORD=0;
+    private static final int NUMBER=1;
+    private static final int STRING=2;
+    private static final int SYMBOL=3;
+    private static final int SPACE=4;
+    /*typed literals and delimited identifiers, which are copied as they are*/
+    private static final int OTHER=5;
+
+    private final String text;
+    private final String[] literals;
+    private final boolean[] strings;
+
+    private ParameterizedStatement(String text,List<String> literals,List<Boolean> strings){
+        this.text=text;
+        this.literals=literals.toArray(new String[literals.size()]);
+        this.strings=new boolean[this.literals.length];
+        for(int i=0;i<this.strings.length;i++){
+            this.strings[i]=strings.get(i);
+        }
+    }
+
+    /**
+     * @return the statement with its literals replaced by parameters, or null if it has none which can be replaced
+     */
+    public static ParameterizedStatement parameterize(String sql){
+        List<Token> tokens=tokenize(sql);
+        if(tokens==null)
+            return null;
+        int first=nextSignificant(tokens,0);
+        if(first<0 || tokens.get(first).kind!=WORD || !STATEMENTS.contains(tokens.get(first).upper()))
+            return null;
+        boolean insert="INSERT".equals(tokens.get(first).upper());
+
+        StringBuilder text=new StringBuilder(sql.length());
+        List<String> literals=new ArrayList<>();
+        List<Boolean> strings=new ArrayList<>();
+        BitSet lists=new BitSet();
+        int depth=0;
+        int betweenDepth=-1;
+        int valuesDepth=-1;
+        boolean replaceable=false;
+        boolean listStart=false;
+        for(int i=0;i<tokens.size();i++){
+            Token t=tokens.get(i);
+            if(t.kind==SPACE){
+                text.append(t.text);
+                continue;
+            }
+            String sign=null;
+            Token literal=t;
+            if(t.kind==SYMBOL && ("-".equals(t.text) || "+".equals(t.text))
+                    && i+1<tokens.size() && tokens.get(i+1).kind==NUMBER){
+                sign=t.text;
+                literal=tokens.get(i+1);
+            }
+            boolean isLiteral=literal.kind==NUMBER || literal.kind==STRING;
+            if(listStart && !isLiteral && depth!=valuesDepth+1)
+                lists.clear(depth); //a subquery, or an expression
+            listStart=false;
+
+            if(isLiteral && replaceable && !followedByOperator(tokens,sign==null?i:i+1)){
+                if(sign!=null)
+                    i++;
+                literals.add("-".equals(sign)?sign+literal.value:literal.value);
+                strings.add(literal.kind==STRING);
+                text.append('?');
+                replaceable=false;
+                continue;
+            }
+
+            text.append(t.text);
+            String token=t.upper();
+            replaceable=false;
+            if(t.kind==SYMBOL && COMPARISONS.contains(token)){
+                replaceable=true;
+            }else if("(".equals(token)){
+                String previous=previous(tokens,i);
+                depth++;
+                lists.clear(depth);
+                if("IN".equals(previous) || depth==valuesDepth+1){
+                    lists.set(depth);
+                    listStart=true;
+                    replaceable=true;
+                }
+            }else if(")".equals(token)){
+                lists.clear(depth);
+                if(depth==betweenDepth)
+                    betweenDepth=-1;
+                depth--;
+            }else if(",".equals(token)){
+                replaceable=lists.get(depth);
+            }else if(t.kind==WORD && "BETWEEN".equals(token)){
+                betweenDepth=depth;
+                replaceable=true;
+            }else if(t.kind==WORD && "AND".equals(token) && depth==betweenDepth){
+                betweenDepth=-1;
+                replaceable=true;
+            }else if(t.kind==WORD && "VALUES".equals(token) && insert && depth==0){
+                valuesDepth=depth;
+            }
+            if(depth==valuesDepth && !"VALUES".equals(token) && !")".equals(token) && !",".equals(token))
+                valuesDepth=-1;
+            if(depth<valuesDepth)
+                valuesDepth=-1;
+        }
+        if(literals.isEmpty())
+            return null;
+        return new ParameterizedStatement(text.toString(),literals,strings);
+    }
+
+    /**
+     * @return the text of the statement, with parameters in place of the literals
+     */
+    public String getText(){
+        return text;
+    }
+
+    public int getParameterCount(){
+        return literals.length;
+    }
+
+    /**
+     * Binds the literals to the parameters of the compiled statement.
+     *
+     * @param types the types of the parameters, as compiled
+     * @return false if a literal cannot be bound to its parameter without changing its value, or if it compares
+     * with a different type than the literal would. The statement is to be compiled with its literals then.
+     */
+    public boolean bind(ParameterValueSet pvs,DataTypeDescriptor[] types){
+        if(types==null || types.length!=literals.length)
+            return false;
+        try{
+            for(int i=0;i<literals.length;i++){
+                DataTypeDescriptor type=types[i];
+                if(type==null)
+                    return false;
+                TypeId typeId=type.getTypeId();
+                DataValueDescriptor param=pvs.getParameterForSet(i);
+                if(strings[i]){
+                    if(typeId.isDateTimeTimeStampTypeId()){
+                        //as setString() would
+                        param.setValue(literals[i]);
+                        continue;
+                    }
+                    if(!typeId.isStringTypeId() || typeId.isLongConcatableTypeId())
+                        return false;
+                    DataValueDescriptor literal=new SQLVarchar(literals[i]);
+                    if(literal.compare(type.normalize(literal,param))!=0)
+                        return false;
+                }else{
+                    if(!typeId.isNumericTypeId())
+                        return false;
+                    DataValueDescriptor literal=new SQLDecimal(new BigDecimal(literals[i]));
+                    if(literal.compare(type.normalize(literal,param))!=0)
+                        return false;
+                }
+            }
+            return true;
+        }catch(StandardException|NumberFormatException e){
+            //out of range, truncated, or not a valid value of its type
+            return false;
+        }
+    }
+
+    @Override
+    public String toString(){
+        return text;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static boolean followedByOperator(List<Token> tokens,int i){
+        int next=nextSignificant(tokens,i+1);
+        return next>=0 && tokens.get(next).kind==SYMBOL && OPERATORS.contains(tokens.get(next).text);
+    }
+
+    private static String previous(List<Token> tokens,int i){
+        for(int j=i-1;j>=0;j--){
+            if(tokens.get(j).kind!=SPACE)
+                return tokens.get(j).upper();
+        }
+        return null;
+    }
+
+    private static int nextSignificant(List<Token> tokens,int from){
+        for(int j=from;j<tokens.size();j++){
+            if(tokens.get(j).kind!=SPACE)
+                return j;
+        }
+        return -1;
+    }
+
+    /*
+     * Splits the statement into tokens, with comments as spaces. Returns null if it has parameters, JDBC escapes,
+     * or anything which isn't tokenized here.
+     */
+    private static List<Token> tokenize(String sql){
+        List<Token> tokens=new ArrayList<>();
+        int length=sql.length();
+        int i=0;
+        while(i<length){
+            char c=sql.charAt(i);
+            int start=i;
+            if(Character.isWhitespace(c)){
+                while(i<length && Character.isWhitespace(sql.charAt(i))) i++;
+                tokens.add(new Token(SPACE,sql.substring(start,i)));
+            }else if(c=='-' && i+1<length && sql.charAt(i+1)=='-'){
+                while(i<length && sql.charAt(i)!='\n' && sql.charAt(i)!='\r') i++;
+                tokens.add(new Token(SPACE,sql.substring(start,i)));
+            }else if(c=='/' && i+1<length && sql.charAt(i+1)=='*'){
+                int end=sql.indexOf("*/",i+2);
+                if(end<0)
+                    return null;
+                i=end+2;
+                tokens.add(new Token(SPACE,sql.substring(start,i)));
+            }else if(c=='\''){
+                StringBuilder value=new StringBuilder();
+                i=quoted(sql,i,'\'',value);
+                if(i<0)
+                    return null;
+                tokens.add(new Token(STRING,sql.substring(start,i),value.toString()));
+            }else if(c=='"'){
+                i=quoted(sql,i,'"',new StringBuilder());
+                if(i<0)
+                    return null;
+                tokens.add(new Token(OTHER,sql.substring(start,i)));
+            }else if(Character.isDigit(c) || (c=='.' && i+1<length && Character.isDigit(sql.charAt(i+1)))){
+                while(i<length && Character.isDigit(sql.charAt(i))) i++;
+                if(i<length && sql.charAt(i)=='.'){
+                    i++;
+                    while(i<length && Character.isDigit(sql.charAt(i))) i++;
+                }
+                if(i<length && (sql.charAt(i)=='e' || sql.charAt(i)=='E')){
+                    int exponent=i+1;
+                    if(exponent<length && (sql.charAt(exponent)=='+' || sql.charAt(exponent)=='-'))
+                        exponent++;
+                    if(exponent<length && Character.isDigit(sql.charAt(exponent))){
+                        i=exponent;
+                        while(i<length && Character.isDigit(sql.charAt(i))) i++;
+                    }
+                }
+                if(i<length && (Character.isLetter(sql.charAt(i)) || sql.charAt(i)=='_' || sql.charAt(i)=='.'))
+                    return null;
+                tokens.add(new Token(NUMBER,sql.substring(start,i)));
+            }else if(Character.isLetter(c) || c=='_'){
+                while(i<length && isIdentifierPart(sql.charAt(i))) i++;
+                if(i<length && sql.charAt(i)=='\''){
+                    //a hex literal, or the like
+                    i=quoted(sql,i,'\'',new StringBuilder());
+                    if(i<0)
+                        return null;
+                    tokens.add(new Token(OTHER,sql.substring(start,i)));
+                }else
+                    tokens.add(new Token(WORD,sql.substring(start,i)));
+            }else if(c=='?' || c=='{' || c=='}'){
+                return null;
+            }else{
+                i++;
+                if(i<length){
+                    String pair=sql.substring(start,i+1);
+                    if(COMPARISONS.contains(pair) || "||".equals(pair))
+                        i++;
+                }
+                tokens.add(new Token(SYMBOL,sql.substring(start,i)));
+            }
+        }
+        return tokens;
+    }
+
+    /*the position after the quoted token starting at start, or -1 if it isn't closed*/
+    private static int quoted(String sql,int start,char quote,StringBuilder value){
+        int i=start+1;
+        while(i<sql.length()){
+            char c=sql.charAt(i);
+            if(c==quote){
+                if(i+1<sql.length() && sql.charAt(i+1)==quote){
+                    value.append(quote);
+                    i+=2;
+                    continue;
+                }
+                return i+1;
+            }
+            value.append(c);
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean isIdentifierPart(char c){
+        return Character.isLetterOrDigit(c) || c=='_' || c=='$' || c=='#' || c=='@';
+    }
+
+    private static final class Token{
+        final int kind;
+        final String text;
+        /*the value of a string literal, without its quotes*/
+        final String value;
+
+        Token(int kind,String text){
+            this(kind,text,text);
+        }
+
+        Token(int kind,String text,String value){
+            this.kind=kind;
+            this.text=text;
+            this.value=value;
+        }
+
+        String upper(){
+            return kind==WORD?text.toUpperCase(Locale.ENGLISH):text;
+        }
+    }
+}
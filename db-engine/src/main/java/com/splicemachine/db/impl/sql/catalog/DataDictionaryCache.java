@@ -56,9 +56,11 @@ import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanServer;
 import javax.management.MXBean;
 import javax.management.ObjectName;
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -85,6 +87,8 @@ public class DataDictionaryCache {
     private ManagedCache<Pair<String, String>, Optional<RoleGrantDescriptor>> roleGrantCache;
     private ManagedCache<ByteSlice,TokenDescriptor> tokenCache;
     private ManagedCache<String, Optional<String>> propertyCache;
+    private ParameterizedStatementCache parameterizedStatementCache;
+    private PersistentStatementCache persistentStatementCache;
     private DataDictionary dd;
     public static final String [] cacheNames = new String[] {"oidTdCache", "nameTdCache", "spsNameCache", "sequenceGeneratorCache", "permissionsCache", "partitionStatisticsCache",
             "storedPreparedStatementCache", "conglomerateCache", "statementCache", "schemaCache", "aliasDescriptorCache", "roleCache", "defaultRoleCache", "roleGrantCache",
@@ -111,6 +115,8 @@ public class DataDictionaryCache {
                 Property.LANG_PERMISSIONS_CACHE_SIZE_DEFAULT);
         int partstatCacheSize = getCacheSize(startParams, Property.LANG_PARTSTAT_CACHE_SIZE,
                 Property.LANG_PARTSTAT_CACHE_SIZE_DEFAULT);
+        int partstatCacheExpiration = getCacheSize(startParams, Property.LANG_PARTSTAT_CACHE_EXPIRATION,
+                Property.LANG_PARTSTAT_CACHE_EXPIRATION_DEFAULT);
         int conglomerateCacheSize = getCacheSize(startParams,
                 Property.LANG_CONGLOMERATE_CACHE_SIZE,
                 Property.LANG_CONGLOMERATE_CACHE_SIZE_DEFAULT);
@@ -134,6 +140,11 @@ public class DataDictionaryCache {
                 Property.LANG_TOKEN_CACHE_SIZE_DEFAULT);
         int propertyCacheSize = getCacheSize(startParams, Property.LANG_PROPERTY_CACHE_SIZE,
                 Property.LANG_PROPERTY_CACHE_SIZE_DEFAULT);
+        String persistentStatementCacheDirectory = startParams.getProperty(
+                Property.LANG_PERSISTENT_STATEMENT_CACHE_DIRECTORY);
+        int persistentStatementCacheSize = getCacheSize(startParams,
+                Property.LANG_PERSISTENT_STATEMENT_CACHE_SIZE,
+                Property.LANG_PERSISTENT_STATEMENT_CACHE_SIZE_DEFAULT);
 
         RemovalListener<Object,Dependent> dependentInvalidator = new RemovalListener<Object, Dependent>() {
             @Override
@@ -154,14 +165,23 @@ public class DataDictionaryCache {
             storedPreparedStatementCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(stmtCacheSize).removalListener(dependentInvalidator).build());
         }
         sequenceGeneratorCache=new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(seqgenCacheSize).build());
-        partitionStatisticsCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats()
-                .maximumSize(partstatCacheSize).build());
+        CacheBuilder<Object,Object> partstatCacheBuilder = CacheBuilder.newBuilder().recordStats().maximumSize(partstatCacheSize);
+        if(partstatCacheExpiration>0){
+            // statistics may be updated by other servers without an invalidation, so read them again now and then
+            partstatCacheBuilder.expireAfterWrite(partstatCacheExpiration, TimeUnit.MILLISECONDS);
+        }
+        partitionStatisticsCache = new ManagedCache<>(partstatCacheBuilder.build());
         conglomerateCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats()
                 .maximumSize(conglomerateCacheSize).build());
         conglomerateDescriptorCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats()
                 .maximumSize(conglomerateDescriptorCacheSize).build());
         statementCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize
                 (statementCacheSize).removalListener(dependentInvalidator).build());
+        parameterizedStatementCache = new ParameterizedStatementCache(statementCacheSize);
+        if(persistentStatementCacheDirectory!=null && persistentStatementCacheSize>0){
+            persistentStatementCache = new PersistentStatementCache(new File(persistentStatementCacheDirectory),
+                    persistentStatementCacheSize);
+        }
         schemaCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(
                 schemaCacheSize).build());
         oidSchemaCache = new ManagedCache<>(CacheBuilder.newBuilder().recordStats().maximumSize(
@@ -449,6 +469,9 @@ public class DataDictionaryCache {
         schemaCache.invalidateAll();
         oidSchemaCache.invalidateAll();
         statementCache.invalidateAll();
+        parameterizedStatementCache.invalidateAll();
+        if (persistentStatementCache != null)
+            persistentStatementCache.invalidateAll();
         roleCache.invalidateAll();
         defaultRoleCache.invalidateAll();
         roleGrantCache.invalidateAll();
@@ -468,6 +491,7 @@ public class DataDictionaryCache {
         sequenceGeneratorCache.invalidateAll();
         permissionsCache.invalidateAll();
         statementCache.invalidateAll();
+        parameterizedStatementCache.invalidateAll();
         roleCache.invalidateAll();
         defaultRoleCache.invalidateAll();
         roleGrantCache.invalidateAll();
@@ -490,6 +514,9 @@ public class DataDictionaryCache {
         if (LOG.isDebugEnabled())
             LOG.debug("clearStatementCache ");
         statementCache.invalidateAll();
+        parameterizedStatementCache.invalidateAll();
+        if (persistentStatementCache != null)
+            persistentStatementCache.invalidateAll();
     }
 
     public void statementCacheAdd(GenericStatement gs, GenericStorablePreparedStatement gsp) throws StandardException {
@@ -500,6 +527,17 @@ public class DataDictionaryCache {
         statementCache.put(gs,gsp);
     }
 
+    public ParameterizedStatementCache getParameterizedStatementCache() {
+        return parameterizedStatementCache;
+    }
+
+    /**
+     * @return the statements compiled before the server started, or {@code null} if they aren't kept
+     */
+    public PersistentStatementCache getPersistentStatementCache() {
+        return persistentStatementCache;
+    }
+
     public GenericStorablePreparedStatement statementCacheFind(GenericStatement gs) throws StandardException {
         if (!dd.canReadCache(null))
             return null;
@@ -673,6 +711,12 @@ public class DataDictionaryCache {
             ObjectName totCache = new ObjectName("com.splicemachine.db.impl.sql.catalog:type=TotalManagedCache");
             TotalManagedCache tm = new TotalManagedCache(Arrays.asList(mc));
             mbs.registerMBean(tm, totCache);
+            ObjectName parameterizedCache = new ObjectName("com.splicemachine.db.impl.sql.catalog:type=ParameterizedStatementCache");
+            mbs.registerMBean(parameterizedStatementCache, parameterizedCache);
+            if(persistentStatementCache!=null){
+                ObjectName persistentCache = new ObjectName("com.splicemachine.db.impl.sql.catalog:type=PersistentStatementCache");
+                mbs.registerMBean(persistentStatementCache, persistentCache);
+            }
         }catch(InstanceAlreadyExistsException ignored){
             /*
              * For most purposes, this should never happen. However, it's possible to happen
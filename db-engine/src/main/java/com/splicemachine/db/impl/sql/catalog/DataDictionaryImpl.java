@@ -528,6 +528,11 @@ public abstract class DataDictionaryImpl extends BaseDataDictionary{
             // Update (or create) the system stored procedures if requested.
             updateSystemProcedures(bootingTC);
 
+            // Read (or create) the secret the plans in the persistent statement cache are authenticated with.
+            PersistentStatementCache persistentStatementCache=dataDictionaryCache.getPersistentStatementCache();
+            if(persistentStatementCache!=null)
+                persistentStatementCache.initializeKey(bootingTC);
+
 			/* Commit & destroy the create database */
             bootingTC.commit();
             assert cm!=null;
@@ -1146,6 +1151,18 @@ public abstract class DataDictionaryImpl extends BaseDataDictionary{
         int insertRetCode=ti.insertRow(row,tc);
     }
 
+    @Override
+    public void updatePartitionStatistics(PartitionStatisticsDescriptor partitionStatistics,
+                                          TransactionController tc) throws StandardException{
+        TabInfoImpl ti=getNonCoreTI(SYSTABLESTATS_CATALOG_NUM);
+        ExecIndexRow keyRow=exFactory.getIndexableRow(2);
+        keyRow.setColumn(1,new SQLLongint(partitionStatistics.getConglomerateId()));
+        keyRow.setColumn(2,new SQLVarchar(partitionStatistics.getPartitionId()));
+        ti.deleteRow(tc,keyRow,SYSTABLESTATISTICSRowFactory.SYSTABLESTATISTICS_INDEX2_ID);
+        ti.insertRow(ti.getCatalogRowFactory().makeRow(partitionStatistics,null),tc);
+        dataDictionaryCache.partitionStatisticsCacheRemove(partitionStatistics.getConglomerateId());
+    }
+
 
     @Override
     public void addDescriptor(TupleDescriptor td,
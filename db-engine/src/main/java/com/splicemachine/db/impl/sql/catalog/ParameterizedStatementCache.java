@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the statements run with their literals replaced by parameters, and the parameterized statements
+ * which don't compile, so that statements which only differ in their literals from one of those are run as written
+ * without trying to compile it again.
+ */
+public class ParameterizedStatementCache implements ParameterizedStatementCacheMBean{
+    private final Cache<String,Boolean> rejected;
+    private final AtomicLong hits=new AtomicLong(0L);
+    private final AtomicLong misses=new AtomicLong(0L);
+    private final AtomicLong fallbacks=new AtomicLong(0L);
+
+    public ParameterizedStatementCache(int maxRejected){
+        this.rejected=CacheBuilder.newBuilder().maximumSize(maxRejected).build();
+    }
+
+    public boolean isRejected(String schemaName,String parameterizedText){
+        return rejected.getIfPresent(key(schemaName,parameterizedText))!=null;
+    }
+
+    public void reject(String schemaName,String parameterizedText){
+        rejected.put(key(schemaName,parameterizedText),Boolean.TRUE);
+        fallbacks.incrementAndGet();
+    }
+
+    public void recordLookup(boolean compiled){
+        if(compiled)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+    }
+
+    public void recordFallback(){
+        fallbacks.incrementAndGet();
+    }
+
+    @Override public long getParameterizedCount(){ return hits.get()+misses.get(); }
+    @Override public long getHitCount(){ return hits.get(); }
+    @Override public long getMissCount(){ return misses.get(); }
+    @Override public long getFallbackCount(){ return fallbacks.get(); }
+    @Override public long getRejectedSize(){ return rejected.size(); }
+
+    @Override
+    public double getHitRate(){
+        long requests=getParameterizedCount();
+        return requests==0L?1.0d:(double)hits.get()/requests;
+    }
+
+    @Override public void invalidateAll(){ rejected.invalidateAll(); }
+
+    private static String key(String schemaName,String parameterizedText){
+        return schemaName+'\u0000'+parameterizedText;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import javax.management.MXBean;
+
+/**
+ *
+ * The MXBean IFace for ParameterizedStatementCache.
+ *
+ */
+
+@MXBean
+public interface ParameterizedStatementCacheMBean {
+
+    /** the number of statements with their literals replaced by parameters looked up in the statement cache */
+    long getParameterizedCount();
+
+    /** the number of those found compiled in the statement cache */
+    long getHitCount();
+
+    /** the number of those compiled */
+    long getMissCount();
+
+    double getHitRate();
+
+    /** the number of statements which had literals to replace, but were run as written */
+    long getFallbackCount();
+
+    /** the number of parameterized statements known not to compile */
+    long getRejectedSize();
+
+    void invalidateAll();
+
+}
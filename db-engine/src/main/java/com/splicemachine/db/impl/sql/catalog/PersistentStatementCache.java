@@ -0,0 +1,546 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import com.splicemachine.concurrent.MoreExecutors;
+import com.splicemachine.db.catalog.Dependable;
+import com.splicemachine.db.catalog.DefaultInfo;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.FormatIdInputStream;
+import com.splicemachine.db.iapi.services.io.FormatIdOutputStream;
+import com.splicemachine.db.iapi.services.monitor.Monitor;
+import com.splicemachine.db.iapi.services.property.PersistentSet;
+import com.splicemachine.db.iapi.services.property.PropertyUtil;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.depend.Dependency;
+import com.splicemachine.db.iapi.sql.depend.DependencyManager;
+import com.splicemachine.db.iapi.sql.depend.Provider;
+import com.splicemachine.db.iapi.sql.depend.ProviderInfo;
+import com.splicemachine.db.iapi.sql.dictionary.*;
+import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
+import com.splicemachine.db.iapi.util.StringUtil;
+import com.splicemachine.db.impl.sql.GenericStatement;
+import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Compiled statements kept on disk, so that a server which restarts doesn't compile the statements it runs again.
+ *
+ * A statement is kept in the storable form of its plan, as stored prepared statements are, which includes the
+ * bytes of its generated activation class. It is keyed by its text, the schema, isolation level and session
+ * properties it was compiled with, and the version of the engine. Along with the plan are the persistent objects
+ * it depends on and a fingerprint of the definition of each; a plan is only loaded when each of them still
+ * exists with the same definition, and is otherwise compiled again. Plans are written in the background, one file
+ * each, and the ones used most recently are prepared when a server starts.
+ *
+ * Since a plan includes code which is run when it is loaded, each file is authenticated with an HMAC keyed by a
+ * secret kept in the database, and nothing is read from a file before its HMAC is checked. Plans are neither
+ * stored nor loaded until the secret has been {@link #initializeKey read}, or at all when the directory can be
+ * written by other users than its owner.
+ */
+public class PersistentStatementCache implements PersistentStatementCacheMBean{
+    private static final Logger LOG=Logger.getLogger(PersistentStatementCache.class);
+    private static final int FORMAT_VERSION=1;
+    private static final String SUFFIX=".plan";
+    /*the database property the secret plans are authenticated with is kept in*/
+    static final String KEY_PROPERTY="derby.language.persistentStatementCacheKey";
+    private static final String MAC_ALGORITHM="HmacSHA256";
+    private static final int MAC_LENGTH=32;
+
+    private final File directory;
+    private final int maxEntries;
+    private final String engineVersion;
+    private final ExecutorService writer;
+    private volatile SecretKeySpec key;
+    /*incremented when the cache is emptied, so that plans compiled before then aren't written after it*/
+    private final AtomicLong generation=new AtomicLong(0L);
+    private final AtomicLong entries=new AtomicLong(0L);
+    private final AtomicLong hits=new AtomicLong(0L);
+    private final AtomicLong misses=new AtomicLong(0L);
+    private final AtomicLong stale=new AtomicLong(0L);
+    private final AtomicLong failures=new AtomicLong(0L);
+    private final AtomicLong stores=new AtomicLong(0L);
+    private final AtomicLong warmed=new AtomicLong(0L);
+    private final AtomicLong loadNanos=new AtomicLong(0L);
+    private final AtomicLong savedNanos=new AtomicLong(0L);
+
+    public PersistentStatementCache(File directory,int maxEntries){
+        this(directory,maxEntries,Monitor.getMonitor().getEngineVersion().getVersionBuildString(true));
+    }
+
+    PersistentStatementCache(File directory,int maxEntries,String engineVersion){
+        this.directory=directory;
+        this.maxEntries=maxEntries;
+        this.engineVersion=engineVersion;
+        this.writer=MoreExecutors.namedSingleThreadExecutor("persistent-statement-cache-%d",true);
+        if(!directory.isDirectory() && !directory.mkdirs())
+            LOG.warn("Unable to create the persistent statement cache directory "+directory);
+        entries.set(listEntries().length);
+    }
+
+    /**
+     * Read the secret plans are authenticated with from the database, creating it if there isn't one yet. Plans are
+     * only stored and loaded once this is done, and never when the directory is writable by its group or others.
+     */
+    public void initializeKey(PersistentSet properties){
+        if(!isPrivate(directory)){
+            LOG.warn("The persistent statement cache directory "+directory+" can be written by other users, "
+                    +"so no plans will be stored in it or loaded from it");
+            return;
+        }
+        try{
+            String secret=PropertyUtil.getDatabaseProperty(properties,KEY_PROPERTY);
+            if(secret==null){
+                byte[] bytes=new byte[MAC_LENGTH];
+                new SecureRandom().nextBytes(bytes);
+                secret=StringUtil.toHexString(bytes,0,bytes.length);
+                properties.setProperty(KEY_PROPERTY,secret,true);
+            }
+            setKey(StringUtil.fromHexString(secret,0,secret.length()));
+        }catch(StandardException e){
+            LOG.warn("Unable to read the key of the persistent statement cache, so no plans will be stored or loaded",e);
+        }
+    }
+
+    void setKey(byte[] secret){
+        key=new SecretKeySpec(secret,MAC_ALGORITHM);
+    }
+
+    /**
+     * Load the plan of {@code statement} into {@code ps}, and make {@code ps} depend on what the plan depends on.
+     *
+     * @return {@code true} if the plan was loaded, {@code false} if the statement has to be compiled
+     */
+    public boolean load(GenericStatement statement,GenericStorablePreparedStatement ps,LanguageConnectionContext lcc){
+        long start=System.nanoTime();
+        File file=file(statement);
+        if(key==null || !file.isFile()){
+            misses.incrementAndGet();
+            return false;
+        }
+        DataDictionary dd=lcc.getDataDictionary();
+        DependencyManager dm=dd.getDependencyManager();
+        boolean dependent=false;
+        long compileNanos;
+        try{
+            if(!dd.canReadCache(null)){
+                //a DDL change is in progress, the dependencies may be changing
+                misses.incrementAndGet();
+                return false;
+            }
+            FormatIdInputStream in=open(file);
+            Entry entry=Entry.read(in);
+            if(entry==null || !entry.matches(engineVersion,statement)){
+                staleEntry(file);
+                return false;
+            }
+            compileNanos=in.readLong();
+            int numProviders=in.readInt();
+            List<Provider> providers=new ArrayList<>(numProviders);
+            for(int i=0;i<numProviders;i++){
+                ProviderInfo info=(ProviderInfo)in.readObject();
+                String fingerprint=(String)in.readObject();
+                Dependable dependable;
+                try{
+                    dependable=info.getDependableFinder().getDependable(dd,info.getObjectId());
+                }catch(StandardException se){
+                    dependable=null; //it was dropped
+                }
+                if(!(dependable instanceof Provider) || !fingerprint.equals(fingerprint(dd,dependable))){
+                    staleEntry(file);
+                    return false;
+                }
+                providers.add((Provider)dependable);
+            }
+            // depend on them before the plan is valid, as a compiled plan does, so that a change made while it
+            // is loaded invalidates it
+            dependent=true;
+            for(Provider provider : providers){
+                dm.addDependency(ps,provider,lcc.getContextManager());
+            }
+            ps.readExternal(in);
+            ps.completeLoad();
+        }catch(IOException | ClassNotFoundException | StandardException | RuntimeException e){
+            if(dependent){
+                try{
+                    dm.clearDependencies(lcc,ps);
+                }catch(StandardException ignored){
+                    //it is compiled, which replaces its dependencies
+                }
+            }
+            failedEntry(file,e);
+            return false;
+        }
+
+        long elapsed=System.nanoTime()-start;
+        hits.incrementAndGet();
+        loadNanos.addAndGet(elapsed);
+        savedNanos.addAndGet(Math.max(0L,compileNanos-elapsed));
+        //keep the plans used most recently when there are too many
+        writer.execute(() -> file.setLastModified(System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * Get the plan {@code statement} was just compiled to in the form it is stored in.
+     *
+     * @return the plan to {@link #store}, or {@code null} if it can't be stored
+     */
+    public byte[] toEntry(GenericStatement statement,GenericStorablePreparedStatement ps,long compileNanos,
+                          LanguageConnectionContext lcc){
+        if(key==null)
+            return null;
+        DataDictionary dd=lcc.getDataDictionary();
+        try{
+            if(!dd.canWriteCache(null) || !ps.isCompiledUpToDate())
+                return null;
+            DependencyManager dm=dd.getDependencyManager();
+            Collection<Dependency> dependencies=dm.find(ps.getObjectID());
+            if(dependencies!=null){
+                for(Dependency dependency : dependencies){
+                    // a plan which depends on something that isn't in the dictionary can't be checked when it's loaded
+                    if(!dependency.getProvider().isPersistent())
+                        return null;
+                }
+            }
+            ProviderInfo[] infos=dm.getPersistentProviderInfos(ps);
+            ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+            FormatIdOutputStream out=new FormatIdOutputStream(bytes);
+            new Entry(engineVersion,statement).write(out);
+            out.writeLong(compileNanos);
+            out.writeInt(infos.length);
+            for(ProviderInfo info : infos){
+                Dependable dependable=info.getDependableFinder().getDependable(dd,info.getObjectId());
+                out.writeObject(info);
+                out.writeObject(fingerprint(dd,dependable));
+            }
+            ps.writeExternal(out);
+            out.flush();
+            return sign(bytes.toByteArray());
+        }catch(IOException | StandardException | RuntimeException e){
+            LOG.warn("Unable to store the plan of "+statement.getSource(),e);
+            return null;
+        }
+    }
+
+    /**
+     * Write a plan got from {@link #toEntry} to disk, in the background.
+     */
+    public void store(GenericStatement statement,byte[] entry){
+        final File file=file(statement);
+        final long storedGeneration=generation.get();
+        writer.execute(() -> {
+            if(generation.get()!=storedGeneration) return;
+            try{
+                boolean replaced=file.isFile();
+                File tmp=File.createTempFile(file.getName(),".tmp",directory);
+                try{
+                    Files.write(tmp.toPath(),entry);
+                    Files.move(tmp.toPath(),file.toPath(),StandardCopyOption.ATOMIC_MOVE,StandardCopyOption.REPLACE_EXISTING);
+                }finally{
+                    Files.deleteIfExists(tmp.toPath());
+                }
+                stores.incrementAndGet();
+                if(!replaced && entries.incrementAndGet()>maxEntries)
+                    evict();
+            }catch(IOException e){
+                LOG.warn("Unable to write the plan of a statement to "+file,e);
+            }
+        });
+    }
+
+    /**
+     * Prepare the statements used most recently which were compiled in an environment like the one of {@code lcc},
+     * so that they are in the statement cache before they are run.
+     *
+     * @return the number of statements loaded
+     */
+    public int warm(LanguageConnectionContext lcc){
+        if(key==null)
+            return 0;
+        File[] files=listEntries();
+        Arrays.sort(files,Comparator.comparingLong(File::lastModified).reversed());
+        String sessionPropertyValues=lcc.getCurrentSessionPropertyDelimited();
+        DataDictionary dd=lcc.getDataDictionary();
+        int loaded=0;
+        for(int i=0;i<files.length && i<maxEntries;i++){
+            int depth=lcc.getStatementDepth();
+            try{
+                Entry entry=Entry.read(open(files[i]));
+                if(entry==null || !engineVersion.equals(entry.engineVersion)
+                        || entry.isolationLevel!=ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL
+                        || !sessionPropertyValues.equals(entry.sessionPropertyValues))
+                    continue;
+                SchemaDescriptor schema=dd.getSchemaDescriptor(entry.schemaName,lcc.getTransactionCompile(),false);
+                if(schema==null || !schema.getUUID().toString().equals(entry.schemaId))
+                    continue;
+                GenericStatement statement=(GenericStatement)lcc.getLanguageConnectionFactory()
+                        .getStatement(schema,entry.text,entry.isForReadOnly,lcc);
+                statement.prepare(lcc);
+                if(!statement.wasCompiled())
+                    loaded++;
+            }catch(IOException | ClassNotFoundException | StandardException | RuntimeException e){
+                //it's prepared again when it's run
+                if(LOG.isDebugEnabled())
+                    LOG.debug("Unable to prepare the statement stored in "+files[i],e);
+                try{
+                    while(lcc.getStatementDepth()>depth){
+                        lcc.popStatementContext(lcc.getStatementContext(),e);
+                    }
+                }catch(RuntimeException re){
+                    LOG.warn("Unable to reset the statement context after preparing "+files[i],re);
+                    break;
+                }
+            }
+        }
+        warmed.addAndGet(loaded);
+        return loaded;
+    }
+
+    @Override public String getDirectory(){ return directory.getPath(); }
+    @Override public long getSize(){ return entries.get(); }
+    @Override public long getHitCount(){ return hits.get(); }
+    @Override public long getMissCount(){ return misses.get(); }
+    @Override public long getStaleCount(){ return stale.get(); }
+    @Override public long getFailureCount(){ return failures.get(); }
+    @Override public long getStoreCount(){ return stores.get(); }
+    @Override public long getWarmedCount(){ return warmed.get(); }
+    @Override public long getLoadTime(){ return loadNanos.get()/1000000L; }
+    @Override public long getCompileTimeSaved(){ return savedNanos.get()/1000000L; }
+
+    @Override
+    public double getHitRate(){
+        long requests=hits.get()+misses.get()+stale.get()+failures.get();
+        return requests==0L?1.0d:(double)hits.get()/requests;
+    }
+
+    @Override
+    public void invalidateAll(){
+        generation.incrementAndGet();
+        for(File file : listEntries()){
+            delete(file);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private File[] listEntries(){
+        File[] files=directory.listFiles((dir,name) -> name.endsWith(SUFFIX));
+        return files==null?new File[0]:files;
+    }
+
+    private File file(GenericStatement statement){
+        return new File(directory,sha1(new Entry(engineVersion,statement).toString())+SUFFIX);
+    }
+
+    /*@return the plan preceded by its HMAC, as it is written to disk*/
+    byte[] sign(byte[] plan){
+        byte[] signed=new byte[MAC_LENGTH+plan.length];
+        System.arraycopy(newMac().doFinal(plan),0,signed,0,MAC_LENGTH);
+        System.arraycopy(plan,0,signed,MAC_LENGTH,plan.length);
+        return signed;
+    }
+
+    /*@return the plan stored in file, once its HMAC has been checked*/
+    FormatIdInputStream open(File file) throws IOException{
+        byte[] signed=Files.readAllBytes(file.toPath());
+        if(signed.length<MAC_LENGTH)
+            throw new IOException("The plan stored in "+file+" is truncated");
+        Mac mac=newMac();
+        mac.update(signed,MAC_LENGTH,signed.length-MAC_LENGTH);
+        if(!MessageDigest.isEqual(mac.doFinal(),Arrays.copyOf(signed,MAC_LENGTH)))
+            throw new IOException("The plan stored in "+file+" was not written by this database");
+        return new FormatIdInputStream(new ByteArrayInputStream(signed,MAC_LENGTH,signed.length-MAC_LENGTH));
+    }
+
+    private Mac newMac(){
+        try{
+            Mac mac=Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        }catch(GeneralSecurityException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*@return false if the directory can be written by other users than its owner*/
+    static boolean isPrivate(File directory){
+        try{
+            Set<PosixFilePermission> permissions=Files.getPosixFilePermissions(directory.toPath());
+            return !permissions.contains(PosixFilePermission.GROUP_WRITE)
+                    && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+        }catch(UnsupportedOperationException e){
+            return true; //no POSIX permissions to check, the HMAC still protects the plans
+        }catch(IOException e){
+            LOG.warn("Unable to read the permissions of "+directory,e);
+            return false;
+        }
+    }
+
+    private void staleEntry(File file){
+        stale.incrementAndGet();
+        delete(file);
+    }
+
+    private void failedEntry(File file,Exception e){
+        LOG.warn("Unable to load the plan stored in "+file+", compiling it",e);
+        failures.incrementAndGet();
+        delete(file);
+    }
+
+    private void delete(File file){
+        if(file.delete())
+            entries.decrementAndGet();
+    }
+
+    /*remove the plans used least recently, leaving some room so that this doesn't happen on each store*/
+    private void evict(){
+        File[] files=listEntries();
+        entries.set(files.length);
+        int target=maxEntries-maxEntries/10;
+        if(files.length<=target) return;
+        Arrays.sort(files,Comparator.comparingLong(File::lastModified));
+        for(int i=0;i<files.length-target;i++){
+            delete(files[i]);
+        }
+    }
+
+    /*
+     * The definition of a dependency which the plans depending on it are compiled from. A plan only needs to be
+     * compiled again when this changes, as it is for the statement cache, so statistics aren't part of it.
+     */
+    static String fingerprint(DataDictionary dd,Dependable dependable) throws StandardException{
+        StringBuilder sb=new StringBuilder();
+        sb.append(dependable.getClassType()).append('|').append(dependable.getObjectName());
+        if(dependable instanceof TableDescriptor){
+            TableDescriptor td=(TableDescriptor)dependable;
+            sb.append('|').append(td.getTableType()).append('|').append(td.getHeapConglomerateId())
+                    .append('|').append(td.getVersion());
+            for(ColumnDescriptor cd : td.getColumnDescriptorList()){
+                DefaultInfo defaultInfo=cd.getDefaultInfo();
+                sb.append("|c:").append(cd.getColumnName()).append(',').append(cd.getPosition())
+                        .append(',').append(cd.getType())
+                        .append(',').append(defaultInfo==null?null:defaultInfo.getDefaultText())
+                        .append(',').append(cd.getAutoincInc());
+            }
+            for(ConglomerateDescriptor cd : td.getConglomerateDescriptorList()){
+                sb.append("|i:").append(cd.getConglomerateNumber()).append(',').append(cd.getIndexDescriptor());
+            }
+            for(ConstraintDescriptor cd : dd.getConstraintDescriptors(td)){
+                sb.append("|k:").append(cd.getUUID());
+            }
+            for(Object trigger : dd.getTriggerDescriptors(td)){
+                sb.append("|t:").append(((TriggerDescriptor)trigger).getUUID());
+            }
+        }else if(dependable instanceof ConglomerateDescriptor){
+            ConglomerateDescriptor cd=(ConglomerateDescriptor)dependable;
+            sb.append('|').append(cd.getConglomerateNumber()).append('|').append(cd.getIndexDescriptor());
+        }else if(dependable instanceof ViewDescriptor){
+            sb.append('|').append(((ViewDescriptor)dependable).getViewText());
+        }else if(dependable instanceof AliasDescriptor){
+            AliasDescriptor ad=(AliasDescriptor)dependable;
+            sb.append('|').append(ad.getJavaClassName()).append('|').append(ad.getAliasInfo());
+        }
+        return sha1(sb.toString());
+    }
+
+    private static String sha1(String s){
+        try{
+            byte[] digest=MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            return StringUtil.toHexString(digest,0,digest.length);
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*the key of a stored plan*/
+    static final class Entry{
+        final String engineVersion;
+        final String schemaId;
+        final String schemaName;
+        final boolean isForReadOnly;
+        final int isolationLevel;
+        final String sessionPropertyValues;
+        final String text;
+
+        Entry(String engineVersion,GenericStatement statement){
+            this(engineVersion,statement.getCompilationSchemaDescriptor().getUUID().toString(),
+                    statement.getCompilationSchema(),statement.isForReadOnly(),statement.getPrepareIsolationLevel(),
+                    statement.getSessionPropertyValues(),statement.getSource());
+        }
+
+        Entry(String engineVersion,String schemaId,String schemaName,boolean isForReadOnly,int isolationLevel,
+              String sessionPropertyValues,String text){
+            this.engineVersion=engineVersion;
+            this.schemaId=schemaId;
+            this.schemaName=schemaName;
+            this.isForReadOnly=isForReadOnly;
+            this.isolationLevel=isolationLevel;
+            this.sessionPropertyValues=sessionPropertyValues;
+            this.text=text;
+        }
+
+        boolean matches(String engineVersion,GenericStatement statement){
+            return toString().equals(new Entry(engineVersion,statement).toString());
+        }
+
+        void write(FormatIdOutputStream out) throws IOException{
+            out.writeInt(FORMAT_VERSION);
+            out.writeObject(engineVersion);
+            out.writeObject(schemaId);
+            out.writeObject(schemaName);
+            out.writeBoolean(isForReadOnly);
+            out.writeInt(isolationLevel);
+            out.writeObject(sessionPropertyValues);
+            out.writeObject(text);
+        }
+
+        /*@return the key, or {@code null} if it was stored in another format*/
+        static Entry read(FormatIdInputStream in) throws IOException, ClassNotFoundException{
+            if(in.readInt()!=FORMAT_VERSION)
+                return null;
+            return new Entry((String)in.readObject(),(String)in.readObject(),(String)in.readObject(),
+                    in.readBoolean(),in.readInt(),(String)in.readObject(),(String)in.readObject());
+        }
+
+        @Override
+        public String toString(){
+            return engineVersion+'\u0000'+schemaId+'\u0000'+schemaName+'\u0000'+isForReadOnly+'\u0000'+isolationLevel
+                    +'\u0000'+sessionPropertyValues+'\u0000'+text;
+        }
+    }
+}
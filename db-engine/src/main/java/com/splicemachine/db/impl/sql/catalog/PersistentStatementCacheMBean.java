@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.splicemachine.db.impl.sql.catalog;
+
+import javax.management.MXBean;
+
+/**
+ *
+ * The MXBean IFace for PersistentStatementCache.
+ *
+ */
+
+@MXBean
+public interface PersistentStatementCacheMBean {
+
+    /** the directory the compiled statements are kept in */
+    String getDirectory();
+
+    /** the number of compiled statements on disk */
+    long getSize();
+
+    /** the number of statements loaded from disk instead of being compiled */
+    long getHitCount();
+
+    /** the number of statements compiled because they weren't on disk */
+    long getMissCount();
+
+    /** the number of statements compiled because something they depend on changed since they were stored */
+    long getStaleCount();
+
+    /** the number of statements compiled because they couldn't be read */
+    long getFailureCount();
+
+    double getHitRate();
+
+    /** the number of compiled statements written to disk */
+    long getStoreCount();
+
+    /** the number of statements loaded when the server started */
+    long getWarmedCount();
+
+    /** the time spent loading statements from disk, in milliseconds */
+    long getLoadTime();
+
+    /** the time it took to compile the statements loaded from disk, less the time it took to load them, in milliseconds */
+    long getCompileTimeSaved();
+
+    void invalidateAll();
+
+}
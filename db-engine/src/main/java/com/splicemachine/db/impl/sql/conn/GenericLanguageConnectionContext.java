@@ -65,6 +65,8 @@ import com.splicemachine.db.iapi.util.IdUtil;
 import com.splicemachine.db.iapi.util.InterruptStatus;
 import com.splicemachine.db.impl.sql.GenericStatement;
 import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.db.impl.sql.ParameterizedStatement;
+import com.splicemachine.db.impl.sql.catalog.ParameterizedStatementCache;
 import com.splicemachine.db.impl.sql.compile.CompilerContextImpl;
 import com.splicemachine.db.impl.sql.execute.*;
 import com.splicemachine.db.impl.sql.misc.CommentStripper;
@@ -77,6 +79,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
+import static com.splicemachine.db.iapi.reference.Property.AUTO_PARAMETERIZE_LITERALS_ENABLED;
 import static com.splicemachine.db.iapi.reference.Property.MATCHING_STATEMENT_CACHE_IGNORING_COMMENT_OPTIMIZATION_ENABLED;
 
 /**
@@ -331,6 +334,7 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
     private SessionPropertiesImpl sessionProperties;
     private final CommentStripper commentStripper;
     private boolean ignoreCommentOptEnabled = false;
+    private boolean autoParameterizeEnabled = false;
     private String origStmtTxt;
 
     private String defaultSchema;
@@ -401,6 +405,7 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
 
         String ignoreCommentOptEnabledStr = PropertyUtil.getCachedDatabaseProperty(this, MATCHING_STATEMENT_CACHE_IGNORING_COMMENT_OPTIMIZATION_ENABLED);
         ignoreCommentOptEnabled = Boolean.valueOf(ignoreCommentOptEnabledStr);
+        autoParameterizeEnabled = Boolean.valueOf(PropertyUtil.getCachedDatabaseProperty(this, AUTO_PARAMETERIZE_LITERALS_ENABLED));
 
     }
 
@@ -854,6 +859,7 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         // read again the property in case it is changed
         String ignoreCommentOptEnabledStr = PropertyUtil.getCachedDatabaseProperty(this, MATCHING_STATEMENT_CACHE_IGNORING_COMMENT_OPTIMIZATION_ENABLED);
         ignoreCommentOptEnabled = Boolean.valueOf(ignoreCommentOptEnabledStr);
+        autoParameterizeEnabled = Boolean.valueOf(PropertyUtil.getCachedDatabaseProperty(this, AUTO_PARAMETERIZE_LITERALS_ENABLED));
         origStmtTxt = null;
     }
 
@@ -1193,6 +1199,53 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         return connFactory.getStatement(getDefaultSchema(),sqlText,true, this).prepare(this);
     }
 
+    @Override
+    public Activation getParameterizedActivation(SchemaDescriptor compilationSchema,
+                                                 String sqlText,
+                                                 boolean isForReadOnly,
+                                                 boolean scrollable) throws StandardException{
+        if(restoreMode)
+            return null;
+        ParameterizedStatement parameterized=ParameterizedStatement.parameterize(sqlText);
+        if(parameterized==null)
+            return null;
+        ParameterizedStatementCache cache=getDataDictionary().getDataDictionaryCache().getParameterizedStatementCache();
+        String schemaName=compilationSchema.getSchemaName();
+        String text=parameterized.getText();
+        if(cache.isRejected(schemaName,text)){
+            cache.recordFallback();
+            return null;
+        }
+
+        GenericStatement statement=(GenericStatement)connFactory.getStatement(compilationSchema,text,isForReadOnly,this);
+        int depth=getStatementDepth();
+        PreparedStatement ps;
+        try{
+            ps=statement.prepare(this);
+        }catch(StandardException se){
+            if(se.getSeverity()>ExceptionSeverity.STATEMENT_SEVERITY)
+                throw se;
+            // A parameter where the literal was may not be allowed, or not have a type. The statement
+            // is compiled with its literals instead, which reports the error if it has one. As in
+            // GenericStatement.prepare(), the contexts pushed while compiling are popped here, since
+            // no error handler will.
+            while(getStatementDepth()>depth){
+                popStatementContext(getStatementContext(),null);
+            }
+            cache.reject(schemaName,text);
+            return null;
+        }
+        cache.recordLookup(statement.wasCompiled());
+
+        Activation activation=ps.getActivation(this,scrollable);
+        if(!parameterized.bind(activation.getParameterValueSet(),ps.getParameterTypes())){
+            activation.close();
+            cache.recordFallback();
+            return null;
+        }
+        return activation;
+    }
+
     /**
      * Remove the activation to those known about by this connection.
      */
@@ -3846,4 +3899,8 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
     public boolean getIgnoreCommentOptEnabled() {
         return ignoreCommentOptEnabled;
     }
+
+    public boolean getAutoParameterizeEnabled() {
+        return autoParameterizeEnabled;
+    }
 }
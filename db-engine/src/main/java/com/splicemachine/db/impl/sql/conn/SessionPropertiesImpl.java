@@ -32,6 +32,7 @@ package com.splicemachine.db.impl.sql.conn;
 
 import com.splicemachine.db.iapi.sql.conn.SessionProperties;
 
+import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.BROADCASTJOINCOMPACTTABLE;
 import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.DEFAULTSELECTIVITYFACTOR;
 import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.SKIPSTATS;
 import static com.splicemachine.db.iapi.sql.conn.SessionProperties.PROPERTYNAME.USESPARK;
@@ -63,6 +64,10 @@ public class SessionPropertiesImpl implements SessionProperties {
                 boolean skipStatsVal = Boolean.valueOf(valString);
                 properties[SKIPSTATS.getId()] = skipStatsVal;
                 break;
+            case BROADCASTJOINCOMPACTTABLE:
+                boolean compactTableVal = Boolean.valueOf(valString);
+                properties[BROADCASTJOINCOMPACTTABLE.getId()] = compactTableVal;
+                break;
             default:
                 break;
         }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.TypeId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Types;
+
+public class ParameterizedStatementTest {
+
+    @Test
+    public void replacesComparedLiterals() throws Exception {
+        assertParameterized("select * from t where a = ? and b <> ? and c >= ?",
+                "select * from t where a = 5 and b <> 'it''s' and c >= -1.5e3");
+        assertParameterized("select * from t where a between ? and ? and b=?",
+                "select * from t where a between 1 and 10 and b=2");
+        assertParameterized("update t set a = ?, b = ? where k = ?",
+                "update t set a = 5, b = 'z' where k = 7");
+    }
+
+    @Test
+    public void replacesListsOfLiterals() throws Exception {
+        assertParameterized("select * from t where a in (?, ?, ?) and b in (select c from u where d = ?)",
+                "select * from t where a in (1, 2, -3) and b in (select c from u where d = 4)");
+        assertParameterized("insert into t (a, b) values (?, ?), (?, ?)",
+                "insert into t (a, b) values (1, 'x'), (2, 'y')");
+    }
+
+    @Test
+    public void keepsLiteralsThePlanDependsOn() throws Exception {
+        Assert.assertNull(ParameterizedStatement.parameterize(
+                "select a, 1 from t where b like 'ab%' order by 1 fetch first 10 rows only"));
+        Assert.assertNull("Part of an expression",
+                ParameterizedStatement.parameterize("select * from t where a = 5 + b"));
+        Assert.assertNull("Subquery in an IN list",
+                ParameterizedStatement.parameterize("select * from t where a in (select 1 from u)"));
+        assertParameterized("select * from t --splice-properties index=null\n where d = DATE '2020-01-01' and \"a = 5\" = ?",
+                "select * from t --splice-properties index=null\n where d = DATE '2020-01-01' and \"a = 5\" = 6");
+    }
+
+    @Test
+    public void onlyParameterizesStatementsWithoutParameters() throws Exception {
+        Assert.assertNull(ParameterizedStatement.parameterize("select * from t where a = ? and b = 5"));
+        Assert.assertNull(ParameterizedStatement.parameterize("create table t (a int default 5)"));
+        Assert.assertNull(ParameterizedStatement.parameterize("select * from t where a = {d '2020-01-01'}"));
+        Assert.assertNull(ParameterizedStatement.parameterize("select * from t where a = 'unterminated"));
+    }
+
+    @Test
+    public void bindsLiteralsWhichKeepTheirValue() throws Exception {
+        Assert.assertTrue(bind("select * from t where a = 5",
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)));
+        Assert.assertTrue(bind("select * from t where a = 'ab'",
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.CHAR, 4)));
+        Assert.assertTrue(bind("select * from t where a = '2020-01-31'",
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DATE)));
+
+        Assert.assertFalse("Truncated", bind("select * from t where a = 3.7",
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)));
+        Assert.assertFalse("Rounded", bind("select * from t where a = 1.005",
+                new DataTypeDescriptor(TypeId.getBuiltInTypeId(Types.DECIMAL), 5, 2, true, 7)));
+        Assert.assertFalse("Out of range", bind("select * from t where a = 3000000000",
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)));
+        Assert.assertFalse("Too long", bind("select * from t where a = 'abcd'",
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR, 3)));
+        Assert.assertFalse("Compared as a string", bind("select * from t where a = '5'",
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)));
+        Assert.assertFalse("Not a date", bind("select * from t where a = 'tomorrow'",
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DATE)));
+    }
+
+    private static void assertParameterized(String expected, String sql) {
+        ParameterizedStatement statement = ParameterizedStatement.parameterize(sql);
+        Assert.assertNotNull(sql, statement);
+        Assert.assertEquals(expected, statement.getText());
+    }
+
+    private static boolean bind(String sql, DataTypeDescriptor type) throws Exception {
+        ParameterizedStatement statement = ParameterizedStatement.parameterize(sql);
+        Assert.assertNotNull(sql, statement);
+        Assert.assertEquals(1, statement.getParameterCount());
+        DataTypeDescriptor[] types = {type};
+        GenericParameterValueSet pvs = new GenericParameterValueSet(null, 1, false);
+        pvs.initialize(types);
+        return statement.bind(pvs, types);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.db.impl.sql.catalog;
+
+import com.splicemachine.db.iapi.services.io.FormatIdInputStream;
+import com.splicemachine.db.iapi.services.io.FormatIdOutputStream;
+import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+public class PersistentStatementCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keysRoundTrip() throws Exception {
+        char[] longText = new char[30000];
+        Arrays.fill(longText, 'x');
+        for (String text : new String[]{"select * from t where a = ?", "select '" + new String(longText) + "' from t"}) {
+            PersistentStatementCache.Entry entry = new PersistentStatementCache.Entry("3.0.0.1 (1)", "uuid", "SPLICE",
+                    true, ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL, "null", text);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            FormatIdOutputStream out = new FormatIdOutputStream(bytes);
+            entry.write(out);
+            out.writeLong(42L);
+            out.flush();
+
+            FormatIdInputStream in = new FormatIdInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            PersistentStatementCache.Entry read = PersistentStatementCache.Entry.read(in);
+            Assert.assertNotNull(read);
+            Assert.assertEquals(entry.toString(), read.toString());
+            Assert.assertEquals(text, read.text);
+            Assert.assertEquals("The rest of the entry follows the key", 42L, in.readLong());
+        }
+    }
+
+    @Test
+    public void ignoresKeysOfAnotherFormat() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FormatIdOutputStream out = new FormatIdOutputStream(bytes);
+        out.writeInt(-1);
+        out.flush();
+        Assert.assertNull(PersistentStatementCache.Entry.read(
+                new FormatIdInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+
+    @Test
+    public void invalidateAllRemovesStoredPlans() throws Exception {
+        File directory = folder.newFolder("plans");
+        Assert.assertTrue(new File(directory, "a.plan").createNewFile());
+        Assert.assertTrue(new File(directory, "b.plan").createNewFile());
+        Assert.assertTrue(new File(directory, "unrelated.txt").createNewFile());
+
+        PersistentStatementCache cache = new PersistentStatementCache(directory, 10, "3.0.0.1 (1)");
+        Assert.assertEquals(2, cache.getSize());
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertArrayEquals(new String[]{"unrelated.txt"}, directory.list());
+        Assert.assertEquals(1.0d, cache.getHitRate(), 0.0d);
+    }
+
+    @Test
+    public void readsPlansItSigned() throws Exception {
+        PersistentStatementCache cache = new PersistentStatementCache(folder.newFolder("plans"), 10, "3.0.0.1 (1)");
+        cache.setKey(secret((byte) 1));
+        File file = folder.newFile("a.plan");
+        Files.write(file.toPath(), cache.sign(plan()));
+        Assert.assertEquals(42L, cache.open(file).readLong());
+    }
+
+    @Test
+    public void rejectsTamperedPlans() throws Exception {
+        PersistentStatementCache cache = new PersistentStatementCache(folder.newFolder("plans"), 10, "3.0.0.1 (1)");
+        cache.setKey(secret((byte) 1));
+        byte[] signed = cache.sign(plan());
+        signed[signed.length - 1]++;
+        assertRejected(cache, signed);
+
+        PersistentStatementCache other = new PersistentStatementCache(folder.newFolder("other"), 10, "3.0.0.1 (1)");
+        other.setKey(secret((byte) 2));
+        assertRejected(cache, other.sign(plan()));
+        assertRejected(cache, plan());
+    }
+
+    @Test
+    public void refusesDirectoriesOthersCanWrite() throws Exception {
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        File directory = folder.newFolder("plans");
+        Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwx------"));
+        Assert.assertTrue(PersistentStatementCache.isPrivate(directory));
+        Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxrwxr-x"));
+        Assert.assertFalse(PersistentStatementCache.isPrivate(directory));
+        Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwxr-xrwx"));
+        Assert.assertFalse(PersistentStatementCache.isPrivate(directory));
+    }
+
+    private void assertRejected(PersistentStatementCache cache, byte[] contents) throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), contents);
+        try {
+            cache.open(file);
+            Assert.fail("Expected the plan in " + file + " to be rejected");
+        } catch (IOException expected) {
+            // nothing is read from a plan which wasn't signed with the key of the cache
+        }
+    }
+
+    private static byte[] plan() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FormatIdOutputStream out = new FormatIdOutputStream(bytes);
+        out.writeLong(42L);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] secret(byte b) {
+        byte[] secret = new byte[32];
+        Arrays.fill(secret, b);
+        return secret;
+    }
+}
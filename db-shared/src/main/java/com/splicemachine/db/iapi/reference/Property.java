@@ -652,6 +652,16 @@ public interface Property {
 	String	LANG_PARTSTAT_CACHE_SIZE = "derby.language.partitionStatisticsCacheSize";
 	int		LANG_PARTSTAT_CACHE_SIZE_DEFAULT =8092;
 
+	/**
+	 * The time, in milliseconds, that the partition statistics of a conglomerate are
+	 * kept in the data dictionary cache before they are read again. 0 keeps them until
+	 * they are invalidated.  Database.  Static.
+	 * <p>
+	 * Undocumented.
+	 */
+	String	LANG_PARTSTAT_CACHE_EXPIRATION = "derby.language.partitionStatisticsCacheExpiration";
+	int		LANG_PARTSTAT_CACHE_EXPIRATION_DEFAULT =0;
+
 	/**
 	 * The size of the conglomerate cache
 	 * used by the data dictionary.  Database.  Static.
@@ -742,6 +752,22 @@ public interface Property {
 	String	LANG_PROPERTY_CACHE_SIZE = "derby.language.propertyCacheSize";
 	int		LANG_PROPERTY_CACHE_SIZE_DEFAULT =128;
 
+	/**
+	 * The directory in which the compiled plans of statements are kept, so that
+	 * they don't have to be compiled again after a restart.  Database.  Static.
+	 * <p>
+	 * By default, no plans are kept.  No plans are kept either when the
+	 * directory can be written by other users than its owner.
+	 */
+	String	LANG_PERSISTENT_STATEMENT_CACHE_DIRECTORY = "derby.language.persistentStatementCacheDirectory";
+
+	/**
+	 * The number of compiled plans kept in the persistent statement cache
+	 * directory.  Database.  Static.
+	 */
+	String	LANG_PERSISTENT_STATEMENT_CACHE_SIZE = "derby.language.persistentStatementCacheSize";
+	int		LANG_PERSISTENT_STATEMENT_CACHE_SIZE_DEFAULT =4096;
+
 	/**
 	 * Name of the implementation of SequencePreallocator which is used
      * to tune how many values Derby pre-allocates for identity columns
@@ -1348,7 +1374,15 @@ public interface Property {
 	 */
 	String MATCHING_STATEMENT_CACHE_IGNORING_COMMENT_OPTIMIZATION_ENABLED =
 			"derby.database.matchStmtCacheIgnoreCommentOptimizationEnabled";
-	
+
+	/**
+	 * If true, statements executed without parameters have the literals they compare
+	 * columns with replaced by parameters, so that statements differing only in those
+	 * literals share one compiled plan in the statement cache. By default, this is disabled.
+	 */
+	String AUTO_PARAMETERIZE_LITERALS_ENABLED =
+			"derby.database.autoParameterizeLiteralsEnabled";
+
 	/**
 	 * The maximum number of IN list items the optimizer is allowed to generate by combining
 	 * IN lists involving index or primary key columns into a single multicolumn IN list.
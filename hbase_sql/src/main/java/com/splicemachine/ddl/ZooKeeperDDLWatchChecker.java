@@ -15,11 +15,16 @@
 package com.splicemachine.ddl;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 
 import com.google.common.collect.Lists;
 import org.apache.log4j.Logger;
+import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.Op;
@@ -27,6 +32,7 @@ import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.data.Stat;
 
 import com.splicemachine.access.configuration.DDLConfiguration;
 import com.splicemachine.derby.ddl.CommunicationListener;
@@ -103,8 +109,54 @@ public class ZooKeeperDDLWatchChecker implements DDLWatchChecker{
                 .setChangeId(changeId).build();
     }
 
+    @Override
+    public Collection<DDLMessage.DDLChange> getChanges(Collection<String> changeIds) throws IOException{
+        if(changeIds.size()<2)
+            return DDLWatchChecker.super.getChanges(changeIds);
+        /*
+         * Issue all the reads at once, rather than paying a round trip to ZooKeeper for each change
+         */
+        final Map<String,byte[]> data=new ConcurrentHashMap<>();
+        final List<String> retries=new ArrayList<>();
+        final CountDownLatch latch=new CountDownLatch(changeIds.size());
+        AsyncCallback.DataCallback callback=new AsyncCallback.DataCallback(){
+            @Override
+            public void processResult(int rc,String path,Object ctx,byte[] bytes,Stat stat){
+                String changeId=(String)ctx;
+                KeeperException.Code code=KeeperException.Code.get(rc);
+                if(code==KeeperException.Code.OK)
+                    data.put(changeId,bytes);
+                else if(code!=KeeperException.Code.NONODE){ // no node means the change is already gone
+                    synchronized(retries){
+                        retries.add(changeId);
+                    }
+                }
+                latch.countDown();
+            }
+        };
+        for(String changeId : changeIds){
+            ZkUtils.getRecoverableZooKeeper().getZooKeeper().getData(zkClient.changePath+"/"+changeId,false,callback,changeId);
+        }
+        try{
+            latch.await();
+        }catch(InterruptedException e){
+            throw Exceptions.getIOException(e);
+        }
+
+        List<DDLMessage.DDLChange> changes=new ArrayList<>(changeIds.size());
+        for(Map.Entry<String,byte[]> entry : data.entrySet()){
+            changes.add(DDLMessage.DDLChange.newBuilder()
+                    .mergeFrom(DDLMessage.DDLChange.parseFrom(entry.getValue()))
+                    .setChangeId(entry.getKey()).build());
+        }
+        //let the recoverable client deal with connection loss and the like
+        changes.addAll(DDLWatchChecker.super.getChanges(retries));
+        return changes;
+    }
+
     @Override
     public void notifyProcessed(Collection<Pair<DDLMessage.DDLChange,String>> processedChanges) throws IOException{
+        if(processedChanges.isEmpty()) return;
         /*
          * Notify the relevant controllers that their change has been processed
          */
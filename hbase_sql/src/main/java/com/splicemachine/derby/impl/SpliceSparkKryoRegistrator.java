@@ -62,6 +62,7 @@ import com.splicemachine.derby.utils.kryo.ListDataTypeSerializer;
 import com.splicemachine.derby.utils.kryo.SimpleObjectSerializer;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.stream.ColumnarRowBlock;
 import com.splicemachine.stream.ResultStreamer;
 import com.splicemachine.stream.StreamProtocol;
 import com.splicemachine.utils.ByteSlice;
@@ -827,5 +828,6 @@ public class SpliceSparkKryoRegistrator implements KryoRegistrator, KryoPool.Kry
                 return aggregator;
             }
         });
+        instance.register(ColumnarRowBlock.class,EXTERNALIZABLE_SERIALIZER);
     }
 }
@@ -66,6 +66,9 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
     public LongAccumulator rowsWritten;
     public LongAccumulator retryAttempts;
     public LongAccumulator regionTooBusyExceptions;
+    public LongAccumulator indexLookups;
+    public LongAccumulator indexLookupBatches;
+    public LongAccumulator indexLookupWaitTime;
 
     public LongAccumulator thrownErrorsRows;
     public LongAccumulator retriedRows;
@@ -100,6 +103,9 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         this.rowsJoinedLeft=SpliceSpark.getContext().sc().longAccumulator(baseName+" rows joined left");
         this.rowsJoinedRight=SpliceSpark.getContext().sc().longAccumulator(baseName+" rows joined right");
         this.rowsProduced=SpliceSpark.getContext().sc().longAccumulator(baseName+" rows produced");
+        this.indexLookups=SpliceSpark.getContext().sc().longAccumulator(baseName+" index lookups");
+        this.indexLookupBatches=SpliceSpark.getContext().sc().longAccumulator(baseName+" index lookup batches");
+        this.indexLookupWaitTime=SpliceSpark.getContext().sc().longAccumulator(baseName+" index lookup wait time (ns)");
         initWritePipeline();
     }
 
@@ -114,6 +120,9 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         this.rowsJoinedLeft=SpliceSpark.getContext().sc().longAccumulator("rows joined left");
         this.rowsJoinedRight=SpliceSpark.getContext().sc().longAccumulator("rows joined right");
         this.rowsProduced=SpliceSpark.getContext().sc().longAccumulator("rows produced");
+        this.indexLookups=SpliceSpark.getContext().sc().longAccumulator("index lookups");
+        this.indexLookupBatches=SpliceSpark.getContext().sc().longAccumulator("index lookup batches");
+        this.indexLookupWaitTime=SpliceSpark.getContext().sc().longAccumulator("index lookup wait time (ns)");
         initWritePipeline();
     }
 
@@ -166,6 +175,9 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         out.writeObject(rowsJoinedLeft);
         out.writeObject(rowsJoinedRight);
         out.writeObject(rowsProduced);
+        out.writeObject(indexLookups);
+        out.writeObject(indexLookupBatches);
+        out.writeObject(indexLookupWaitTime);
         out.writeObject(badRecordsAccumulator);
         out.writeObject(thrownErrorsRows);
         out.writeObject(retriedRows);
@@ -216,6 +228,9 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         rowsJoinedLeft=(LongAccumulator)in.readObject();
         rowsJoinedRight=(LongAccumulator)in.readObject();
         rowsProduced=(LongAccumulator)in.readObject();
+        indexLookups=(LongAccumulator)in.readObject();
+        indexLookupBatches=(LongAccumulator)in.readObject();
+        indexLookupWaitTime=(LongAccumulator)in.readObject();
         badRecordsAccumulator = (Accumulable<BadRecordsRecorder,String>) in.readObject();
 
         thrownErrorsRows=(LongAccumulator)in.readObject();
@@ -420,6 +435,53 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         return regionTooBusyExceptions.value();
     }
 
+    @Override
+    public void recordSpill(long rows,long bytes){
+        // Spark manages its own spilling for sorts and shuffles
+    }
+
+    @Override
+    public long getRecordsSpilled(){
+        return 0L;
+    }
+
+    @Override
+    public long getBytesSpilled(){
+        return 0L;
+    }
+
+    @Override
+    public void recordIndexLookups(long lookups,long batches,long waitTime){
+        indexLookups.add(lookups);
+        indexLookupBatches.add(batches);
+        indexLookupWaitTime.add(waitTime);
+    }
+
+    @Override
+    public long getIndexLookups(){
+        return indexLookups.value();
+    }
+
+    @Override
+    public long getIndexLookupBatches(){
+        return indexLookupBatches.value();
+    }
+
+    @Override
+    public long getIndexLookupWaitTime(){
+        return indexLookupWaitTime.value();
+    }
+
+    @Override
+    public void recordSharedScanRows(long rows){
+        //scans are only shared in control execution
+    }
+
+    @Override
+    public long getSharedScanRows(){
+        return 0L;
+    }
+
 
     @Override
     public void pushScope(String displayName){
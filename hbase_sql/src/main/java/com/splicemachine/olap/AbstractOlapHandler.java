@@ -56,8 +56,12 @@ public abstract class AbstractOlapHandler extends SimpleChannelInboundHandler<Ol
     /* ****************************************************************************************************************/
     /*Protected convenience methods*/
     protected void writeResponse(Channel c,final String requestId,OlapStatus status) throws IOException{
+        writeResponse(c,requestId,status,null);
+    }
+
+    void writeResponse(Channel c,final String requestId,OlapStatus status,OlapJobScheduler.QueueStatus queueStatus) throws IOException{
         final boolean[] shouldRemove= {false};
-        ChannelFuture futureResponse = c.writeAndFlush(OlapSerializationUtils.buildResponse(status,shouldRemove,jobRegistry.tickTime()));
+        ChannelFuture futureResponse = c.writeAndFlush(OlapSerializationUtils.buildResponse(status,queueStatus,shouldRemove,jobRegistry.tickTime()));
 
         futureResponse.addListener(new ChannelFutureListener(){
                                        @Override
@@ -161,6 +161,13 @@ public class AsyncOlapNIOLayer implements JobExecutor{
                 throw Exceptions.rawIOException((Throwable)OlapSerializationUtils.decode(fr.getErrorBytes()));
             case IN_PROGRESS:
                 OlapMessage.ProgressResponse pr=response.getExtension(OlapMessage.ProgressResponse.response);
+                if(pr.hasQueuePosition()){
+                    if(LOG.isDebugEnabled())
+                        LOG.debug("Job is waiting in the Olap server queue at position "+pr.getQueuePosition()+
+                                " for "+pr.getQueuedTimeMillis()+" ms, with "+pr.getQueuedJobs()+" jobs queued and "+
+                                pr.getRunningJobs()+" running");
+                    return new SubmittedResult(pr.getTickTimeMillis(),pr.getQueuePosition(),pr.getQueuedTimeMillis());
+                }
                 return new SubmittedResult(pr.getTickTimeMillis());
             case CANCELLED:
                 return new CancelledResult();
@@ -90,6 +90,16 @@ public class DistributedCompaction extends DistributedJob{
         return jobGroup;
     }
 
+    @Override
+    public Priority getPriority(){
+        return Priority.COMPACTION;
+    }
+
+    @Override
+    public String getQueue(){
+        return poolName;
+    }
+
     @Override
     public int hashCode(){
         return jobGroup.hashCode();
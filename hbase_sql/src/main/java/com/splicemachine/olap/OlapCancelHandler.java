@@ -21,10 +21,11 @@ import io.netty.channel.ChannelHandlerContext;
  *         Date: 4/1/16
  */
 public class OlapCancelHandler extends AbstractOlapHandler{
+    private final OlapJobScheduler scheduler;
 
-
-    public OlapCancelHandler(OlapJobRegistry registry){
+    OlapCancelHandler(OlapJobRegistry registry,OlapJobScheduler scheduler){
         super(registry);
+        this.scheduler=scheduler;
     }
 
     @Override
@@ -35,6 +36,8 @@ public class OlapCancelHandler extends AbstractOlapHandler{
         }
 
         jobRegistry.clear(command.getUniqueName());
+        //a job which has not started yet should not hold its place in the queue
+        scheduler.cancel(command.getUniqueName());
         //no response is needed for cancellation
     }
 }
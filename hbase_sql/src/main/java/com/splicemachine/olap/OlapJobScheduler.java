@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Decides when the jobs submitted to the Olap server run, so that no single user or queue can take the whole server.
+ *
+ * At most {@code maxConcurrentJobs} jobs run at once; the rest wait. When a job finishes, the next one is chosen by:
+ * <ol>
+ *     <li>priority: a queued job of a higher {@link DistributedJob.Priority} runs first</li>
+ *     <li>queue: among the queues with jobs of that priority, the one with the fewest running jobs for its weight</li>
+ *     <li>user: within that queue, the user with the fewest running jobs for its weight</li>
+ *     <li>age: the oldest job of that user</li>
+ * </ol>
+ * Ties between queues or users go to the one with the oldest job.
+ *
+ * Compactions are the exception to strict priority: the threads of the region server wait on them, so when there is
+ * more than one slot a queued compaction goes first whenever no other compaction is running. Busy interactive or batch
+ * work then keeps all but one slot, and cannot starve compactions.
+ */
+@ThreadSafe
+class OlapJobScheduler{
+    private static final Logger LOG=Logger.getLogger(OlapJobScheduler.class);
+    static final String DEFAULT_QUEUE="default";
+    static final String DEFAULT_USER="";
+
+    private final int maxConcurrentJobs;
+    private final Map<String,Integer> userWeights;
+    private final Map<String,Integer> queueWeights;
+    private final ExecutorService executionPool;
+    private final Clock clock;
+
+    /*queued jobs, by priority, then queue, then user. Guarded by this*/
+    private final Map<DistributedJob.Priority,Map<String,Map<String,ArrayDeque<QueuedJob>>>> queued=new EnumMap<>(DistributedJob.Priority.class);
+    private final Map<String,QueuedJob> queuedByName=new HashMap<>();
+    private final Map<String,Integer> runningByQueue=new HashMap<>();
+    private final Map<String,Integer> runningByUser=new HashMap<>();
+    private int running;
+    private int runningCompactions;
+    private long sequence;
+
+    /*wait time metrics, by priority. Guarded by this*/
+    private final long[] startedJobs=new long[DistributedJob.Priority.values().length];
+    private final long[] totalWaitTime=new long[DistributedJob.Priority.values().length];
+    private final long[] maxWaitTime=new long[DistributedJob.Priority.values().length];
+
+    OlapJobScheduler(int maxConcurrentJobs,
+                     Map<String,Integer> userWeights,
+                     Map<String,Integer> queueWeights,
+                     ExecutorService executionPool,
+                     Clock clock){
+        assert maxConcurrentJobs>0: "Cannot run fewer than one job at a time";
+        this.maxConcurrentJobs=maxConcurrentJobs;
+        this.userWeights=userWeights;
+        this.queueWeights=queueWeights;
+        this.executionPool=executionPool;
+        this.clock=clock;
+        for(DistributedJob.Priority priority : DistributedJob.Priority.values()){
+            queued.put(priority,new HashMap<String,Map<String,ArrayDeque<QueuedJob>>>());
+        }
+    }
+
+    /**
+     * Queue the job, running it as soon as its turn comes.
+     */
+    void submit(String uniqueName,DistributedJob job,Callable<Void> callable){
+        String queue=job.getQueue()==null?DEFAULT_QUEUE:job.getQueue();
+        String user=job.getUser()==null?DEFAULT_USER:job.getUser();
+        synchronized(this){
+            QueuedJob qj=new QueuedJob(uniqueName,job.getPriority(),queue,user,callable,clock.currentTimeMillis(),sequence++);
+            Map<String,ArrayDeque<QueuedJob>> users=queued.get(qj.priority).get(queue);
+            if(users==null){
+                users=new HashMap<>();
+                queued.get(qj.priority).put(queue,users);
+            }
+            ArrayDeque<QueuedJob> jobs=users.get(user);
+            if(jobs==null){
+                jobs=new ArrayDeque<>();
+                users.put(user,jobs);
+            }
+            jobs.add(qj);
+            queuedByName.put(uniqueName,qj);
+        }
+        dispatch();
+    }
+
+    /**
+     * @return where the job is in the queue, or {@code null} if it is not waiting to run
+     */
+    synchronized QueueStatus getQueueStatus(String uniqueName){
+        QueuedJob job=queuedByName.get(uniqueName);
+        if(job==null) return null;
+        /*
+         * The jobs of higher priority, and those of the same priority which were queued earlier. Fair sharing may
+         * run some of them later, so this is an estimate.
+         */
+        int ahead=0;
+        for(QueuedJob other : queuedByName.values()){
+            int cmp=other.priority.compareTo(job.priority);
+            if(cmp<0 || (cmp==0 && other.sequence<job.sequence))
+                ahead++;
+        }
+        return new QueueStatus(ahead,clock.currentTimeMillis()-job.queuedAt,queuedByName.size(),running);
+    }
+
+    /**
+     * Drop the job from the queue, if it has not started yet.
+     *
+     * @return true if the job was queued
+     */
+    synchronized boolean cancel(String uniqueName){
+        QueuedJob job=queuedByName.remove(uniqueName);
+        if(job==null) return false;
+        Map<String,Map<String,ArrayDeque<QueuedJob>>> queues=queued.get(job.priority);
+        Map<String,ArrayDeque<QueuedJob>> users=queues.get(job.queue);
+        ArrayDeque<QueuedJob> jobs=users.get(job.user);
+        jobs.remove(job);
+        if(jobs.isEmpty()){
+            users.remove(job.user);
+            if(users.isEmpty())
+                queues.remove(job.queue);
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug("Cancelled queued job "+uniqueName);
+        return true;
+    }
+
+    synchronized int getQueuedJobs(){
+        return queuedByName.size();
+    }
+
+    synchronized int getRunningJobs(){
+        return running;
+    }
+
+    /**
+     * @return the number of jobs of the priority which were started
+     */
+    synchronized long getStartedJobs(DistributedJob.Priority priority){
+        return startedJobs[priority.ordinal()];
+    }
+
+    /**
+     * @return the total time (in ms) that the started jobs of the priority spent in the queue
+     */
+    synchronized long getTotalWaitTime(DistributedJob.Priority priority){
+        return totalWaitTime[priority.ordinal()];
+    }
+
+    /**
+     * @return the longest time (in ms) that a started job of the priority spent in the queue
+     */
+    synchronized long getMaxWaitTime(DistributedJob.Priority priority){
+        return maxWaitTime[priority.ordinal()];
+    }
+
+    /**
+     * Parse weights of the form {@code name=weight,name=weight}. Malformed entries are ignored.
+     */
+    static Map<String,Integer> parseWeights(String weights){
+        if(weights==null || weights.trim().isEmpty()) return Collections.emptyMap();
+        Map<String,Integer> parsed=new HashMap<>();
+        for(String entry : weights.split(",")){
+            int eq=entry.lastIndexOf('=');
+            if(eq<=0){
+                LOG.warn("Ignoring Olap weight without a name: "+entry);
+                continue;
+            }
+            try{
+                int weight=Integer.parseInt(entry.substring(eq+1).trim());
+                if(weight>0)
+                    parsed.put(entry.substring(0,eq).trim(),weight);
+                else
+                    LOG.warn("Ignoring Olap weight which is not positive: "+entry);
+            }catch(NumberFormatException nfe){
+                LOG.warn("Ignoring Olap weight which is not a number: "+entry);
+            }
+        }
+        return parsed;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void dispatch(){
+        while(true){
+            final QueuedJob next;
+            synchronized(this){
+                if(running>=maxConcurrentJobs) return;
+                next=pollNext();
+                if(next==null) return;
+                running++;
+                if(next.priority==DistributedJob.Priority.COMPACTION)
+                    runningCompactions++;
+                increment(runningByQueue,next.queue,1);
+                increment(runningByUser,next.user,1);
+                long waited=clock.currentTimeMillis()-next.queuedAt;
+                int p=next.priority.ordinal();
+                startedJobs[p]++;
+                totalWaitTime[p]+=waited;
+                if(waited>maxWaitTime[p])
+                    maxWaitTime[p]=waited;
+                if(LOG.isDebugEnabled())
+                    LOG.debug("Starting job "+next.uniqueName+" ("+next.priority+", queue "+next.queue+
+                            ", user "+next.user+") after waiting "+waited+" ms");
+            }
+            try{
+                executionPool.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        try{
+                            return next.callable.call();
+                        }finally{
+                            finished(next);
+                        }
+                    }
+                });
+            }catch(RuntimeException re){
+                finished(next);
+                throw re;
+            }
+        }
+    }
+
+    private void finished(QueuedJob job){
+        synchronized(this){
+            running--;
+            if(job.priority==DistributedJob.Priority.COMPACTION)
+                runningCompactions--;
+            increment(runningByQueue,job.queue,-1);
+            increment(runningByUser,job.user,-1);
+        }
+        dispatch();
+    }
+
+    private QueuedJob pollNext(){
+        if(maxConcurrentJobs>1 && runningCompactions==0){
+            QueuedJob compaction=pollNext(queued.get(DistributedJob.Priority.COMPACTION));
+            if(compaction!=null) return compaction;
+        }
+        for(Map<String,Map<String,ArrayDeque<QueuedJob>>> queues : queued.values()){
+            QueuedJob job=pollNext(queues);
+            if(job!=null) return job;
+        }
+        return null;
+    }
+
+    /*the next job of a single priority, or null if none is queued*/
+    private QueuedJob pollNext(Map<String,Map<String,ArrayDeque<QueuedJob>>> queues){
+        if(queues.isEmpty()) return null;
+        String queue=null;
+        double queueShare=Double.MAX_VALUE;
+        long queueOldest=Long.MAX_VALUE;
+        for(Map.Entry<String,Map<String,ArrayDeque<QueuedJob>>> q : queues.entrySet()){
+            double share=share(q.getKey(),runningByQueue,queueWeights);
+            long oldest=Long.MAX_VALUE;
+            for(ArrayDeque<QueuedJob> jobs : q.getValue().values()){
+                oldest=Math.min(oldest,jobs.peek().sequence);
+            }
+            if(share<queueShare || (share==queueShare && oldest<queueOldest)){
+                queue=q.getKey();
+                queueShare=share;
+                queueOldest=oldest;
+            }
+        }
+        Map<String,ArrayDeque<QueuedJob>> users=queues.get(queue);
+        String user=null;
+        double userShare=Double.MAX_VALUE;
+        long userOldest=Long.MAX_VALUE;
+        for(Map.Entry<String,ArrayDeque<QueuedJob>> u : users.entrySet()){
+            double share=share(u.getKey(),runningByUser,userWeights);
+            long oldest=u.getValue().peek().sequence;
+            if(share<userShare || (share==userShare && oldest<userOldest)){
+                user=u.getKey();
+                userShare=share;
+                userOldest=oldest;
+            }
+        }
+        ArrayDeque<QueuedJob> jobs=users.get(user);
+        QueuedJob job=jobs.poll();
+        if(jobs.isEmpty()){
+            users.remove(user);
+            if(users.isEmpty())
+                queues.remove(queue);
+        }
+        queuedByName.remove(job.uniqueName);
+        return job;
+    }
+
+    /*the running jobs of the queue or user, relative to its weight*/
+    private static double share(String name,Map<String,Integer> runningJobs,Map<String,Integer> weights){
+        Integer r=runningJobs.get(name);
+        Integer w=weights.get(name);
+        return (r==null?0:r)/(double)(w==null?1:w);
+    }
+
+    private static void increment(Map<String,Integer> counts,String key,int delta){
+        Integer count=counts.get(key);
+        int newCount=(count==null?0:count)+delta;
+        if(newCount==0)
+            counts.remove(key);
+        else
+            counts.put(key,newCount);
+    }
+
+    private static class QueuedJob{
+        private final String uniqueName;
+        private final DistributedJob.Priority priority;
+        private final String queue;
+        private final String user;
+        private final Callable<Void> callable;
+        private final long queuedAt;
+        private final long sequence;
+
+        QueuedJob(String uniqueName,DistributedJob.Priority priority,String queue,String user,
+                  Callable<Void> callable,long queuedAt,long sequence){
+            this.uniqueName=uniqueName;
+            this.priority=priority;
+            this.queue=queue;
+            this.user=user;
+            this.callable=callable;
+            this.queuedAt=queuedAt;
+            this.sequence=sequence;
+        }
+    }
+
+    /**
+     * A snapshot of a job waiting in the queue, and of the server.
+     */
+    static class QueueStatus{
+        final int position;
+        final long queuedTimeMillis;
+        final int queuedJobs;
+        final int runningJobs;
+
+        QueueStatus(int position,long queuedTimeMillis,int queuedJobs,int runningJobs){
+            this.position=position;
+            this.queuedTimeMillis=queuedTimeMillis;
+            this.queuedJobs=queuedJobs;
+            this.runningJobs=runningJobs;
+        }
+    }
+}
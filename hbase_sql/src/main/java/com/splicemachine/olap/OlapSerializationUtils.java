@@ -56,7 +56,10 @@ class OlapSerializationUtils{
         return response.build();
     }
 
-    static OlapMessage.Response buildResponse(OlapStatus status,boolean[] shouldRemoveAfterWriting,long tickTime) throws IOException{
+    static OlapMessage.Response buildResponse(OlapStatus status,
+                                              OlapJobScheduler.QueueStatus queueStatus,
+                                              boolean[] shouldRemoveAfterWriting,
+                                              long tickTime) throws IOException{
         OlapMessage.Response.Builder response = OlapMessage.Response.newBuilder();
         if(status==null){
             response.setType(OlapMessage.Response.Type.NOT_SUBMITTED);
@@ -71,8 +74,14 @@ class OlapSerializationUtils{
                 case SUBMITTED:
                 case RUNNING:
                     response.setType(OlapMessage.Response.Type.IN_PROGRESS);
-                    OlapMessage.ProgressResponse build=OlapMessage.ProgressResponse.newBuilder().setTickTimeMillis(tickTime).build();
-                    response.setExtension(OlapMessage.ProgressResponse.response,build);
+                    OlapMessage.ProgressResponse.Builder build=OlapMessage.ProgressResponse.newBuilder().setTickTimeMillis(tickTime);
+                    if(queueStatus!=null){
+                        build.setQueuePosition(queueStatus.position)
+                                .setQueuedTimeMillis(queueStatus.queuedTimeMillis)
+                                .setQueuedJobs(queueStatus.queuedJobs)
+                                .setRunningJobs(queueStatus.runningJobs);
+                    }
+                    response.setExtension(OlapMessage.ProgressResponse.response,build.build());
                     break;
                 case CANCELED:
                     shouldRemoveAfterWriting[0]=true;
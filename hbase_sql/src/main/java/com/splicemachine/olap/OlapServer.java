@@ -31,8 +31,10 @@ import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 public class OlapServer {
@@ -61,10 +63,14 @@ public class OlapServer {
         OlapJobRegistry registry = new MappedJobRegistry(config.getOlapClientTickTime(),
                 config.getOlapServerTickLimit(),
                 TimeUnit.MILLISECONDS);
-        ChannelInboundHandler submitHandler = new OlapRequestHandler(config,
+        OlapJobScheduler scheduler = new OlapJobScheduler(config.getOlapServerThreads(),
+                OlapJobScheduler.parseWeights(config.getOlapServerUserWeights()),
+                OlapJobScheduler.parseWeights(config.getOlapServerQueueWeights()),
+                configureThreadPool(),clock);
+        ChannelInboundHandler submitHandler = new OlapRequestHandler(scheduler,
                 registry,clock,config.getOlapClientTickTime());
-        ChannelInboundHandler statusHandler = new OlapStatusHandler(registry);
-        ChannelInboundHandler cancelHandler = new OlapCancelHandler(registry);
+        ChannelInboundHandler statusHandler = new OlapStatusHandler(registry,scheduler);
+        ChannelInboundHandler cancelHandler = new OlapCancelHandler(registry,scheduler);
 
         bossGroup = new NioEventLoopGroup(2, new ThreadFactoryBuilder().setNameFormat("OlapServer-boss-%d").setDaemon(true).build());
         workerGroup = new NioEventLoopGroup(15, new ThreadFactoryBuilder().setNameFormat("OlapServer-%d").setDaemon(true).build());
@@ -87,6 +93,12 @@ public class OlapServer {
 
     }
 
+    private ExecutorService configureThreadPool() {
+        // the scheduler bounds the number of jobs running at once
+        ThreadFactory tf = new ThreadFactoryBuilder().setDaemon(true).setNameFormat("olap-worker-%d").build();
+        return Executors.newCachedThreadPool(tf);
+    }
+
     private int getPortNumber() {
         return port;
     }
@@ -28,8 +28,11 @@ import java.util.concurrent.TimeUnit;
 public class OlapStatusHandler extends AbstractOlapHandler{
     private static final Logger LOG = Logger.getLogger(OlapStatusHandler.class);
 
-    public OlapStatusHandler(OlapJobRegistry registry){
+    private final OlapJobScheduler scheduler;
+
+    OlapStatusHandler(OlapJobRegistry registry,OlapJobScheduler scheduler){
         super(registry);
+        this.scheduler=scheduler;
     }
 
     @Override
@@ -56,7 +59,9 @@ public class OlapStatusHandler extends AbstractOlapHandler{
         }
 
 
-        writeResponse(ctx.channel(),cmd.getUniqueName(),status);
+        //jobs which are still waiting to run also report where they are in the queue
+        OlapJobScheduler.QueueStatus queueStatus=scheduler.getQueueStatus(cmd.getUniqueName());
+        writeResponse(ctx.channel(),cmd.getUniqueName(),status,queueStatus);
 
         if (LOG.isTraceEnabled()) {
             LOG.trace("Status " + status);
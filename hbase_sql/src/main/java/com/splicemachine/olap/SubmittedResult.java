@@ -23,6 +23,8 @@ import com.splicemachine.derby.iapi.sql.olap.OlapResult;
 public class SubmittedResult implements OlapResult{
     private static final long serialVersionUID = 1l;
     private long tickTime;
+    private int queuePosition=-1;
+    private long queuedTime;
 
     public SubmittedResult(){
     }
@@ -31,10 +33,30 @@ public class SubmittedResult implements OlapResult{
         this.tickTime=tickTime;
     }
 
+    public SubmittedResult(long tickTime,int queuePosition,long queuedTime){
+        this.tickTime=tickTime;
+        this.queuePosition=queuePosition;
+        this.queuedTime=queuedTime;
+    }
+
     public long getTickTime(){
         return tickTime;
     }
 
+    /**
+     * @return the (estimated) number of jobs which will run before this one, or -1 if it is not waiting to run
+     */
+    public int getQueuePosition(){
+        return queuePosition;
+    }
+
+    /**
+     * @return how long (in ms) the job has been waiting to run
+     */
+    public long getQueuedTime(){
+        return queuedTime;
+    }
+
     @Override public boolean isSuccess(){ return false; }
 
     @Override
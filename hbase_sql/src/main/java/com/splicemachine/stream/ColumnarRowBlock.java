@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.stream;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.DataValueFactoryImpl;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.utils.kryo.KryoPool;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A block of rows streamed from a Spark task to the query client, in place of the rows themselves.
+ *
+ * The rows are encoded column by column: integral, floating point and boolean columns as primitives, string
+ * columns with a dictionary when they repeat, and any other column with Kryo. The encoded block is then
+ * compressed with LZ4. The client only decodes a block when it reaches it in the stream.
+ *
+ * Only {@link ValueRow}s without user defined types are encoded in blocks, and all the rows of a block have the
+ * same column types; other rows are streamed individually.
+ */
+public class ColumnarRowBlock implements Externalizable{
+    private static final long serialVersionUID = 1l;
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    /*How each column is encoded*/
+    private static final byte GENERIC = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte STRING = 4;
+    private static final byte DICTIONARY = 5;
+
+    private int rowCount;
+    private int length;
+    private byte[] compressed;
+
+    public ColumnarRowBlock(){ }
+
+    private ColumnarRowBlock(int rowCount,int length,byte[] compressed){
+        this.rowCount = rowCount;
+        this.length = length;
+        this.compressed = compressed;
+    }
+
+    /**
+     * @return true if the row can be streamed in a block
+     */
+    public static boolean supports(Object row){
+        if(row==null || row.getClass()!=ValueRow.class) return false;
+        for(DataValueDescriptor dvd : ((ValueRow)row).getRowArray()){
+            if(dvd==null || dvd.getTypeFormatId()==StoredFormatIds.SQL_USERTYPE_ID_V3)
+                return false;
+        }
+        return true;
+    }
+
+    public int size(){
+        return rowCount;
+    }
+
+    public int getCompressedLength(){
+        return compressed.length;
+    }
+
+    /**
+     * Decode the block.
+     *
+     * @return the rows of the block. Each row is only built when it is reached.
+     */
+    public Iterator<ExecRow> iterator(KryoPool kp) throws StandardException{
+        byte[] encoded = new byte[length];
+        LZ4.fastDecompressor().decompress(compressed,0,encoded,0,length);
+        Input input = new Input(encoded);
+        int numColumns = input.readInt(true);
+        final Column[] columns = new Column[numColumns];
+        for(int i=0;i<numColumns;i++){
+            columns[i] = new Column(input.readInt(true));
+        }
+        Kryo kryo = kp.get();
+        try{
+            for(Column column : columns){
+                column.read(input,kryo,rowCount);
+            }
+        }finally{
+            kp.returnInstance(kryo);
+        }
+        return new Iterator<ExecRow>(){
+            private int position;
+
+            @Override
+            public boolean hasNext(){
+                return position<rowCount;
+            }
+
+            @Override
+            public ExecRow next(){
+                if(position>=rowCount) throw new NoSuchElementException();
+                DataValueDescriptor[] dvds = new DataValueDescriptor[columns.length];
+                try{
+                    for(int i=0;i<columns.length;i++){
+                        dvds[i] = columns[i].get(position);
+                    }
+                }catch(StandardException se){
+                    throw new RuntimeException(se);
+                }
+                position++;
+                return new ValueRow(dvds);
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        out.writeInt(rowCount);
+        out.writeInt(length);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        rowCount = in.readInt();
+        length = in.readInt();
+        compressed = new byte[in.readInt()];
+        in.readFully(compressed);
+    }
+
+    @Override
+    public String toString(){
+        return "ColumnarRowBlock{rows="+rowCount+", length="+length+", compressedLength="+compressed.length+"}";
+    }
+
+    /**
+     * Collects rows into blocks.
+     */
+    public static class Builder{
+        private final KryoPool kp;
+        private final List<ExecRow> rows = new ArrayList<>();
+        private int[] formatIds;
+
+        public Builder(KryoPool kp){
+            this.kp = kp;
+        }
+
+        /**
+         * Add the row to the block, if it has the same column types as the rows already in it.
+         *
+         * @param row a row which the block {@link #supports(Object) supports}
+         * @return false if the row cannot be added to this block, and has to start a new one
+         */
+        public boolean add(ExecRow row){
+            DataValueDescriptor[] dvds = row.getRowArray();
+            if(rows.isEmpty()){
+                formatIds = new int[dvds.length];
+                for(int i=0;i<dvds.length;i++){
+                    formatIds[i] = dvds[i].getTypeFormatId();
+                }
+            }else{
+                if(dvds.length!=formatIds.length) return false;
+                for(int i=0;i<dvds.length;i++){
+                    if(dvds[i].getTypeFormatId()!=formatIds[i]) return false;
+                }
+            }
+            rows.add(row);
+            return true;
+        }
+
+        public boolean isEmpty(){
+            return rows.isEmpty();
+        }
+
+        /**
+         * Encode the rows added so far into a block, and start a new one.
+         */
+        public ColumnarRowBlock build() throws StandardException{
+            Output output = new Output(4096,-1);
+            output.writeInt(formatIds.length,true);
+            for(int formatId : formatIds){
+                output.writeInt(formatId,true);
+            }
+            Kryo kryo = kp.get();
+            try{
+                for(int i=0;i<formatIds.length;i++){
+                    writeColumn(output,kryo,i);
+                }
+            }finally{
+                kp.returnInstance(kryo);
+            }
+            int length = output.position();
+            byte[] encoded = output.getBuffer();
+            byte[] buffer = new byte[LZ4.fastCompressor().maxCompressedLength(length)];
+            int compressedLength = LZ4.fastCompressor().compress(encoded,0,length,buffer,0,buffer.length);
+            byte[] compressed = new byte[compressedLength];
+            System.arraycopy(buffer,0,compressed,0,compressedLength);
+
+            ColumnarRowBlock block = new ColumnarRowBlock(rows.size(),length,compressed);
+            rows.clear();
+            return block;
+        }
+
+        private void writeColumn(Output output,Kryo kryo,int column) throws StandardException{
+            byte encoding = encoding(formatIds[column]);
+            if(encoding!=GENERIC){
+                //some types have subclasses (e.g. for collations), which only Kryo knows how to recreate
+                Class<?> expected = DataValueFactoryImpl.getNullDVDWithUCS_BASICcollation(formatIds[column]).getClass();
+                for(ExecRow row : rows){
+                    if(row.getRowArray()[column].getClass()!=expected){
+                        encoding = GENERIC;
+                        break;
+                    }
+                }
+            }
+            Map<String,Integer> dictionary = null;
+            if(encoding==STRING){
+                dictionary = new HashMap<>();
+                int nonNull = 0;
+                for(ExecRow row : rows){
+                    DataValueDescriptor dvd = row.getRowArray()[column];
+                    if(dvd.isNull()) continue;
+                    nonNull++;
+                    String value = dvd.getString();
+                    if(!dictionary.containsKey(value))
+                        dictionary.put(value,dictionary.size());
+                }
+                //only worth it when values repeat
+                if(dictionary.size()*2<=nonNull)
+                    encoding = DICTIONARY;
+            }
+
+            output.writeByte(encoding);
+            if(encoding==GENERIC){
+                for(ExecRow row : rows){
+                    kryo.writeClassAndObject(output,row.getRowArray()[column]);
+                }
+                return;
+            }
+            writeNulls(output,column);
+            if(encoding==DICTIONARY){
+                String[] values = new String[dictionary.size()];
+                for(Map.Entry<String,Integer> entry : dictionary.entrySet()){
+                    values[entry.getValue()] = entry.getKey();
+                }
+                output.writeInt(values.length,true);
+                for(String value : values){
+                    output.writeString(value);
+                }
+            }
+            for(ExecRow row : rows){
+                DataValueDescriptor dvd = row.getRowArray()[column];
+                if(dvd.isNull()) continue;
+                switch(encoding){
+                    case LONG:
+                        output.writeLong(dvd.getLong(),false);
+                        break;
+                    case DOUBLE:
+                        output.writeDouble(dvd.getDouble());
+                        break;
+                    case BOOLEAN:
+                        output.writeBoolean(dvd.getBoolean());
+                        break;
+                    case STRING:
+                        output.writeString(dvd.getString());
+                        break;
+                    case DICTIONARY:
+                        output.writeInt(dictionary.get(dvd.getString()),true);
+                        break;
+                    default:
+                        throw new IllegalStateException("Programmer error: unexpected column encoding "+encoding);
+                }
+            }
+        }
+
+        private void writeNulls(Output output,int column){
+            byte[] nulls = new byte[(rows.size()+7)/8];
+            for(int i=0;i<rows.size();i++){
+                if(rows.get(i).getRowArray()[column].isNull())
+                    nulls[i>>>3] |= 1<<(i&7);
+            }
+            output.writeBytes(nulls);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private static byte encoding(int formatId){
+        switch(formatId){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return LONG;
+            case StoredFormatIds.SQL_REAL_ID:
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                return DOUBLE;
+            case StoredFormatIds.SQL_BOOLEAN_ID:
+                return BOOLEAN;
+            case StoredFormatIds.SQL_CHAR_ID:
+            case StoredFormatIds.SQL_VARCHAR_ID:
+            case StoredFormatIds.SQL_LONGVARCHAR_ID:
+                return STRING;
+            default:
+                return GENERIC;
+        }
+    }
+
+    /**
+     * The decoded values of a column.
+     */
+    private static class Column{
+        private final int formatId;
+        private byte encoding;
+        private DataValueDescriptor template;
+        private boolean[] nulls;
+        private long[] longs;
+        private double[] doubles;
+        private boolean[] booleans;
+        private String[] strings;
+        private DataValueDescriptor[] dvds;
+
+        Column(int formatId){
+            this.formatId = formatId;
+        }
+
+        void read(Input input,Kryo kryo,int rowCount){
+            encoding = input.readByte();
+            if(encoding==GENERIC){
+                dvds = new DataValueDescriptor[rowCount];
+                for(int i=0;i<rowCount;i++){
+                    dvds[i] = (DataValueDescriptor)kryo.readClassAndObject(input);
+                }
+                return;
+            }
+            template = DataValueFactoryImpl.getNullDVDWithUCS_BASICcollation(formatId);
+            byte[] nullBits = input.readBytes((rowCount+7)/8);
+            nulls = new boolean[rowCount];
+            for(int i=0;i<rowCount;i++){
+                nulls[i] = (nullBits[i>>>3] & (1<<(i&7)))!=0;
+            }
+            String[] dictionary = null;
+            if(encoding==DICTIONARY){
+                dictionary = new String[input.readInt(true)];
+                for(int i=0;i<dictionary.length;i++){
+                    dictionary[i] = input.readString();
+                }
+            }
+            switch(encoding){
+                case LONG: longs = new long[rowCount]; break;
+                case DOUBLE: doubles = new double[rowCount]; break;
+                case BOOLEAN: booleans = new boolean[rowCount]; break;
+                default: strings = new String[rowCount];
+            }
+            for(int i=0;i<rowCount;i++){
+                if(nulls[i]) continue;
+                switch(encoding){
+                    case LONG: longs[i] = input.readLong(false); break;
+                    case DOUBLE: doubles[i] = input.readDouble(); break;
+                    case BOOLEAN: booleans[i] = input.readBoolean(); break;
+                    case STRING: strings[i] = input.readString(); break;
+                    case DICTIONARY: strings[i] = dictionary[input.readInt(true)]; break;
+                    default:
+                        throw new IllegalStateException("Programmer error: unexpected column encoding "+encoding);
+                }
+            }
+        }
+
+        DataValueDescriptor get(int row) throws StandardException{
+            if(encoding==GENERIC) return dvds[row];
+            DataValueDescriptor dvd = template.getNewNull();
+            if(nulls[row]) return dvd;
+            switch(encoding){
+                case LONG: dvd.setValue(longs[row]); break;
+                case DOUBLE: dvd.setValue(doubles[row]); break;
+                case BOOLEAN: dvd.setValue(booleans[row]); break;
+                default: dvd.setValue(strings[row]);
+            }
+            return dvd;
+        }
+    }
+}
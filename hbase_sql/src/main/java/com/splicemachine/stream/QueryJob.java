@@ -95,7 +95,7 @@ public class QueryJob implements Callable<Void>{
 
             JavaRDD rdd =  sparkDataSet.rdd;
             StreamableRDD streamableRDD = new StreamableRDD<>(rdd, context, uuid, clientHost, clientPort,
-                    queryRequest.streamingBatches, queryRequest.streamingBatchSize);
+                    queryRequest.streamingBatches, queryRequest.streamingBatchSize, queryRequest.streamingColumnar);
             streamableRDD.setJobStatus(status);
             streamableRDD.submit();
 
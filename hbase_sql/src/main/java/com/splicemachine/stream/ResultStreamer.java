@@ -16,6 +16,9 @@ package com.splicemachine.stream;
 
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
 import com.splicemachine.derby.stream.ActivationHolder;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.spark.SparkOperationContext;
@@ -60,6 +63,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
     private NioEventLoopGroup workerGroup;
     private transient CountDownLatch active;
     private int batches;
+    private boolean columnar;
     private volatile TaskContext taskContext;
 
     // Serialization
@@ -67,6 +71,13 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
     }
 
     public ResultStreamer(OperationContext<?> context, UUID uuid, String host, int port, int numPartitions, int batches, int batchSize) {
+        this(context, uuid, host, port, numPartitions, batches, batchSize, false);
+    }
+
+    /**
+     * @param columnar if true, rows are sent in {@link ColumnarRowBlock}s of up to {@code batchSize} rows
+     */
+    public ResultStreamer(OperationContext<?> context, UUID uuid, String host, int port, int numPartitions, int batches, int batchSize, boolean columnar) {
         this.context = context;
         this.uuid = uuid;
         this.host = host;
@@ -74,6 +85,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         this.numPartitions = numPartitions;
         this.batches = batches;
         this.batchSize = batchSize;
+        this.columnar = columnar;
         this.permits = new Semaphore(batches - 1); // we start with one permit taken
     }
 
@@ -87,9 +99,10 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
             private long consumed;
             private long sent;
             private int currentBatch;
+            private ColumnarRowBlock.Builder block = columnar ? new ColumnarRowBlock.Builder(SpliceSparkKryoRegistrator.getInstance()) : null;
 
             @Override
-            public Long call() throws InterruptedException {
+            public Long call() throws Exception {
                 org.apache.spark.TaskContext$.MODULE$.setTaskContext(taskContext);
                 boolean prepared = false;
                 ActivationHolder ah = null;
@@ -104,7 +117,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumed++;
 
 
-                        ctx.write(lr, ctx.voidPromise());
+                        write(lr);
                         currentBatch++;
                         sent++;
 
@@ -117,6 +130,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumeOffset();
                     }
                     // Data has been written, request close
+                    writeBlock();
                     ctx.writeAndFlush(new StreamProtocol.RequestClose());
 
                     return consumed;
@@ -126,12 +140,34 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                 }
             }
 
+            /**
+             * Write the row, or add it to the current block. Rows which can't be added to a block are written after
+             * the block, so that the client receives them in order.
+             */
+            private void write(T lr) throws StandardException {
+                if (block != null && ColumnarRowBlock.supports(lr)) {
+                    if (!block.add((ExecRow) lr)) {
+                        writeBlock();
+                        block.add((ExecRow) lr);
+                    }
+                } else {
+                    writeBlock();
+                    ctx.write(lr, ctx.voidPromise());
+                }
+            }
+
+            private void writeBlock() throws StandardException {
+                if (block != null && !block.isEmpty())
+                    ctx.write(block.build(), ctx.voidPromise());
+            }
+
             /**
              * If the current batch exceeds the batch size, flush the connection and take a new permit, blocking if the client
              * hasn't had time yet to process previous messages
              */
-            private void flushAndGetPermit() throws InterruptedException {
+            private void flushAndGetPermit() throws InterruptedException, StandardException {
                 if (currentBatch >= batchSize) {
+                    writeBlock();
                     ctx.flush();
                     currentBatch = 0;
                     permits.acquire();
@@ -144,8 +180,9 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              * If the client hast told us to ignore up to 'offset' messages, consume them here. The client request can
              * arrive after we've already sent some messages.
              */
-            private void consumeOffset() {
+            private void consumeOffset() throws StandardException {
                 if (consumed < offset) {
+                    writeBlock();
                     long count = 0;
                     while (locatedRowIterator.hasNext() && consumed < offset) {
                         locatedRowIterator.next();
@@ -160,8 +197,9 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              * If the client told us to send no more than 'limit' messages, check it here
              * @return true if there's a limit and we reached it, false otherwise
              */
-            private boolean checkLimit() {
+            private boolean checkLimit() throws StandardException {
                 if (consumed > limit) {
+                    writeBlock();
                     ctx.flush();
                     if (LOG.isTraceEnabled())
                         LOG.trace("Reached limit, stopping. consumed " + consumed + " sent " + sent + " limit " + limit);
@@ -258,6 +296,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                 ", limit=" + limit +
                 ", partition=" + partition +
                 ", batches=" + batches +
+                ", columnar=" + columnar +
                 '}';
     }
 
@@ -272,6 +311,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         out.writeInt(numPartitions);
         out.writeInt(batches);
         out.writeInt(batchSize);
+        out.writeBoolean(columnar);
         out.writeObject(permits); // WTF is this?
     }
 
@@ -284,6 +324,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
         numPartitions = in.readInt();
         batches = in.readInt();
         batchSize = in.readInt();
+        columnar = in.readBoolean();
         permits = (Semaphore) in.readObject();
     }
 }
@@ -32,6 +32,8 @@ public class SparkCompactionContext implements CompactionContext, Serializable {
     private final LongAccumulator resolutionRejected;
     private final LongAccumulator rpc;
     private final LongAccumulator timeBlocked;
+    private final LongAccumulator resolved;
+    private final LongAccumulator timeResolving;
 
     public SparkCompactionContext() {
         this.rowsRead= SpliceSpark.getContext().sc().longAccumulator("rows read");
@@ -48,6 +50,8 @@ public class SparkCompactionContext implements CompactionContext, Serializable {
 
         this.rpc = SpliceSpark.getContext().sc().longAccumulator("rpcs");
         this.timeBlocked = SpliceSpark.getContext().sc().longAccumulator("time blocked");
+        this.resolved = SpliceSpark.getContext().sc().longAccumulator("transactions resolved");
+        this.timeResolving = SpliceSpark.getContext().sc().longAccumulator("time resolving");
     }
 
     @Override
@@ -85,6 +89,16 @@ public class SparkCompactionContext implements CompactionContext, Serializable {
         rpc.add(1l);
     }
 
+    @Override
+    public void recordResolvedTransactions(int count) {
+        resolved.add(count);
+    }
+
+    @Override
+    public void timeResolving(long duration) {
+        timeResolving.add(duration);
+    }
+
     @Override
     public void close() {
         // do nothing
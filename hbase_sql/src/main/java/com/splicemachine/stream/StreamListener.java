@@ -14,8 +14,12 @@
 
 package com.splicemachine.stream;
 
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.olap.OlapResult;
+import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.utils.kryo.KryoPool;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -40,6 +44,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     private static final Object SENTINEL = new Object();
     private static final Object FAILURE = new Object();
     private static final Object RETRY = new Object();
+    private static final KryoPool kp = SpliceSparkKryoRegistrator.getInstance();
     private final int queueSize;
     private final int batchSize;
     private final UUID uuid;
@@ -50,6 +55,8 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     private ConcurrentMap<Integer, PartitionState> partitionStateMap = new ConcurrentHashMap<>();
 
     private T currentResult;
+    // rows of the ColumnarRowBlock being read, if any
+    private Iterator<ExecRow> currentBlock;
     private int currentQueue = -1;
     // There's at least one partition, this will be updated when we get a connection
     private volatile long numPartitions = 1;
@@ -150,8 +157,15 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         try {
             while (next == null) {
                 PartitionState state = partitionStateMap.get(currentQueue);
-                // We take a message first to make sure we have a connection
-                Object msg = canBlock ? state.messages.take() : state.messages.remove();
+                Object msg;
+                if (currentBlock != null && currentBlock.hasNext()) {
+                    // Rows of a block are handled as if they had been sent one by one
+                    msg = currentBlock.next();
+                } else {
+                    currentBlock = null;
+                    // We take a message first to make sure we have a connection
+                    msg = canBlock ? state.messages.take() : state.messages.remove();
+                }
                 if (msg == FAILURE) {
                     // The olap job failed, return right away
                     currentResult = null;
@@ -175,6 +189,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                     state.next.channel.writeAndFlush(new StreamProtocol.Skip(serverLimit, currentOffset));
                     state.next.initialized = true;
                     state.messages.clear();
+                    currentBlock = null;
                     offset = currentOffset;
 
                     // Update maps with the new state/channel
@@ -204,6 +219,9 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                     if (failure != null) {
                         ps.messages.add(FAILURE);
                     }
+                } else if (msg instanceof ColumnarRowBlock) {
+                    // Decode the block only now that we need its rows
+                    currentBlock = ((ColumnarRowBlock) msg).iterator(kp);
                 } else {
                     if (msg instanceof StreamProtocol.Skipped) {
                         StreamProtocol.Skipped skipped = (StreamProtocol.Skipped) msg;
@@ -237,7 +255,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                 }
             }
             currentResult = next;
-        } catch (InterruptedException e) {
+        } catch (InterruptedException | StandardException e) {
             throw new RuntimeException(e);
         }
     }
@@ -262,6 +280,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
             return;
         }
         stopped = true;
+        currentBlock = null;
         // If a new channel has been added concurrently, it's either visible on the partitionMap, so we are going to close it,
         // or it has already seen the stopped flag, so it's been closed in accept()
         for (Channel channel : partitionMap.keySet()) {
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.olap;
+
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.derby.iapi.sql.olap.DistributedJob;
+import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the order in which the Olap server runs queued jobs, without a server: jobs block on a latch until
+ * they are allowed to finish.
+ */
+public class OlapJobSchedulerTest{
+    private ExecutorService executor;
+    private List<String> started;
+
+    @Before
+    public void setUp() throws Exception{
+        executor=Executors.newCachedThreadPool();
+        started=new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void limitsTheNumberOfConcurrentJobs() throws Exception{
+        OlapJobScheduler scheduler=newScheduler(2,Collections.<String,Integer>emptyMap(),new IncrementingClock());
+        CountDownLatch release=new CountDownLatch(1);
+        CountDownLatch finished=new CountDownLatch(4);
+        for(int i=0;i<4;i++){
+            submit(scheduler,"job"+i,DistributedJob.Priority.BATCH,null,"user",release,finished);
+        }
+        waitForStarted(2);
+        Assert.assertEquals(2,scheduler.getRunningJobs());
+        Assert.assertEquals(2,scheduler.getQueuedJobs());
+
+        release.countDown();
+        Assert.assertTrue("Queued jobs did not run",finished.await(10,TimeUnit.SECONDS));
+        waitForIdle(scheduler);
+        Assert.assertEquals(0,scheduler.getQueuedJobs());
+        Assert.assertEquals(4,scheduler.getStartedJobs(DistributedJob.Priority.BATCH));
+    }
+
+    @Test
+    public void runsHigherPrioritiesFirst() throws Exception{
+        OlapJobScheduler scheduler=newScheduler(1,Collections.<String,Integer>emptyMap(),new IncrementingClock());
+        CountDownLatch blocker=new CountDownLatch(1);
+        CountDownLatch finished=new CountDownLatch(4);
+        CountDownLatch none=new CountDownLatch(0);
+        submit(scheduler,"blocker",DistributedJob.Priority.BATCH,null,"user",blocker,finished);
+        waitForStarted(1);
+        submit(scheduler,"compaction",DistributedJob.Priority.COMPACTION,"compaction",null,none,finished);
+        submit(scheduler,"batch",DistributedJob.Priority.BATCH,null,"user",none,finished);
+        submit(scheduler,"interactive",DistributedJob.Priority.INTERACTIVE,null,"user",none,finished);
+
+        blocker.countDown();
+        Assert.assertTrue("Queued jobs did not run",finished.await(10,TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList("blocker","interactive","batch","compaction"),started);
+    }
+
+    @Test
+    public void startsCompactionsUnderInteractiveLoad() throws Exception{
+        OlapJobScheduler scheduler=newScheduler(2,Collections.<String,Integer>emptyMap(),new IncrementingClock());
+        CountDownLatch blocker=new CountDownLatch(1);
+        CountDownLatch firstBlocker=new CountDownLatch(1);
+        CountDownLatch none=new CountDownLatch(0);
+        CountDownLatch compacted=new CountDownLatch(1);
+        submit(scheduler,"interactive0",DistributedJob.Priority.INTERACTIVE,null,"user",firstBlocker,null);
+        submit(scheduler,"interactive1",DistributedJob.Priority.INTERACTIVE,null,"user",blocker,null);
+        waitForStarted(2);
+        //more interactive work keeps the server saturated
+        for(int i=2;i<10;i++){
+            submit(scheduler,"interactive"+i,DistributedJob.Priority.INTERACTIVE,null,"user",blocker,null);
+        }
+        submit(scheduler,"compaction",DistributedJob.Priority.COMPACTION,"compaction",null,none,compacted);
+        Assert.assertEquals(9,scheduler.getQueuedJobs());
+
+        //the next free slot goes to the compaction, ahead of the interactive jobs queued before it
+        firstBlocker.countDown();
+        Assert.assertTrue("Compaction did not run",compacted.await(10,TimeUnit.SECONDS));
+        Assert.assertEquals("compaction",started.get(2));
+
+        blocker.countDown();
+        waitForStarted(11);
+    }
+
+    @Test
+    public void dropsCancelledJobsFromTheQueue() throws Exception{
+        OlapJobScheduler scheduler=newScheduler(1,Collections.<String,Integer>emptyMap(),new IncrementingClock());
+        CountDownLatch blocker=new CountDownLatch(1);
+        CountDownLatch finished=new CountDownLatch(2);
+        CountDownLatch none=new CountDownLatch(0);
+        submit(scheduler,"running",DistributedJob.Priority.BATCH,null,"user",blocker,finished);
+        waitForStarted(1);
+        submit(scheduler,"cancelled",DistributedJob.Priority.BATCH,null,"user",none,finished);
+        submit(scheduler,"queued",DistributedJob.Priority.BATCH,null,"user",none,finished);
+        Assert.assertEquals(2,scheduler.getQueuedJobs());
+
+        Assert.assertTrue(scheduler.cancel("cancelled"));
+        Assert.assertFalse("A running job is not queued",scheduler.cancel("running"));
+        Assert.assertEquals(1,scheduler.getQueuedJobs());
+        Assert.assertNull(scheduler.getQueueStatus("cancelled"));
+        Assert.assertEquals(0,scheduler.getQueueStatus("queued").position);
+
+        blocker.countDown();
+        Assert.assertTrue("Queued jobs did not run",finished.await(10,TimeUnit.SECONDS));
+        waitForIdle(scheduler);
+        Assert.assertEquals(Arrays.asList("running","queued"),started);
+    }
+
+    @Test
+    public void sharesTheServerBetweenUsers() throws Exception{
+        OlapJobScheduler scheduler=newScheduler(2,Collections.<String,Integer>emptyMap(),new IncrementingClock());
+        CountDownLatch aliceBlocker=new CountDownLatch(1);
+        CountDownLatch carolBlocker=new CountDownLatch(1);
+        CountDownLatch none=new CountDownLatch(0);
+        CountDownLatch finished=new CountDownLatch(5);
+        submit(scheduler,"alice1",DistributedJob.Priority.INTERACTIVE,null,"alice",aliceBlocker,finished);
+        submit(scheduler,"carol1",DistributedJob.Priority.INTERACTIVE,null,"carol",carolBlocker,finished);
+        waitForStarted(2);
+        submit(scheduler,"alice2",DistributedJob.Priority.INTERACTIVE,null,"alice",none,finished);
+        submit(scheduler,"alice3",DistributedJob.Priority.INTERACTIVE,null,"alice",none,finished);
+        submit(scheduler,"bob1",DistributedJob.Priority.INTERACTIVE,null,"bob",none,finished);
+
+        //alice still has a job running, so bob's job goes first even though it was queued last
+        carolBlocker.countDown();
+        waitForStarted(3);
+        Assert.assertEquals("bob1",started.get(2));
+
+        aliceBlocker.countDown();
+        Assert.assertTrue("Queued jobs did not run",finished.await(10,TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void favoursUsersWithMoreWeight() throws Exception{
+        Map<String,Integer> weights=new HashMap<>();
+        weights.put("etl",3);
+        OlapJobScheduler scheduler=newScheduler(3,weights,new IncrementingClock());
+        CountDownLatch blocker=new CountDownLatch(1);
+        CountDownLatch otherBlocker=new CountDownLatch(1);
+        CountDownLatch none=new CountDownLatch(0);
+        submit(scheduler,"etl1",DistributedJob.Priority.BATCH,null,"etl",blocker,null);
+        submit(scheduler,"alice1",DistributedJob.Priority.BATCH,null,"alice",blocker,null);
+        submit(scheduler,"other1",DistributedJob.Priority.BATCH,null,"other",otherBlocker,null);
+        waitForStarted(3);
+        submit(scheduler,"alice2",DistributedJob.Priority.BATCH,null,"alice",none,null);
+        submit(scheduler,"etl2",DistributedJob.Priority.BATCH,null,"etl",none,null);
+
+        //etl and alice both have a job running, but etl has three times the share
+        otherBlocker.countDown();
+        waitForStarted(4);
+        Assert.assertEquals("etl2",started.get(3));
+        blocker.countDown();
+        waitForStarted(5);
+    }
+
+    @Test
+    public void reportsWhereQueuedJobsAre() throws Exception{
+        IncrementingClock clock=new IncrementingClock();
+        OlapJobScheduler scheduler=newScheduler(1,Collections.<String,Integer>emptyMap(),clock);
+        CountDownLatch blocker=new CountDownLatch(1);
+        CountDownLatch finished=new CountDownLatch(3);
+        CountDownLatch none=new CountDownLatch(0);
+        submit(scheduler,"running",DistributedJob.Priority.BATCH,null,"user",blocker,finished);
+        waitForStarted(1);
+        submit(scheduler,"batch",DistributedJob.Priority.BATCH,null,"user",none,finished);
+        clock.increment(TimeUnit.MILLISECONDS.toNanos(100));
+        submit(scheduler,"interactive",DistributedJob.Priority.INTERACTIVE,null,"user",none,finished);
+        clock.increment(TimeUnit.MILLISECONDS.toNanos(50));
+
+        Assert.assertNull("A running job is not queued",scheduler.getQueueStatus("running"));
+        OlapJobScheduler.QueueStatus batch=scheduler.getQueueStatus("batch");
+        Assert.assertEquals("The interactive job should run first",1,batch.position);
+        Assert.assertEquals(150L,batch.queuedTimeMillis);
+        Assert.assertEquals(2,batch.queuedJobs);
+        Assert.assertEquals(1,batch.runningJobs);
+        OlapJobScheduler.QueueStatus interactive=scheduler.getQueueStatus("interactive");
+        Assert.assertEquals(0,interactive.position);
+        Assert.assertEquals(50L,interactive.queuedTimeMillis);
+
+        blocker.countDown();
+        Assert.assertTrue("Queued jobs did not run",finished.await(10,TimeUnit.SECONDS));
+        Assert.assertEquals(150L,scheduler.getTotalWaitTime(DistributedJob.Priority.BATCH));
+        Assert.assertEquals(150L,scheduler.getMaxWaitTime(DistributedJob.Priority.BATCH));
+        Assert.assertEquals(50L,scheduler.getTotalWaitTime(DistributedJob.Priority.INTERACTIVE));
+    }
+
+    @Test
+    public void parsesWeights() throws Exception{
+        Map<String,Integer> weights=OlapJobScheduler.parseWeights(" analyst=1, etl = 3,broken,=2,negative=-1,nan=x");
+        Assert.assertEquals(2,weights.size());
+        Assert.assertEquals(Integer.valueOf(1),weights.get("analyst"));
+        Assert.assertEquals(Integer.valueOf(3),weights.get("etl"));
+        Assert.assertTrue(OlapJobScheduler.parseWeights(null).isEmpty());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private OlapJobScheduler newScheduler(int maxConcurrentJobs,Map<String,Integer> userWeights,Clock clock){
+        return new OlapJobScheduler(maxConcurrentJobs,userWeights,Collections.<String,Integer>emptyMap(),executor,clock);
+    }
+
+    private void submit(OlapJobScheduler scheduler,
+                        final String name,
+                        DistributedJob.Priority priority,
+                        String queue,
+                        String user,
+                        final CountDownLatch release,
+                        final CountDownLatch finished){
+        scheduler.submit(name,new TestJob(name,priority,queue,user),new Callable<Void>(){
+            @Override
+            public Void call() throws Exception{
+                started.add(name);
+                release.await();
+                if(finished!=null)
+                    finished.countDown();
+                return null;
+            }
+        });
+    }
+
+    private void waitForStarted(int count) throws InterruptedException{
+        long timeout=System.currentTimeMillis()+10000;
+        while(started.size()<count){
+            Assert.assertTrue("Only "+started+" started",System.currentTimeMillis()<timeout);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void waitForIdle(OlapJobScheduler scheduler) throws InterruptedException{
+        long timeout=System.currentTimeMillis()+10000;
+        while(scheduler.getRunningJobs()>0){
+            Assert.assertTrue("Jobs still running",System.currentTimeMillis()<timeout);
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestJob extends DistributedJob{
+        private final String name;
+        private final Priority priority;
+        private final String queue;
+        private final String user;
+
+        TestJob(String name,Priority priority,String queue,String user){
+            this.name=name;
+            this.priority=priority;
+            this.queue=queue;
+            this.user=user;
+        }
+
+        @Override
+        public Callable<Void> toCallable(OlapStatus jobStatus,Clock clock,long clientTimeoutCheckIntervalMs){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override public String getName(){ return name; }
+
+        @Override public Priority getPriority(){ return priority; }
+
+        @Override public String getQueue(){ return queue; }
+
+        @Override public String getUser(){ return user; }
+    }
+}
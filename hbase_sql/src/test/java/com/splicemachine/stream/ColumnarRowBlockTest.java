@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.stream;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLBoolean;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class ColumnarRowBlockTest{
+    private static final KryoPool kp=SpliceSparkKryoRegistrator.getInstance();
+
+    @Test
+    public void decodesTheRowsItEncoded() throws Exception{
+        List<ExecRow> rows=new ArrayList<>();
+        for(int i=0;i<100;i++){
+            rows.add(row(new SQLInteger(i),
+                    new SQLLongint(-1L*i*i*i),
+                    new SQLDouble(i/3d),
+                    new SQLBoolean(i%2==0),
+                    new SQLVarchar("value "+i),
+                    new SQLDecimal(new BigDecimal(i+".25"))));
+        }
+        assertRoundTrip(rows);
+    }
+
+    @Test
+    public void keepsNulls() throws Exception{
+        List<ExecRow> rows=new ArrayList<>();
+        for(int i=0;i<20;i++){
+            if(i%3==0)
+                rows.add(row(new SQLInteger(),new SQLDouble(),new SQLBoolean(),new SQLVarchar(),new SQLDecimal()));
+            else
+                rows.add(row(new SQLInteger(i),new SQLDouble(i),new SQLBoolean(true),new SQLVarchar("v"+i),new SQLDecimal(BigDecimal.ONE)));
+        }
+        assertRoundTrip(rows);
+    }
+
+    @Test
+    public void repeatedStringsAreSmaller() throws Exception{
+        List<ExecRow> distinct=new ArrayList<>();
+        List<ExecRow> repeated=new ArrayList<>();
+        for(int i=0;i<1000;i++){
+            distinct.add(row(new SQLVarchar("a fairly long string value "+i)));
+            repeated.add(row(new SQLVarchar("a fairly long string value "+(i%4))));
+        }
+        ColumnarRowBlock distinctBlock=assertRoundTrip(distinct);
+        ColumnarRowBlock repeatedBlock=assertRoundTrip(repeated);
+        Assert.assertTrue("Repeated values should compress better",
+                repeatedBlock.getCompressedLength()<distinctBlock.getCompressedLength());
+    }
+
+    @Test
+    public void doesNotMixColumnTypes() throws Exception{
+        ColumnarRowBlock.Builder builder=new ColumnarRowBlock.Builder(kp);
+        Assert.assertTrue(builder.isEmpty());
+        Assert.assertTrue(builder.add(row(new SQLInteger(1),new SQLVarchar("a"))));
+        Assert.assertFalse("Different types",builder.add(row(new SQLLongint(1L),new SQLVarchar("a"))));
+        Assert.assertFalse("Different number of columns",builder.add(row(new SQLInteger(1))));
+        Assert.assertTrue("Nulls have the same type",builder.add(row(new SQLInteger(),new SQLVarchar())));
+        Assert.assertEquals(2,builder.build().size());
+        Assert.assertTrue("Building should start a new block",builder.isEmpty());
+    }
+
+    @Test
+    public void onlySupportsValueRows() throws Exception{
+        Assert.assertTrue(ColumnarRowBlock.supports(row(new SQLInteger(1))));
+        Assert.assertFalse(ColumnarRowBlock.supports(null));
+        Assert.assertFalse(ColumnarRowBlock.supports("not a row"));
+        Assert.assertFalse("Columns without a value",ColumnarRowBlock.supports(new ValueRow(2)));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ExecRow row(DataValueDescriptor... dvds){
+        return new ValueRow(dvds);
+    }
+
+    private static ColumnarRowBlock assertRoundTrip(List<ExecRow> rows) throws Exception{
+        ColumnarRowBlock.Builder builder=new ColumnarRowBlock.Builder(kp);
+        for(ExecRow row : rows){
+            Assert.assertTrue("Row not supported: "+row,ColumnarRowBlock.supports(row));
+            Assert.assertTrue("Row not added: "+row,builder.add(row));
+        }
+        ColumnarRowBlock block=builder.build();
+        Assert.assertEquals(rows.size(),block.size());
+
+        //blocks are sent as Externalizables
+        ByteArrayOutputStream baos=new ByteArrayOutputStream();
+        try(ObjectOutputStream oos=new ObjectOutputStream(baos)){
+            oos.writeObject(block);
+        }
+        ColumnarRowBlock read;
+        try(ObjectInputStream ois=new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))){
+            read=(ColumnarRowBlock)ois.readObject();
+        }
+
+        Iterator<ExecRow> decoded=read.iterator(kp);
+        for(ExecRow expected : rows){
+            Assert.assertTrue("Missing rows",decoded.hasNext());
+            ExecRow actual=decoded.next();
+            Assert.assertEquals(expected.nColumns(),actual.nColumns());
+            for(int i=1;i<=expected.nColumns();i++){
+                DataValueDescriptor e=expected.getColumn(i);
+                DataValueDescriptor a=actual.getColumn(i);
+                Assert.assertEquals("Wrong type in column "+i,e.getClass(),a.getClass());
+                Assert.assertEquals("Wrong null in column "+i,e.isNull(),a.isNull());
+                if(!e.isNull())
+                    Assert.assertEquals("Wrong value in column "+i,e.getObject(),a.getObject());
+            }
+        }
+        Assert.assertFalse("Too many rows",decoded.hasNext());
+        return read;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.stream;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
+import com.splicemachine.utils.kryo.KryoPool;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Compares streaming query results row by row (each row written with Kryo, as {@link KryoEncoder} does) against
+ * streaming them in {@link ColumnarRowBlock}s: the bytes sent, and the time to encode and decode the rows.
+ *
+ * This is not run as part of the test suite; run it directly, passing the number of rows, the number of rows per
+ * block and the number of iterations as arguments.
+ */
+public class ResultStreamingBenchmark{
+
+    public static void main(String...args) throws Exception{
+        int numRows = args.length>0? Integer.parseInt(args[0]) : 1_000_000;
+        int blockSize = args.length>1? Integer.parseInt(args[1]) : 1024;
+        int iterations = args.length>2? Integer.parseInt(args[2]) : 10;
+
+        KryoPool kp = SpliceSparkKryoRegistrator.getInstance();
+        ExecRow[] rows = createRows(numRows);
+
+        System.out.printf("Benchmarking %d rows, %d rows per block, %d iterations%n",numRows,blockSize,iterations);
+        for(int i=0;i<iterations;i++){
+            long start = System.nanoTime();
+            long rowBytes = rowPath(kp,rows);
+            long rowTime = System.nanoTime()-start;
+
+            start = System.nanoTime();
+            long columnarBytes = columnarPath(kp,rows,blockSize);
+            long columnarTime = System.nanoTime()-start;
+
+            System.out.printf("row path: %.1f MB, %.1f Mrows/s  columnar path: %.1f MB, %.1f Mrows/s%n",
+                    rowBytes/1e6d,numRows/(rowTime/1e3d),columnarBytes/1e6d,numRows/(columnarTime/1e3d));
+        }
+    }
+
+    private static long rowPath(KryoPool kp,ExecRow[] rows){
+        long bytes = 0L;
+        long columns = 0L;
+        Output output = new Output(4096,-1);
+        Kryo kryo = kp.get();
+        try{
+            for(ExecRow row : rows){
+                output.clear();
+                kryo.writeClassAndObject(output,row);
+                //the length prefix
+                bytes += output.position()+4;
+                ExecRow read = (ExecRow)kryo.readClassAndObject(new Input(output.getBuffer(),0,output.position()));
+                columns += read.nColumns();
+            }
+        }finally{
+            kp.returnInstance(kryo);
+        }
+        if(columns!=rows.length*(long)rows[0].nColumns())
+            throw new IllegalStateException("Rows were lost");
+        return bytes;
+    }
+
+    private static long columnarPath(KryoPool kp,ExecRow[] rows,int blockSize) throws Exception{
+        long bytes = 0L;
+        long columns = 0L;
+        ColumnarRowBlock.Builder builder = new ColumnarRowBlock.Builder(kp);
+        Output output = new Output(4096,-1);
+        Kryo kryo = kp.get();
+        try{
+            int next = 0;
+            while(next<rows.length){
+                for(int i=0;i<blockSize && next<rows.length;i++){
+                    builder.add(rows[next++]);
+                }
+                ColumnarRowBlock block = builder.build();
+                output.clear();
+                kryo.writeClassAndObject(output,block);
+                bytes += output.position()+4;
+                ColumnarRowBlock read = (ColumnarRowBlock)kryo.readClassAndObject(new Input(output.getBuffer(),0,output.position()));
+                Iterator<ExecRow> it = read.iterator(kp);
+                while(it.hasNext()){
+                    columns += it.next().nColumns();
+                }
+            }
+        }finally{
+            kp.returnInstance(kryo);
+        }
+        if(columns!=rows.length*(long)rows[0].nColumns())
+            throw new IllegalStateException("Rows were lost");
+        return bytes;
+    }
+
+    /*A typical result: keys, measures, and a low cardinality string*/
+    private static ExecRow[] createRows(int numRows) throws Exception{
+        String[] regions = {"AFRICA","AMERICA","ASIA","EUROPE","MIDDLE EAST"};
+        Random random = new Random(0L);
+        ExecRow[] rows = new ExecRow[numRows];
+        for(int i=0;i<numRows;i++){
+            rows[i] = new ValueRow(new DataValueDescriptor[]{
+                    new SQLLongint(i),
+                    new SQLInteger(random.nextInt(1000)),
+                    new SQLDouble(random.nextDouble()*10000),
+                    new SQLVarchar(regions[random.nextInt(regions.length)]),
+                    new SQLVarchar("Customer#"+random.nextInt(150_000)),
+                    new SQLDecimal(BigDecimal.valueOf(random.nextInt(1_000_000),2))
+            });
+        }
+        return rows;
+    }
+}
@@ -36,10 +36,12 @@ import com.splicemachine.concurrent.CountedReference;
 import com.splicemachine.concurrent.SystemClock;
 import com.splicemachine.constants.EnvUtils;
 import com.splicemachine.hbase.ZkUtils;
+import com.splicemachine.si.api.txn.lifecycle.TransactionTimeoutException;
 import com.splicemachine.si.api.txn.lifecycle.TxnLifecycleStore;
 import com.splicemachine.si.api.txn.lifecycle.TxnPartition;
 import com.splicemachine.si.coprocessor.TxnMessage;
 import com.splicemachine.si.impl.data.StripedTxnLifecycleStore;
+import com.splicemachine.si.impl.TxnUtils;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.region.RegionServerControl;
 import com.splicemachine.si.impl.region.RegionTxnStore;
@@ -57,6 +59,7 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
     private static final Logger LOG=Logger.getLogger(TxnLifecycleEndpoint.class);
 
     private TxnLifecycleStore lifecycleStore;
+    private HRegion region;
     private volatile boolean isTxnTable=false;
 
     public static final CountedReference<TransactionResolver> resolverRef=new CountedReference<>(new Supplier<TransactionResolver>(){
@@ -75,7 +78,7 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
     public void start(CoprocessorEnvironment env) throws IOException{
         try {
             RegionCoprocessorEnvironment rce=(RegionCoprocessorEnvironment)env;
-            HRegion region=(HRegion)rce.getRegion();
+            region=(HRegion)rce.getRegion();
             HBaseSIEnvironment siEnv = HBaseSIEnvironment.loadEnvironment(new SystemClock(),ZkUtils.getRecoverableZooKeeper());
             SConfiguration configuration=siEnv.configuration();
             TableType table=EnvUtils.getTableType(configuration,rce);
@@ -177,6 +180,39 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
         }
     }
 
+    @Override
+    public void keepAliveTransactions(RpcController controller,TxnMessage.KeepAliveRequest request,RpcCallback<TxnMessage.KeepAliveResponse> done){
+        try (RpcUtils.RootEnv env = RpcUtils.getRootEnv()) {
+            TxnMessage.KeepAliveResponse.Builder response=TxnMessage.KeepAliveResponse.newBuilder();
+            int txnIdsCount=request.getTxnIdsCount();
+            for(int i=0;i<txnIdsCount;i++){
+                long txnId=request.getTxnIds(i);
+                if(!region.getRegionInfo().containsRow(TxnUtils.getRowKey(txnId))){
+                    /*
+                     * The transaction table has split (or moved) since the caller grouped its
+                     * transactions, so let it retry this one against the right region
+                     */
+                    response.addMissedTxnIds(txnId);
+                    continue;
+                }
+                try{
+                    if(keepAlive(txnId))
+                        response.addActiveTxnIds(txnId);
+                }catch(IOException ioe){
+                    if(ioe instanceof TransactionTimeoutException)
+                        response.addTimedOutTxnIds(txnId);
+                    else{
+                        SpliceLogUtils.warn(LOG,"Unable to keep alive transaction %d as part of a batch: %s",txnId,ioe.getMessage());
+                        response.addMissedTxnIds(txnId);
+                    }
+                }
+            }
+            done.run(response.build());
+        }catch(Throwable t){
+            ResponseConverter.setControllerException(controller,CoprocessorUtils.getIOException(t));
+        }
+    }
+
     @Override
     public void getTransaction(RpcController controller,TxnMessage.TxnRequest request,RpcCallback<TxnMessage.Txn> done){
         try (RpcUtils.RootEnv env = RpcUtils.getRootEnv()) {
@@ -194,6 +230,24 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
         }
     }
 
+    @Override
+    public void getTransactions(RpcController controller,TxnMessage.TxnsRequest request,RpcCallback<TxnMessage.TxnsResponse> done){
+        try (RpcUtils.RootEnv env = RpcUtils.getRootEnv()) {
+            TxnMessage.TxnsResponse.Builder response=TxnMessage.TxnsResponse.newBuilder();
+            int txnIdsCount=request.getTxnIdsCount();
+            for(int i=0;i<txnIdsCount;i++){
+                long txnId=request.getTxnIds(i);
+                if(region.getRegionInfo().containsRow(TxnUtils.getRowKey(txnId)))
+                    response.addTxns(lifecycleStore.getTransaction(txnId));
+                else
+                    response.addMissedTxnIds(txnId); //the caller will retry against the right region
+            }
+            done.run(response.build());
+        }catch(IOException ioe){
+            ResponseConverter.setControllerException(controller,ioe);
+        }
+    }
+
     @Override
     public void getTaskId(RpcController controller,TxnMessage.TxnRequest request,RpcCallback<TxnMessage.TaskId> done){
         try (RpcUtils.RootEnv env = RpcUtils.getRootEnv()) {
@@ -119,15 +119,11 @@ public class HBaseRollForward implements RollForward {
                     if(state.isFinal()) {
                         resolutions.add(event.getKeys().size());
                         if (state == Txn.State.ROLLEDBACK) {
-                            for (ByteSlice bs : event.getKeys()) {
-                                SynchronousReadResolver.INSTANCE.resolveRolledback(
-                                        event.getPartition(), bs, event.getTxnId(), false);
-                            }
+                            SynchronousReadResolver.INSTANCE.resolveRolledback(
+                                    event.getPartition(), event.getKeys(), event.getTxnId(), false);
                         } else if (state == Txn.State.COMMITTED) {
-                            for (ByteSlice bs : event.getKeys()) {
-                                SynchronousReadResolver.INSTANCE.resolveCommitted(
-                                        event.getPartition(), bs, event.getTxnId(), txn.getEffectiveCommitTimestamp(), false);
-                            }
+                            SynchronousReadResolver.INSTANCE.resolveCommitted(
+                                    event.getPartition(), event.getKeys(), event.getTxnId(), txn.getEffectiveCommitTimestamp(), false);
                         }
                     } else {
                         active.add(event.getKeys().size());
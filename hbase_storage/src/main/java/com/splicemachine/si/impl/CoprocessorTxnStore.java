@@ -14,6 +14,7 @@
 
 package com.splicemachine.si.impl;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.LongHashSet;
 import com.splicemachine.access.HConfiguration;
 import com.splicemachine.si.api.txn.ActiveTxnTracker;
@@ -38,7 +39,9 @@ import com.splicemachine.si.coprocessor.TxnMessage;
 import com.splicemachine.si.impl.txn.InheritingTxnView;
 import com.splicemachine.timestamp.api.TimestampSource;
 import com.splicemachine.utils.ByteSlice;
+import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentSkipListSet;
@@ -56,6 +59,7 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 @ThreadSafe
 public class CoprocessorTxnStore implements TxnStore {
+    private static final Logger LOG=Logger.getLogger(CoprocessorTxnStore.class);
     private final TxnNetworkLayerFactory tableFactory;
     private TxnSupplier cache; //a transaction store which uses a global cache for us
     private volatile long oldTransactions;
@@ -192,6 +196,84 @@ public class CoprocessorTxnStore implements TxnStore {
         }
     }
 
+    @Override
+    public KeepAliveResult[] keepAlive(long[] txnIds) throws IOException{
+        /*
+         * The transaction table is split by bucket (the first byte of the row key), so group
+         * the transactions by bucket and send one request to each bucket's region. If a bucket
+         * has since been split further, the region tells us which transactions it doesn't own,
+         * and we fall back to keeping those alive one at a time. We do the same for every transaction
+         * in a bucket whose request fails, so that one unreachable region (or a server which predates
+         * batched keep-alives, during a rolling upgrade) doesn't stop the other transactions from being
+         * kept alive.
+         */
+        KeepAliveResult[] results=new KeepAliveResult[txnIds.length];
+        Map<Byte,TxnMessage.KeepAliveRequest.Builder> buckets=new TreeMap<>();
+        Map<Long,Integer> positions=new HashMap<>(txnIds.length);
+        for(int i=0;i<txnIds.length;i++){
+            long txnId=txnIds[i];
+            positions.put(txnId,i);
+            results[i]=KeepAliveResult.INACTIVE;
+            Byte bucket=getTransactionRowKey(txnId)[0];
+            TxnMessage.KeepAliveRequest.Builder request=buckets.get(bucket);
+            if(request==null){
+                request=TxnMessage.KeepAliveRequest.newBuilder();
+                buckets.put(bucket,request);
+            }
+            request.addTxnIds(txnId);
+        }
+
+        IOException error=null;
+        try(TxnNetworkLayer table = tableFactory.accessTxnNetwork()){
+            for(TxnMessage.KeepAliveRequest.Builder request:buckets.values()){
+                byte[] rowKey=getTransactionRowKey(request.getTxnIds(0));
+                TxnMessage.KeepAliveResponse response;
+                try{
+                    response=table.keepAlive(rowKey,request.build());
+                }catch(IOException | RuntimeException e){
+                    SpliceLogUtils.warn(LOG,"Unable to keep %d transactions alive in one request, "+
+                            "keeping them alive one at a time: %s",request.getTxnIdsCount(),e.getMessage());
+                    response=null;
+                }
+                if(response==null){
+                    error=keepAliveEach(request.getTxnIdsList(),positions,results,error);
+                    continue;
+                }
+                for(long txnId:response.getActiveTxnIdsList()){
+                    results[positions.get(txnId)]=KeepAliveResult.ACTIVE;
+                }
+                for(long txnId:response.getTimedOutTxnIdsList()){
+                    results[positions.get(txnId)]=KeepAliveResult.TIMED_OUT;
+                }
+                error=keepAliveEach(response.getMissedTxnIdsList(),positions,results,error);
+            }
+        }
+        /*
+         * Every other transaction has been kept alive, but we can't tell the caller what became
+         * of the ones which failed, so fail the whole call and let it try again
+         */
+        if(error!=null)
+            throw error;
+        return results;
+    }
+
+    private IOException keepAliveEach(List<Long> txnIds,Map<Long,Integer> positions,KeepAliveResult[] results,IOException error){
+        for(long txnId:txnIds){
+            int position=positions.get(txnId);
+            try{
+                results[position]=keepAlive(txnId)?KeepAliveResult.ACTIVE:KeepAliveResult.INACTIVE;
+            }catch(HTransactionTimeout tte){
+                results[position]=KeepAliveResult.TIMED_OUT;
+            }catch(IOException ioe){
+                if(error==null)
+                    error=ioe;
+                else
+                    error.addSuppressed(ioe);
+            }
+        }
+        return error;
+    }
+
     @Override
     public void elevateTransaction(Txn txn,byte[] newDestinationTable) throws IOException{
         byte[] rowKey=getTransactionRowKey(txn.getTxnId());
@@ -292,6 +374,65 @@ public class CoprocessorTxnStore implements TxnStore {
         }
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        /*
+         * As with keep-alives, send one request to each transaction table bucket, and
+         * fall back to single lookups for anything the region doesn't hold
+         */
+        TxnView[] txns=new TxnView[txnIds.length];
+        Map<Byte,IntArrayList> buckets=new TreeMap<>();
+        for(int i=0;i<txnIds.length;i++){
+            long txnId=txnIds[i];
+            if(txnId<oldTransactions){
+                txns[i]=getTransactionOrNull(txnId);
+                continue;
+            }
+            Byte bucket=getTransactionRowKey(txnId)[0];
+            IntArrayList positions=buckets.get(bucket);
+            if(positions==null){
+                positions=new IntArrayList();
+                buckets.put(bucket,positions);
+            }
+            positions.add(i);
+        }
+
+        try(TxnNetworkLayer table = tableFactory.accessTxnNetwork()){
+            for(IntArrayList positions:buckets.values()){
+                TxnMessage.TxnsRequest.Builder request=TxnMessage.TxnsRequest.newBuilder();
+                for(int p=0;p<positions.size();p++){
+                    request.addTxnIds(txnIds[positions.get(p)]);
+                }
+                lookups.addAndGet(positions.size());
+                TxnMessage.TxnsResponse response=table.getTxns(getTransactionRowKey(txnIds[positions.get(0)]),request.build());
+                Set<Long> missed=response.getMissedTxnIdsCount()>0?new HashSet<>(response.getMissedTxnIdsList()):Collections.<Long>emptySet();
+                int t=0;
+                for(int p=0;p<positions.size();p++){
+                    int position=positions.get(p);
+                    long txnId=txnIds[position];
+                    if(missed.contains(txnId))
+                        txns[position]=getTransactionOrNull(txnId);
+                    else{
+                        try{
+                            txns[position]=decode(txnId,response.getTxns(t++));
+                        }catch(TransactionMissing tm){
+                            txns[position]=null;
+                        }
+                    }
+                }
+            }
+        }
+        return txns;
+    }
+
+    private TxnView getTransactionOrNull(long txnId) throws IOException{
+        try{
+            return getTransaction(txnId,false);
+        }catch(TransactionMissing tm){
+            return null;
+        }
+    }
+
     public TxnView getOldTransaction(long txnId, boolean getDestinationTables) throws IOException {
         byte[] rowKey = getOldTransactionRowKey(txnId);
         TxnMessage.TxnRequest request = TxnMessage.TxnRequest.newBuilder().setTxnId(txnId).setIsOld(true).build();
@@ -16,28 +16,44 @@ package com.splicemachine.si.impl;
 
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.annotations.ThreadSafe;
-import com.splicemachine.concurrent.ThreadLocalRandom;
 import com.splicemachine.si.api.txn.KeepAliveScheduler;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Keeps transactions alive in batches.
+ *
+ * Every {@code maxWaitIntervalMs}, all the scheduled transactions which are still active are gathered up
+ * and kept alive with {@link TxnStore#keepAlive(long[])}, which costs one network call per transaction table
+ * region rather than one per transaction.
+ *
  * @author Scott Fines
  *         Date: 6/25/14
  */
 public class QueuedKeepAliveScheduler implements KeepAliveScheduler{
     private static final Logger LOG=Logger.getLogger(QueuedKeepAliveScheduler.class);
+    /*the maximum number of transactions kept alive by a single call to the TxnStore*/
+    static final int MAX_BATCH_SIZE=1024;
+
     private final long maxWaitIntervalMs;
     private final long maxKeepAliveIntervalMs;
     private final ScheduledExecutorService threadPool;
-    private final com.splicemachine.concurrent.ThreadLocalRandom random;
+    private final ConcurrentMap<Long,KeepAlive> activeTxns=new ConcurrentHashMap<>();
+    private final AtomicInteger inFlightBatches=new AtomicInteger(0);
 
     private final
     @ThreadSafe
@@ -52,17 +68,30 @@ public class QueuedKeepAliveScheduler implements KeepAliveScheduler{
         ThreadFactory factory=new ThreadFactoryBuilder().setNameFormat("keepAlive-thread-%d").setDaemon(true).build();
 
         this.threadPool=Executors.newScheduledThreadPool(numKeepers,factory);
-        this.random=ThreadLocalRandom.current();
         this.txnStore=txnStore;
         this.maxKeepAliveIntervalMs=maxKeepAliveIntervalMs;
+        /*
+         * Transactions can be scheduled as soon as we are constructed, so start ticking
+         * now rather than waiting for start()
+         */
+        this.threadPool.scheduleWithFixedDelay(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    tick();
+                }catch(Throwable t){
+                    //never let an error stop the tick from being rescheduled
+                    LOG.error("Unexpected error keeping transactions alive",t);
+                }
+            }
+        },maxWaitIntervalMs,maxWaitIntervalMs,TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void scheduleKeepAlive(Txn txn){
         if(shutdown) return;
 
-//				activeTxns.add(txn);
-        threadPool.schedule(new KeepAlive(txn),random.nextLong(maxWaitIntervalMs),TimeUnit.MILLISECONDS);
+        activeTxns.putIfAbsent(txn.getTxnId(),new KeepAlive(txn));
     }
 
     @Override
@@ -73,78 +102,152 @@ public class QueuedKeepAliveScheduler implements KeepAliveScheduler{
     public void stop(){
         shutdown=true;
         threadPool.shutdownNow();
+        activeTxns.clear();
+    }
+
+    /**
+     * @return the number of transactions which are currently being kept alive
+     */
+    public int getNumActiveTransactions(){
+        return activeTxns.size();
+    }
+
+    /**
+     * @return the number of batches of keep-alives which have been submitted, but have not yet completed
+     */
+    public int getNumInFlightBatches(){
+        return inFlightBatches.get();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    void tick(){
+        if(shutdown) return;
+        long now=System.currentTimeMillis();
+        List<KeepAlive> batch=new ArrayList<>();
+        Iterator<KeepAlive> iter=activeTxns.values().iterator();
+        while(iter.hasNext()){
+            KeepAlive keepAlive=iter.next();
+            Txn txn=keepAlive.txn;
+            if(txn.getEffectiveState()!=Txn.State.ACTIVE){
+                iter.remove(); //nothing to do, we no longer need to keep anything alive
+                continue;
+            }
+            if(keepAlive.inFlight) continue; //the last keep alive for this transaction hasn't returned yet
+
+            long keepAliveTime=now-keepAlive.lastKeepAliveTime;
+            if(keepAliveTime>2*maxKeepAliveIntervalMs){
+                SpliceLogUtils.warn(LOG,"It has been %d ms since the last time we tried to perform "+
+                        "a keep alive for transaction %d, which is longer than the maximum interval",keepAliveTime,txn.getTxnId());
+                /*
+                 * We are the only ones trying to keep this transaction alive. If we know
+                 * for a fact that we had to wait longer than the transaction timeout, then
+                 * we don't need to keep trying--just roll back the transaction and return.
+                 *
+                 * However, we want to leave some room for network slop here, so we err
+                 * on the side of caution, and only use this if we exceed twice the actual
+                 * keep alive window. That way, we probably never need this, but it's available
+                 * if we do.
+                 */
+                iter.remove();
+                rollback(txn);
+                continue;
+            }
+            keepAlive.inFlight=true;
+            batch.add(keepAlive);
+            if(batch.size()==MAX_BATCH_SIZE){
+                submit(batch);
+                batch=new ArrayList<>();
+            }
+        }
+        if(!batch.isEmpty())
+            submit(batch);
     }
 
-    private class KeepAlive implements Runnable{
+    private void submit(List<KeepAlive> batch){
+        inFlightBatches.incrementAndGet();
+        try{
+            threadPool.execute(new KeepAliveBatch(batch));
+        }catch(RejectedExecutionException ree){
+            inFlightBatches.decrementAndGet();
+            //we've been shut down, so there's nothing left to keep alive
+            SpliceLogUtils.debug(LOG,"Keep alive scheduler shut down, dropping a batch of %d transactions",batch.size());
+        }
+    }
+
+    private void rollback(Txn txn){
+        try{
+            txn.rollback();
+        }catch(IOException e){
+            LOG.info("Unable to roll back transaction "+txn.getTxnId()
+                    +" but nothing to be concerned with, since it has already timed out",e);
+        }
+    }
+
+    private static class KeepAlive{
         private final Txn txn;
-        private long lastKeepAliveTime;
+        private volatile long lastKeepAliveTime;
+        /*set by the tick, and cleared once the batch containing the transaction has completed*/
+        private volatile boolean inFlight;
 
-        public KeepAlive(Txn txn){
+        KeepAlive(Txn txn){
             this.txn=txn;
             this.lastKeepAliveTime=System.currentTimeMillis();
         }
+    }
+
+    private class KeepAliveBatch implements Runnable{
+        private final List<KeepAlive> batch;
+
+        KeepAliveBatch(List<KeepAlive> batch){
+            this.batch=batch;
+        }
 
         @Override
         public void run(){
-            if(txn.getEffectiveState()!=Txn.State.ACTIVE){
-                return; //nothing to do, we no longer need to keep anything alive
-            }
-            long keepAliveTime=System.currentTimeMillis()-lastKeepAliveTime;
-
-            if(keepAliveTime>2*maxKeepAliveIntervalMs){
-                SpliceLogUtils.warn(LOG,"It has been %d ms since the last time we tried to perform"+
-                        "a keep alive, which is longer than the maximum interval");
-                                /*
-								 * We are the only ones trying to keep this transaction alive. If we know
-								 * for a fact that we had to wait longer than the transaction timeout, then
-								 * we don't need to keep trying--just roll back the transaction and return.
-								 *
-								 * However, we want to leave some room for network slop here, so we err
-								 * on the side of caution, and only use this if we exceed twice the actual
-								 * keep alive window. That way, we probably never need this, but it's available
-								 * if we do.
-								 */
-                try{
-                    txn.rollback();
-                }catch(IOException e){
-                    LOG.info("Unable to roll back transaction "+txn.getTxnId()
-                            +" but nothing to be concerned with, since it has already timed out",e);
-                }
-                return;
+            long[] txnIds=new long[batch.size()];
+            for(int i=0;i<txnIds.length;i++){
+                txnIds[i]=batch.get(i).txn.getTxnId();
             }
-
             try{
                 long time=System.currentTimeMillis();
-                boolean reschedule=txnStore.keepAlive(txn.getTxnId());
-                time=System.currentTimeMillis()-time; //measure our latency
-                if(reschedule){
-                    //use a random slop factor to load-balance our keep alive requests.
-                    threadPool.schedule(this,random.nextLong(maxWaitIntervalMs),TimeUnit.MILLISECONDS);
-                    lastKeepAliveTime=System.currentTimeMillis(); //include network latency in our wait period
+                TxnStore.KeepAliveResult[] results=txnStore.keepAlive(txnIds);
+                long now=System.currentTimeMillis();
+                time=now-time; //measure our latency
+                for(int i=0;i<results.length;i++){
+                    KeepAlive keepAlive=batch.get(i);
+                    switch(results[i]){
+                        case ACTIVE:
+                            keepAlive.lastKeepAliveTime=now; //include network latency in our wait period
+                            break;
+                        case TIMED_OUT:
+                            LOG.error("Transaction "+txnIds[i]+" has timed out");
+                            /*
+                             * We attempted to keep alive a transaction that has already timed out for a different
+                             * reason. Ensure that the transaction is rolled back
+                             */
+                            activeTxns.remove(txnIds[i]);
+                            rollback(keepAlive.txn);
+                            break;
+                        default:
+                            activeTxns.remove(txnIds[i]);
+                    }
                 }
                 if(time>0.1*maxKeepAliveIntervalMs)
-                    SpliceLogUtils.warn(LOG,"It took longer than 10% of the keep-alive interval to perform"+
-                            "keep alive for transaction %d. This may be a sign that load will begin interfering"+
-                            "with the transaction system",txn.getTxnId());
-            }catch(HTransactionTimeout tte){
-                LOG.error("Transaction "+txn.getTxnId()+" has timed out");
-									/*
-									 * We attempted to keep alive a transaction that has already timed out for a different
-									 * reason. Ensure that the transaction is rolled back
-									 */
-                try{
-                    txn.rollback();
-                }catch(IOException e){
-                    LOG.info("Unable to roll back transaction "+
-                            txn.getTxnId()+" but nothing to be concerned with, since it has already timed out",e);
-                }
+                    SpliceLogUtils.warn(LOG,"It took longer than 10%% of the keep-alive interval to perform "+
+                            "keep alive for %d transactions. This may be a sign that load will begin interfering "+
+                            "with the transaction system",txnIds.length);
             }catch(IOException e){
-								/*
-								 * This could be a real problem, but we don't have anything that we can really do about this,
-								 * so we just log the error and hope it resolves itself.
-								 */
-                LOG.error("Unable to keep transaction "+txn.getTxnId()+" alive. Will try again in a bit",e);
-                threadPool.schedule(this,random.nextLong(maxWaitIntervalMs),TimeUnit.MILLISECONDS);
+                /*
+                 * This could be a real problem, but we don't have anything that we can really do about this,
+                 * so we just log the error and hope it resolves itself on the next tick.
+                 */
+                LOG.error("Unable to keep "+txnIds.length+" transactions alive. Will try again in a bit",e);
+            }finally{
+                for(KeepAlive keepAlive:batch){
+                    keepAlive.inFlight=false;
+                }
+                inFlightBatches.decrementAndGet();
             }
         }
     }
@@ -29,6 +29,8 @@ public interface TxnNetworkLayer extends AutoCloseable{
 
     TxnMessage.ActionResponse lifecycleAction(byte[] rowKey,TxnMessage.TxnLifecycleMessage lifecycleMessage) throws IOException;
 
+    TxnMessage.KeepAliveResponse keepAlive(byte[] rowKey,TxnMessage.KeepAliveRequest request) throws IOException;
+
     void elevate(byte[] rowKey,TxnMessage.ElevateRequest elevateRequest) throws IOException;
 
     long[] getActiveTxnIds(TxnMessage.ActiveTxnRequest request) throws IOException;
@@ -37,6 +39,8 @@ public interface TxnNetworkLayer extends AutoCloseable{
 
     TxnMessage.Txn getTxn(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
+    TxnMessage.TxnsResponse getTxns(byte[] rowKey,TxnMessage.TxnsRequest request) throws IOException;
+
     TxnMessage.TaskId getTaskId(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
     void close() throws IOException;
@@ -26,16 +26,20 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.RegionPartition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.exceptions.ConnectionClosingException;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -95,19 +99,13 @@ public class SynchronousReadResolver implements KeyedReadResolver{
                 }finally{
                     trafficControl.release(1);
                 }
-            }else{
-                TxnView t=transaction;
-                while(t.getState()==Txn.State.COMMITTED){
-                    t=t.getParentTxnView();
-                }
-                if(t==Txn.ROOT_TRANSACTION){
-                    trafficControl.acquire(1);
-                    try{
-                        SynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
-                        resolved=true;
-                    }finally{
-                        trafficControl.release(1);
-                    }
+            }else if(isCommittedToRoot(transaction)){
+                trafficControl.acquire(1);
+                try{
+                    SynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
+                    resolved=true;
+                }finally{
+                    trafficControl.release(1);
                 }
             }
             status.rowResolved();
@@ -124,6 +122,40 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public int resolve(Partition region,List<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        try{
+            TxnView transaction=supplier.getTransaction(txnId);
+            int resolved=0;
+            if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
+                trafficControl.acquire(1);
+                try{
+                    resolved=resolveRolledback(region,rowKeys,txnId,failOnError);
+                }finally{
+                    trafficControl.release(1);
+                }
+            }else if(isCommittedToRoot(transaction)){
+                trafficControl.acquire(1);
+                try{
+                    resolved=resolveCommitted(region,rowKeys,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
+                }finally{
+                    trafficControl.release(1);
+                }
+            }
+            status.rowsResolved(rowKeys.size());
+            return resolved;
+        }catch(IOException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
+            if(failOnError)
+                throw new RuntimeException(e);
+            return 0;
+        }catch(InterruptedException e){
+            LOG.debug("Interrupted which performing read resolution, will not resolve");
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
     public void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
         assert region instanceof RegionPartition: "Not on a region!";
         /*
@@ -134,22 +166,34 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        Put put=new Put(rowKey.getByteCopy());
-        put.addColumn(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        put.setDurability(Durability.SKIP_WAL);
+        Put put=committedPut(rowKey,txnId,Bytes.toBytes(commitTimestamp));
         try{
             ((RegionPartition)region).unwrapDelegate().put(put);
         }catch(IOException e){
-            if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)
-                    &&  !(e instanceof ConnectionClosingException)){
-                LOG.info("Exception encountered when attempting to resolve a row as committed",e);
-                if(failOnError)
-                    throw new RuntimeException(e);
-            }
+            handleCommittedFailure(e,failOnError);
+        }
+    }
+
+    /**
+     * Resolves rows written by the same transaction as committed, in a single batch.
+     *
+     * @return the number of rows which were resolved
+     */
+    public int resolveCommitted(Partition region,List<ByteSlice> rowKeys,long txnId,long commitTimestamp,boolean failOnError){
+        assert region instanceof RegionPartition: "Not on a region!";
+        if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return 0; //do nothing if we are closing or rollforward is disabled
+
+        byte[] commitTs=Bytes.toBytes(commitTimestamp);
+        Mutation[] puts=new Mutation[rowKeys.size()];
+        for(int i=0;i<puts.length;i++){
+            puts[i]=committedPut(rowKeys.get(i),txnId,commitTs);
+        }
+        try{
+            return successes(((RegionPartition)region).unwrapDelegate().batchMutate(puts));
+        }catch(IOException e){
+            handleCommittedFailure(e,failOnError);
+            return 0;
         }
     }
 
@@ -163,18 +207,93 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
+        Delete delete=rolledbackDelete(rowKey,txnId);
+        try{
+            ((RegionPartition)region).unwrapDelegate().delete(delete);
+        }catch(IOException ioe){
+            LOG.info("Exception encountered when attempting to resolve a row as rolled back",ioe);
+            if(failOnError)
+                throw new RuntimeException(ioe);
+        }
+    }
+
+    /**
+     * Resolves rows written by the same transaction as rolled back, in a single batch.
+     *
+     * @return the number of rows which were resolved
+     */
+    public int resolveRolledback(Partition region,List<ByteSlice> rowKeys,long txnId,boolean failOnError){
+        assert region instanceof RegionPartition: "Not on a region!";
+        if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return 0; //do nothing if we are closing
+
+        Mutation[] deletes=new Mutation[rowKeys.size()];
+        for(int i=0;i<deletes.length;i++){
+            deletes[i]=rolledbackDelete(rowKeys.get(i),txnId);
+        }
+        try{
+            return successes(((RegionPartition)region).unwrapDelegate().batchMutate(deletes));
+        }catch(IOException ioe){
+            LOG.info("Exception encountered when attempting to resolve rows as rolled back",ioe);
+            if(failOnError)
+                throw new RuntimeException(ioe);
+            return 0;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static boolean isCommittedToRoot(TxnView transaction){
+        TxnView t=transaction;
+        while(t.getState()==Txn.State.COMMITTED){
+            t=t.getParentTxnView();
+        }
+        return t==Txn.ROOT_TRANSACTION;
+    }
+
+    /*
+     * The region rejects rows it no longer holds (e.g. after a split) without failing the batch, so only the
+     * successful ones count as resolved
+     */
+    private static int successes(OperationStatus[] statuses){
+        int successes=0;
+        for(OperationStatus status : statuses){
+            if(status.getOperationStatusCode()==HConstants.OperationStatusCode.SUCCESS)
+                successes++;
+        }
+        return successes;
+    }
+
+    /*
+     * This Put writes to the row bypassing SI and the WAL, so it should be pretty low impact
+     */
+    private static Put committedPut(ByteSlice rowKey,long txnId,byte[] commitTimestamp){
+        Put put=new Put(rowKey.getByteCopy());
+        put.addColumn(SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                commitTimestamp);
+        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        put.setDurability(Durability.SKIP_WAL);
+        return put;
+    }
+
+    private static Delete rolledbackDelete(ByteSlice rowKey,long txnId){
         Delete delete=new Delete(rowKey.getByteCopy(),txnId)
                 .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
                 .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
                 .addColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
         delete.setDurability(Durability.SKIP_WAL);
         delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        try{
-            ((RegionPartition)region).unwrapDelegate().delete(delete);
-        }catch(IOException ioe){
-            LOG.info("Exception encountered when attempting to resolve a row as rolled back",ioe);
+        return delete;
+    }
+
+    private static void handleCommittedFailure(IOException e,boolean failOnError){
+        if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)
+                &&  !(e instanceof ConnectionClosingException)){
+            LOG.info("Exception encountered when attempting to resolve a row as committed",e);
             if(failOnError)
-                throw new RuntimeException(ioe);
+                throw new RuntimeException(e);
         }
     }
 }
@@ -17,6 +17,8 @@ package com.splicemachine.si.impl.server;
 
 import com.splicemachine.si.api.txn.TxnView;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.log4j.Logger;
 
@@ -28,9 +30,6 @@ import java.util.TimerTask;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -40,12 +39,15 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public abstract class AbstractSICompactionScanner implements InternalScanner {
     private static final Logger LOG = Logger.getLogger(AbstractSICompactionScanner.class);
+    /* the amount of row data to read before resolving its transactions, the same as an HFile block by default */
+    private static final int RESOLUTION_BLOCK_SIZE = HConstants.DEFAULT_BLOCKSIZE;
     private final SICompactionState compactionState;
     private final InternalScanner delegate;
     private final BlockingQueue<Entry> queue;
     private final Timer timer;
     private final int timeDelta;
     private final CompactionContext context;
+    private final int bufferSize;
     private boolean purgeDeletedRows;
     private AtomicReference<IOException> failure = new AtomicReference<>();
     private AtomicLong remainingTime;
@@ -57,6 +59,7 @@ public abstract class AbstractSICompactionScanner implements InternalScanner {
         this.delegate = scanner;
         this.purgeDeletedRows = purgeDeletedRows;
         this.queue = new ArrayBlockingQueue(bufferSize);
+        this.bufferSize = bufferSize;
         this.timer = new Timer("Compaction-resolution-throttle", true);
         this.timeDelta = (int) (60000 * resolutionShare);
         this.remainingTime = new AtomicLong(timeDelta);
@@ -76,7 +79,7 @@ public abstract class AbstractSICompactionScanner implements InternalScanner {
         try {
             entry = queue.take();
             final boolean more = entry.more;
-            List<TxnView> txns = waitFor(entry.txns);
+            TxnView[] txns = waitFor(entry.txns);
             compactionState.mutate(entry.cells, txns, list, purgeDeletedRows);
             if (!more) {
                 timer.cancel();
@@ -89,37 +92,17 @@ public abstract class AbstractSICompactionScanner implements InternalScanner {
         }
     }
 
-    private List<TxnView> waitFor(List<Future<TxnView>> txns) throws ExecutionException, InterruptedException {
-        List<TxnView> results = new ArrayList<>(txns.size());
-        for (Future<TxnView> txn : txns) {
-            if (txn == null) {
-                results.add(null);
-                continue;
-            }
-
-            TxnView result = null;
-            long timeout = remainingTime.get();
-            if (timeout < 0)
-                timeout = 0;
-            long start = System.currentTimeMillis();
-            try {
-                result = txn.get(timeout, TimeUnit.MILLISECONDS);
-            } catch (TimeoutException e) {
-                context.recordTimeout();
-            }
-            long duration = System.currentTimeMillis() - start;
-            if (duration < 0)
-                duration = 0;
-            remainingTime.addAndGet(-duration);
-            context.timeBlocked(duration);
-            if (result == null) {
-                context.recordUnresolvedTransaction();
-            }
-            results.add(result);
-            if (result != null) {
-                compactionState.remove(result.getTxnId());
-            }
-        }
+    private TxnView[] waitFor(SICompactionState.ResolvedRow txns) throws ExecutionException, InterruptedException {
+        long timeout = remainingTime.get();
+        if (timeout < 0)
+            timeout = 0;
+        long start = System.currentTimeMillis();
+        TxnView[] results = txns.await(timeout, context);
+        long duration = System.currentTimeMillis() - start;
+        if (duration < 0)
+            duration = 0;
+        remainingTime.addAndGet(-duration);
+        context.timeBlocked(duration);
         return results;
     }
 
@@ -133,12 +116,29 @@ public abstract class AbstractSICompactionScanner implements InternalScanner {
             @Override
             public void run() {
                 boolean more = true;
+                /*
+                 * Rows are handed over a block at a time, so that the transactions of the whole block
+                 * can be resolved together
+                 */
+                List<Entry> block = new ArrayList<>();
+                long blockSize = 0;
                 try {
                     while (more) {
                         List<Cell> list = new ArrayList<>();
                         more = delegate.next(list);
-                        List<Future<TxnView>> txns = compactionState.resolve(list);
-                        queue.put(new Entry(list, txns, more));
+                        SICompactionState.ResolvedRow txns = compactionState.resolve(list);
+                        block.add(new Entry(list, txns, more));
+                        for (Cell cell : list) {
+                            blockSize += CellUtil.estimatedSerializedSizeOf(cell);
+                        }
+                        if (!more || blockSize >= RESOLUTION_BLOCK_SIZE || block.size() >= bufferSize) {
+                            compactionState.flush();
+                            for (Entry e : block) {
+                                queue.put(e);
+                            }
+                            block.clear();
+                            blockSize = 0;
+                        }
                     }
                 } catch (IOException e) {
                     LOG.error("Unexpected exception", e);
@@ -166,10 +166,10 @@ public abstract class AbstractSICompactionScanner implements InternalScanner {
 
     private static class Entry {
         List<Cell> cells;
-        List<Future<TxnView>> txns;
+        SICompactionState.ResolvedRow txns;
         boolean more;
 
-        public Entry(List<Cell> cells, List<Future<TxnView>> txns, boolean more) {
+        public Entry(List<Cell> cells, SICompactionState.ResolvedRow txns, boolean more) {
             this.cells = cells;
             this.txns = txns;
             this.more = more;
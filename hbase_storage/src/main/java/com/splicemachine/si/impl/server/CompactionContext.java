@@ -34,6 +34,10 @@ public interface CompactionContext {
 
     void recordRPC();
 
+    void recordResolvedTransactions(int count);
+
+    void timeResolving(long duration);
+
     void close();
 
     void timeBlocked(long duration);
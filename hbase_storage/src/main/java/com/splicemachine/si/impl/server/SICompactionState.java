@@ -14,10 +14,11 @@
 
 package com.splicemachine.si.impl.server;
 
-import org.spark_project.guava.util.concurrent.Futures;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongObjectHashMap;
 import com.splicemachine.hbase.CellUtils;
 import com.splicemachine.primitives.Bytes;
-import com.splicemachine.si.api.txn.TransactionMissing;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
@@ -31,55 +32,76 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Comparator;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Captures the SI logic to perform when a data table is compacted (without explicit HBase dependencies). Provides the
  * guts for SICompactionScanner.
  * <p/>
  * It is handed key-values and can change them.
+ * <p/>
+ * Transactions are resolved a block at a time: the reader thread passes each row to {@link #resolve(List)}, which
+ * collects the distinct transactions that aren't already cached, and then calls {@link #flush()} once it has read
+ * a block's worth of rows. That submits a single {@link ResolutionBatch}, which looks up all of the block's
+ * transactions with one {@link TxnSupplier#getTransactions(long[])} call. The compacting thread waits for the batches
+ * its rows refer to (see {@link ResolvedRow#await}) before calling {@link #mutate}.
  */
 public class SICompactionState {
     private static final Logger LOG = Logger.getLogger(SICompactionState.class);
     private final TxnSupplier transactionStore;
     private final CompactionContext context;
     private final ExecutorService executorService;
-    private ConcurrentHashMap<Long, Future<TxnView>> futuresCache;
-    private SortedSet<Cell> dataToReturn;
+    private final List<Cell> dataToReturn = new ArrayList<>();
+    private final List<Cell> commitTimestamps = new ArrayList<>();
+    private static final Comparator<Cell> DESCENDING_TIMESTAMP = (a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp());
+
+    /*
+     * Reader thread state: the batch currently being filled, the transactions which have been submitted for
+     * resolution and not yet pruned, the batches in submission order, and the transactions which we know
+     * can't be resolved (so there's no point asking again)
+     */
+    private ResolutionBatch currentBatch;
+    private final LongObjectHashMap<ResolutionBatch> pending = new LongObjectHashMap<>();
+    private final ArrayDeque<ResolutionBatch> submitted = new ArrayDeque<>();
+    private final LongHashSet unresolvable = new LongHashSet();
 
     public SICompactionState(TxnSupplier transactionStore, int activeTransactionCacheSize, CompactionContext context, ExecutorService executorService) {
         this.transactionStore = new ActiveTxnCacheSupplier(transactionStore,activeTransactionCacheSize,true);
-        this.dataToReturn  =new TreeSet<>(KeyValue.COMPARATOR);
         this.context = context;
-        this.futuresCache = new ConcurrentHashMap<>(1<<19, 0.75f, 64);
         this.executorService = executorService;
     }
 
     /**
      * Given a list of key-values, populate the results list with possibly mutated values.
+     * <p/>
+     * The key-values are already sorted, so rather than re-sorting everything, the commit timestamps
+     * generated for committed data are sorted on their own and merged into place.
      *
      * @param rawList - the input of key values to process
+     * @param txns - the transaction for each key value, or null if it is unknown
      * @param results - the output key values
      */
-    public void mutate(List<Cell> rawList, List<TxnView> txns, List<Cell> results, boolean purgeDeletedRows) throws IOException {
+    public void mutate(List<Cell> rawList, TxnView[] txns, List<Cell> results, boolean purgeDeletedRows) throws IOException {
         dataToReturn.clear();
+        commitTimestamps.clear();
         long maxTombstone = 0;
-        Iterator<TxnView> it = txns.iterator();
-        for (Cell aRawList : rawList) {
-            TxnView txn = it.next();
-            long t = mutate(aRawList, txn);
+        for (int i = 0; i < rawList.size(); i++) {
+            long t = mutate(rawList.get(i), txns[i]);
             if (t > maxTombstone) {
                 maxTombstone = t;
             }
         }
+        merge();
         if (purgeDeletedRows && maxTombstone > 0) {
             removeTombStone(maxTombstone);
         }
@@ -87,14 +109,15 @@ public class SICompactionState {
     }
 
     private void removeTombStone(long maxTombstone) {
-        SortedSet<Cell> cp = (SortedSet<Cell>)((TreeSet<Cell>)dataToReturn).clone();
-        for (Cell element : cp) {
-            long timestamp = element.getTimestamp();
-            if (timestamp <= maxTombstone) {
-                dataToReturn.remove(element);
+        int size = 0;
+        for (Cell element : dataToReturn) {
+            if (element.getTimestamp() > maxTombstone) {
+                dataToReturn.set(size++, element);
             }
         }
+        dataToReturn.subList(size, dataToReturn.size()).clear();
     }
+
     /**
      * Apply SI mutation logic to an individual key-value. Return the "new" key-value.
      */
@@ -103,11 +126,11 @@ public class SICompactionState {
         long timestamp = element.getTimestamp();
         switch (cellType) {
             case COMMIT_TIMESTAMP:
-                dataToReturn.add(element);
+                add(element);
                 return 0;
             default:
                 if(mutateCommitTimestamp(element,txn))
-                    dataToReturn.add(element);
+                    add(element);
                 if (cellType == CellType.TOMBSTONE) {
                     return timestamp;
                 }
@@ -117,6 +140,40 @@ public class SICompactionState {
         }
     }
 
+    /**
+     * Add a key-value from the input, which is already sorted; duplicates keep the first copy
+     */
+    private void add(Cell element) {
+        int size = dataToReturn.size();
+        if (size == 0 || KeyValue.COMPARATOR.compare(dataToReturn.get(size - 1), element) != 0)
+            dataToReturn.add(element);
+    }
+
+    /**
+     * Merge the generated commit timestamps into the (sorted) data to return. All of the generated key-values
+     * are in the same row and column, so they only need to be sorted by descending timestamp; where one
+     * matches a key-value which is already present, the existing one is kept.
+     */
+    private void merge() {
+        if (commitTimestamps.isEmpty())
+            return;
+        if (commitTimestamps.size() > 1)
+            commitTimestamps.sort(DESCENDING_TIMESTAMP);
+
+        List<Cell> existing = new ArrayList<>(dataToReturn);
+        dataToReturn.clear();
+        int e = 0, g = 0;
+        while (e < existing.size() || g < commitTimestamps.size()) {
+            if (g == commitTimestamps.size()) {
+                dataToReturn.add(existing.get(e++));
+            } else if (e == existing.size() || KeyValue.COMPARATOR.compare(existing.get(e), commitTimestamps.get(g)) > 0) {
+                add(commitTimestamps.get(g++));
+            } else {
+                add(existing.get(e++));
+            }
+        }
+    }
+
     private void ensureTransactionCached(long timestamp,Cell element) {
         if(!transactionStore.transactionCached(timestamp)){
             if(isFailedCommitTimestamp(element)){
@@ -147,7 +204,7 @@ public class SICompactionState {
              * commit timestamp can be placed on it.
              */
             long globalCommitTimestamp = txn.getEffectiveCommitTimestamp();
-            dataToReturn.add(newTransactionTimeStampKeyValue(element, Bytes.toBytes(globalCommitTimestamp)));
+            commitTimestamps.add(newTransactionTimeStampKeyValue(element, Bytes.toBytes(globalCommitTimestamp)));
         }
         // Committed or active, return the original data too
         return true;
@@ -175,12 +232,18 @@ public class SICompactionState {
         return element.getValueLength()==1 && element.getValueArray()[element.getValueOffset()]==SIConstants.SNAPSHOT_ISOLATION_FAILED_TIMESTAMP[0];
     }
 
-
-    public List<Future<TxnView>> resolve(List<Cell> list) throws IOException {
+    /**
+     * Work out the transaction for each key-value in a row. Transactions which aren't cached are added
+     * to the current batch, and are only looked up once the batch is {@link #flush() flushed}.
+     * <p/>
+     * Only to be called from the reader thread.
+     */
+    public ResolvedRow resolve(List<Cell> list) throws IOException {
         if (context != null)
             context.rowRead();
-        List<Future<TxnView>> result = new ArrayList<>(list.size());
-        for (Cell element : list) {
+        ResolvedRow result = new ResolvedRow(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            Cell element = list.get(i);
             final CellType cellType= CellUtils.getKeyValueType(element);
             long timestamp = element.getTimestamp();
             switch (cellType) {
@@ -192,7 +255,7 @@ public class SICompactionState {
                      * be less and less frequent, but you still have to check
                      */
                     ensureTransactionCached(timestamp,element);
-                    result.add(null); // no transaction needed for this entry
+                    // no transaction needed for this entry
                     if (context != null)
                         context.readCommit();
                     break;
@@ -204,60 +267,167 @@ public class SICompactionState {
                         context.readData();
                     TxnView tentative = transactionStore.getTransactionFromCache(timestamp);
                     if (tentative != null) {
-                        if (LOG.isDebugEnabled())
-                            LOG.debug("Cached " + tentative);
-                        result.add(Futures.immediateFuture(tentative));
+                        if (LOG.isTraceEnabled())
+                            LOG.trace("Cached " + tentative);
+                        result.txns[i] = tentative;
                         if (context != null)
                             context.recordResolutionCached();
-                    } else {
-                        Future<TxnView> future;
-                        try {
-                            future = futuresCache.computeIfAbsent(timestamp, txnId -> {
-                                if (context != null)
-                                    context.recordRPC();
-                                return executorService.submit(() -> {
-                                    if (LOG.isDebugEnabled())
-                                        LOG.debug("Resolving " + txnId);
-                                    TxnView txn;
-                                    try {
-                                        txn = transactionStore.getTransaction(txnId);
-
-                                        if (LOG.isTraceEnabled())
-                                            LOG.trace("Txn " + txn);
-                                        while (txn.getState() == Txn.State.COMMITTED && txn.getParentTxnView() != Txn.ROOT_TRANSACTION) {
-                                            txn = txn.getParentTxnView();
-
-                                            if (LOG.isTraceEnabled())
-                                                LOG.trace("Parent " + txn);
-                                        }
-                                    } catch (TransactionMissing ex) {
-                                        txn = null;
-                                    }
-                                    if (txn == null) {
-                                        LOG.warn("We couldn't resolve transaction " + timestamp +". This is only acceptable during a Restore operation");
-                                        return null;
-                                    }
-                                    if (LOG.isDebugEnabled())
-                                        LOG.debug("Returning, parent " + txn.getParentTxnView());
-                                    return txn;
-                                });
-                            });
+                    } else if (!unresolvable.contains(timestamp)) {
+                        ResolutionBatch batch = pending.get(timestamp);
+                        if (batch == null) {
+                            if (currentBatch == null)
+                                currentBatch = new ResolutionBatch();
+                            batch = currentBatch;
+                            batch.txnIds.add(timestamp);
+                            pending.put(timestamp, batch);
                             if (context != null)
                                 context.recordResolutionScheduled();
-                        } catch (RejectedExecutionException ex) {
-                            if (context != null)
-                                context.recordResolutionRejected();
-                            future = Futures.immediateFuture(null);
                         }
-                        result.add(future);
+                        result.batches[i] = batch;
+                        result.txnIds[i] = timestamp;
                     }
             }
         }
         return result;
     }
 
-    /** Remove entry from futures cache after it is already available in the transactional cache*/
-    public void remove(long txnId) {
-        futuresCache.remove(txnId);
+    /**
+     * Submit the transactions collected since the last flush for resolution, as a single batch.
+     * <p/>
+     * Only to be called from the reader thread, and always before the rows which were resolved since
+     * the last flush are handed to the compacting thread.
+     */
+    public void flush() {
+        prune();
+        ResolutionBatch batch = currentBatch;
+        currentBatch = null;
+        if (batch == null)
+            return;
+        try {
+            batch.future = executorService.submit(batch);
+            submitted.add(batch);
+            if (context != null)
+                context.recordRPC();
+        } catch (RejectedExecutionException ex) {
+            if (context != null)
+                context.recordResolutionRejected();
+            batch.future = null;
+            // let later rows try again
+            for (int i = 0; i < batch.txnIds.size(); i++) {
+                pending.remove(batch.txnIds.get(i));
+            }
+        }
+    }
+
+    /**
+     * Forget about batches which have completed. Their transactions are in the cache now (unless they've
+     * since been evicted, in which case we'll look them up again), except for the ones we couldn't find.
+     */
+    private void prune() {
+        while (!submitted.isEmpty() && submitted.peek().future.isDone()) {
+            ResolutionBatch batch = submitted.poll();
+            for (int i = 0; i < batch.txnIds.size(); i++) {
+                long txnId = batch.txnIds.get(i);
+                if (batch.succeeded && !batch.resolved.containsKey(txnId))
+                    unresolvable.add(txnId);
+                pending.remove(txnId);
+            }
+        }
+    }
+
+    /**
+     * The transactions of a row's key-values, as far as they are known when the row is read.
+     */
+    public static class ResolvedRow {
+        /* the transaction for each key-value, if it was cached (or isn't needed) */
+        private final TxnView[] txns;
+        /* the batch resolving the transaction of each key-value, if it wasn't cached */
+        private final ResolutionBatch[] batches;
+        private final long[] txnIds;
+
+        ResolvedRow(int size) {
+            this.txns = new TxnView[size];
+            this.batches = new ResolutionBatch[size];
+            this.txnIds = new long[size];
+        }
+
+        /**
+         * Wait (up to {@code timeout} milliseconds in all) for the batches this row depends on, and return the
+         * transaction of each key-value. Transactions which couldn't be resolved in time are returned as null.
+         */
+        public TxnView[] await(long timeout, CompactionContext context) throws InterruptedException, ExecutionException {
+            long start = System.currentTimeMillis();
+            ResolutionBatch last = null;
+            boolean lastDone = false;
+            for (int i = 0; i < batches.length; i++) {
+                ResolutionBatch batch = batches[i];
+                if (batch == null)
+                    continue;
+                if (batch != last) {
+                    last = batch;
+                    lastDone = batch.await(Math.max(0, timeout - (System.currentTimeMillis() - start)), context);
+                }
+                if (lastDone)
+                    txns[i] = batch.resolved.get(txnIds[i]);
+                if (txns[i] == null)
+                    context.recordUnresolvedTransaction();
+            }
+            return txns;
+        }
+    }
+
+    /**
+     * The transactions of a block of rows which weren't cached, looked up with a single call.
+     */
+    private class ResolutionBatch implements Callable<Void> {
+        private final LongArrayList txnIds = new LongArrayList();
+        /* written by the resolving thread, and only read once the future has completed */
+        private final LongObjectHashMap<TxnView> resolved = new LongObjectHashMap<>();
+        private volatile boolean succeeded;
+        private volatile Future<Void> future;
+
+        @Override
+        public Void call() throws Exception {
+            long start = System.currentTimeMillis();
+            long[] ids = txnIds.toArray();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Resolving " + ids.length + " transactions");
+            TxnView[] txns = transactionStore.getTransactions(ids);
+            for (int i = 0; i < ids.length; i++) {
+                TxnView txn = txns[i];
+                while (txn != null && txn.getState() == Txn.State.COMMITTED && txn.getParentTxnView() != Txn.ROOT_TRANSACTION) {
+                    txn = txn.getParentTxnView();
+                }
+                if (txn == null) {
+                    LOG.warn("We couldn't resolve transaction " + ids[i] +". This is only acceptable during a Restore operation");
+                    continue;
+                }
+                if (LOG.isTraceEnabled())
+                    LOG.trace("Resolved " + ids[i] + " to " + txn);
+                resolved.put(ids[i], txn);
+            }
+            if (context != null) {
+                context.recordResolvedTransactions(resolved.size());
+                context.timeResolving(System.currentTimeMillis() - start);
+            }
+            succeeded = true;
+            return null;
+        }
+
+        /**
+         * @return true if the batch has been resolved, false if it was rejected or we ran out of time
+         */
+        boolean await(long timeout, CompactionContext context) throws InterruptedException, ExecutionException {
+            Future<Void> f = future;
+            if (f == null)
+                return false;
+            try {
+                f.get(timeout, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                context.recordTimeout();
+                return false;
+            }
+        }
     }
 }
@@ -32,6 +32,8 @@ public class SimpleCompactionContext implements CompactionContext {
     private AtomicLong recordResolutionRejected = new AtomicLong();
     private AtomicLong recordRPC = new AtomicLong();
     private AtomicLong timeBlocked = new AtomicLong();
+    private AtomicLong recordResolvedTransactions = new AtomicLong();
+    private AtomicLong timeResolving = new AtomicLong();
 
     @Override
     public void readData() {
@@ -78,6 +80,16 @@ public class SimpleCompactionContext implements CompactionContext {
         recordRPC.incrementAndGet();
     }
 
+    @Override
+    public void recordResolvedTransactions(int count) {
+        recordResolvedTransactions.addAndGet(count);
+    }
+
+    @Override
+    public void timeResolving(long duration) {
+        timeResolving.addAndGet(duration);
+    }
+
     @Override
     public void close() {
         LOG.info(toString());
@@ -100,6 +112,8 @@ public class SimpleCompactionContext implements CompactionContext {
                 ", recordUnresolvedTransaction=" + recordUnresolvedTransaction +
                 ", recordResolutionRejected=" + recordResolutionRejected +
                 ", recordRPC=" + recordRPC +
+                ", recordResolvedTransactions=" + recordResolvedTransactions +
+                ", timeResolving(ms)=" + timeResolving +
                 ", timeBlocked(ms)=" + timeBlocked +
                 '}';
     }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.splicemachine.si.api.txn.TxnStore;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.coprocessor.TxnMessage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests around the fallbacks of the batched keep-alives in the CoprocessorTxnStore
+ */
+public class CoprocessorTxnStoreTest{
+    private TxnNetworkLayer network;
+    private CoprocessorTxnStore store;
+    private long healthyTxn;
+    private long failingTxn;
+
+    @Before
+    public void setUp() throws Exception{
+        network=mock(TxnNetworkLayer.class);
+        TxnNetworkLayerFactory factory=mock(TxnNetworkLayerFactory.class);
+        when(factory.accessTxnNetwork()).thenReturn(network);
+        store=new CoprocessorTxnStore(factory,null,null);
+
+        //two transactions which live in different buckets of the transaction table
+        healthyTxn=SIConstants.TRASANCTION_INCREMENT;
+        failingTxn=2*SIConstants.TRASANCTION_INCREMENT;
+        while(bucket(failingTxn)==bucket(healthyTxn))
+            failingTxn+=SIConstants.TRASANCTION_INCREMENT;
+
+        when(network.keepAlive(any(byte[].class),any(TxnMessage.KeepAliveRequest.class))).thenAnswer(new Answer<TxnMessage.KeepAliveResponse>(){
+            @Override
+            public TxnMessage.KeepAliveResponse answer(InvocationOnMock invocation) throws Throwable{
+                byte[] rowKey=(byte[])invocation.getArguments()[0];
+                if(rowKey[0]==bucket(failingTxn))
+                    throw new IOException("Unknown method keepAliveTransactions");
+                TxnMessage.KeepAliveRequest request=(TxnMessage.KeepAliveRequest)invocation.getArguments()[1];
+                return TxnMessage.KeepAliveResponse.newBuilder().addAllActiveTxnIds(request.getTxnIdsList()).build();
+            }
+        });
+    }
+
+    @Test
+    public void keepsAliveOneAtATimeWhenABucketFails() throws Exception{
+        when(network.lifecycleAction(any(byte[].class),any(TxnMessage.TxnLifecycleMessage.class)))
+                .thenReturn(TxnMessage.ActionResponse.newBuilder().setContinue(true).build());
+
+        TxnStore.KeepAliveResult[] results=store.keepAlive(new long[]{healthyTxn,failingTxn});
+        Assert.assertArrayEquals(new TxnStore.KeepAliveResult[]{TxnStore.KeepAliveResult.ACTIVE,TxnStore.KeepAliveResult.ACTIVE},results);
+        verify(network,times(2)).keepAlive(any(byte[].class),any(TxnMessage.KeepAliveRequest.class));
+        //only the transaction in the failed bucket is kept alive on its own
+        verify(network,times(1)).lifecycleAction(any(byte[].class),any(TxnMessage.TxnLifecycleMessage.class));
+    }
+
+    @Test
+    public void failedBucketDoesNotStopTheOthers() throws Exception{
+        when(network.lifecycleAction(any(byte[].class),any(TxnMessage.TxnLifecycleMessage.class)))
+                .thenThrow(new IOException("region unavailable"));
+
+        try{
+            store.keepAlive(new long[]{failingTxn,healthyTxn});
+            Assert.fail("Expected the failure to keep a transaction alive to be reported");
+        }catch(IOException expected){
+            Assert.assertEquals("region unavailable",expected.getMessage());
+        }
+        //the healthy bucket was still kept alive
+        verify(network,times(2)).keepAlive(any(byte[].class),any(TxnMessage.KeepAliveRequest.class));
+    }
+
+    private static byte bucket(long txnId){
+        return TxnUtils.getRowKey(txnId)[0];
+    }
+}
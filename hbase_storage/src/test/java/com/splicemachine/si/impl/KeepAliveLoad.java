@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.concurrent.SystemClock;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnLifecycleManager;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.data.HExceptionFactory;
+import com.splicemachine.si.impl.store.TestingTimestampSource;
+import com.splicemachine.si.impl.store.TestingTxnStore;
+import com.splicemachine.si.impl.txn.WritableTxn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Load test for the {@link QueuedKeepAliveScheduler}: opens N transactions against a stand-in for the
+ * transaction table, keeps them alive for a while, and reports how many network calls that took.
+ *
+ * The stand-in keeps transactions in memory, but charges a fixed latency for every transaction table
+ * region (i.e. bucket) touched by a keep-alive, as the coprocessor store would.
+ *
+ * Usage: {@code KeepAliveLoad [numTxns] [keepAliveIntervalMs] [durationSeconds] [rpcLatencyMs] [numKeepers]}
+ */
+public class KeepAliveLoad{
+
+    public static void main(String...args) throws Exception{
+        int numTxns=args.length>0?Integer.parseInt(args[0]):10000;
+        long keepAliveInterval=args.length>1?Long.parseLong(args[1]):1000L;
+        long durationSeconds=args.length>2?Long.parseLong(args[2]):30L;
+        long rpcLatency=args.length>3?Long.parseLong(args[3]):1L;
+        int numKeepers=args.length>4?Integer.parseInt(args[4]):5;
+
+        RegionCountingTxnStore store=new RegionCountingTxnStore(new SystemClock(),60*keepAliveInterval,rpcLatency);
+        List<Txn> txns=openTransactions(store,numTxns);
+        QueuedKeepAliveScheduler scheduler=new QueuedKeepAliveScheduler(keepAliveInterval,60*keepAliveInterval,numKeepers,store);
+        int stillActive;
+        try{
+            for(Txn txn : txns){
+                scheduler.scheduleKeepAlive(txn);
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+            stillActive=scheduler.getNumActiveTransactions();
+        }finally{
+            scheduler.stop();
+        }
+
+        long calls=store.keepAliveCalls.get();
+        long rpcs=store.keepAliveRpcs.get();
+        long keptAlive=store.keptAliveTxns.get();
+        System.out.printf("transactions:                %d%n",numTxns);
+        System.out.printf("still being kept alive:      %d%n",stillActive);
+        System.out.printf("keep-alive calls:            %d%n",calls);
+        System.out.printf("keep-alive rpcs:             %d (%.1f per second)%n",rpcs,rpcs/(double)durationSeconds);
+        System.out.printf("transactions kept alive:     %d (%.1f per rpc)%n",keptAlive,rpcs==0?0d:keptAlive/(double)rpcs);
+        System.out.printf("rpcs without batching:       %d%n",keptAlive);
+    }
+
+    static List<Txn> openTransactions(TestingTxnStore store,int numTxns) throws IOException{
+        TxnLifecycleManager tc=mock(TxnLifecycleManager.class);
+        List<Txn> txns=new ArrayList<>(numTxns);
+        for(int i=1;i<=numTxns;i++){
+            long txnId=i*SIConstants.TRASANCTION_INCREMENT;
+            Txn txn=new WritableTxn(txnId,txnId,null,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,tc,false,HExceptionFactory.INSTANCE);
+            store.recordNewTransaction(txn);
+            txns.add(txn);
+        }
+        return txns;
+    }
+
+    /**
+     * Keeps transactions alive in memory, counting (and charging latency for) one rpc per
+     * transaction table bucket in each batch.
+     */
+    static class RegionCountingTxnStore extends TestingTxnStore{
+        final AtomicLong keepAliveCalls=new AtomicLong();
+        final AtomicLong keepAliveRpcs=new AtomicLong();
+        final AtomicLong keptAliveTxns=new AtomicLong();
+        private final long rpcLatency;
+
+        RegionCountingTxnStore(Clock clock,long txnTimeoutIntervalMs,long rpcLatency){
+            super(clock,new TestingTimestampSource(),HExceptionFactory.INSTANCE,txnTimeoutIntervalMs);
+            this.rpcLatency=rpcLatency;
+        }
+
+        @Override
+        public KeepAliveResult[] keepAlive(long[] txnIds) throws IOException{
+            BitSet buckets=new BitSet();
+            for(long txnId : txnIds){
+                buckets.set(TxnUtils.getRowKey(txnId)[0]);
+            }
+            int rpcs=buckets.cardinality();
+            if(rpcLatency>0){
+                try{
+                    Thread.sleep(rpcs*rpcLatency);
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            keepAliveCalls.incrementAndGet();
+            keepAliveRpcs.addAndGet(rpcs);
+            keptAliveTxns.addAndGet(txnIds.length);
+            return super.keepAlive(txnIds);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.constants.SIConstants;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests around the batching of keep-alives in the QueuedKeepAliveScheduler
+ */
+public class QueuedKeepAliveSchedulerTest{
+    private static final long TIMEOUT=1000L;
+
+    private IncrementingClock clock=new IncrementingClock();
+    private KeepAliveLoad.RegionCountingTxnStore store=new KeepAliveLoad.RegionCountingTxnStore(clock,TIMEOUT,0L);
+    /*a long interval, so that the scheduler only ticks when we tell it to*/
+    private QueuedKeepAliveScheduler scheduler=new QueuedKeepAliveScheduler(TimeUnit.HOURS.toMillis(1),TIMEOUT,2,store);
+
+    @After
+    public void tearDown(){
+        scheduler.stop();
+    }
+
+    @Test
+    public void keepsAliveTransactionsInBatches() throws Exception{
+        int numTxns=3*QueuedKeepAliveScheduler.MAX_BATCH_SIZE+10;
+        for(Txn txn : KeepAliveLoad.openTransactions(store,numTxns)){
+            scheduler.scheduleKeepAlive(txn);
+        }
+
+        tickAndWait(numTxns);
+        Assert.assertEquals("Incorrect number of keep-alive calls",4,store.keepAliveCalls.get());
+        Assert.assertTrue("Too many rpcs: "+store.keepAliveRpcs.get(),
+                store.keepAliveRpcs.get()<=4*SIConstants.TRANSACTION_TABLE_BUCKET_COUNT);
+        Assert.assertEquals("Transactions were dropped",numTxns,scheduler.getNumActiveTransactions());
+
+        tickAndWait(2*numTxns);
+        Assert.assertEquals("Incorrect number of keep-alive calls",8,store.keepAliveCalls.get());
+    }
+
+    @Test
+    public void stopsKeepingAliveCompletedTransactions() throws Exception{
+        List<Txn> txns=KeepAliveLoad.openTransactions(store,10);
+        for(Txn txn : txns){
+            scheduler.scheduleKeepAlive(txn);
+        }
+        txns.get(0).commit();
+        txns.get(1).rollback();
+
+        tickAndWait(8);
+        Assert.assertEquals("Completed transactions were not dropped",8,scheduler.getNumActiveTransactions());
+    }
+
+    @Test
+    public void rollsBackTimedOutTransactions() throws Exception{
+        List<Txn> txns=KeepAliveLoad.openTransactions(store,10);
+        for(Txn txn : txns){
+            scheduler.scheduleKeepAlive(txn);
+        }
+        clock.increment(TimeUnit.MILLISECONDS.toNanos(2*TIMEOUT));
+
+        tickAndWait(10);
+        Assert.assertEquals("Timed out transactions are still kept alive",0,scheduler.getNumActiveTransactions());
+        for(Txn txn : txns){
+            Assert.assertEquals("Timed out transaction was not rolled back",Txn.State.ROLLEDBACK,txn.getState());
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void tickAndWait(long expectedKeptAlive) throws InterruptedException{
+        scheduler.tick();
+        long end=System.currentTimeMillis()+TimeUnit.SECONDS.toMillis(10);
+        while(scheduler.getNumInFlightBatches()>0 && System.currentTimeMillis()<end){
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("Keep alives did not complete",0,scheduler.getNumInFlightBatches());
+        Assert.assertEquals("Incorrect number of transactions kept alive",expectedKeptAlive,store.keptAliveTxns.get());
+    }
+}
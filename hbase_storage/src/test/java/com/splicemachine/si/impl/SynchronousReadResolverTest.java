@@ -22,6 +22,8 @@ import com.splicemachine.si.api.readresolve.ReadResolver;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnLifecycleManager;
 import com.splicemachine.si.api.txn.TxnStore;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.data.HExceptionFactory;
 import com.splicemachine.si.impl.readresolve.SynchronousReadResolver;
@@ -33,23 +35,32 @@ import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.storage.DataFilter;
 import com.splicemachine.storage.HCell;
 import com.splicemachine.storage.RegionPartition;
+import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.GreenLight;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.util.Arrays;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests around the possibilities for the SynchronousReadResolver
@@ -219,4 +230,29 @@ public class SynchronousReadResolverTest {
         Assert.assertEquals("Incorrect committed txnId", childTxn.getTxnId(), commitTs.getTimestamp());
         Assert.assertEquals("Incorrect commit timestamp!", childTxn.getEffectiveCommitTimestamp(), Bytes.toLong(CellUtil.cloneValue(commitTs)));
     }
+
+    @Test
+    public void testCountsOnlyTheRowsTheRegionAccepted() throws Exception {
+        HRegion region = mock(HRegion.class);
+        when(region.batchMutate(any(Mutation[].class))).thenReturn(new OperationStatus[]{
+                new OperationStatus(HConstants.OperationStatusCode.SUCCESS),
+                new OperationStatus(HConstants.OperationStatusCode.SANITY_CHECK_FAILURE), //e.g. a row which has left the region
+                new OperationStatus(HConstants.OperationStatusCode.SUCCESS)});
+        TxnView rolledBack = mock(TxnView.class);
+        when(rolledBack.getEffectiveState()).thenReturn(Txn.State.ROLLEDBACK);
+        TxnSupplier supplier = mock(TxnSupplier.class);
+        when(supplier.getTransaction(0x100l)).thenReturn(rolledBack);
+        List<ByteSlice> rowKeys = Arrays.asList(ByteSlice.wrap(Encoding.encode("a")),
+                ByteSlice.wrap(Encoding.encode("b")),
+                ByteSlice.wrap(Encoding.encode("c")));
+
+        int resolved = SynchronousReadResolver.INSTANCE.resolve(new RegionPartition(region), rowKeys, 0x100l, supplier,
+                new RollForwardStatus(), false, GreenLight.INSTANCE);
+        Assert.assertEquals("Incorrect number of resolved rows!", 2, resolved);
+
+        when(region.isClosing()).thenReturn(true);
+        resolved = SynchronousReadResolver.INSTANCE.resolve(new RegionPartition(region), rowKeys, 0x100l, supplier,
+                new RollForwardStatus(), false, GreenLight.INSTANCE);
+        Assert.assertEquals("A closing region should resolve nothing!", 0, resolved);
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.si.api.txn.TaskId;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests around the batched transaction resolution of the SICompactionState
+ */
+public class SICompactionStateTest{
+    private static final byte[] FAMILY=SIConstants.DEFAULT_FAMILY_BYTES;
+
+    private final ExecutorService executor=Executors.newSingleThreadExecutor();
+    private final CountingTxnSupplier txnSupplier=new CountingTxnSupplier();
+    private final SimpleCompactionContext context=new SimpleCompactionContext();
+
+    @After
+    public void tearDown(){
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void resolvesABlockWithOneLookup() throws Exception{
+        txnSupplier.add(new CommittedTxn(0x100,0x101));
+        txnSupplier.add(new RolledBackTxn(0x200));
+        txnSupplier.add(new CommittedTxn(0x300,0x301));
+        SICompactionState state=new SICompactionState(txnSupplier,1024,context,executor);
+
+        List<List<Cell>> rows=new ArrayList<>();
+        List<SICompactionState.ResolvedRow> resolved=new ArrayList<>();
+        for(int i=0;i<10;i++){
+            byte[] key=Bytes.toBytes("row"+i);
+            List<Cell> row=Arrays.<Cell>asList(
+                    data(key,0x300),
+                    data(key,0x200),
+                    data(key,0x100));
+            rows.add(row);
+            resolved.add(state.resolve(row));
+        }
+        state.flush();
+
+        for(int i=0;i<rows.size();i++){
+            List<Cell> results=new ArrayList<>();
+            state.mutate(rows.get(i),resolved.get(i).await(10000,context),results,false);
+            byte[] key=Bytes.toBytes("row"+i);
+            Assert.assertEquals("Incorrect compacted row",Arrays.<Cell>asList(
+                    commitTimestamp(key,0x300,0x301),
+                    commitTimestamp(key,0x100,0x101),
+                    data(key,0x300),
+                    data(key,0x100)),results);
+        }
+        Assert.assertEquals("Transactions were not looked up together",1,txnSupplier.lookups);
+        Assert.assertEquals("Incorrect number of transactions looked up",3,txnSupplier.txnsLookedUp);
+    }
+
+    @Test
+    public void mergesCommitTimestampsInSortedOrder() throws Exception{
+        txnSupplier.add(new CommittedTxn(0x100,0x101));
+        txnSupplier.add(new CommittedTxn(0x200,0x201));
+        txnSupplier.add(new CommittedTxn(0x300,0x301));
+        SICompactionState state=new SICompactionState(txnSupplier,1024,context,executor);
+
+        byte[] key=Bytes.toBytes("row");
+        List<Cell> row=Arrays.<Cell>asList(
+                commitTimestamp(key,0x200,0x201),
+                tombstone(key,0x300),
+                tombstone(key,0x100),
+                data(key,0x300),
+                data(key,0x200));
+        SICompactionState.ResolvedRow txns=state.resolve(row);
+        state.flush();
+        List<Cell> results=new ArrayList<>();
+        state.mutate(row,txns.await(10000,context),results,false);
+
+        SortedSet<Cell> expected=new TreeSet<>(KeyValue.COMPARATOR);
+        expected.addAll(row);
+        expected.add(commitTimestamp(key,0x300,0x301));
+        expected.add(commitTimestamp(key,0x100,0x101));
+        Assert.assertEquals("Incorrect compacted row",new ArrayList<>(expected),results);
+    }
+
+    @Test
+    public void doesNotLookUpTransactionsAgain() throws Exception{
+        txnSupplier.add(new CommittedTxn(0x100,0x101));
+        SICompactionState state=new SICompactionState(txnSupplier,1024,context,executor);
+
+        byte[] key=Bytes.toBytes("row");
+        SICompactionState.ResolvedRow first=state.resolve(Arrays.<Cell>asList(data(key,0x100),data(key,0x400)));
+        state.flush();
+        SICompactionState.ResolvedRow second=state.resolve(Arrays.<Cell>asList(data(key,0x100),data(key,0x400)));
+        state.flush();
+
+        TxnView[] txns=first.await(10000,context);
+        Assert.assertNotNull("Committed transaction was not resolved",txns[0]);
+        Assert.assertNull("Missing transaction was resolved",txns[1]);
+        txns=second.await(10000,context);
+        Assert.assertNotNull("Committed transaction was not resolved",txns[0]);
+        Assert.assertNull("Missing transaction was resolved",txns[1]);
+        Assert.assertEquals("Transactions were looked up again",1,txnSupplier.lookups);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static KeyValue data(byte[] key,long txnId){
+        return new KeyValue(key,FAMILY,SIConstants.PACKED_COLUMN_BYTES,txnId,Bytes.toBytes("value"));
+    }
+
+    private static KeyValue tombstone(byte[] key,long txnId){
+        return new KeyValue(key,FAMILY,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId,SIConstants.EMPTY_BYTE_ARRAY);
+    }
+
+    private static KeyValue commitTimestamp(byte[] key,long txnId,long commitTs){
+        return new KeyValue(key,FAMILY,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,Bytes.toBytes(commitTs));
+    }
+
+    private static class CountingTxnSupplier implements TxnSupplier{
+        private final Map<Long,TxnView> txns=new HashMap<>();
+        private volatile int lookups;
+        private volatile int txnsLookedUp;
+
+        void add(TxnView txn){
+            txns.put(txn.getTxnId(),txn);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId) throws IOException{
+            return getTransaction(txnId,false);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+            return getTransactions(new long[]{txnId})[0];
+        }
+
+        @Override
+        public TxnView[] getTransactions(long[] txnIds) throws IOException{
+            lookups++;
+            txnsLookedUp+=txnIds.length;
+            TxnView[] results=new TxnView[txnIds.length];
+            for(int i=0;i<txnIds.length;i++){
+                results[i]=txns.get(txnIds[i]);
+            }
+            return results;
+        }
+
+        @Override
+        public boolean transactionCached(long txnId){
+            return false;
+        }
+
+        @Override
+        public void cache(TxnView toCache){
+        }
+
+        @Override
+        public TxnView getTransactionFromCache(long txnId){
+            return null;
+        }
+
+        @Override
+        public TaskId getTaskId(long txnId) throws IOException{
+            return null;
+        }
+    }
+}
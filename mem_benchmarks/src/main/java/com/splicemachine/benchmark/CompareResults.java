@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH result files, written with {@code -rf json}, typically from runs on two different commits.
+ *
+ * Benchmarks are matched on their name and parameters. A benchmark has regressed when its score is worse
+ * than the base score by more than the threshold percentage, and the difference is larger than the
+ * combined error of the two scores. The exit status is 1 when any benchmark has regressed.
+ *
+ * Usage: {@code CompareResults <base.json> <new.json> [threshold%]}
+ */
+public class CompareResults{
+    private static final double DEFAULT_THRESHOLD=5d;
+
+    public static void main(String...args) throws IOException{
+        if(args.length<2){
+            System.err.println("Usage: CompareResults <base.json> <new.json> [threshold%]");
+            System.exit(2);
+        }
+        double threshold=args.length>2?Double.parseDouble(args[2]):DEFAULT_THRESHOLD;
+        Map<String,Result> base=read(args[0]);
+        Map<String,Result> current=read(args[1]);
+
+        int regressions=0;
+        System.out.println(String.format("%-80s %14s %14s %9s",
+                "Benchmark","Base","New","Change"));
+        for(Map.Entry<String,Result> entry : current.entrySet()){
+            Result n=entry.getValue();
+            Result b=base.get(entry.getKey());
+            if(b==null){
+                System.out.println(String.format("%-80s %14s %14.3f %9s  %s",entry.getKey(),"-",n.score,"",n.unit));
+                continue;
+            }
+            if(!b.unit.equals(n.unit) || b.higherIsBetter!=n.higherIsBetter){
+                System.out.println(String.format("%-80s %14s %14s %9s  (units differ: %s vs %s)",
+                        entry.getKey(),"-","-","",b.unit,n.unit));
+                continue;
+            }
+            double change=b.score==0d?0d:100d*(n.score-b.score)/b.score;
+            double worse=b.higherIsBetter?-change:change;
+            boolean regressed=worse>threshold && Math.abs(n.score-b.score)>b.error+n.error;
+            if(regressed)
+                regressions++;
+            System.out.println(String.format("%-80s %14.3f %14.3f %+8.1f%%  %s%s",
+                    entry.getKey(),b.score,n.score,change,n.unit,regressed?"  REGRESSION":""));
+        }
+        for(String name : base.keySet()){
+            if(!current.containsKey(name))
+                System.out.println(String.format("%-80s %14.3f %14s %9s  %s",name,base.get(name).score,"-","",base.get(name).unit));
+        }
+        if(regressions>0){
+            System.out.println(regressions+" benchmark(s) regressed by more than "+threshold+"%");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String,Result> read(String file) throws IOException{
+        Map<String,Result> results=new TreeMap<>();
+        try(Reader reader=new InputStreamReader(new FileInputStream(file),StandardCharsets.UTF_8)){
+            JsonArray runs=new JsonParser().parse(reader).getAsJsonArray();
+            for(JsonElement element : runs){
+                JsonObject run=element.getAsJsonObject();
+                StringBuilder name=new StringBuilder(run.get("benchmark").getAsString());
+                if(run.has("params")){
+                    Map<String,String> params=new TreeMap<>();
+                    for(Map.Entry<String,JsonElement> param : run.getAsJsonObject("params").entrySet()){
+                        params.put(param.getKey(),param.getValue().getAsString());
+                    }
+                    name.append(params);
+                }
+                String mode=run.get("mode").getAsString();
+                JsonObject metric=run.getAsJsonObject("primaryMetric");
+                double error=metric.get("scoreError").isJsonPrimitive() && !"NaN".equals(metric.get("scoreError").getAsString())
+                        ?metric.get("scoreError").getAsDouble():0d;
+                results.put(name.toString(),new Result(metric.get("score").getAsDouble(),
+                        error,
+                        metric.get("scoreUnit").getAsString(),
+                        "thrpt".equals(mode)));
+            }
+        }
+        return results;
+    }
+
+    private static class Result{
+        final double score;
+        final double error;
+        final String unit;
+        final boolean higherIsBetter;
+
+        Result(double score,double error,String unit,boolean higherIsBetter){
+            this.score=score;
+            this.error=error;
+            this.unit=unit;
+            this.higherIsBetter=higherIsBetter;
+        }
+    }
+}
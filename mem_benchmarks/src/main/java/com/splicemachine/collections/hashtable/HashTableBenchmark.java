@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.collections.hashtable;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups and inserts in the RobinHood hash tables ({@link BaseRobinHoodHashTable},
+ * {@link LongTupleHashTable}), with {@link HashMap} as the baseline.
+ *
+ * The lookups go to a table of {@code size} entries, half of them for keys which are present. The
+ * inserts build a table of {@code size} entries from empty, and are measured per table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(2)
+public class HashTableBenchmark{
+    private static final int NUM_PROBES=4096;
+
+    @Param({"1024","1048576"})
+    public int size;
+
+    private final Hash32 hashFunction=HashFunctions.murmur3(0);
+    private long[] keys;
+    private long[] probes;
+    private long[][] tupleKeys;
+    private long[][] tupleProbes;
+    private BaseRobinHoodHashTable<Long,Long> robinHood;
+    private Map<Long,Long> hashMap;
+    private LongTupleHashTable tupleTable;
+    private int next;
+
+    @Setup
+    public void setup(){
+        Random random=new Random(0L);
+        keys=new long[size];
+        tupleKeys=new long[size][];
+        for(int i=0;i<size;i++){
+            keys[i]=random.nextLong();
+            tupleKeys[i]=new long[]{keys[i],i};
+        }
+        probes=new long[NUM_PROBES];
+        tupleProbes=new long[NUM_PROBES][];
+        for(int i=0;i<NUM_PROBES;i++){
+            if((i&1)==0){
+                int k=random.nextInt(size);
+                probes[i]=keys[k];
+                tupleProbes[i]=tupleKeys[k];
+            }else{
+                probes[i]=random.nextLong();
+                tupleProbes[i]=new long[]{probes[i],-1L};
+            }
+        }
+        robinHood=newRobinHoodTable();
+        hashMap=new HashMap<>();
+        tupleTable=new LongTupleHashTable(2,16,0.9f);
+        for(int i=0;i<size;i++){
+            robinHood.put(keys[i],keys[i]);
+            hashMap.put(keys[i],keys[i]);
+            tupleTable.add(tupleKeys[i]);
+        }
+    }
+
+    @Benchmark
+    public Long robinHoodGet(){
+        return robinHood.get(probes[nextIndex()]);
+    }
+
+    @Benchmark
+    public Long hashMapGet(){
+        return hashMap.get(probes[nextIndex()]);
+    }
+
+    @Benchmark
+    public int tupleTableGet(){
+        return tupleTable.get(tupleProbes[nextIndex()]);
+    }
+
+    @Benchmark
+    public BaseRobinHoodHashTable<Long,Long> robinHoodBuild(){
+        BaseRobinHoodHashTable<Long,Long> table=newRobinHoodTable();
+        for(long key : keys){
+            table.put(key,key);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public Map<Long,Long> hashMapBuild(){
+        Map<Long,Long> table=new HashMap<>();
+        for(long key : keys){
+            table.put(key,key);
+        }
+        return table;
+    }
+
+    @Benchmark
+    public LongTupleHashTable tupleTableBuild(){
+        LongTupleHashTable table=new LongTupleHashTable(2,16,0.9f);
+        for(long[] key : tupleKeys){
+            table.add(key);
+        }
+        return table;
+    }
+
+    private BaseRobinHoodHashTable<Long,Long> newRobinHoodTable(){
+        return new BaseRobinHoodHashTable<Long,Long>(16,0.9f){
+            @Override protected int hashCode(Long key){ return hashFunction.hash(key); }
+            @Override protected Long merge(Long newValue,Long existing){ return newValue; }
+        };
+    }
+
+    private int nextIndex(){
+        int i=next;
+        next=(i+1)&(NUM_PROBES-1);
+        return i;
+    }
+}
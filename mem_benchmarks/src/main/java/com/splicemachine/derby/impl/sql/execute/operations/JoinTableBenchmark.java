@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.stream.Streams;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes of the broadcast join tables ({@code JoinTable.fetchInner}), as built by
+ * {@link ValueRowMapTableLoader} (a {@link ValueRowMappedJoinTable}) and {@link EncodedRowMapTableLoader}.
+ *
+ * The inner table has {@code innerRows} rows keyed on an INTEGER column; half of the probes find a match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(value=2,jvmArgsAppend={"-Xms2g","-Xmx2g"})
+public class JoinTableBenchmark{
+    private static final int NUM_PROBES=4096;
+
+    @Param({"10000","1000000"})
+    public int innerRows;
+
+    @Param({"valueRow","encodedRow"})
+    public String loader;
+
+    private JoinTable table;
+    private ExecRow outer;
+    private int[] probeKeys;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception{
+        BroadcastJoinCache.JoinTableLoader tableLoader="valueRow".equals(loader)
+                ?ValueRowMapTableLoader.INSTANCE
+                :EncodedRowMapTableLoader.INSTANCE;
+        final int numRows=innerRows;
+        outer=new ValueRow(new DataValueDescriptor[]{new SQLLongint(),new SQLInteger()});
+        JoinTable.Factory factory=tableLoader.load(() -> Streams.wrap(new Iterator<ExecRow>(){
+            private int i=0;
+            @Override public boolean hasNext(){ return i<numRows; }
+
+            @Override
+            public ExecRow next(){
+                int key=i++;
+                return new ValueRow(new DataValueDescriptor[]{
+                        new SQLInteger(key),
+                        new SQLLongint(key*31L),
+                        new SQLDouble(key/7d),
+                        new SQLVarchar("dimension value "+key)
+                });
+            }
+        }),new int[]{0},new int[]{1},outer,new BroadcastJoinCache.MemoryReservation(Long.MAX_VALUE));
+        table=factory.newTable();
+
+        Random random=new Random(0L);
+        probeKeys=new int[NUM_PROBES];
+        for(int i=0;i<NUM_PROBES;i++){
+            probeKeys[i]=random.nextInt(2*numRows);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception{
+        table.close();
+    }
+
+    @Benchmark
+    public void fetchInner(Blackhole bh) throws Exception{
+        outer.getColumn(2).setValue(probeKeys[nextIndex()]);
+        Iterator<ExecRow> rows=table.fetchInner(outer);
+        while(rows.hasNext()){
+            bh.consume(rows.next());
+        }
+    }
+
+    private int nextIndex(){
+        int i=next;
+        next=(i+1)&(NUM_PROBES-1);
+        return i;
+    }
+}
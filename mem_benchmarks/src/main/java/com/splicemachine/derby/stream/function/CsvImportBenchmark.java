@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDate;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLTimestamp;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.load.SpliceCsvReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.supercsv.prefs.CsvPreference;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import of a CSV file, as done by {@link StreamFileFunction}, with the character tokenizer
+ * ({@link SpliceCsvReader} over a decoding Reader) and with the {@link ByteCSVTokenizer}.
+ *
+ * {@code tokenize} only splits the file into columns; {@code importRows} also converts each row into an ExecRow of
+ * INTEGER, BIGINT, DECIMAL, VARCHAR, DATE and TIMESTAMP columns. Each operation is a whole file of
+ * {@code NUM_ROWS} rows, a tenth of which have a quoted column.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(2)
+public class CsvImportBenchmark{
+    private static final int NUM_ROWS=10000;
+
+    @Param({"chars","bytes"})
+    public String tokenizer;
+
+    private byte[] file;
+    private CsvPreference preference;
+    private ExecRow template;
+
+    @Setup
+    public void setup(){
+        preference=new CsvPreference.Builder('"',',',"\n").maxLinesPerRow(1).build();
+        template=new ValueRow(new DataValueDescriptor[]{
+                new SQLInteger(),new SQLLongint(),new SQLDecimal(),new SQLVarchar(),new SQLDate(),new SQLTimestamp()});
+
+        Random random=new Random(0L);
+        StringBuilder sb=new StringBuilder();
+        for(int i=0;i<NUM_ROWS;i++){
+            sb.append(random.nextInt()).append(',')
+                    .append(random.nextLong()).append(',')
+                    .append(random.nextInt(1000000)).append('.').append(10+random.nextInt(90)).append(',');
+            if(i%10==0)
+                sb.append("\"name, ").append(i).append("\",");
+            else
+                sb.append("name").append(i).append(',');
+            sb.append(String.format("%04d-%02d-%02d,%04d-%02d-%02d %02d:%02d:%02d.%03d%n",
+                    1970+random.nextInt(50),1+random.nextInt(12),1+random.nextInt(28),
+                    1970+random.nextInt(50),1+random.nextInt(12),1+random.nextInt(28),
+                    random.nextInt(24),random.nextInt(60),random.nextInt(60),random.nextInt(1000)));
+        }
+        file=sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole bh) throws IOException{
+        if("bytes".equals(tokenizer)){
+            ByteCSVTokenizer tokens=new ByteCSVTokenizer(new ByteArrayInputStream(file),StandardCharsets.UTF_8,preference);
+            while(tokens.readRow()){
+                ByteCSVTokenizer.Row row=tokens.getRow();
+                for(int i=0;i<row.size();i++){
+                    bh.consume(row.get(i));
+                }
+            }
+        }else{
+            SpliceCsvReader reader=newCharReader();
+            while(reader.hasNext()){
+                bh.consume(reader.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public void importRows(Blackhole bh) throws Exception{
+        if("bytes".equals(tokenizer)){
+            ByteCSVTokenizer tokens=new ByteCSVTokenizer(new ByteArrayInputStream(file),StandardCharsets.UTF_8,preference);
+            while(tokens.readRow()){
+                bh.consume(AbstractFileFunction.getRow(tokens.getRow(),tokens.getQuotedColumns(),null,template,
+                        null,null,null,null,null));
+            }
+        }else{
+            SpliceCsvReader reader=newCharReader();
+            while(reader.hasNext()){
+                bh.consume(AbstractFileFunction.getRow(reader.next(),reader.nextQuotedColumns(),null,template,
+                        null,null,null,null,null));
+            }
+        }
+    }
+
+    private SpliceCsvReader newCharReader(){
+        return new SpliceCsvReader(new BufferedReader(new InputStreamReader(new ByteArrayInputStream(file),StandardCharsets.UTF_8)),preference);
+    }
+}
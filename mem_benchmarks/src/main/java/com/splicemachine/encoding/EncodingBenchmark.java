@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.encoding;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of single values ({@link Encoding}, {@link ScalarEncoding}) and of
+ * rows of fields ({@link MultiFieldEncoder}, {@link MultiFieldDecoder}).
+ *
+ * Each invocation works through a fixed, seeded set of values, so that runs on different commits
+ * see the same data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(2)
+public class EncodingBenchmark{
+    private static final int NUM_VALUES=1024;
+
+    @Param({"false","true"})
+    public boolean descending;
+
+    private long[] longs;
+    private double[] doubles;
+    private String[] strings;
+    private byte[][] encodedLongs;
+    private byte[][] encodedDoubles;
+    private byte[][] encodedStrings;
+    private byte[][] rows;
+    private byte[][] ascendingRows;
+    private byte[] scalarBuffer;
+    private MultiFieldEncoder encoder;
+    private MultiFieldDecoder decoder;
+    private int next;
+
+    @Setup
+    public void setup(){
+        Random random=new Random(0L);
+        longs=new long[NUM_VALUES];
+        doubles=new double[NUM_VALUES];
+        strings=new String[NUM_VALUES];
+        encodedLongs=new byte[NUM_VALUES][];
+        encodedDoubles=new byte[NUM_VALUES][];
+        encodedStrings=new byte[NUM_VALUES][];
+        rows=new byte[NUM_VALUES][];
+        ascendingRows=new byte[NUM_VALUES][];
+        encoder=MultiFieldEncoder.create(4);
+        for(int i=0;i<NUM_VALUES;i++){
+            //a mix of small and large magnitudes, as keys and counters tend to be
+            longs[i]=(i&1)==0?random.nextInt(1000):random.nextLong();
+            doubles[i]=random.nextDouble()*1e6;
+            strings[i]="value-"+Long.toString(random.nextLong()&Long.MAX_VALUE,36);
+            encodedLongs[i]=Encoding.encode(longs[i],descending);
+            encodedDoubles[i]=Encoding.encode(doubles[i],descending);
+            encodedStrings[i]=Encoding.encode(strings[i],descending);
+            rows[i]=row(i,descending);
+            ascendingRows[i]=row(i,false);
+        }
+        scalarBuffer=new byte[16];
+        decoder=MultiFieldDecoder.create();
+    }
+
+    @Benchmark
+    public byte[] encodeLong(){
+        return Encoding.encode(longs[nextIndex()],descending);
+    }
+
+    @Benchmark
+    public long decodeLong(){
+        return Encoding.decodeLong(encodedLongs[nextIndex()],descending);
+    }
+
+    @Benchmark
+    public int encodeLongInPlace(){
+        return ScalarEncoding.writeLong(longs[nextIndex()],scalarBuffer,0,descending);
+    }
+
+    @Benchmark
+    public byte[] encodeDouble(){
+        return Encoding.encode(doubles[nextIndex()],descending);
+    }
+
+    @Benchmark
+    public double decodeDouble(){
+        return Encoding.decodeDouble(encodedDoubles[nextIndex()],descending);
+    }
+
+    @Benchmark
+    public byte[] encodeString(){
+        return Encoding.encode(strings[nextIndex()],descending);
+    }
+
+    @Benchmark
+    public String decodeString(){
+        return Encoding.decodeString(encodedStrings[nextIndex()],descending);
+    }
+
+    @Benchmark
+    public byte[] encodeRow(){
+        return row(nextIndex(),descending);
+    }
+
+    @Benchmark
+    public void decodeRow(Blackhole bh){
+        decoder.set(rows[nextIndex()]);
+        bh.consume(decoder.decodeNextLong(descending));
+        bh.consume(decoder.decodeNextDouble(descending));
+        bh.consume(decoder.decodeNextString(descending));
+        bh.consume(decoder.decodeNextLong(descending));
+    }
+
+    @Benchmark
+    public void skipRow(Blackhole bh){
+        //what a predicate on the last field of a stored row has to do to get to it. Stored rows
+        //are always encoded in ascending order, which is all the typed skips handle
+        decoder.set(ascendingRows[nextIndex()]);
+        decoder.skipLong();
+        decoder.skipDouble();
+        decoder.skip();
+        bh.consume(decoder.decodeNextLong());
+    }
+
+    private byte[] row(int i,boolean desc){
+        encoder.reset();
+        return encoder.encodeNext(longs[i],desc)
+                .encodeNext(doubles[i],desc)
+                .encodeNext(strings[i],desc)
+                .encodeNext(longs[NUM_VALUES-1-i],desc)
+                .build();
+    }
+
+    private int nextIndex(){
+        int i=next;
+        next=(i+1)&(NUM_VALUES-1);
+        return i;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.hash;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The 64-bit Murmur2 hash ({@link Murmur64}) of row keys and primitives, next to the 32-bit
+ * Murmur3 hash, over byte arrays the size of typical encoded keys and rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(2)
+public class HashBenchmark{
+    private static final int NUM_VALUES=1024;
+
+    @Param({"8","32","256"})
+    public int length;
+
+    private final Hash64 murmur64=HashFunctions.murmur2_64(0);
+    private final Hash32 murmur32=HashFunctions.murmur3(0);
+    private byte[][] arrays;
+    private long[] longs;
+    private int next;
+
+    @Setup
+    public void setup(){
+        Random random=new Random(0L);
+        arrays=new byte[NUM_VALUES][length];
+        longs=new long[NUM_VALUES];
+        for(int i=0;i<NUM_VALUES;i++){
+            random.nextBytes(arrays[i]);
+            longs[i]=random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public long murmur64Bytes(){
+        byte[] data=arrays[nextIndex()];
+        return murmur64.hash(data,0,data.length);
+    }
+
+    @Benchmark
+    public long murmur64Long(){
+        return murmur64.hash(longs[nextIndex()]);
+    }
+
+    @Benchmark
+    public int murmur32Bytes(){
+        byte[] data=arrays[nextIndex()];
+        return murmur32.hash(data,0,data.length);
+    }
+
+    private int nextIndex(){
+        int i=next;
+        next=(i+1)&(NUM_VALUES-1);
+        return i;
+    }
+}
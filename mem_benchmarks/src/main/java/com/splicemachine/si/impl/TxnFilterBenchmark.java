@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.MCell;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot isolation filtering of stored rows ({@link SimpleTxnFilter#filterCell}).
+ *
+ * Each row has {@code versions} versions of its data, written by committed transactions, a quarter of
+ * which committed after the reader began. When {@code resolved} is set, each version also carries its
+ * commit timestamp, as it does once it has been read-resolved; otherwise every version has to be looked
+ * up in the transaction cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(2)
+public class TxnFilterBenchmark{
+    private static final int NUM_ROWS=1024;
+    private static final int NUM_TXNS=4096;
+
+    @Param({"1","4"})
+    public int versions;
+
+    @Param({"false","true"})
+    public boolean resolved;
+
+    private DataCell[][] rows;
+    private SimpleTxnFilter filter;
+    private int next;
+
+    @Setup
+    public void setup(){
+        MemTxnStore txnStore=new MemTxnStore(new IncrementingClock(),new MemTimestampSource(),MExceptionFactory.INSTANCE,Long.MAX_VALUE);
+        CompletedTxnCacheSupplier txnSupplier=new CompletedTxnCacheSupplier(txnStore,2*NUM_TXNS,1);
+        for(int i=1;i<=NUM_TXNS;i++){
+            txnSupplier.cache(new CommittedTxn(txnId(i),txnId(i)+1));
+        }
+        long readerId=txnId(NUM_TXNS*3/4)+2;
+        TxnView reader=new InheritingTxnView(Txn.ROOT_TRANSACTION,readerId,readerId,
+                Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+        filter=new SimpleTxnFilter("benchmark",reader,NoOpReadResolver.INSTANCE,txnSupplier);
+
+        Random random=new Random(0L);
+        byte[] value=new byte[32];
+        random.nextBytes(value);
+        rows=new DataCell[NUM_ROWS][];
+        for(int r=0;r<NUM_ROWS;r++){
+            byte[] key=Bytes.toBytes(random.nextLong());
+            DataCell[] cells=new DataCell[resolved?2*versions:versions];
+            int c=0;
+            //a row's cells are sorted by type, and then by descending version
+            long[] writers=new long[versions];
+            long writer=txnId(NUM_TXNS-random.nextInt(NUM_TXNS/versions));
+            for(int v=0;v<versions;v++){
+                writers[v]=writer;
+                writer=Math.max(txnId(1),writer-txnId(1+random.nextInt(NUM_TXNS/versions/2+1)));
+            }
+            if(resolved){
+                for(long w : writers){
+                    cells[c++]=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,
+                            w,Bytes.toBytes(w+1),CellType.COMMIT_TIMESTAMP);
+                }
+            }
+            for(long w : writers){
+                cells[c++]=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,
+                        w,value,CellType.USER_DATA);
+            }
+            rows[r]=cells;
+        }
+    }
+
+    @Benchmark
+    public void filterRow(Blackhole bh) throws IOException{
+        DataCell[] row=rows[nextIndex()];
+        filter.nextRow();
+        for(DataCell cell : row){
+            bh.consume(filter.filterCell(cell));
+        }
+    }
+
+    private static long txnId(int i){
+        return i*SIConstants.TRASANCTION_INCREMENT;
+    }
+
+    private int nextIndex(){
+        int i=next;
+        next=(i+1)&(NUM_ROWS-1);
+        return i;
+    }
+}
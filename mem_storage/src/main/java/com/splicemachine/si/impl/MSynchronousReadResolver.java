@@ -29,6 +29,8 @@ import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -88,19 +90,13 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
                 }finally{
                     trafficControl.release(1);
                 }
-            }else{
-                TxnView t=transaction;
-                while(t.getState()==Txn.State.COMMITTED){
-                    t=t.getParentTxnView();
-                }
-                if(t==Txn.ROOT_TRANSACTION){
-                    trafficControl.acquire(1);
-                    try{
-                        MSynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
-                        resolved=true;
-                    }finally{
-                        trafficControl.release(1);
-                    }
+            }else if(isCommittedToRoot(transaction)){
+                trafficControl.acquire(1);
+                try{
+                    MSynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
+                    resolved=true;
+                }finally{
+                    trafficControl.release(1);
                 }
             }
             status.rowResolved();
@@ -117,6 +113,51 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public int resolve(Partition region,List<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        try{
+            TxnView transaction=supplier.getTransaction(txnId);
+            int resolved=0;
+            if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
+                trafficControl.acquire(1);
+                try{
+                    List<DataMutation> deletes=new ArrayList<>(rowKeys.size());
+                    for(ByteSlice rowKey : rowKeys){
+                        deletes.add(rolledbackDelete(rowKey,txnId));
+                    }
+                    if(batchMutate(region,deletes,failOnError))
+                        resolved=rowKeys.size();
+                }finally{
+                    trafficControl.release(1);
+                }
+            }else if(isCommittedToRoot(transaction)){
+                trafficControl.acquire(1);
+                try{
+                    byte[] commitTs=Bytes.toBytes(transaction.getEffectiveCommitTimestamp());
+                    List<DataMutation> puts=new ArrayList<>(rowKeys.size());
+                    for(ByteSlice rowKey : rowKeys){
+                        puts.add(committedPut(rowKey,txnId,commitTs));
+                    }
+                    if(batchMutate(region,puts,failOnError))
+                        resolved=rowKeys.size();
+                }finally{
+                    trafficControl.release(1);
+                }
+            }
+            status.rowsResolved(rowKeys.size());
+            return resolved;
+        }catch(IOException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
+            if(failOnError)
+                throw new RuntimeException(e);
+            return 0;
+        }catch(InterruptedException e){
+            LOG.debug("Interrupted which performing read resolution, will not resolve");
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
@@ -128,12 +169,7 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        DataPut put=new MPut(rowKey.getByteCopy());
-        put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.addAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.addAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        DataPut put=committedPut(rowKey,txnId,Bytes.toBytes(commitTimestamp));
         try{
             region.put(put);
         }catch(IOException e){
@@ -151,11 +187,7 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
-        DataDelete delete=new MDelete(rowKey.getByteCopy())
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
-        delete.addAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        DataDelete delete=rolledbackDelete(rowKey,txnId);
         try{
             region.delete(delete);
         }catch(IOException ioe){
@@ -164,4 +196,45 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
                 throw new RuntimeException(ioe);
         }
     }
+
+    private boolean batchMutate(Partition region,List<DataMutation> mutations,boolean failOnError){
+        if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return false; //do nothing if we are closing or rollforward is disabled
+        try{
+            region.batchMutate(mutations);
+            return true;
+        }catch(IOException ioe){
+            LOG.info("Exception encountered when attempting to resolve rows",ioe);
+            if(failOnError)
+                throw new RuntimeException(ioe);
+            return false;
+        }
+    }
+
+    private static boolean isCommittedToRoot(TxnView transaction){
+        TxnView t=transaction;
+        while(t.getState()==Txn.State.COMMITTED){
+            t=t.getParentTxnView();
+        }
+        return t==Txn.ROOT_TRANSACTION;
+    }
+
+    private static DataPut committedPut(ByteSlice rowKey,long txnId,byte[] commitTimestamp){
+        DataPut put=new MPut(rowKey.getByteCopy());
+        put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                commitTimestamp);
+        put.addAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+        put.addAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return put;
+    }
+
+    private static DataDelete rolledbackDelete(ByteSlice rowKey,long txnId){
+        DataDelete delete=new MDelete(rowKey.getByteCopy())
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
+        delete.addAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return delete;
+    }
 }
@@ -96,6 +96,15 @@ public class MemTxnStore implements TxnStore{
         };
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
     @Override
     public Txn getTransaction(long txnId,boolean getDestinationTables) throws IOException{
         return getTransaction(txnId);
@@ -317,6 +326,19 @@ public class MemTxnStore implements TxnStore{
         }
     }
 
+    @Override
+    public KeepAliveResult[] keepAlive(long[] txnIds) throws IOException{
+        KeepAliveResult[] results=new KeepAliveResult[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            try{
+                results[i]=keepAlive(txnIds[i])?KeepAliveResult.ACTIVE:KeepAliveResult.INACTIVE;
+            }catch(MTransactionTimeout mtt){
+                results[i]=KeepAliveResult.TIMED_OUT;
+            }
+        }
+        return results;
+    }
+
     //		@Override
     public void timeout(long txnId) throws IOException{
         rollback(txnId);
@@ -35,6 +35,7 @@ import com.splicemachine.pipeline.client.WriteCoordinator;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.security.AclChecker;
+import com.splicemachine.pipeline.traffic.AdaptiveSpliceWriteControl;
 import com.splicemachine.pipeline.traffic.AtomicSpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SynchronousWriteControl;
@@ -89,11 +90,20 @@ public class PipelineDriver{
         this.compressor = compressor;
         this.pipelineMeter= meter;
         this.writePipelineFactory = writePipelineFactory;
-        this.writeControl= new AtomicSpliceWriteControl(
-                config.getMaxDependentWriteThreads(),
-                config.getMaxIndependentWriteThreads(),
-                config.getMaxIndependentWrites(),
-                config.getMaxDependentWrites());
+        if(config.getAdaptiveWriteControl()){
+            this.writeControl= new AdaptiveSpliceWriteControl(
+                    config.getMaxDependentWriteThreads(),
+                    config.getMaxIndependentWriteThreads(),
+                    config.getMaxIndependentWrites(),
+                    config.getMaxDependentWrites(),
+                    clock);
+        }else{
+            this.writeControl= new AtomicSpliceWriteControl(
+                    config.getMaxDependentWriteThreads(),
+                    config.getMaxIndependentWriteThreads(),
+                    config.getMaxIndependentWrites(),
+                    config.getMaxDependentWrites());
+        }
         this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter);
         channelFactory.setWriter(pipelineWriter);
         channelFactory.setPipeline(writePipelineFactory);
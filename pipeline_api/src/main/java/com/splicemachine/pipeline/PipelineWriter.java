@@ -111,10 +111,11 @@ public class PipelineWriter{
         if (status.equals(SpliceWriteControl.Status.REJECTED)) {
             if(LOG.isTraceEnabled())
                 LOG.trace("Rejecting "+numBulkWrites+" rows in "+ bws.size()+"writes because the pipeline is too busy");
-            rejectAll(bws,result, Code.PIPELINE_TOO_BUSY,null);
+            rejectAll(bws,result, Code.PIPELINE_TOO_BUSY,null,writeControl.getRetryAfterMillis());
             rejectedCount.addAndGet(numBulkWrites);
             return new BulkWritesResult(result);
         }
+        long start = System.nanoTime();
         try {
             if (conglomId != -1) {
                 // We have to check privileges
@@ -129,10 +130,10 @@ public class PipelineWriter{
                 case REJECTED:
                     break;
                 case DEPENDENT:
-                    writeControl.finishDependentWrite(numKVPairs);
+                    writeControl.finishDependentWrite(numKVPairs,System.nanoTime()-start);
                     break;
                 case INDEPENDENT:
-                    writeControl.finishIndependentWrite(numKVPairs);
+                    writeControl.finishIndependentWrite(numKVPairs,System.nanoTime()-start);
                     break;
             }
         }
@@ -224,6 +225,10 @@ public class PipelineWriter{
     /* ****************************************************************************************************************/
     /*private helper methods*/
     private void rejectAll(Collection<BulkWrite> writes, Collection<BulkWriteResult> result, Code status,String msg) {
+        rejectAll(writes,result,status,msg,0L);
+    }
+
+    private void rejectAll(Collection<BulkWrite> writes, Collection<BulkWriteResult> result, Code status,String msg,long retryAfterMillis) {
         for(BulkWrite write:writes){
             pipelineMeter.mark(0,write.getSize());
             switch (status) {
@@ -231,7 +236,7 @@ public class PipelineWriter{
                     result.add(new BulkWriteResult(WriteResult.notServingRegion(msg)));
                     break;
                 case PIPELINE_TOO_BUSY:
-                    result.add(new BulkWriteResult(WriteResult.pipelineTooBusy(write.getEncodedStringName())));
+                    result.add(new BulkWriteResult(WriteResult.pipelineTooBusy(write.getEncodedStringName(),retryAfterMillis)));
                     break;
                 case INDEX_NOT_SETUP_EXCEPTION:
                     if(LOG.isTraceEnabled())
@@ -226,7 +226,10 @@ public class BulkWriteAction implements Callable<WriteStats>{
              * simply because we were told to wait a bit by the write pipeline (i.e. we were rejected).
              */
             if(ctx.shouldSleep()){
-                clock.sleep(PipelineUtils.getPauseTime(ctx.attemptCount,10),TimeUnit.MILLISECONDS);
+                long pause=ctx.retryAfterMillis>0
+                        ?PipelineUtils.getRetryAfterPauseTime(ctx.retryAfterMillis)
+                        :PipelineUtils.getPauseTime(ctx.attemptCount,10);
+                clock.sleep(pause,TimeUnit.MILLISECONDS);
             }if(ctx.directRetry)
                 writesToPerform.add(nextWrite);
             else if(ctx.nextWriteSet!=null && !ctx.nextWriteSet.isEmpty()){
@@ -290,6 +293,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
                         ctx.addBulkWrites(currentBulkWrite.getMutations());
                         ctx.refreshCache = ctx.refreshCache || bulkWriteResult.getGlobalResult().refreshCache();
                         ctx.sleep=true; //always sleep due to rejection, even if we don't need to refresh the cache
+                        ctx.retryAfterMillis=Math.max(ctx.retryAfterMillis,bulkWriteResult.getGlobalResult().getRetryAfterMillis());
                         break;
                     case PARTIAL:
                         partialRows.add(currentBulkWrite.getSize());
@@ -491,6 +495,11 @@ public class BulkWriteAction implements Callable<WriteStats>{
         Collection<KVPair> nextWriteSet;
         boolean directRetry;
         int attemptCount = 0;
+        /*
+         * How long the server asked us to wait before retrying a rejected write, if it said. When set,
+         * this is used instead of the exponential backoff.
+         */
+        long retryAfterMillis;
 
         int rejectedCount;
         int failedCount;
@@ -506,6 +515,7 @@ public class BulkWriteAction implements Callable<WriteStats>{
             nextWriteSet = null;
             directRetry = false;
             rejected=false;
+            retryAfterMillis = 0L;
         }
 
         void addBulkWrites(Collection<KVPair> writes){
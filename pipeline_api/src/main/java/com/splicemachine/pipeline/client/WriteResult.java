@@ -42,9 +42,17 @@ public class WriteResult implements Externalizable {
     private static final WriteResult NOT_SERVING_REGION = new WriteResult(Code.NOT_SERVING_REGION);
     private static final WriteResult REGION_TO_BUSY = new WriteResult(Code.REGION_TOO_BUSY);
 
+    /*
+     * Flags written ahead of the optional fields. Older versions wrote a boolean in their place, so a result
+     * without a retry-after hint is written exactly as they wrote it, and results they wrote read back without one.
+     */
+    private static final byte HAS_ERROR_MESSAGE = 0x01;
+    private static final byte HAS_RETRY_AFTER = 0x02;
+
     private Code code;
     private String errorMessage;
     private ConstraintContext constraintContext;
+    private long retryAfterMillis;
 
     public WriteResult() {
     }
@@ -81,6 +89,13 @@ public class WriteResult implements Externalizable {
         return constraintContext;
     }
 
+    /**
+     * @return how long the server asked the writer to wait before retrying, or 0 if it gave no hint.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
     public boolean shouldCancel() {
         return code.shouldCancel();
     }
@@ -118,6 +133,12 @@ public class WriteResult implements Externalizable {
         return new WriteResult(Code.PIPELINE_TOO_BUSY, "pipeline for regionserver owning region " + regionNameAsString + " is too busy");
     }
 
+    public static WriteResult pipelineTooBusy(String regionNameAsString, long retryAfterMillis) {
+        WriteResult result = pipelineTooBusy(regionNameAsString);
+        result.retryAfterMillis = Math.max(retryAfterMillis, 0L);
+        return result;
+    }
+
     public static WriteResult notRun() {
         return NOT_RUN_RESULT;
     }
@@ -175,16 +196,23 @@ public class WriteResult implements Externalizable {
         return "WriteResult{ " +
                 "code=" + code +
                 ", errorMessage=" + errorMessage +
+                (retryAfterMillis > 0 ? ", retryAfterMillis=" + retryAfterMillis : "") +
                 " }";
     }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
         out.writeUTF(code.name());
-        out.writeBoolean(errorMessage != null);
+        byte flags = 0;
+        if (errorMessage != null) flags |= HAS_ERROR_MESSAGE;
+        if (retryAfterMillis > 0) flags |= HAS_RETRY_AFTER;
+        out.writeByte(flags);
         if (errorMessage != null) {
             out.writeUTF(errorMessage);
         }
+        if (retryAfterMillis > 0) {
+            out.writeLong(retryAfterMillis);
+        }
         out.writeBoolean(constraintContext != null);
         if (constraintContext != null) {
             out.writeObject(constraintContext);
@@ -194,8 +222,11 @@ public class WriteResult implements Externalizable {
     @Override
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         code = Code.valueOf(in.readUTF());
-        if (in.readBoolean())
+        byte flags = in.readByte();
+        if ((flags & HAS_ERROR_MESSAGE) != 0)
             errorMessage = in.readUTF();
+        if ((flags & HAS_RETRY_AFTER) != 0)
+            retryAfterMillis = in.readLong();
         if (in.readBoolean())
             constraintContext = (ConstraintContext) in.readObject();
     }
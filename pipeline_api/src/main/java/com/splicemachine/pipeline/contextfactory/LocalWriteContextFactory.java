@@ -39,6 +39,7 @@ import com.splicemachine.pipeline.context.WriteContext;
 import com.splicemachine.pipeline.exception.IndexNotSetUpException;
 import com.splicemachine.pipeline.writehandler.PartitionWriteHandler;
 import com.splicemachine.pipeline.writehandler.SharedCallBufferFactory;
+import com.splicemachine.pipeline.writehandler.WriteStatistics;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.utils.SpliceLogUtils;
@@ -114,7 +115,7 @@ class LocalWriteContextFactory<TableInfo> implements WriteContextFactory<Transac
         };
         PipelineWriteContext context = new PipelineWriteContext(indexSharedCallBuffer,pf, txn, null, rce, false, false, false, false, env,pipelineExceptionFactory);
         BatchConstraintChecker checker = buildConstraintChecker(txn);
-        context.addLast(new PartitionWriteHandler(rce, tableWriteLatch, checker));
+        context.addLast(new PartitionWriteHandler(rce, tableWriteLatch, checker, writeStatistics(rce)));
         addWriteHandlerFactories(1000, context);
         return context;
     }
@@ -130,11 +131,17 @@ class LocalWriteContextFactory<TableInfo> implements WriteContextFactory<Transac
         PipelineWriteContext context = new PipelineWriteContext(indexSharedCallBuffer,
                 pf,txn, token, region, skipIndexWrites,skipConflictDetection, skipWAL, rollforward, env,pipelineExceptionFactory);
         BatchConstraintChecker checker = buildConstraintChecker(txn);
-        context.addLast(new PartitionWriteHandler(region, tableWriteLatch, checker));
+        context.addLast(new PartitionWriteHandler(region, tableWriteLatch, checker, writeStatistics(region)));
         addWriteHandlerFactories(expectedWrites, context);
         return context;
     }
 
+    private WriteStatistics.PartitionDelta writeStatistics(TransactionalRegion region){
+        //unmanaged tables have no statistics to keep current
+        if(conglomId<0) return null;
+        return WriteStatistics.getInstance().partition(conglomId,region.getRegionName());
+    }
+
     private BatchConstraintChecker buildConstraintChecker(TxnView txn) throws IOException, InterruptedException{
         isInitialized(txn);
         if(state.get()==State.RUNNING){
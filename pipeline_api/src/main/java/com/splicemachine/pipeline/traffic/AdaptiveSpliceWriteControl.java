@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.concurrent.Clock;
+
+/**
+ * A write control whose write-count limits adapt to the latency observed by the writes it admits.
+ *
+ * The configured write counts are treated as ceilings. Each class of write (dependent and independent)
+ * has its own limit, which is adjusted with an additive-increase/multiplicative-decrease scheme:
+ * <ul>
+ *     <li>The limit starts low, and grows by the rows written each time a write completes (roughly doubling
+ *     every batch latency) until latency first rises. This lets the baseline latency be measured before the
+ *     server is loaded, rather than under a burst of writes admitted all at once.</li>
+ *     <li>When the smoothed latency per row rises above {@link #LATENCY_TOLERANCE} times the best latency
+ *     seen recently, the limit is cut by {@link #BACKOFF_RATIO}, at most once per batch latency.</li>
+ *     <li>Otherwise, if the writes in flight are using at least half of the limit, it is raised by about
+ *     one average batch for each limit's worth of rows that completes.</li>
+ * </ul>
+ * Rejected writers are told how long to wait before retrying, based on the batch latency and how far over
+ * the limits the server currently is, so that they don't need to guess with an exponential backoff.
+ *
+ * Thread limits are not adapted.
+ */
+public class AdaptiveSpliceWriteControl extends AtomicSpliceWriteControl{
+    static final double LATENCY_TOLERANCE=2.0d;
+    static final double BACKOFF_RATIO=0.9d;
+    static final double MIN_LIMIT_FRACTION=0.05d;
+    private static final double SMOOTHING=0.1d;
+    private static final int BASELINE_WINDOW=1000;
+    private static final double BASELINE_DRIFT=1.01d;
+    private static final long MIN_RETRY_AFTER_MILLIS=1L;
+    private static final long MAX_RETRY_AFTER_MILLIS=1000L;
+
+    private final Limit dependentLimit;
+    private final Limit independentLimit;
+
+    public AdaptiveSpliceWriteControl(int maxDependentWriteThreads,
+                                      int maxIndependentWriteThreads,
+                                      int maxDependentWriteCount,
+                                      int maxIndependentWriteCount,
+                                      Clock clock){
+        super(maxDependentWriteThreads,maxIndependentWriteThreads,maxDependentWriteCount,maxIndependentWriteCount);
+        this.dependentLimit=new Limit(maxDependentWriteCount,clock);
+        this.independentLimit=new Limit(maxIndependentWriteCount,clock);
+        this.maxDependentWriteCount=dependentLimit.limit();
+        this.maxIndependentWriteCount=independentLimit.limit();
+    }
+
+    @Override
+    public boolean finishDependentWrite(int writes,long latencyNanos){
+        boolean finished=finishDependentWrite(writes);
+        maxDependentWriteCount=dependentLimit.onSample(writes,latencyNanos,getWriteStatus().getDependentWriteCount());
+        return finished;
+    }
+
+    @Override
+    public boolean finishIndependentWrite(int writes,long latencyNanos){
+        boolean finished=finishIndependentWrite(writes);
+        maxIndependentWriteCount=independentLimit.onSample(writes,latencyNanos,getWriteStatus().getIndependentWriteCount());
+        return finished;
+    }
+
+    @Override
+    public long getRetryAfterMillis(){
+        WriteStatus status=getWriteStatus();
+        long inFlight=(long)status.getDependentWriteCount()+status.getIndependentWriteCount();
+        long limit=Math.max(1L,(long)maxDependentWriteCount+maxIndependentWriteCount);
+        long batchNanos=Math.max(dependentLimit.batchLatencyNanos(),independentLimit.batchLatencyNanos());
+        //roughly the time for enough of the writes in flight to drain to make room, scaled by how overloaded we are
+        long retryAfter=(long)(batchNanos*Math.max(1d,(double)inFlight/limit))/1000000L;
+        return Math.max(MIN_RETRY_AFTER_MILLIS,Math.min(MAX_RETRY_AFTER_MILLIS,retryAfter));
+    }
+
+    @Override
+    public void setMaxDependentWriteCount(int newMaxDependentWriteCount){
+        super.setMaxDependentWriteCount(dependentLimit.setCeiling(newMaxDependentWriteCount));
+    }
+
+    @Override
+    public void setMaxIndependentWriteCount(int newMaxIndependentWriteCount){
+        super.setMaxIndependentWriteCount(independentLimit.setCeiling(newMaxIndependentWriteCount));
+    }
+
+    /**
+     * The adaptive write-count limit for one class of writes.
+     */
+    static class Limit{
+        private final Clock clock;
+        private int ceiling;
+        private int floor;
+        private double limit;
+
+        private double smoothedNanosPerRow=-1d;
+        private double smoothedBatchNanos;
+        private double smoothedBatchSize;
+        private double baselineNanosPerRow=Double.MAX_VALUE;
+        private double windowMinNanosPerRow=Double.MAX_VALUE;
+        private int windowSamples;
+        private long lastDecrease;
+        private boolean slowStart=true;
+
+        Limit(int ceiling,Clock clock){
+            this.clock=clock;
+            setCeiling(ceiling);
+            this.limit=floor;
+        }
+
+        synchronized int setCeiling(int ceiling){
+            this.ceiling=ceiling;
+            this.floor=Math.max(1,(int)(ceiling*MIN_LIMIT_FRACTION));
+            limit=Math.min(limit,ceiling);
+            return (int)limit;
+        }
+
+        /**
+         * Adjusts the limit after a write of {@code rows} rows which took {@code latencyNanos} to complete.
+         *
+         * @param inFlight the rows of this class still being written
+         * @return the new limit
+         */
+        synchronized int onSample(int rows,long latencyNanos,int inFlight){
+            if(rows<=0 || latencyNanos<=0)
+                return (int)limit;
+            double nanosPerRow=(double)latencyNanos/rows;
+            if(smoothedNanosPerRow<0){
+                smoothedNanosPerRow=nanosPerRow;
+                smoothedBatchNanos=latencyNanos;
+                smoothedBatchSize=rows;
+            }else{
+                smoothedNanosPerRow+=SMOOTHING*(nanosPerRow-smoothedNanosPerRow);
+                smoothedBatchNanos+=SMOOTHING*(latencyNanos-smoothedBatchNanos);
+                smoothedBatchSize+=SMOOTHING*(rows-smoothedBatchSize);
+            }
+
+            /*
+             * The baseline is the best latency seen so far, but may drift up a little each window so that
+             * it can follow a lasting change in the server's unloaded latency (e.g. after a region moves).
+             * It must not simply follow the window's best latency, or sustained overload would become the
+             * new baseline.
+             */
+            windowMinNanosPerRow=Math.min(windowMinNanosPerRow,nanosPerRow);
+            baselineNanosPerRow=Math.min(baselineNanosPerRow,nanosPerRow);
+            if(++windowSamples>=BASELINE_WINDOW){
+                baselineNanosPerRow=Math.min(windowMinNanosPerRow,baselineNanosPerRow*BASELINE_DRIFT);
+                windowMinNanosPerRow=Double.MAX_VALUE;
+                windowSamples=0;
+            }
+
+            if(smoothedNanosPerRow>LATENCY_TOLERANCE*baselineNanosPerRow){
+                long now=clock.nanoTime();
+                //only back off once per batch, so that the writes admitted under the old limit can drain
+                if(now-lastDecrease>=smoothedBatchNanos){
+                    limit=Math.max(floor,limit*BACKOFF_RATIO);
+                    lastDecrease=now;
+                }
+                slowStart=false;
+            }else if(inFlight+rows>=limit/2){
+                double increase=slowStart? rows : smoothedBatchSize*rows/limit;
+                limit=Math.min(ceiling,limit+increase);
+            }
+            return (int)limit;
+        }
+
+        synchronized long batchLatencyNanos(){
+            return (long)smoothedBatchNanos;
+        }
+
+        synchronized int limit(){
+            return (int)limit;
+        }
+    }
+}
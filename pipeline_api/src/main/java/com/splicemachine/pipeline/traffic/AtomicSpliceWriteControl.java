@@ -27,10 +27,10 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public class AtomicSpliceWriteControl implements SpliceWriteControl{
 
-    protected int maxDependentWriteThreads;
-    protected int maxIndependentWriteThreads;
-    protected int maxDependentWriteCount;
-    protected int maxIndependentWriteCount;
+    protected volatile int maxDependentWriteThreads;
+    protected volatile int maxIndependentWriteThreads;
+    protected volatile int maxDependentWriteCount;
+    protected volatile int maxIndependentWriteCount;
 
     private final AtomicLong dependentWrites = new AtomicLong();
     private final AtomicLong independentWrites = new AtomicLong();
@@ -27,10 +27,34 @@ public interface SpliceWriteControl{
 
     boolean finishDependentWrite(int writes);
 
+    /**
+     * Finish a dependent write which took {@code latencyNanos} to perform. Implementations which
+     * adapt their limits to the observed latency override this.
+     */
+    default boolean finishDependentWrite(int writes,long latencyNanos){
+        return finishDependentWrite(writes);
+    }
+
     Status performIndependentWrite(int writes);
 
     boolean finishIndependentWrite(int writes);
 
+    /**
+     * Finish an independent write which took {@code latencyNanos} to perform. Implementations which
+     * adapt their limits to the observed latency override this.
+     */
+    default boolean finishIndependentWrite(int writes,long latencyNanos){
+        return finishIndependentWrite(writes);
+    }
+
+    /**
+     * @return how long, in milliseconds, a rejected writer should wait before retrying, or 0 if
+     * this control has no estimate and the writer should use its own backoff.
+     */
+    default long getRetryAfterMillis(){
+        return 0L;
+    }
+
     WriteStatus getWriteStatus();
 
     int maxDependendentWriteThreads();
@@ -95,4 +95,14 @@ public class PipelineUtils{
         return normalPause + jitter;
     }
 
+    /**
+     * Get the pause time in millis for a write which the server rejected with a retry-after hint.
+     *
+     * @param retryAfterMillis the pause the server asked for
+     * @return the hint plus up to half again, so that writers rejected together don't all retry together
+     */
+    public static long getRetryAfterPauseTime(final long retryAfterMillis) {
+        return retryAfterMillis + (long)(retryAfterMillis * RANDOM.nextFloat() * 0.5f);
+    }
+
 }
@@ -47,15 +47,28 @@ public class PartitionWriteHandler implements WriteHandler {
     protected List<KVPair> mutations = Lists.newArrayList();
     protected ResettableCountDownLatch writeLatch;
     protected BatchConstraintChecker constraintChecker;
+    protected WriteStatistics.PartitionDelta writeStatistics;
 
     public PartitionWriteHandler(TransactionalRegion region,
                                  ResettableCountDownLatch writeLatch,
                                  BatchConstraintChecker constraintChecker) {
+        this(region,writeLatch,constraintChecker,null);
+    }
+
+    /**
+     * @param writeStatistics where to count the rows this handler inserts and deletes, or {@code null} if
+     *                        they should not be counted.
+     */
+    public PartitionWriteHandler(TransactionalRegion region,
+                                 ResettableCountDownLatch writeLatch,
+                                 BatchConstraintChecker constraintChecker,
+                                 WriteStatistics.PartitionDelta writeStatistics) {
         if (LOG.isDebugEnabled())
             SpliceLogUtils.debug(LOG, "regionWriteHandler create");
         this.region = region;
         this.writeLatch = writeLatch;
         this.constraintChecker = constraintChecker;
+        this.writeStatistics = writeStatistics;
         this.mutations = Lists.newArrayList();
     }
 
@@ -171,6 +184,9 @@ public class PartitionWriteHandler implements WriteHandler {
 
         int i = 0;
         int failed = 0;
+        long inserted = 0;
+        long deleted = 0;
+        long insertedBytes = 0;
         Iterator<MutationStatus> statusIter = status.iterator();
         Iterator<KVPair> mutationIter = toProcess.iterator();
         while(statusIter.hasNext()){
@@ -182,6 +198,18 @@ public class PartitionWriteHandler implements WriteHandler {
                 ctx.notRun(mutation);
             else if(stat.isSuccess()){
                 ctx.success(mutation);
+                switch(mutation.getType()){
+                    case INSERT:
+                        inserted++;
+                        insertedBytes+=mutation.getSize();
+                        break;
+                    case DELETE:
+                        deleted++;
+                        break;
+                    default:
+                        //updates don't change the row count, and we can't tell if an upsert did
+                        break;
+                }
             } else{
                 //assume it's a failure
                 //see if it's due to constraints, otherwise just pass it through
@@ -198,6 +226,8 @@ public class PartitionWriteHandler implements WriteHandler {
         }
 
         region.updateWriteRequests(toProcess.size() - failed);
+        if(writeStatistics!=null && (inserted>0 || deleted>0))
+            writeStatistics.record(inserted,deleted,insertedBytes);
     }
 
 
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.writehandler;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The rows inserted into and deleted from each partition hosted by this JVM, since they were last
+ * taken by {@link #drain()}.
+ *
+ * The {@link PartitionWriteHandler} records its successful writes here, so that the statistics of a table can
+ * be kept roughly current between collections. The counts are approximate: they include writes of transactions
+ * which later roll back, and deletes of rows which did not exist.
+ */
+@ThreadSafe
+public class WriteStatistics{
+    private static final WriteStatistics INSTANCE=new WriteStatistics();
+
+    private final ConcurrentMap<String,PartitionDelta> partitions=new ConcurrentHashMap<>();
+
+    public static WriteStatistics getInstance(){
+        return INSTANCE;
+    }
+
+    /**
+     * @return the (live) changes to the partition, to record writes into.
+     */
+    public PartitionDelta partition(long conglomerateId,String partitionName){
+        PartitionDelta delta=partitions.get(partitionName);
+        if(delta==null){
+            delta=new PartitionDelta(conglomerateId,partitionName);
+            PartitionDelta old=partitions.putIfAbsent(partitionName,delta);
+            if(old!=null)
+                delta=old;
+        }
+        return delta;
+    }
+
+    /**
+     * @return the changes to the partition which have not been drained yet, or {@code null} if this JVM has
+     * not written to it.
+     */
+    public PartitionDelta getDelta(String partitionName){
+        return partitions.get(partitionName);
+    }
+
+    /**
+     * Take the pending changes of every partition. Partitions which had no changes to take are forgotten,
+     * so that closed or split regions do not linger.
+     *
+     * @return a snapshot of the changes taken, one per partition which had any.
+     */
+    public List<PartitionDelta> drain(){
+        List<PartitionDelta> drained=new ArrayList<>();
+        Iterator<PartitionDelta> it=partitions.values().iterator();
+        while(it.hasNext()){
+            PartitionDelta delta=it.next();
+            PartitionDelta taken=delta.take();
+            if(taken==null)
+                it.remove();
+            else
+                drained.add(taken);
+        }
+        return drained;
+    }
+
+    /**
+     * Put back changes which were drained, but could not be applied.
+     */
+    public void restore(PartitionDelta drained){
+        partition(drained.conglomerateId,drained.partitionName).add(drained);
+    }
+
+    public static class PartitionDelta{
+        private final long conglomerateId;
+        private final String partitionName;
+        private final AtomicLong rowsInserted=new AtomicLong();
+        private final AtomicLong rowsDeleted=new AtomicLong();
+        private final AtomicLong bytesInserted=new AtomicLong();
+        /*the time of the first change since the last drain, or 0 if there hasn't been one*/
+        private final AtomicLong firstChange=new AtomicLong();
+
+        PartitionDelta(long conglomerateId,String partitionName){
+            this.conglomerateId=conglomerateId;
+            this.partitionName=partitionName;
+        }
+
+        public void record(long inserted,long deleted,long insertedBytes){
+            firstChange.compareAndSet(0L,System.currentTimeMillis());
+            rowsInserted.addAndGet(inserted);
+            rowsDeleted.addAndGet(deleted);
+            bytesInserted.addAndGet(insertedBytes);
+        }
+
+        public long getConglomerateId(){ return conglomerateId; }
+
+        public String getPartitionName(){ return partitionName; }
+
+        public long getRowsInserted(){ return rowsInserted.get(); }
+
+        public long getRowsDeleted(){ return rowsDeleted.get(); }
+
+        public long getBytesInserted(){ return bytesInserted.get(); }
+
+        /**
+         * @return the wall-clock time (in ms) of the earliest change counted, or 0 if there are none. Statistics
+         * collected after this time already include every change counted.
+         */
+        public long getFirstChange(){ return firstChange.get(); }
+
+        private PartitionDelta take(){
+            long since=firstChange.getAndSet(0L);
+            long inserted=rowsInserted.getAndSet(0L);
+            long deleted=rowsDeleted.getAndSet(0L);
+            long bytes=bytesInserted.getAndSet(0L);
+            if(inserted==0L && deleted==0L)
+                return null;
+            PartitionDelta taken=new PartitionDelta(conglomerateId,partitionName);
+            taken.firstChange.set(since==0L?System.currentTimeMillis():since);
+            taken.rowsInserted.set(inserted);
+            taken.rowsDeleted.set(deleted);
+            taken.bytesInserted.set(bytes);
+            return taken;
+        }
+
+        private void add(PartitionDelta other){
+            long since=other.getFirstChange();
+            long current;
+            do{
+                current=firstChange.get();
+            }while((current==0L || current>since) && !firstChange.compareAndSet(current,since));
+            rowsInserted.addAndGet(other.getRowsInserted());
+            rowsDeleted.addAndGet(other.getRowsDeleted());
+            bytesInserted.addAndGet(other.getBytesInserted());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.pipeline.api.Code;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@Category(ArchitectureIndependent.class)
+public class WriteResultTest {
+
+    @Test
+    public void retryAfterHintSurvivesSerialization() throws Exception {
+        WriteResult decoded = roundTrip(WriteResult.pipelineTooBusy("region", 25L));
+        assertEquals(Code.PIPELINE_TOO_BUSY, decoded.getCode());
+        assertEquals(25L, decoded.getRetryAfterMillis());
+    }
+
+    @Test
+    public void resultsWithoutHintHaveNoRetryAfter() throws Exception {
+        assertEquals(0L, roundTrip(WriteResult.pipelineTooBusy("region")).getRetryAfterMillis());
+        assertEquals(0L, roundTrip(WriteResult.pipelineTooBusy("region", 0L)).getRetryAfterMillis());
+        assertEquals(0L, roundTrip(WriteResult.failed("too busy; retry after 25 ms")).getRetryAfterMillis());
+    }
+
+    @Test
+    public void hintDoesNotChangeTheMessage() throws Exception {
+        WriteResult withHint = WriteResult.pipelineTooBusy("region", 25L);
+        assertEquals(WriteResult.pipelineTooBusy("region").getErrorMessage(), withHint.getErrorMessage());
+        assertEquals(withHint.getErrorMessage(), roundTrip(withHint).getErrorMessage());
+    }
+
+    @Test
+    public void resultsWithoutHintAreWrittenAsBefore() throws Exception {
+        // older versions wrote a boolean where the flags are, and can read anything written without a hint
+        WriteResult result = WriteResult.pipelineTooBusy("region");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeUTF(Code.PIPELINE_TOO_BUSY.name());
+            out.writeBoolean(true);
+            out.writeUTF(result.getErrorMessage());
+            out.writeBoolean(false);
+        }
+        assertArrayEquals(bytes.toByteArray(), serialize(result));
+        assertArrayEquals(bytes.toByteArray(), serialize(WriteResult.pipelineTooBusy("region", 0L)));
+        assertEquals(result.getErrorMessage(), roundTrip(result).getErrorMessage());
+    }
+
+    private static WriteResult roundTrip(WriteResult result) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(result)))) {
+            WriteResult decoded = new WriteResult();
+            decoded.readExternal(in);
+            return decoded;
+        }
+    }
+
+    private static byte[] serialize(WriteResult result) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            result.writeExternal(out);
+        }
+        return bytes.toByteArray();
+    }
+}
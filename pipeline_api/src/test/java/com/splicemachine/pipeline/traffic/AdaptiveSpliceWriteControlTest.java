@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(ArchitectureIndependent.class)
+public class AdaptiveSpliceWriteControlTest {
+    private static final long MILLIS = 1000000L;
+
+    @Test
+    public void limitStartsLowAndGrowsToCeiling() {
+        IncrementingClock clock = new IncrementingClock();
+        SpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(10, 10, 1000, 2000, clock);
+        assertEquals(50, writeControl.maxDependentWriteCount());
+        assertEquals(100, writeControl.maxIndependentWriteCount());
+        assertEquals(SpliceWriteControl.Status.REJECTED, writeControl.performDependentWrite(51));
+
+        warmUp(writeControl, clock);
+        assertEquals(1000, writeControl.maxDependentWriteCount());
+        assertEquals(SpliceWriteControl.Status.REJECTED, writeControl.performDependentWrite(1001));
+    }
+
+    @Test
+    public void backsOffWhenLatencyRises() {
+        IncrementingClock clock = new IncrementingClock();
+        SpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(10, 10, 1000, 1000, clock);
+        warmUp(writeControl, clock);
+        assertEquals(1000, writeControl.maxDependentWriteCount());
+
+        slowDown(writeControl, clock);
+        int limit = writeControl.maxDependentWriteCount();
+        assertTrue("Limit should have backed off: " + limit, limit < 1000);
+        assertTrue("Limit should not go below the floor: " + limit, limit >= 1000 * AdaptiveSpliceWriteControl.MIN_LIMIT_FRACTION);
+        assertEquals("Writes over the reduced limit should be rejected",
+                SpliceWriteControl.Status.REJECTED, writeControl.performDependentWrite(limit + 1));
+        assertTrue(writeControl.getRetryAfterMillis() >= 1);
+    }
+
+    @Test
+    public void recoversWhenLatencyFalls() {
+        IncrementingClock clock = new IncrementingClock();
+        SpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(10, 10, 1000, 1000, clock);
+        warmUp(writeControl, clock);
+        slowDown(writeControl, clock);
+        assertTrue(writeControl.maxDependentWriteCount() < 1000);
+
+        // keep half of the limit in flight, with latency back at its baseline
+        for (int i = 0; i < 1000; i++) {
+            int limit = writeControl.maxDependentWriteCount();
+            int inFlight = limit / 2;
+            int rows = Math.max(1, limit / 4);
+            assertEquals(SpliceWriteControl.Status.DEPENDENT, writeControl.performDependentWrite(inFlight));
+            write(writeControl, rows, rows * MILLIS / 100);
+            writeControl.finishDependentWrite(inFlight);
+            clock.increment(MILLIS);
+        }
+        assertEquals(1000, writeControl.maxDependentWriteCount());
+    }
+
+    @Test
+    public void doesNotGrowWhenIdle() {
+        IncrementingClock clock = new IncrementingClock();
+        AdaptiveSpliceWriteControl.Limit limit = new AdaptiveSpliceWriteControl.Limit(1000, clock);
+        limit.onSample(100, MILLIS, 0);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(100, 20 * MILLIS, 0);
+            clock.increment(20 * MILLIS);
+        }
+        int backedOff = limit.limit();
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(10, MILLIS / 10, 0);
+        }
+        assertEquals("An idle server should not raise its limit", backedOff, limit.limit());
+    }
+
+    @Test
+    public void settingCeilingCapsLimit() {
+        IncrementingClock clock = new IncrementingClock();
+        SpliceWriteControl writeControl = new AdaptiveSpliceWriteControl(10, 10, 1000, 1000, clock);
+        warmUp(writeControl, clock);
+        writeControl.setMaxDependentWriteCount(500);
+        assertEquals(500, writeControl.maxDependentWriteCount());
+        assertEquals(SpliceWriteControl.Status.REJECTED, writeControl.performDependentWrite(501));
+    }
+
+    /*
+     * writes of half the limit at a baseline of 100 rows in 1ms, until the limit reaches its ceiling
+     */
+    private static void warmUp(SpliceWriteControl writeControl, IncrementingClock clock) {
+        for (int i = 0; i < 100; i++) {
+            int rows = (writeControl.maxDependentWriteCount() + 1) / 2;
+            write(writeControl, rows, rows * MILLIS / 100);
+            clock.increment(MILLIS);
+        }
+    }
+
+    /*
+     * 10 rows taking 20ms each, against a baseline of 100 rows in 1ms
+     */
+    private static void slowDown(SpliceWriteControl writeControl, IncrementingClock clock) {
+        for (int i = 0; i < 100; i++) {
+            write(writeControl, 10, 20 * MILLIS);
+            clock.increment(20 * MILLIS);
+        }
+    }
+
+    private static void write(SpliceWriteControl writeControl, int rows, long latencyNanos) {
+        assertEquals(SpliceWriteControl.Status.DEPENDENT, writeControl.performDependentWrite(rows));
+        writeControl.finishDependentWrite(rows, latencyNanos);
+    }
+}
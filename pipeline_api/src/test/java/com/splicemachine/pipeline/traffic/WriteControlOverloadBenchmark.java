@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.traffic;
+
+import com.splicemachine.concurrent.SystemClock;
+import com.splicemachine.pipeline.utils.PipelineUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulates an overloaded region server to compare {@link AtomicSpliceWriteControl}, with clients
+ * backing off exponentially, against {@link AdaptiveSpliceWriteControl}, with clients waiting as long
+ * as the server asks them to.
+ *
+ * The simulated server writes {@code capacity} rows at its base latency; beyond that, the latency
+ * of every write grows with the rows in flight, the way a region server behaves once its handlers,
+ * memstores and WAL are saturated. The static limits are deliberately configured well above capacity,
+ * as they tend to be when tuned for a larger cluster.
+ *
+ * Usage: WriteControlOverloadBenchmark [clients] [seconds]
+ */
+public class WriteControlOverloadBenchmark{
+    private static final int CAPACITY_ROWS=20000;
+    private static final long BASE_NANOS_PER_ROW=2000L;
+    private static final int MAX_WRITE_COUNT=80000;
+    private static final int MAX_WRITE_THREADS=200;
+    private static final int BATCH_SIZE=1000;
+
+    public static void main(String... args) throws Exception{
+        int clients=args.length>0? Integer.parseInt(args[0]) : 400;
+        int seconds=args.length>1? Integer.parseInt(args[1]) : 20;
+
+        System.out.printf("%d clients, %d seconds, server capacity %d rows in flight, write count limit %d%n",
+                clients,seconds,CAPACITY_ROWS,MAX_WRITE_COUNT);
+        run("static limits, exponential backoff",
+                new AtomicSpliceWriteControl(MAX_WRITE_THREADS,MAX_WRITE_THREADS,MAX_WRITE_COUNT,MAX_WRITE_COUNT),
+                clients,seconds);
+        run("adaptive limits, retry-after hints",
+                new AdaptiveSpliceWriteControl(MAX_WRITE_THREADS,MAX_WRITE_THREADS,MAX_WRITE_COUNT,MAX_WRITE_COUNT,new SystemClock()),
+                clients,seconds);
+    }
+
+    private static void run(String name,SpliceWriteControl writeControl,int clients,int seconds) throws InterruptedException{
+        AtomicLong inFlight=new AtomicLong();
+        Client[] threads=new Client[clients];
+        long end=System.nanoTime()+TimeUnit.SECONDS.toNanos(seconds);
+        for(int i=0;i<clients;i++){
+            threads[i]=new Client(writeControl,inFlight,end);
+            threads[i].start();
+        }
+        long rows=0L;
+        long rejections=0L;
+        long[] latencies=new long[0];
+        for(Client client : threads){
+            client.join();
+            rows+=client.rows;
+            rejections+=client.rejections;
+            long[] merged=Arrays.copyOf(latencies,latencies.length+client.latencyCount);
+            System.arraycopy(client.latencies,0,merged,latencies.length,client.latencyCount);
+            latencies=merged;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-36s %,12d rows/s %,10d rejections  batch latency p50 %,6d ms  p99 %,6d ms  write count limit %,d%n",
+                name,
+                rows/seconds,
+                rejections,
+                percentile(latencies,0.5d)/1000000L,
+                percentile(latencies,0.99d)/1000000L,
+                writeControl.maxDependentWriteCount());
+    }
+
+    private static long percentile(long[] sorted,double p){
+        if(sorted.length==0) return 0L;
+        return sorted[Math.min(sorted.length-1,(int)(sorted.length*p))];
+    }
+
+    private static class Client extends Thread{
+        private final SpliceWriteControl writeControl;
+        private final AtomicLong inFlight;
+        private final long end;
+        long rows;
+        long rejections;
+        long[] latencies=new long[1024];
+        int latencyCount;
+
+        Client(SpliceWriteControl writeControl,AtomicLong inFlight,long end){
+            this.writeControl=writeControl;
+            this.inFlight=inFlight;
+            this.end=end;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run(){
+            int attempt=0;
+            long batchStart=System.nanoTime();
+            int batch=BATCH_SIZE/2+ThreadLocalRandom.current().nextInt(BATCH_SIZE);
+            while(System.nanoTime()<end){
+                if(writeControl.performDependentWrite(batch)==SpliceWriteControl.Status.REJECTED){
+                    rejections++;
+                    attempt++;
+                    long retryAfter=writeControl.getRetryAfterMillis();
+                    long pause=retryAfter>0
+                            ?PipelineUtils.getRetryAfterPauseTime(retryAfter)
+                            :PipelineUtils.getPauseTime(attempt,10);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pause));
+                    continue;
+                }
+                long start=System.nanoTime();
+                long load=inFlight.addAndGet(batch);
+                double overload=Math.max(1d,(double)load/CAPACITY_ROWS);
+                LockSupport.parkNanos((long)(batch*BASE_NANOS_PER_ROW*overload*overload));
+                inFlight.addAndGet(-batch);
+                long now=System.nanoTime();
+                writeControl.finishDependentWrite(batch,now-start);
+
+                rows+=batch;
+                if(latencyCount==latencies.length)
+                    latencies=Arrays.copyOf(latencies,latencyCount*2);
+                latencies[latencyCount++]=now-batchStart;
+                attempt=0;
+                batchStart=now;
+                batch=BATCH_SIZE/2+ThreadLocalRandom.current().nextInt(BATCH_SIZE);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.writehandler;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class WriteStatisticsTest{
+
+    @Test
+    public void drainsTheChangesOfEachPartition() throws Exception{
+        WriteStatistics statistics=new WriteStatistics();
+        statistics.partition(1568L,"region1").record(10L,2L,1000L);
+        statistics.partition(1568L,"region1").record(5L,0L,500L);
+        statistics.partition(1584L,"region2").record(0L,3L,0L);
+
+        List<WriteStatistics.PartitionDelta> drained=statistics.drain();
+        Assert.assertEquals("Incorrect number of partitions drained",2,drained.size());
+        for(WriteStatistics.PartitionDelta delta : drained){
+            Assert.assertTrue("Missing time of the first change",delta.getFirstChange()>0L);
+            if(delta.getPartitionName().equals("region1")){
+                Assert.assertEquals(1568L,delta.getConglomerateId());
+                Assert.assertEquals(15L,delta.getRowsInserted());
+                Assert.assertEquals(2L,delta.getRowsDeleted());
+                Assert.assertEquals(1500L,delta.getBytesInserted());
+            }else{
+                Assert.assertEquals(1584L,delta.getConglomerateId());
+                Assert.assertEquals(0L,delta.getRowsInserted());
+                Assert.assertEquals(3L,delta.getRowsDeleted());
+            }
+        }
+
+        WriteStatistics.PartitionDelta pending=statistics.getDelta("region1");
+        Assert.assertEquals("Changes were not taken",0L,pending.getRowsInserted());
+        Assert.assertEquals("Changes were not taken",0L,pending.getFirstChange());
+    }
+
+    @Test
+    public void forgetsPartitionsWithoutChanges() throws Exception{
+        WriteStatistics statistics=new WriteStatistics();
+        statistics.partition(1568L,"region1").record(1L,0L,100L);
+        Assert.assertEquals(1,statistics.drain().size());
+        Assert.assertTrue("Nothing should have been drained",statistics.drain().isEmpty());
+        Assert.assertNull("Partition without changes was kept",statistics.getDelta("region1"));
+    }
+
+    @Test
+    public void restoresChangesWhichWereNotApplied() throws Exception{
+        WriteStatistics statistics=new WriteStatistics();
+        statistics.partition(1568L,"region1").record(4L,1L,400L);
+        WriteStatistics.PartitionDelta drained=statistics.drain().get(0);
+        statistics.partition(1568L,"region1").record(2L,0L,200L);
+        statistics.restore(drained);
+
+        WriteStatistics.PartitionDelta pending=statistics.getDelta("region1");
+        Assert.assertEquals(6L,pending.getRowsInserted());
+        Assert.assertEquals(1L,pending.getRowsDeleted());
+        Assert.assertEquals(600L,pending.getBytesInserted());
+        Assert.assertEquals("Should keep the time of the earliest change",drained.getFirstChange(),pending.getFirstChange());
+    }
+}
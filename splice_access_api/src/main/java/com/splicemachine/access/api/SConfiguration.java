@@ -267,6 +267,8 @@ public interface SConfiguration {
 
     long getBroadcastDatasetCostThreshold();
 
+    boolean getBroadcastJoinCompactTable();
+
     long getOptimizerPlanMaximumTimeout();
 
     long getOptimizerPlanMinimumTimeout();
@@ -349,4 +351,42 @@ public interface SConfiguration {
     String getOlapLog4jConfig();
 
     int getMaxCheckTableErrors();
+
+    double getBroadcastJoinMaxMemoryFraction();
+
+    boolean getBroadcastJoinKeyFilter();
+
+    long getControlExecutionSortMemory();
+
+    String getControlExecutionSpillDirectory();
+
+    boolean getAdaptiveWriteControl();
+
+    boolean getTimestampClientBatchRequests();
+
+    boolean getColumnarAggregation();
+
+    boolean getPrimitiveGroupedAggregation();
+
+    long getWriteStatisticsFlushInterval();
+
+    String getOlapServerUserWeights();
+
+    String getOlapServerQueueWeights();
+
+    boolean getSparkResultStreamingColumnar();
+
+    int getIndexInitialBatchSize();
+
+    int getControlExecutionProbesPerScan();
+
+    boolean getControlExecutionSharedScans();
+
+    int getControlExecutionSharedScanBufferRows();
+
+    int getSequenceMaxBlockSize();
+
+    int getForeignKeyParentKeyCacheSize();
+
+    boolean getDdlScopedCacheBlocking();
 }
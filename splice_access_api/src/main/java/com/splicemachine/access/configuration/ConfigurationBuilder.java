@@ -141,6 +141,7 @@ public class ConfigurationBuilder {
     public long broadcastRegionMbThreshold;
     public long broadcastRegionRowThreshold;
     public long broadcastDatasetCostThreshold;
+    public boolean broadcastJoinCompactTable;
     public long optimizerPlanMaximumTimeout;
     public long optimizerPlanMinimumTimeout;
     public long determineSparkRowThreshold;
@@ -189,6 +190,25 @@ public class ConfigurationBuilder {
     public long controlExecutionRowLimit;
     public int olapShufflePartitions;
     public String olapLog4jConfig;
+    public double broadcastJoinMaxMemoryFraction;
+    public boolean broadcastJoinKeyFilter;
+    public long controlExecutionSortMemory;
+    public String controlExecutionSpillDirectory;
+    public boolean adaptiveWriteControl;
+    public boolean timestampClientBatchRequests;
+    public boolean columnarAggregation;
+    public boolean primitiveGroupedAggregation;
+    public long writeStatisticsFlushInterval;
+    public String olapServerUserWeights;
+    public String olapServerQueueWeights;
+    public boolean sparkResultStreamingColumnar;
+    public int indexInitialBatchSize;
+    public int controlExecutionProbesPerScan;
+    public boolean controlExecutionSharedScans;
+    public int controlExecutionSharedScanBufferRows;
+    public int sequenceMaxBlockSize;
+    public int foreignKeyParentKeyCacheSize;
+    public boolean ddlScopedCacheBlocking;
 
 
     /**
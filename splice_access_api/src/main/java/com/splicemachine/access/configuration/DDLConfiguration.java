@@ -51,12 +51,23 @@ public class DDLConfiguration implements ConfigurationDefault {
     public static final String DDL_DRAINING_MAXIMUM_WAIT = "splice.ddl.drainingWait.maximum";
     private static final long DEFAULT_DDL_DRAINING_MAXIMUM_WAIT = 100000;
 
+    /**
+     * If true, a DDL change which only creates an object (CREATE TABLE, CREATE SCHEMA) does not stop the
+     * data dictionary caches from being written on every server while it is in progress, only from being
+     * written by the transaction making it. Other changes stop all of them, as before.
+     *
+     * Defaults to false
+     */
+    public static final String DDL_SCOPED_CACHE_BLOCKING = "splice.ddl.scopedCacheBlocking";
+    private static final boolean DEFAULT_DDL_SCOPED_CACHE_BLOCKING = false;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.maxDdlWait = configurationSource.getLong(MAX_DDL_WAIT, DEFAULT_MAX_DDL_WAIT);
         builder.ddlRefreshInterval = configurationSource.getLong(DDL_REFRESH_INTERVAL, DEFAULT_DDL_REFRESH_INTERVAL);
         builder.ddlDrainingInitialWait = configurationSource.getLong(DDL_DRAINING_INITIAL_WAIT, DEFAULT_DDL_DRAINING_INITIAL_WAIT);
         builder.ddlDrainingMaximumWait = configurationSource.getLong(DDL_DRAINING_MAXIMUM_WAIT, DEFAULT_DDL_DRAINING_MAXIMUM_WAIT);
+        builder.ddlScopedCacheBlocking = configurationSource.getBoolean(DDL_SCOPED_CACHE_BLOCKING, DEFAULT_DDL_SCOPED_CACHE_BLOCKING);
     }
 
 }
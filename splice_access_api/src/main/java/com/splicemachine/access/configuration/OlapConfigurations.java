@@ -47,7 +47,8 @@ public class OlapConfigurations implements ConfigurationDefault {
 
     /**
      * Number of threads used by the Olap server, determines the maximum number of concurrent
-     * Olap jobs
+     * Olap jobs. Jobs submitted beyond that wait in the server's queue, see OLAP_SERVER_USER_WEIGHTS
+     * and OLAP_SERVER_QUEUE_WEIGHTS
      *
      * Defaults to 16
      */
@@ -117,6 +118,22 @@ public class OlapConfigurations implements ConfigurationDefault {
     public static final String DEFAULT_OLAP_LOG4J_CONFIG = null;
 
 
+    /**
+     * Relative share of the Olap server each user gets when jobs are queued, as a comma separated list
+     * of user=weight pairs (e.g. "analyst=1,etl=3"). Users which are not listed have a weight of 1.
+     * Defaults to NULL (all users are equal)
+     */
+    public static final String OLAP_SERVER_USER_WEIGHTS = "splice.olap_server.userWeights";
+    private static final String DEFAULT_OLAP_SERVER_USER_WEIGHTS = null;
+
+    /**
+     * Relative share of the Olap server each queue (Spark scheduler pool) gets when jobs are queued, as a
+     * comma separated list of queue=weight pairs. Queues which are not listed have a weight of 1.
+     * Defaults to NULL (all queues are equal)
+     */
+    public static final String OLAP_SERVER_QUEUE_WEIGHTS = "splice.olap_server.queueWeights";
+    private static final String DEFAULT_OLAP_SERVER_QUEUE_WEIGHTS = null;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.activeTransactionCacheSize  = configurationSource.getInt(ACTIVE_TRANSACTION_CACHE_SIZE, DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE);
@@ -144,5 +161,7 @@ public class OlapConfigurations implements ConfigurationDefault {
         builder.olapCompactionResolutionBufferSize = configurationSource.getInt(SPARK_COMPACTION_RESOLUTION_BUFFER_SIZE, DEFAULT_SPARK_COMPACTION_RESOLUTION_BUFFER_SIZE);
         builder.olapCompactionBlocking = configurationSource.getBoolean(SPARK_COMPACTION_BLOCKING, DEFAULT_SPARK_COMPACTION_BLOCKING);
         builder.olapLog4jConfig = configurationSource.getString(OLAP_LOG4J_CONFIG, DEFAULT_OLAP_LOG4J_CONFIG);
+        builder.olapServerUserWeights = configurationSource.getString(OLAP_SERVER_USER_WEIGHTS, DEFAULT_OLAP_SERVER_USER_WEIGHTS);
+        builder.olapServerQueueWeights = configurationSource.getString(OLAP_SERVER_QUEUE_WEIGHTS, DEFAULT_OLAP_SERVER_QUEUE_WEIGHTS);
     }
 }
@@ -51,9 +51,20 @@ public class OperationConfiguration implements ConfigurationDefault {
     public static final String THREAD_POOL_MAX_SIZE = "splice.threadPool.maxSize";
     private static final int DEFAULT_THREAD_POOL_MAX_SIZE = 256;
 
+    /**
+     * Sequences which hand out the values of a block quickly allocate larger blocks, up to this size, so that
+     * they are not held up allocating a block at a time. Blocks shrink back to splice.sequence.allocationBlockSize
+     * when values are taken slowly again.
+     *
+     * Defaults to 100000
+     */
+    public static final String SEQUENCE_MAX_BLOCK_SIZE = "splice.sequence.maxAllocationBlockSize";
+    private static final int DEFAULT_SEQUENCE_MAX_BLOCK_SIZE = 100000;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.sequenceBlockSize = configurationSource.getInt(SEQUENCE_BLOCK_SIZE, DEFAULT_SEQUENCE_BLOCK_SIZE);
         builder.threadPoolMaxSize = configurationSource.getInt(THREAD_POOL_MAX_SIZE, DEFAULT_THREAD_POOL_MAX_SIZE);
+        builder.sequenceMaxBlockSize = configurationSource.getInt(SEQUENCE_MAX_BLOCK_SIZE, DEFAULT_SEQUENCE_MAX_BLOCK_SIZE);
     }
 }
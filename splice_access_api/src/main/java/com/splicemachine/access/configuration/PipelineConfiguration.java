@@ -165,6 +165,34 @@ public class PipelineConfiguration implements ConfigurationDefault {
     private static final int DEFAULT_REGION_TOLOAD_PER_TASK = 30;
 
 
+    /**
+     * If true, the write count limits of the write pipeline (splice.client.write.maxDependentWrites and
+     * splice.client.write.maxIndependentWrites) are treated as ceilings, and the limits actually enforced
+     * adapt to the latency of the writes being performed. Rejected writers are also told how long to wait
+     * before retrying; nodes of earlier versions can't read that hint, so only enable this once every node
+     * has been upgraded. Defaults to false.
+     */
+    public static final String ADAPTIVE_WRITE_CONTROL = "splice.client.write.adaptiveControl";
+    private static final boolean DEFAULT_ADAPTIVE_WRITE_CONTROL = false;
+
+    /**
+     * If true, results streamed from Spark to the query client are sent in blocks of up to
+     * spark.result.streaming.batch.size rows, encoded by column and compressed, rather than row by row.
+     * Defaults to false
+     */
+    public static final String SPARK_RESULT_STREAMING_COLUMNAR = "spark.result.streaming.columnar";
+    private static final boolean DEFAULT_SPARK_RESULT_STREAMING_COLUMNAR = false;
+
+    /**
+     * The number of parent keys which foreign key checks remember for each transaction writing to a child table,
+     * so that child rows which reference the same parent key again don't look it up again. Set to 0 to look up
+     * every parent key.
+     *
+     * Defaults to 65536
+     */
+    public static final String FOREIGN_KEY_PARENT_KEY_CACHE_SIZE = "splice.foreignKey.parentKeyCacheSize";
+    private static final int DEFAULT_FOREIGN_KEY_PARENT_KEY_CACHE_SIZE = 65536;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.maxIndependentWriteThreads = configurationSource.getInt(MAX_INDEPENDENT_WRITE_THREADS, DEFAULT_MAX_INDEPENDENT_WRITE_THREADS);
@@ -193,5 +221,8 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.bulkImportSampleFraction = configurationSource.getDouble(BULK_IMPORT_SAMPLE_FRACTION, DEFAULT_BULK_IMPORT_SAMPLE_FRACTION);
         builder.bulkImportTasksPerRegion = configurationSource.getInt(BULK_IMPORT_TASKS_PER_REGION, DEFAULT_BULK_IMPORT_TASKS_PER_REGION);
         builder.regionToLoadPerTask = configurationSource.getInt(REGION_TOLOAD_PER_TASK, DEFAULT_REGION_TOLOAD_PER_TASK);
+        builder.adaptiveWriteControl = configurationSource.getBoolean(ADAPTIVE_WRITE_CONTROL, DEFAULT_ADAPTIVE_WRITE_CONTROL);
+        builder.sparkResultStreamingColumnar = configurationSource.getBoolean(SPARK_RESULT_STREAMING_COLUMNAR, DEFAULT_SPARK_RESULT_STREAMING_COLUMNAR);
+        builder.foreignKeyParentKeyCacheSize = configurationSource.getInt(FOREIGN_KEY_PARENT_KEY_CACHE_SIZE, DEFAULT_FOREIGN_KEY_PARENT_KEY_CACHE_SIZE);
     }
 }
@@ -185,6 +185,7 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  long broadcastRegionMbThreshold;
     private final  long broadcastRegionRowThreshold;
     private final  long broadcastDatasetCostThreshold;
+    private final  boolean broadcastJoinCompactTable;
     private final  long optimizerPlanMaximumTimeout;
     private final  long optimizerPlanMinimumTimeout;
     private final  long determineSparkRowThreshold;
@@ -194,6 +195,25 @@ public final class SConfigurationImpl implements SConfiguration {
     private final int nestedLoopJoinBatchSize;
     private final long controlExecutionRowLimit;
     private final int maxCheckTableErrors;
+    private final boolean ddlScopedCacheBlocking;
+    private final int foreignKeyParentKeyCacheSize;
+    private final int sequenceMaxBlockSize;
+    private final int controlExecutionSharedScanBufferRows;
+    private final boolean controlExecutionSharedScans;
+    private final int controlExecutionProbesPerScan;
+    private final int indexInitialBatchSize;
+    private final boolean sparkResultStreamingColumnar;
+    private final String olapServerQueueWeights;
+    private final String olapServerUserWeights;
+    private final long writeStatisticsFlushInterval;
+    private final boolean primitiveGroupedAggregation;
+    private final boolean columnarAggregation;
+    private final boolean timestampClientBatchRequests;
+    private final boolean adaptiveWriteControl;
+    private final String controlExecutionSpillDirectory;
+    private final long controlExecutionSortMemory;
+    private final boolean broadcastJoinKeyFilter;
+    private final double broadcastJoinMaxMemoryFraction;
 
     // StatsConfiguration
     private final  double fallbackNullFraction;
@@ -703,6 +723,10 @@ public final class SConfigurationImpl implements SConfiguration {
         return broadcastDatasetCostThreshold;
     }
     @Override
+    public boolean getBroadcastJoinCompactTable() {
+        return broadcastJoinCompactTable;
+    }
+    @Override
     public long getOptimizerPlanMaximumTimeout() {
         return optimizerPlanMaximumTimeout;
     }
@@ -893,6 +917,7 @@ public final class SConfigurationImpl implements SConfiguration {
         broadcastRegionMbThreshold = builder.broadcastRegionMbThreshold;
         broadcastRegionRowThreshold = builder.broadcastRegionRowThreshold;
         broadcastDatasetCostThreshold = builder.broadcastDatasetCostThreshold;
+        broadcastJoinCompactTable = builder.broadcastJoinCompactTable;
         optimizerPlanMaximumTimeout = builder.optimizerPlanMaximumTimeout;
         optimizerPlanMinimumTimeout = builder.optimizerPlanMinimumTimeout;
         determineSparkRowThreshold = builder.determineSparkRowThreshold;
@@ -953,6 +978,25 @@ public final class SConfigurationImpl implements SConfiguration {
         rollForwardSecondWait = builder.rollForwardSecondWait;
         rollForwardFirstThreads = builder.rollForwardFirstThreads;
         rollForwardSecondThreads = builder.rollForwardSecondThreads;
+        broadcastJoinMaxMemoryFraction = builder.broadcastJoinMaxMemoryFraction;
+        broadcastJoinKeyFilter = builder.broadcastJoinKeyFilter;
+        controlExecutionSortMemory = builder.controlExecutionSortMemory;
+        controlExecutionSpillDirectory = builder.controlExecutionSpillDirectory;
+        adaptiveWriteControl = builder.adaptiveWriteControl;
+        timestampClientBatchRequests = builder.timestampClientBatchRequests;
+        columnarAggregation = builder.columnarAggregation;
+        primitiveGroupedAggregation = builder.primitiveGroupedAggregation;
+        writeStatisticsFlushInterval = builder.writeStatisticsFlushInterval;
+        olapServerUserWeights = builder.olapServerUserWeights;
+        olapServerQueueWeights = builder.olapServerQueueWeights;
+        sparkResultStreamingColumnar = builder.sparkResultStreamingColumnar;
+        indexInitialBatchSize = builder.indexInitialBatchSize;
+        controlExecutionProbesPerScan = builder.controlExecutionProbesPerScan;
+        controlExecutionSharedScans = builder.controlExecutionSharedScans;
+        controlExecutionSharedScanBufferRows = builder.controlExecutionSharedScanBufferRows;
+        sequenceMaxBlockSize = builder.sequenceMaxBlockSize;
+        foreignKeyParentKeyCacheSize = builder.foreignKeyParentKeyCacheSize;
+        ddlScopedCacheBlocking = builder.ddlScopedCacheBlocking;
     }
 
     private static final Logger LOG = Logger.getLogger("splice.config");
@@ -1050,4 +1094,99 @@ public final class SConfigurationImpl implements SConfiguration {
     public int getMaxCheckTableErrors() {
         return maxCheckTableErrors;
     }
+
+    @Override
+    public double getBroadcastJoinMaxMemoryFraction() {
+        return broadcastJoinMaxMemoryFraction;
+    }
+
+    @Override
+    public boolean getBroadcastJoinKeyFilter() {
+        return broadcastJoinKeyFilter;
+    }
+
+    @Override
+    public long getControlExecutionSortMemory() {
+        return controlExecutionSortMemory;
+    }
+
+    @Override
+    public String getControlExecutionSpillDirectory() {
+        return controlExecutionSpillDirectory;
+    }
+
+    @Override
+    public boolean getAdaptiveWriteControl() {
+        return adaptiveWriteControl;
+    }
+
+    @Override
+    public boolean getTimestampClientBatchRequests() {
+        return timestampClientBatchRequests;
+    }
+
+    @Override
+    public boolean getColumnarAggregation() {
+        return columnarAggregation;
+    }
+
+    @Override
+    public boolean getPrimitiveGroupedAggregation() {
+        return primitiveGroupedAggregation;
+    }
+
+    @Override
+    public long getWriteStatisticsFlushInterval() {
+        return writeStatisticsFlushInterval;
+    }
+
+    @Override
+    public String getOlapServerUserWeights() {
+        return olapServerUserWeights;
+    }
+
+    @Override
+    public String getOlapServerQueueWeights() {
+        return olapServerQueueWeights;
+    }
+
+    @Override
+    public boolean getSparkResultStreamingColumnar() {
+        return sparkResultStreamingColumnar;
+    }
+
+    @Override
+    public int getIndexInitialBatchSize() {
+        return indexInitialBatchSize;
+    }
+
+    @Override
+    public int getControlExecutionProbesPerScan() {
+        return controlExecutionProbesPerScan;
+    }
+
+    @Override
+    public boolean getControlExecutionSharedScans() {
+        return controlExecutionSharedScans;
+    }
+
+    @Override
+    public int getControlExecutionSharedScanBufferRows() {
+        return controlExecutionSharedScanBufferRows;
+    }
+
+    @Override
+    public int getSequenceMaxBlockSize() {
+        return sequenceMaxBlockSize;
+    }
+
+    @Override
+    public int getForeignKeyParentKeyCacheSize() {
+        return foreignKeyParentKeyCacheSize;
+    }
+
+    @Override
+    public boolean getDdlScopedCacheBlocking() {
+        return ddlScopedCacheBlocking;
+    }
 }
@@ -30,7 +30,7 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final byte[] CONGLOMERATE_TABLE_NAME_BYTES = Bytes.toBytes(CONGLOMERATE_TABLE_NAME);
 
     public static final String completedTxnCacheSize="splice.txn.completedTxns.cacheSize";
-    private static final int DEFAULT_COMPLETED_TRANSACTION_CACHE_SIZE=1<<17; // want to hold lots of completed transactions
+    private static final int DEFAULT_COMPLETED_TRANSACTION_CACHE_SIZE=1<<19; // want to hold lots of completed transactions (~64 bytes each)
 
     public static final String completedTxnConcurrency="splice.txn.completedTxns.concurrency";
     private static final int DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY=64;
@@ -107,6 +107,15 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String TIMESTAMP_CLIENT_WAIT_TIME = "splice.timestamp_server.clientWaitTime";
     private static final int DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME = 60000;
 
+    /**
+     * If true, the timestamp client coalesces concurrent requests for timestamps into a single request
+     * for a range of timestamps, when the timestamp server supports it. Servers which don't are detected
+     * when the client connects, and are sent one request per timestamp as before.
+     * Defaults to false
+     */
+    public static final String TIMESTAMP_CLIENT_BATCH_REQUESTS = "splice.timestamp_server.clientBatchRequests";
+    private static final boolean DEFAULT_TIMESTAMP_CLIENT_BATCH_REQUESTS = false;
+
     /**
      * The Port to bind the Timestamp Server connection to
      * Defaults to 60012
@@ -202,5 +211,6 @@ public class SIConfigurations implements ConfigurationDefault {
         builder.rollForwardSecondWait  = configurationSource.getInt(ROLLFORWARD_SECOND_WAIT, DEFAULT_ROLLFORWARD_SECOND_WAIT);
         builder.rollForwardFirstThreads  = configurationSource.getInt(ROLLFORWARD_FIRST_THREADS, DEFAULT_ROLLFORWARD_FIRST_THREADS);
         builder.rollForwardSecondThreads = configurationSource.getInt(ROLLFORWARD_SECOND_THREADS, DEFAULT_ROLLFORWARD_SECOND_THREADS);
+        builder.timestampClientBatchRequests = configurationSource.getBoolean(TIMESTAMP_CLIENT_BATCH_REQUESTS, DEFAULT_TIMESTAMP_CLIENT_BATCH_REQUESTS);
     }
 }
@@ -228,6 +228,106 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String MAX_CHECK_TABLE_ERRORS="splice.max.checktable.error";
     private static final int DEFAULT_MAX_CHECK_TABLE_ERRORS = 1000;
 
+    /**
+     * If true, the inner side of a broadcast join is held in a compact, byte-encoded hash table
+     * instead of a map of cloned rows. Rows are decoded only when they are probed, which greatly
+     * reduces heap usage and GC pressure for large build sides. Joins on keys which can't be
+     * compared in encoded form fall back to the row map. A session can override this for its own
+     * queries with the broadcastJoinCompactTable session property.
+     *
+     * Defaults to false
+     */
+    public static final String BROADCAST_JOIN_COMPACT_TABLE = "splice.broadcastJoin.compactTable";
+    private static final boolean DEFAULT_BROADCAST_JOIN_COMPACT_TABLE = false;
+
+    /**
+     * The fraction of the maximum heap which may be held by cached broadcast join tables.
+     * When loading the inner side of a broadcast join would exceed this limit, the load is
+     * abandoned; in control mode the query is then resubmitted to Spark, where the join
+     * runs as a merge-sort join instead.
+     *
+     * Defaults to 0.25
+     */
+    public static final String BROADCAST_JOIN_MAX_MEMORY_FRACTION = "splice.broadcastJoin.maxMemoryFraction";
+    private static final double DEFAULT_BROADCAST_JOIN_MAX_MEMORY_FRACTION = 0.25d;
+
+    /**
+     * If true, a table scan on the outer side of an inner broadcast join discards rows whose join keys
+     * are not in the Bloom filter built from the inner side, before they are passed up to the join.
+     * Defaults to true
+     */
+    public static final String BROADCAST_JOIN_KEY_FILTER = "splice.broadcastJoin.keyFilter";
+    private static final boolean DEFAULT_BROADCAST_JOIN_KEY_FILTER = true;
+
+    /**
+     * The estimated heap, in bytes, which a single sort or grouping in control mode may buffer.
+     * Beyond this, sorted runs are encoded and spilled to local temporary files, and merged
+     * when the results are read. Defaults to 256MB.
+     */
+    public static final String CONTROL_EXECUTION_SORT_MEMORY = "splice.controlExecution.sortMemory";
+    private static final long DEFAULT_CONTROL_EXECUTION_SORT_MEMORY = 256L*1024*1024;
+
+    /**
+     * The local directory to which control-mode sorts spill their sorted runs. If not set,
+     * the JVM's temporary directory (java.io.tmpdir) is used.
+     */
+    public static final String CONTROL_EXECUTION_SPILL_DIRECTORY = "splice.controlExecution.spillDirectory";
+    private static final String DEFAULT_CONTROL_EXECUTION_SPILL_DIRECTORY = null;
+
+    /**
+     * If true, control-side scalar and single-key grouped aggregates directly over a table scan decode
+     * the scanned columns into primitive column vectors and aggregate them in batches, rather than
+     * materializing a row of DataValueDescriptors for every row scanned. Only aggregates and predicates
+     * over numeric columns qualify; everything else falls back to the row path.
+     *
+     * Defaults to false
+     */
+    public static final String CONTROL_EXECUTION_COLUMNAR_AGGREGATION = "splice.controlExecution.columnarAggregation";
+    private static final boolean DEFAULT_CONTROL_EXECUTION_COLUMNAR_AGGREGATION = false;
+
+    /**
+     * Whether control execution groups the rows of a grouped aggregate in a hash table of primitive
+     * keys and aggregates, when the grouping columns and aggregates allow it.
+     *
+     * Defaults to false
+     */
+    public static final String CONTROL_EXECUTION_PRIMITIVE_GROUPED_AGGREGATION = "splice.controlExecution.primitiveGroupedAggregation";
+    private static final boolean DEFAULT_CONTROL_EXECUTION_PRIMITIVE_GROUPED_AGGREGATION = false;
+
+    /**
+     * The number of index rows in the first bulk fetch of an index lookup.
+     *
+     * Index lookups start with small fetches, so that queries which only need the first few rows
+     * do not fetch thousands, and double the size of each fetch as the rows are consumed, up to
+     * splice.index.batchSize. Likewise, they start with a single fetch in flight, and add another
+     * (up to splice.index.numConcurrentLookups) whenever the rows are consumed faster than they
+     * are fetched. Set this to splice.index.batchSize to always fetch full batches.
+     *
+     * Defaults to 128
+     */
+    public static final String INDEX_INITIAL_BATCH_SIZE = "splice.index.initialBatchSize";
+    private static final int DEFAULT_INDEX_INITIAL_BATCH_SIZE = 128;
+
+    /**
+     * The largest number of IN-list probes which control execution scans together, one after the other, in a
+     * single task. The probes are sorted by key and grouped by region, and each group is split into tasks of at most
+     * this many probes, which run in parallel. Defaults to 256
+     */
+    public static final String CONTROL_EXECUTION_PROBES_PER_SCAN = "splice.controlExecution.probesPerScan";
+    private static final int DEFAULT_CONTROL_EXECUTION_PROBES_PER_SCAN = 256;
+
+    /**
+     * Whether concurrent control execution scans of the same table may share a single scan of the table, each\nreading the rows the others have already fetched. Only full scans of tables without a primary key are shared,\nby read only transactions which started before the shared scan did. A scan which joins a shared scan that is\nalready under way reads the rows it missed at the end, so it returns the rows out of order. Defaults to false
+     */
+    public static final String CONTROL_EXECUTION_SHARED_SCANS = "splice.controlExecution.sharedScans";
+    private static final boolean DEFAULT_CONTROL_EXECUTION_SHARED_SCANS = false;
+
+    /**
+     * The number of rows a shared scan keeps for the slowest of the scans reading from it. A scan which falls further\nbehind than this stops sharing, and reads the rest of the table on its own. Defaults to 65536
+     */
+    public static final String CONTROL_EXECUTION_SHARED_SCAN_BUFFER_ROWS = "splice.controlExecution.sharedScanBufferRows";
+    private static final int DEFAULT_CONTROL_EXECUTION_SHARED_SCAN_BUFFER_ROWS = 65536;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         // FIXME: JC - some of these are not referenced anywhere outside. Do we need them?
@@ -258,6 +358,7 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.broadcastRegionMbThreshold = configurationSource.getLong(BROADCAST_REGION_MB_THRESHOLD, DEFAULT_BROADCAST_REGION_MB_THRESHOLD);
         builder.broadcastRegionRowThreshold = configurationSource.getLong(BROADCAST_REGION_ROW_THRESHOLD, DEFAULT_BROADCAST_REGION_ROW_THRESHOLD);
         builder.broadcastDatasetCostThreshold = configurationSource.getLong(BROADCAST_DATASET_COST_THRESHOLD, DEFAULT_BROADCAST_DATASET_COST_THRESHOLD);
+        builder.broadcastJoinCompactTable = configurationSource.getBoolean(BROADCAST_JOIN_COMPACT_TABLE, DEFAULT_BROADCAST_JOIN_COMPACT_TABLE);
 
         //always disable debug statements by default
         builder.debugLogStatementContext = configurationSource.getBoolean(DEBUG_LOG_STATEMENT_CONTEXT, DEFAULT_LOG_STATEMENT_CONTEXT);
@@ -273,5 +374,15 @@ public class SQLConfiguration implements ConfigurationDefault {
 
         builder.networkBindAddress = configurationSource.getString(NETWORK_BIND_ADDRESS, DEFAULT_NETWORK_BIND_ADDRESS);
         builder.maxCheckTableErrors = configurationSource.getInt(MAX_CHECK_TABLE_ERRORS, DEFAULT_MAX_CHECK_TABLE_ERRORS);
+        builder.broadcastJoinMaxMemoryFraction = configurationSource.getDouble(BROADCAST_JOIN_MAX_MEMORY_FRACTION, DEFAULT_BROADCAST_JOIN_MAX_MEMORY_FRACTION);
+        builder.broadcastJoinKeyFilter = configurationSource.getBoolean(BROADCAST_JOIN_KEY_FILTER, DEFAULT_BROADCAST_JOIN_KEY_FILTER);
+        builder.controlExecutionSortMemory = configurationSource.getLong(CONTROL_EXECUTION_SORT_MEMORY, DEFAULT_CONTROL_EXECUTION_SORT_MEMORY);
+        builder.controlExecutionSpillDirectory = configurationSource.getString(CONTROL_EXECUTION_SPILL_DIRECTORY, DEFAULT_CONTROL_EXECUTION_SPILL_DIRECTORY);
+        builder.columnarAggregation = configurationSource.getBoolean(CONTROL_EXECUTION_COLUMNAR_AGGREGATION, DEFAULT_CONTROL_EXECUTION_COLUMNAR_AGGREGATION);
+        builder.primitiveGroupedAggregation = configurationSource.getBoolean(CONTROL_EXECUTION_PRIMITIVE_GROUPED_AGGREGATION, DEFAULT_CONTROL_EXECUTION_PRIMITIVE_GROUPED_AGGREGATION);
+        builder.indexInitialBatchSize = configurationSource.getInt(INDEX_INITIAL_BATCH_SIZE, DEFAULT_INDEX_INITIAL_BATCH_SIZE);
+        builder.controlExecutionProbesPerScan = configurationSource.getInt(CONTROL_EXECUTION_PROBES_PER_SCAN, DEFAULT_CONTROL_EXECUTION_PROBES_PER_SCAN);
+        builder.controlExecutionSharedScans = configurationSource.getBoolean(CONTROL_EXECUTION_SHARED_SCANS, DEFAULT_CONTROL_EXECUTION_SHARED_SCANS);
+        builder.controlExecutionSharedScanBufferRows = configurationSource.getInt(CONTROL_EXECUTION_SHARED_SCAN_BUFFER_ROWS, DEFAULT_CONTROL_EXECUTION_SHARED_SCAN_BUFFER_ROWS);
     }
 }
@@ -124,6 +124,16 @@ public class StatsConfiguration implements ConfigurationDefault {
     public static final String FALLBACK_ROW_WIDTH="splice.statistics.fallbackMinimumRowWidth";
     public static final int DEFAULT_FALLBACK_ROW_WIDTH=170;
 
+    /**
+     * How often (in milliseconds) the rows inserted into and deleted from each region since the
+     * last flush are applied to that region's statistics in SYS.SYSTABLESTATS, so that the
+     * optimizer sees row counts which are roughly current between statistics collections.
+     * Until they are flushed, the optimizer also uses the changes made on its own server.
+     * A value of 0 turns this off, leaving statistics as they were when they were collected.
+     */
+    public static final String WRITE_STATISTICS_FLUSH_INTERVAL = "splice.statistics.writeStatistics.flushInterval";
+    private static final long DEFAULT_WRITE_STATISTICS_FLUSH_INTERVAL = 60*1000;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         // FIXME: JC - some of these are not referenced anywhere outside. Do we need them?
@@ -146,5 +156,6 @@ public class StatsConfiguration implements ConfigurationDefault {
 //        builder.fallbackCardinalityFraction = configurationSource.getDouble(FALLBACK_CARDINALITY_FRACTION, DEFAULT_FALLBACK_CARDINALITY_FRACTION);
 //        builder.fallbackIndexSelectivityFraction = configurationSource.getDouble(FALLBACK_INDEX_SELECTIVITY_FRACTION, DEFAULT_FALLBACK_INDEX_SELECTIVITY_FRACTION);
         builder.optimizerExtraQualifierMultiplier = configurationSource.getDouble(OPTIMIZER_EXTRA_QUALIFIER_MULTIPLIER, DEFAULT_OPTIMIZER_EXTRA_QUALIFIER_MULTIPLIER);
+        builder.writeStatisticsFlushInterval = configurationSource.getLong(WRITE_STATISTICS_FLUSH_INTERVAL, DEFAULT_WRITE_STATISTICS_FLUSH_INTERVAL);
     }
 }
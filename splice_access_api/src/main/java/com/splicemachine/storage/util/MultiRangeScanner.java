@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.storage.util;
+
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.MultiTimeView;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Scans several ranges of a table one after the other, as a single scanner: the rows of the first scan, then
+ * those of the second, and so on.
+ *
+ * Each range is only opened once the previous one is exhausted, and is scanned as a small scan (so that it is
+ * fetched in a single round trip where the storage supports it).
+ */
+@NotThreadSafe
+public class MultiRangeScanner implements DataScanner{
+    private final Partition partition;
+    private final List<DataScan> scans;
+    private final MetricFactory metricFactory;
+    private final MultiTimeView readTime = Metrics.multiTimeView();
+
+    private int nextScan;
+    private DataScanner current;
+    private long bytesOutput;
+    private long rowsFiltered;
+    private long rowsVisited;
+
+    public MultiRangeScanner(Partition partition,List<DataScan> scans,MetricFactory metricFactory){
+        this.partition = partition;
+        this.scans = scans;
+        this.metricFactory = metricFactory;
+    }
+
+    @Override
+    @Nonnull
+    public List<DataCell> next(int limit) throws IOException{
+        while(true){
+            if(current==null){
+                if(nextScan>=scans.size()) return Collections.emptyList();
+                DataScan scan = scans.get(nextScan++);
+                scan.setSmall(true);
+                current = partition.openScanner(scan,metricFactory);
+            }
+            List<DataCell> cells = current.next(limit);
+            if(!cells.isEmpty()) return cells;
+            closeCurrent();
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        closeCurrent();
+        nextScan = scans.size();
+    }
+
+    @Override
+    public Partition getPartition(){
+        return partition;
+    }
+
+    /*Metrics reporting, of the ranges scanned so far*/
+    @Override
+    public TimeView getReadTime(){
+        return readTime;
+    }
+
+    @Override
+    public long getBytesOutput(){
+        return bytesOutput+(current==null?0L:current.getBytesOutput());
+    }
+
+    @Override
+    public long getRowsFiltered(){
+        return rowsFiltered+(current==null?0L:current.getRowsFiltered());
+    }
+
+    @Override
+    public long getRowsVisited(){
+        return rowsVisited+(current==null?0L:current.getRowsVisited());
+    }
+
+    private void closeCurrent() throws IOException{
+        if(current==null) return;
+        try{
+            readTime.update(current.getReadTime());
+            bytesOutput += current.getBytesOutput();
+            rowsFiltered += current.getRowsFiltered();
+            rowsVisited += current.getRowsVisited();
+            current.close();
+        }finally{
+            current = null;
+        }
+    }
+}
@@ -27,6 +27,8 @@ import com.splicemachine.derby.iapi.sql.PropertyManager;
 import com.splicemachine.derby.iapi.sql.execute.DataSetProcessorFactory;
 import com.splicemachine.derby.iapi.sql.execute.OperationManager;
 import com.splicemachine.derby.iapi.sql.olap.OlapClient;
+import com.splicemachine.derby.management.SequenceManagement;
+import com.splicemachine.derby.impl.sql.execute.sequence.SequenceAllocationStatistics;
 import com.splicemachine.derby.impl.sql.execute.sequence.SequenceKey;
 import com.splicemachine.derby.impl.sql.execute.sequence.SpliceSequence;
 import com.splicemachine.management.DatabaseAdministrator;
@@ -46,7 +48,7 @@ public class EngineDriver{
 
     private final Connection internalConnection;
     private final Snowflake uuidGen;
-    private final ResourcePool<SpliceSequence, SequenceKey> sequencePool;
+    private final CachedResourcePool<SpliceSequence, SequenceKey> sequencePool;
     private final DatabaseVersion version;
     private final SConfiguration config;
     private final PartitionLoadWatcher loadWatcher;
@@ -117,6 +119,10 @@ public class EngineDriver{
         return sequencePool;
     }
 
+    public SequenceManagement sequenceManagement(){
+        return new SequenceAllocationStatistics(sequencePool);
+    }
+
     public DatabaseVersion getVersion(){
         return version;
     }
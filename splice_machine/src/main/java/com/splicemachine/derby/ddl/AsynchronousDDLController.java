@@ -79,6 +79,7 @@ public class AsynchronousDDLController implements DDLController, CommunicationLi
 
     @Override
     public String notifyMetadataChange(DDLChange change) throws StandardException {
+        long start = clock.currentTimeMillis();
         String changeId = communicator.createChangeNode(change);
 
         long availableTime =maximumWaitTime;
@@ -90,6 +91,7 @@ public class AsynchronousDDLController implements DDLController, CommunicationLi
             finishedServers = communicator.completedListeners(changeId,this);
             if (finishedServers.containsAll(activeServers)) {
                 // everybody responded, leave loop
+                DDLPropagationStatistics.statistics().propagated(clock.currentTimeMillis()-start);
                 return changeId;
             }
 
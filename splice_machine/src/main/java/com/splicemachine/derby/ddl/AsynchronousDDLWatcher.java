@@ -69,7 +69,8 @@ public class AsynchronousDDLWatcher implements DDLWatcher,CommunicationListener{
         this.refresher = new DDLWatchRefresher(checker,
                 txnController,
                 exceptionFactory,
-                txnSupplier );
+                txnSupplier,
+                config.getDdlScopedCacheBlocking());
     }
 
     @Override
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.ddl;
+
+import com.splicemachine.derby.management.DDLPropagationManagement;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the DDL changes this server applies and makes, and how long they take to reach every server.
+ */
+public class DDLPropagationStatistics implements DDLPropagationManagement{
+    private static final DDLPropagationStatistics statistics=new DDLPropagationStatistics();
+
+    private final AtomicLong refreshes=new AtomicLong(0l);
+    private final AtomicLong refreshNanos=new AtomicLong(0l);
+    private final AtomicLong changesApplied=new AtomicLong(0l);
+    private final AtomicLong largestBatch=new AtomicLong(0l);
+    private final AtomicLong scopedChanges=new AtomicLong(0l);
+    private final AtomicLong changesPropagated=new AtomicLong(0l);
+    private final AtomicLong propagationMillis=new AtomicLong(0l);
+    private final AtomicLong maxPropagationMillis=new AtomicLong(0l);
+
+    DDLPropagationStatistics(){ }
+
+    public static DDLPropagationStatistics statistics(){
+        return statistics;
+    }
+
+    void refreshed(int changes,long nanos){
+        refreshes.incrementAndGet();
+        refreshNanos.addAndGet(nanos);
+        changesApplied.addAndGet(changes);
+        max(largestBatch,changes);
+    }
+
+    void scopedChange(){
+        scopedChanges.incrementAndGet();
+    }
+
+    void propagated(long millis){
+        changesPropagated.incrementAndGet();
+        propagationMillis.addAndGet(millis);
+        max(maxPropagationMillis,millis);
+    }
+
+    @Override public long getRefreshes(){ return refreshes.get(); }
+    @Override public long getRefreshTime(){ return TimeUnit.NANOSECONDS.toMillis(refreshNanos.get()); }
+    @Override public long getChangesApplied(){ return changesApplied.get(); }
+    @Override public long getLargestBatch(){ return largestBatch.get(); }
+    @Override public long getScopedChanges(){ return scopedChanges.get(); }
+    @Override public long getChangesPropagated(){ return changesPropagated.get(); }
+    @Override public long getMaxPropagationTime(){ return maxPropagationMillis.get(); }
+
+    @Override
+    public double getAveragePropagationTime(){
+        long propagated=changesPropagated.get();
+        return propagated==0?0d:((double)propagationMillis.get())/propagated;
+    }
+
+    private static void max(AtomicLong max,long value){
+        long current=max.get();
+        while(value>current && !max.compareAndSet(current,value)){
+            current=max.get();
+        }
+    }
+}
@@ -17,7 +17,9 @@ package com.splicemachine.derby.ddl;
 import com.splicemachine.ddl.DDLMessage.*;
 import com.splicemachine.utils.Pair;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * @author Scott Fines
@@ -31,6 +33,21 @@ public interface DDLWatchChecker{
 
     DDLChange getChange(String changeId) throws IOException;
 
+    /**
+     * Reads several changes at once.
+     *
+     * @return the changes which still exist, in no particular order
+     */
+    default Collection<DDLChange> getChanges(Collection<String> changeIds) throws IOException{
+        List<DDLChange> changes=new ArrayList<>(changeIds.size());
+        for(String changeId : changeIds){
+            DDLChange change=getChange(changeId);
+            if(change!=null) //another thread took care of this for us
+                changes.add(change);
+        }
+        return changes;
+    }
+
     void notifyProcessed(Collection<Pair<DDLChange,String>> processedChanges) throws IOException;
 
     void killDDLTransaction(String key);
@@ -44,6 +44,13 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public class DDLWatchRefresher{
     private static final Logger LOG=Logger.getLogger(DDLWatchRefresher.class);
+    private static final Comparator<DDLChange> CHANGE_ORDER=new Comparator<DDLChange>(){
+        @Override
+        public int compare(DDLChange c1,DDLChange c2){
+            int compare=Long.compare(c1.getTxnId(),c2.getTxnId());
+            return compare!=0?compare:c1.getChangeId().compareTo(c2.getChangeId());
+        }
+    };
     private final Set<String> seenDDLChanges;
     private final Set<String> changeTimeouts;
     private final Map<String, DDLChange> currentDDLChanges;
@@ -54,12 +61,28 @@ public class DDLWatchRefresher{
     private final AtomicInteger currChangeCount= new AtomicInteger(0);
     private final SqlExceptionFactory exceptionFactory;
     private final TxnSupplier txnSupplier;
+    private final boolean scopedCacheBlocking;
+    /*root transaction of each ongoing change which only blocks cache writes for its own transaction*/
+    private final Map<String, Long> scopedChanges;
 
 
     public DDLWatchRefresher(DDLWatchChecker watchChecker,
                              TransactionReadController txnController,
                              SqlExceptionFactory exceptionFactory,
                              TxnSupplier txnSupplier){
+        this(watchChecker,txnController,exceptionFactory,txnSupplier,false);
+    }
+
+    /**
+     * @param scopedCacheBlocking if {@code true}, ongoing changes which create a new table or schema only
+     *                            keep the transaction which makes them from writing to the dictionary cache,
+     *                            rather than every transaction
+     */
+    public DDLWatchRefresher(DDLWatchChecker watchChecker,
+                             TransactionReadController txnController,
+                             SqlExceptionFactory exceptionFactory,
+                             TxnSupplier txnSupplier,
+                             boolean scopedCacheBlocking){
         this.txController = txnController;
         this.seenDDLChanges=new ConcurrentHashSet<>();
         this.changeTimeouts=new ConcurrentHashSet<>();
@@ -68,6 +91,8 @@ public class DDLWatchRefresher{
         this.watchChecker=watchChecker;
         this.exceptionFactory =exceptionFactory;
         this.txnSupplier = txnSupplier;
+        this.scopedCacheBlocking = scopedCacheBlocking;
+        this.scopedChanges=new ConcurrentHashMap<>();
         ddlDemarcationPoint = new AtomicReference<>();
     }
 
@@ -80,6 +105,7 @@ public class DDLWatchRefresher{
     }
 
     public boolean refreshDDL(Set<DDLWatcher.DDLListener> callbacks) throws IOException{
+        long start=System.nanoTime();
         Collection<String> ongoingDDLChangeIds=watchChecker.getCurrentChangeIds();
         if(ongoingDDLChangeIds==null) return false;
 
@@ -92,23 +118,30 @@ public class DDLWatchRefresher{
             throw exceptionFactory.asIOException(se);
         }
 
+        /*
+         * Read all the changes we haven't seen yet in one batch, and apply them in the order in which
+         * their transactions began, so that a burst of DDL costs a single refresh cycle.
+         */
+        Set<String> unseen=new LinkedHashSet<>();
         for(String changeId : ongoingDDLChangeIds){
-            if(!seenDDLChanges.contains(changeId)){
-                DDLChange change=watchChecker.getChange(changeId);
-                if(change==null)continue; //another thread took care of this for us
-
-                //inform the server of the first time we see this change
-                String cId=change.getChangeId();
-                changeTimeouts.add(cId);
-                SpliceLogUtils.info(LOG,"New change with id=%s, and change=%s",changeId,change);
-                try {
-                    processPreCommitChange(change, callbacks);
-                    seenDDLChanges.add(changeId);
-                    newChanges.add(new Pair<DDLChange, String>(change,null));
-                } catch (Exception e) {
-                    LOG.error("Encountered an exception processing DDL change",e);
-                    newChanges.add(new Pair<>(change,e.getLocalizedMessage()));
-                }
+            if(!seenDDLChanges.contains(changeId))
+                unseen.add(changeId);
+        }
+        List<DDLChange> changes=unseen.isEmpty()?Collections.<DDLChange>emptyList():new ArrayList<>(watchChecker.getChanges(unseen));
+        Collections.sort(changes,CHANGE_ORDER);
+
+        for(DDLChange change : changes){
+            //inform the server of the first time we see this change
+            String cId=change.getChangeId();
+            changeTimeouts.add(cId);
+            SpliceLogUtils.info(LOG,"New change with id=%s, and change=%s",cId,change);
+            try {
+                processPreCommitChange(change, callbacks);
+                seenDDLChanges.add(cId);
+                newChanges.add(new Pair<DDLChange, String>(change,null));
+            } catch (Exception e) {
+                LOG.error("Encountered an exception processing DDL change",e);
+                newChanges.add(new Pair<>(change,e.getLocalizedMessage()));
             }
         }
 
@@ -137,6 +170,7 @@ public class DDLWatchRefresher{
             }
         }
 
+        DDLPropagationStatistics.statistics().refreshed(changes.size(),System.nanoTime()-start);
         return true;
     }
 
@@ -157,7 +191,7 @@ public class DDLWatchRefresher{
     }
 
     public boolean canWriteCache(TransactionManager xact_mgr) {
-        return cacheIsValid() && canSeeDDLDemarcationPoint(xact_mgr);
+        return cacheIsValid() && canSeeDDLDemarcationPoint(xact_mgr) && !makesScopedChange(xact_mgr);
     }
 
     public boolean canReadCache(TransactionManager xact_mgr) {
@@ -172,7 +206,12 @@ public class DDLWatchRefresher{
                                         Collection<DDLWatcher.DDLListener> ddlListeners) throws StandardException {
         if (LOG.isTraceEnabled())
             LOG.trace("processPreCommitChanges -> " + ddlChange);
-        currChangeCount.incrementAndGet();
+        Long rootTxnId=scopedCacheBlocking && isScoped(ddlChange)?scopeOf(ddlChange):null;
+        if(rootTxnId!=null){
+            scopedChanges.put(ddlChange.getChangeId(),rootTxnId);
+            DDLPropagationStatistics.statistics().scopedChange();
+        }else
+            currChangeCount.incrementAndGet();
         tentativeDDLS.put(ddlChange.getChangeId(),ddlChange);
         for(DDLWatcher.DDLListener listener:ddlListeners){
             listener.startChange(ddlChange);
@@ -192,7 +231,8 @@ public class DDLWatchRefresher{
                 LOG.info("Removing change with id " + entry);
                 changeTimeouts.remove(entry);
                 currentDDLChanges.remove(entry);
-                currChangeCount.decrementAndGet();
+                if(scopedChanges.remove(entry)==null)
+                    currChangeCount.decrementAndGet();
                 DDLChange ddlChange = tentativeDDLS.remove(entry);
                 iterator.remove();
                 if(ddlChange!=null){
@@ -233,7 +273,10 @@ public class DDLWatchRefresher{
         Iterator<String> timeoutsIter = changeTimeouts.iterator();
         while(timeoutsIter.hasNext()){
             String changeId = timeoutsIter.next();
-            DDLChange ddlChange = watchChecker.getChange(changeId);
+            //we keep the changes we are still waiting on, so only go back to the checker for those we lost track of
+            DDLChange ddlChange = tentativeDDLS.get(changeId);
+            if(ddlChange==null)
+                ddlChange = watchChecker.getChange(changeId);
             if (ddlChange != null && isTimeout(ddlChange)) {
                 SpliceLogUtils.info(LOG, "DDLChange %s timed out.", ddlChange);
                 watchChecker.killDDLTransaction(changeId);
@@ -273,6 +316,51 @@ public class DDLWatchRefresher{
         return currChangeCount.get() ==0;
     }
 
+    /**
+     * A new table or schema can't be seen by any other transaction until the change commits, at which point
+     * the demarcation point keeps older transactions away from the cache. Until then, only the transaction
+     * making the change has to stay off the cache.
+     */
+    private static boolean isScoped(DDLChange ddlChange){
+        switch(ddlChange.getDdlChangeType()){
+            case CREATE_TABLE:
+            case CREATE_SCHEMA:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Long scopeOf(DDLChange ddlChange){
+        try{
+            return rootTxnId(new LazyTxnView(ddlChange.getTxnId(),txnSupplier,exceptionFactory));
+        }catch(Exception e){
+            //block every transaction instead
+            LOG.warn("Unable to find the root transaction of DDL change "+ddlChange.getChangeId(),e);
+            return null;
+        }
+    }
+
+    private static long rootTxnId(TxnView txn){
+        TxnView parent=txn.getParentTxnView();
+        while(parent!=null && parent.getTxnId()>=0){
+            txn=parent;
+            parent=parent.getParentTxnView();
+        }
+        return txn.getTxnId();
+    }
+
+    private boolean makesScopedChange(TransactionManager xact_mgr){
+        if(scopedChanges.isEmpty()) return false;
+        try{
+            TxnView txn=((SpliceTransactionManager)xact_mgr).getActiveStateTxn();
+            return txn==null || scopedChanges.containsValue(rootTxnId(txn));
+        }catch(Exception e){
+            // Stay on the safe side, assume it's making the change
+            return true;
+        }
+    }
+
     private boolean canSeeDDLDemarcationPoint(TransactionManager xact_mgr) {
         try {
             // If the transaction is older than the latest DDL operation (can't see it), bypass the cache
@@ -52,7 +52,8 @@ public class SynchronousDDLWatcher implements DDLWatcher, CommunicationListener{
         this.refresher=new DDLWatchRefresher(checker,
                 txnController,
                 exceptionFactory,
-                txnSupplier);
+                txnSupplier,
+                config.getDdlScopedCacheBlocking());
     }
 
     @Override
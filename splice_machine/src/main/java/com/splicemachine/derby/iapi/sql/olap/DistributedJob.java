@@ -28,6 +28,19 @@ import java.util.concurrent.Callable;
  */
 public abstract class DistributedJob implements Serializable{
 
+    /**
+     * The order in which the distributed server runs queued jobs: all queued jobs of a higher priority
+     * run before any of a lower one.
+     */
+    public enum Priority{
+        /** A query which a user is waiting on */
+        INTERACTIVE,
+        /** Bulk work, like populating an index or loading data */
+        BATCH,
+        /** Background maintenance, like compactions */
+        COMPACTION
+    }
+
     private UUID uuid;
     private boolean submitted = false;
 
@@ -41,6 +54,25 @@ public abstract class DistributedJob implements Serializable{
 
     public abstract String getName();
 
+    public Priority getPriority(){
+        return Priority.BATCH;
+    }
+
+    /**
+     * @return the user the job is run for, to share the distributed server fairly between users, or {@code null}
+     * if it is not run for any particular user
+     */
+    public String getUser(){
+        return null;
+    }
+
+    /**
+     * @return the queue (Spark scheduler pool) the job is run in, or {@code null} for the default one
+     */
+    public String getQueue(){
+        return null;
+    }
+
     public final String getUniqueName() {
         return getName() + "-" + uuid.toString();
     }
@@ -92,6 +92,10 @@ public class SpliceDatabase extends BasicDatabase{
             startParams.put("derby.language.logStatementText", Boolean.toString(config.debugLogStatementContext()));
         }
 
+        if (System.getProperty(Property.LANG_PARTSTAT_CACHE_EXPIRATION) == null) {
+            startParams.put(Property.LANG_PARTSTAT_CACHE_EXPIRATION, Long.toString(config.getPartitionCacheExpiration()));
+        }
+
         if (config.debugDumpClassFile()) {
             System.setProperty("com.splicemachine.enableLegacyAsserts",Boolean.TRUE.toString());
             SanityManager.DEBUG_SET("DumpClassFile");
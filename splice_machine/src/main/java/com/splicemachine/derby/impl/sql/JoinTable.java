@@ -28,6 +28,12 @@ public interface JoinTable extends AutoCloseable{
 
     interface Factory{
         JoinTable newTable();
+
+        /**
+         * @return an estimate of the heap retained by the tables created by this factory,
+         * used to account for the memory held by cached join tables.
+         */
+        long getEstimatedSizeInBytes();
     }
 
     Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException;
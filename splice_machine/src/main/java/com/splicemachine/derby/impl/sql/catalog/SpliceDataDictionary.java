@@ -426,8 +426,12 @@ public class SpliceDataDictionary extends DataDictionaryImpl{
             SIDriver siDriver =SIDriver.driver();
             PartitionFactory partFactory = siDriver.getTableFactory();
             TxnOperationFactory txnOpFactory = siDriver.getOperationFactory();
+            SConfiguration config=siDriver.getConfiguration();
             return EngineDriver.driver().sequencePool().
-                    get(new SequenceKey(sequenceRowLocationBytes,useBatch?SIDriver.driver().getConfiguration().getSequenceBlockSize():1l,start,increment,partFactory,txnOpFactory));
+                    get(new SequenceKey(sequenceRowLocationBytes,
+                            useBatch?config.getSequenceBlockSize():1l,
+                            useBatch?config.getSequenceMaxBlockSize():1l,
+                            start,increment,partFactory,txnOpFactory));
         }catch(Exception e){
             throw Exceptions.parseException(e);
         }
@@ -14,9 +14,14 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.sql.conn.ResubmitDistributedException;
+import com.splicemachine.derby.management.BroadcastJoinCacheManagement;
+import org.apache.log4j.Logger;
 import org.spark_project.guava.cache.Cache;
 import org.spark_project.guava.cache.CacheBuilder;
+import org.spark_project.guava.cache.RemovalListener;
+import org.spark_project.guava.cache.RemovalNotification;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
@@ -28,45 +33,194 @@ import java.util.Iterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a Cache of records for use in a Broadcast Join.
  *
+ * The cache tracks the estimated size of each loaded table, and refuses to load a table which
+ * would push the total over its memory limit (by throwing a {@link BroadcastJoinMemoryExceededException}).
+ * Tables reserve their memory as their rows are loaded, so that concurrent loads can't together
+ * exceed the limit.
+ *
+ * Each operation chooses whether its table is loaded in the compact (encoded) layout, so tables are
+ * cached by operation and layout.
+ *
  * @author Scott Fines
  *         Date: 10/27/15
  */
-public class BroadcastJoinCache{
-    private final Cache<Long,ReferenceCountingFactory> cache;
-    private final JoinTableLoader tableLoader;
+public class BroadcastJoinCache implements BroadcastJoinCacheManagement{
+    private static final Logger LOG=Logger.getLogger(BroadcastJoinCache.class);
+    private static final BroadcastJoinCache INSTANCE = new BroadcastJoinCache();
+
+    private final Cache<TableKey,ReferenceCountingFactory> cache;
+    /*Tables which were evicted before they were closed, to detect rebuilds*/
+    private final Cache<TableKey,Boolean> evicted;
+    private final JoinTableLoader rowLoader;
+    private final JoinTableLoader compactLoader;
+    private final AtomicLong cachedBytes = new AtomicLong(0L);
+    private final AtomicLong rebuilds = new AtomicLong(0L);
+    private final AtomicLong rejectedLoads = new AtomicLong(0L);
+    private final AtomicLong keyFilterSkippedRows = new AtomicLong(0L);
+    private volatile long maxBytes;
 
     interface JoinTableLoader{
+        /**
+         * @param reservation the memory the loaded table may use. The loader grows the reservation
+         *                    as it adds rows; if the reservation can't be grown, a
+         *                    {@link BroadcastJoinMemoryExceededException} is thrown.
+         */
         JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,
                                int[] innerHashKeys,
                                int[] outerHashKeys,
-                               ExecRow outerTemplateRow) throws Exception;
+                               ExecRow outerTemplateRow,
+                               MemoryReservation reservation) throws Exception;
+    }
+
+    /**
+     * The memory reserved by a single table load, out of a total shared by every load.
+     */
+    static class MemoryReservation{
+        private final AtomicLong usedBytes;
+        private final long maxBytes;
+        private long reservedBytes;
+
+        /**
+         * @param maxBytes the most memory the reservation may grow to, when it isn't shared.
+         */
+        MemoryReservation(long maxBytes){
+            this(new AtomicLong(0L),maxBytes);
+        }
+
+        MemoryReservation(AtomicLong usedBytes,long maxBytes){
+            this.usedBytes=usedBytes;
+            this.maxBytes=maxBytes;
+        }
+
+        /**
+         * Grow the reservation to {@code totalBytes}, if it isn't that large already.
+         *
+         * @throws BroadcastJoinMemoryExceededException if the shared total would exceed the limit
+         */
+        void reserveTotal(long totalBytes) throws BroadcastJoinMemoryExceededException{
+            long needed=totalBytes-reservedBytes;
+            if(needed<=0) return;
+            long used;
+            do{
+                used=usedBytes.get();
+                if(needed>maxBytes-used)
+                    throw new BroadcastJoinMemoryExceededException(maxBytes);
+            }while(!usedBytes.compareAndSet(used,used+needed));
+            reservedBytes=totalBytes;
+        }
+
+        /**
+         * Shrink the reservation to exactly {@code totalBytes}, which it must already cover.
+         */
+        void trimTo(long totalBytes){
+            assert totalBytes<=reservedBytes: "Cannot trim a reservation of "+reservedBytes+" to "+totalBytes;
+            usedBytes.addAndGet(totalBytes-reservedBytes);
+            reservedBytes=totalBytes;
+        }
+
+        void release(){
+            trimTo(0L);
+        }
+
+        long getMaxBytes(){
+            return maxBytes;
+        }
+    }
+
+    /**
+     * Identifies a cached table: the operation it was loaded for, and the layout it was loaded in.
+     */
+    private static final class TableKey{
+        private final long operationId;
+        private final boolean compact;
+
+        TableKey(long operationId,boolean compact){
+            this.operationId=operationId;
+            this.compact=compact;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof TableKey)) return false;
+            TableKey other=(TableKey)o;
+            return operationId==other.operationId && compact==other.compact;
+        }
+
+        @Override
+        public int hashCode(){
+            return 31*Long.hashCode(operationId)+(compact? 1 : 0);
+        }
+
+        @Override
+        public String toString(){
+            return operationId+(compact? " (compact)" : "");
+        }
+    }
+
+    public static BroadcastJoinCache getInstance(){
+        return INSTANCE;
     }
 
     public BroadcastJoinCache(){
-       this(ValueRowMapTableLoader.INSTANCE);
+       this(ValueRowMapTableLoader.INSTANCE,EncodedRowMapTableLoader.INSTANCE,-1L);
     }
 
-    public BroadcastJoinCache(JoinTableLoader tableLoader){
-        this.tableLoader = tableLoader;
-        this.cache =CacheBuilder.newBuilder()
+    /**
+     * Create a cache which loads every table with the same loader, whatever layout is asked for.
+     */
+    public BroadcastJoinCache(JoinTableLoader tableLoader,long maxBytes){
+        this(tableLoader,tableLoader,maxBytes);
+    }
+
+    /**
+     * @param rowLoader the loader for tables which aren't compact
+     * @param compactLoader the loader for tables which are compact
+     * @param maxBytes the memory limit for cached tables, or a negative number to compute it from
+     *                 {@code splice.broadcastJoin.maxMemoryFraction} when it is first needed.
+     */
+    public BroadcastJoinCache(JoinTableLoader rowLoader,JoinTableLoader compactLoader,long maxBytes){
+        this.rowLoader = rowLoader;
+        this.compactLoader = compactLoader;
+        this.maxBytes = maxBytes;
+        this.evicted = CacheBuilder.newBuilder()
                 .maximumSize(1000)
+                .expireAfterWrite(10,TimeUnit.MINUTES)
+                .build();
+        this.cache =CacheBuilder.newBuilder()
                 .expireAfterAccess(2,TimeUnit.SECONDS)
-                .softValues()
+                .removalListener(new RemovalListener<TableKey, ReferenceCountingFactory>(){
+                    @Override
+                    public void onRemoval(RemovalNotification<TableKey, ReferenceCountingFactory> notification){
+                        ReferenceCountingFactory factory=notification.getValue();
+                        if(factory==null) return;
+                        cachedBytes.addAndGet(-factory.size);
+                        if(notification.wasEvicted() && factory.refCount.get()>0)
+                            evicted.put(notification.getKey(),Boolean.TRUE);
+                    }
+                })
+                .recordStats()
                 .build();
     }
 
+    /**
+     * @param compactTable whether the table should be loaded in the compact (encoded) layout
+     */
     public JoinTable.Factory get(Long operationId,
+                         boolean compactTable,
                          Callable<Stream<ExecRow>> loader,
                          int[] rightHashKeys,
                          int[] leftHashKeys,
                          ExecRow leftTemplateRow) throws IOException, StandardException{
         try{
-            Loader callable=new Loader(operationId,tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
-            ReferenceCountingFactory joinTable=cache.get(operationId,callable);
+            TableKey key=new TableKey(operationId,compactTable);
+            Loader callable=new Loader(key,compactTable?compactLoader:rowLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
+            ReferenceCountingFactory joinTable=cache.get(key,callable);
             joinTable.refCount.incrementAndGet();
             return joinTable;
         }catch(Exception e){
@@ -81,6 +235,41 @@ public class BroadcastJoinCache{
         }
     }
 
+    /**
+     * @return the key filter for the table currently loaded for {@code operationId}, or {@code null}
+     * if no table is loaded or its keys don't support filtering.
+     */
+    public BroadcastJoinKeyFilter getKeyFilter(long operationId){
+        //go through the map view, so that scans don't count as cache hits or misses
+        ReferenceCountingFactory factory=cache.asMap().get(new TableKey(operationId,false));
+        if(factory==null)
+            factory=cache.asMap().get(new TableKey(operationId,true));
+        return factory==null? null : factory.keyFilter;
+    }
+
+    public void recordKeyFilterSkippedRows(long rows){
+        keyFilterSkippedRows.addAndGet(rows);
+    }
+
+    @Override public long getHitCount(){ return cache.stats().hitCount(); }
+    @Override public long getMissCount(){ return cache.stats().missCount(); }
+    @Override public long getRebuildCount(){ return rebuilds.get(); }
+    @Override public long getRejectedLoadCount(){ return rejectedLoads.get(); }
+    @Override public long getCachedTableCount(){ return cache.size(); }
+    @Override public long getCachedBytes(){ return cachedBytes.get(); }
+    @Override public long getKeyFilterSkippedRows(){ return keyFilterSkippedRows.get(); }
+
+    @Override
+    public long getMaxBytes(){
+        long max = maxBytes;
+        if(max<0){
+            double fraction = EngineDriver.driver().getConfiguration().getBroadcastJoinMaxMemoryFraction();
+            max = (long)(Runtime.getRuntime().maxMemory()*fraction);
+            maxBytes = max;
+        }
+        return max;
+    }
+
     private class Loader implements Callable<ReferenceCountingFactory>{
         private final JoinTableLoader loader;
         private final int[] innerHashKeys;
@@ -88,16 +277,16 @@ public class BroadcastJoinCache{
         private final ExecRow outerTemplateRow;
         private final Callable<Stream<ExecRow>> streamLoader;
 
-        private final Long operationId;
+        private final TableKey key;
 
-        public Loader(Long operationId,
+        public Loader(TableKey key,
                       JoinTableLoader loader,
                       int[] innerHashKeys,
                       int[] outerHashKeys,
                       ExecRow outerTemplateRow,
                       Callable<Stream<ExecRow>> streamLoader){
             this.loader=loader;
-            this.operationId=operationId;
+            this.key=key;
             this.innerHashKeys=innerHashKeys;
             this.outerHashKeys=outerHashKeys;
             this.outerTemplateRow=outerTemplateRow;
@@ -106,8 +295,34 @@ public class BroadcastJoinCache{
 
         @Override
         public ReferenceCountingFactory call() throws Exception {
-            JoinTable.Factory load=loader.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
-            return new ReferenceCountingFactory(load,operationId);
+            if(evicted.getIfPresent(key)!=null){
+                evicted.invalidate(key);
+                rebuilds.incrementAndGet();
+            }
+            MemoryReservation reservation = new MemoryReservation(cachedBytes,getMaxBytes());
+            BroadcastJoinKeyFilter.Builder keyFilter = new BroadcastJoinKeyFilter.Builder(innerHashKeys,outerHashKeys,outerTemplateRow);
+            Callable<Stream<ExecRow>> keyFilteringLoader = () -> streamLoader.call().transform(row -> {
+                keyFilter.add(row);
+                return row;
+            });
+            boolean loaded = false;
+            try{
+                JoinTable.Factory load=loader.load(keyFilteringLoader,innerHashKeys,outerHashKeys,outerTemplateRow,reservation);
+                ReferenceCountingFactory factory=new ReferenceCountingFactory(load,key,keyFilter.build());
+                //the removal listener releases exactly the factory's size, so reserve exactly that much
+                reservation.reserveTotal(factory.size);
+                reservation.trimTo(factory.size);
+                loaded = true;
+                return factory;
+            }catch(BroadcastJoinMemoryExceededException me){
+                rejectedLoads.incrementAndGet();
+                LOG.warn("Broadcast join table for operation "+key+" would exceed the "
+                        +me.getMaxBytes()+" byte limit of the broadcast join cache");
+                throw me;
+            }finally{
+                if(!loaded)
+                    reservation.release();
+            }
         }
     }
 
@@ -139,12 +354,16 @@ public class BroadcastJoinCache{
 
     private class ReferenceCountingFactory implements JoinTable.Factory{
         private final JoinTable.Factory delegate;
-        private final Long id;
+        private final TableKey id;
+        private final BroadcastJoinKeyFilter keyFilter;
+        private final long size;
         private AtomicInteger refCount = new AtomicInteger(0);
 
-        public ReferenceCountingFactory(JoinTable.Factory delegate,Long id){
+        public ReferenceCountingFactory(JoinTable.Factory delegate,TableKey id,BroadcastJoinKeyFilter keyFilter){
             this.delegate=delegate;
             this.id=id;
+            this.keyFilter=keyFilter;
+            this.size=delegate.getEstimatedSizeInBytes()+(keyFilter==null? 0 : keyFilter.getSizeInBytes());
         }
 
         @Override
@@ -152,6 +371,11 @@ public class BroadcastJoinCache{
             return new ReferenceCountedJoinTable(delegate.newTable(),this);
         }
 
+        @Override
+        public long getEstimatedSizeInBytes(){
+            return size;
+        }
+
         public void markClosed(){
             int refC=refCount.decrementAndGet();
             if(refC<=0)
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.CollationElementsInterface;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+import java.util.Arrays;
+
+/**
+ * A Bloom filter over the join keys of the inner side of a broadcast join.
+ *
+ * The filter is built while the inner table is loaded into the {@link BroadcastJoinCache}, and
+ * is probed by the table scan on the outer side of an inner join, so that rows which cannot
+ * find a match are dropped by the scanner instead of being passed up to the join.
+ *
+ * Keys are hashed with {@link DataValueDescriptor#hashCode()}, the same as the join table itself,
+ * so the filter is only built when both sides of every key have the same type and that type has
+ * a hash code which is consistent with equality.
+ */
+public class BroadcastJoinKeyFilter{
+    private static final int BITS_PER_KEY = 10;
+    private static final int NUM_HASHES = 7;
+
+    private final long[] bits;
+    private final int mask;
+
+    private BroadcastJoinKeyFilter(long[] bits){
+        this.bits=bits;
+        this.mask=bits.length*64-1;
+    }
+
+    /**
+     * @return true if a row with the same keys as {@code row} may be in the inner table. Rows
+     * with a null key never join, so they always return false.
+     */
+    public boolean mightContain(ExecRow row,int[] keyColumns){
+        DataValueDescriptor[] fields=row.getRowArray();
+        for(int keyColumn : keyColumns){
+            DataValueDescriptor dvd=fields[keyColumn];
+            if(dvd==null || dvd.isNull())
+                return false;
+        }
+        long hash=mix(hash(fields,keyColumns));
+        int h1=(int)hash;
+        int h2=(int)(hash>>>32);
+        for(int i=0;i<NUM_HASHES;i++){
+            int bit=(h1+i*h2)&mask;
+            if((bits[bit>>>6]&(1L<<bit))==0)
+                return false;
+        }
+        return true;
+    }
+
+    public long getSizeInBytes(){
+        return 16L+bits.length*8L;
+    }
+
+    static int hash(DataValueDescriptor[] fields,int[] keyColumns){
+        int result=1;
+        for(int keyColumn : keyColumns){
+            DataValueDescriptor dvd=fields[keyColumn];
+            result=31*result+(dvd==null || dvd.isNull()? 0 : dvd.hashCode());
+        }
+        return result;
+    }
+
+    /*murmur3 fmix64, to spread the 32-bit key hash over the two hashes used for probing*/
+    private static long mix(int hash){
+        long k=hash;
+        k^=k>>>33;
+        k*=0xff51afd7ed558ccdL;
+        k^=k>>>33;
+        k*=0xc4ceb9fe1a85ec53L;
+        k^=k>>>33;
+        return k;
+    }
+
+    static boolean supportsKeys(ExecRow innerRow,int[] innerHashKeys,ExecRow outerRow,int[] outerHashKeys){
+        if(outerRow==null || innerHashKeys.length==0 || innerHashKeys.length!=outerHashKeys.length)
+            return false;
+        DataValueDescriptor[] innerFields=innerRow.getRowArray();
+        DataValueDescriptor[] outerFields=outerRow.getRowArray();
+        for(int i=0;i<innerHashKeys.length;i++){
+            DataValueDescriptor inner=innerFields[innerHashKeys[i]];
+            DataValueDescriptor outer=outerFields[outerHashKeys[i]];
+            if(inner==null || outer==null)
+                return false;
+            int typeFormatId=inner.getTypeFormatId();
+            if(typeFormatId!=outer.getTypeFormatId())
+                return false;
+            switch(typeFormatId){
+                case StoredFormatIds.SQL_CHAR_ID:
+                case StoredFormatIds.SQL_VARCHAR_ID:
+                    //collated strings can be equal without having equal hash codes
+                    if(inner instanceof CollationElementsInterface || outer instanceof CollationElementsInterface)
+                        return false;
+                    break;
+                case StoredFormatIds.SQL_BOOLEAN_ID:
+                case StoredFormatIds.SQL_TINYINT_ID:
+                case StoredFormatIds.SQL_SMALLINT_ID:
+                case StoredFormatIds.SQL_INTEGER_ID:
+                case StoredFormatIds.SQL_LONGINT_ID:
+                case StoredFormatIds.SQL_DATE_ID:
+                case StoredFormatIds.SQL_TIME_ID:
+                case StoredFormatIds.SQL_TIMESTAMP_ID:
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the key hashes of the inner rows as they are loaded. If the keys of the first
+     * row don't support filtering, nothing is collected and no filter is built.
+     */
+    static class Builder{
+        private final int[] innerHashKeys;
+        private final int[] outerHashKeys;
+        private final ExecRow outerTemplateRow;
+        private int[] hashes=new int[1024];
+        private int size;
+        private boolean supported=true;
+
+        Builder(int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow){
+            this.innerHashKeys=innerHashKeys;
+            this.outerHashKeys=outerHashKeys;
+            this.outerTemplateRow=outerTemplateRow;
+        }
+
+        void add(ExecRow row){
+            if(!supported)
+                return;
+            if(size==0 && !supportsKeys(row,innerHashKeys,outerTemplateRow,outerHashKeys)){
+                supported=false;
+                hashes=null;
+                return;
+            }
+            if(size==hashes.length)
+                hashes=Arrays.copyOf(hashes,size*2);
+            hashes[size++]=hash(row.getRowArray(),innerHashKeys);
+        }
+
+        /**
+         * @return the filter, or {@code null} if the keys don't support filtering.
+         */
+        BroadcastJoinKeyFilter build(){
+            if(!supported)
+                return null;
+            long numBits=Math.max(64L,(long)size*BITS_PER_KEY);
+            //round up to a power of two so that we can mask instead of mod
+            int words=(int)Math.min(1<<24,Long.highestOneBit(numBits-1)<<1>>>6);
+            BroadcastJoinKeyFilter filter=new BroadcastJoinKeyFilter(new long[Math.max(1,words)]);
+            for(int i=0;i<size;i++){
+                long hash=mix(hashes[i]);
+                int h1=(int)hash;
+                int h2=(int)(hash>>>32);
+                for(int j=0;j<NUM_HASHES;j++){
+                    int bit=(h1+j*h2)&filter.mask;
+                    filter.bits[bit>>>6]|=1L<<bit;
+                }
+            }
+            hashes=null;
+            return filter;
+        }
+    }
+}
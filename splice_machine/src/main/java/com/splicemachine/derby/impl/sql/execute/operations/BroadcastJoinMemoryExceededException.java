@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.conn.ResubmitDistributedException;
+
+/**
+ * Thrown when loading the inner side of a broadcast join would exceed the memory
+ * available to the {@link BroadcastJoinCache}.
+ *
+ * In control mode this causes the query to be resubmitted to Spark, where the join
+ * is performed as a merge-sort join instead of a broadcast.
+ */
+public class BroadcastJoinMemoryExceededException extends ResubmitDistributedException{
+    private final long maxBytes;
+
+    public BroadcastJoinMemoryExceededException(long maxBytes){
+        super();
+        this.maxBytes=maxBytes;
+    }
+
+    public long getMaxBytes(){
+        return maxBytes;
+    }
+}
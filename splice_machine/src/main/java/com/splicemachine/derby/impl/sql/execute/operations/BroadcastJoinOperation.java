@@ -28,6 +28,7 @@ import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.loader.GeneratedMethod;
 import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.conn.SessionProperties;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.utils.SpliceLogUtils;
@@ -108,6 +109,12 @@ public class BroadcastJoinOperation extends JoinOperation{
     protected int[] rightHashKeys;
     protected List<ExecRow> rights;
     protected long sequenceId;
+    /*set when the right side didn't fit in the broadcast join cache, so the join must not be broadcast*/
+    protected boolean broadcastMemoryExceeded;
+    /*whether the right side is cached in its compact (encoded) layout, chosen where the query was submitted*/
+    protected boolean compactJoinTable;
+    /*set when compactJoinTable was chosen from this server's session, rather than shipped with the operation*/
+    private transient boolean compactJoinTableChosenLocally;
     protected static final String NAME = BroadcastJoinOperation.class.getSimpleName().replaceAll("Operation","");
 
 	@Override
@@ -142,6 +149,7 @@ public class BroadcastJoinOperation extends JoinOperation{
         this.rightHashKeyItem=rightHashKeyItem;
         this.sequenceId = Bytes.toLong(operationInformation.getUUIDGenerator().nextBytes());
         init();
+        chooseCompactJoinTable();
     }
 
     @Override
@@ -151,18 +159,30 @@ public class BroadcastJoinOperation extends JoinOperation{
         leftHashKeyItem=in.readInt();
         rightHashKeyItem=in.readInt();
         sequenceId = in.readLong();
+        broadcastMemoryExceeded = in.readBoolean();
+        compactJoinTable = in.readBoolean();
     }
 
     public long getSequenceId() {
         return sequenceId;
     }
 
+    /**
+     * Record that the right side of this join is too large to broadcast. When the query is
+     * resubmitted to Spark, the join will be performed with a (sort merge) Spark join instead.
+     */
+    public void markBroadcastMemoryExceeded() {
+        broadcastMemoryExceeded = true;
+    }
+
     @Override
     public void writeExternal(ObjectOutput out) throws IOException{
         super.writeExternal(out);
         out.writeInt(leftHashKeyItem);
         out.writeInt(rightHashKeyItem);
         out.writeLong(sequenceId);
+        out.writeBoolean(broadcastMemoryExceeded);
+        out.writeBoolean(compactJoinTable);
     }
 
     @Override
@@ -172,6 +192,32 @@ public class BroadcastJoinOperation extends JoinOperation{
         rightHashKeys = generateHashKeys(rightHashKeyItem);
     }
 
+    @Override
+    public void reset() {
+        super.reset();
+        // pick up session changes when a statement is executed again on the server it was submitted to
+        if (compactJoinTableChosenLocally)
+            chooseCompactJoinTable();
+    }
+
+    /**
+     * Choose the layout of the cached right side from the session's {@code broadcastJoinCompactTable}
+     * property, falling back to {@code splice.broadcastJoin.compactTable} when the session hasn't set it.
+     * The choice is serialized with the operation, since the session properties don't travel with it.
+     */
+    private void chooseCompactJoinTable() {
+        Boolean sessionCompactTable = (Boolean) activation.getLanguageConnectionContext().getSessionProperties()
+                .getProperty(SessionProperties.PROPERTYNAME.BROADCASTJOINCOMPACTTABLE);
+        compactJoinTable = sessionCompactTable != null ? sessionCompactTable
+                : EngineDriver.driver().getConfiguration().getBroadcastJoinCompactTable();
+        compactJoinTableChosenLocally = true;
+    }
+
+    @Override
+    public boolean isCompactJoinTable() {
+        return compactJoinTable;
+    }
+
     @Override
     public SpliceOperation getLeftOperation(){
         return leftResultSet;
@@ -183,6 +229,15 @@ public class BroadcastJoinOperation extends JoinOperation{
             throw new IllegalStateException("Operation is not open");
 
         OperationContext operationContext = dsp.createOperationContext(this);
+        SConfiguration configuration= EngineDriver.driver().getConfiguration();
+
+        /*
+         * For inner joins, rows on the left which aren't in the right side's key filter can't join,
+         * so have the left scan drop them before they are passed up to us.
+         */
+        if (configuration.getBroadcastJoinKeyFilter() && !isOuterJoin && !notExistsRightSide && !rightFromSSQ &&
+                leftHashKeys.length != 0 && leftResultSet.getClass() == TableScanOperation.class)
+            ((TableScanOperation) leftResultSet).setJoinKeyFilter(sequenceId, leftHashKeys);
         DataSet<ExecRow> leftDataSet = leftResultSet.getDataSet(dsp);
 
 //        operationContext.pushScope();
@@ -191,9 +246,7 @@ public class BroadcastJoinOperation extends JoinOperation{
             SpliceLogUtils.debug(LOG, "getDataSet Performing BroadcastJoin type=%s, antiJoin=%s, hasRestriction=%s",
                 isOuterJoin ? "outer" : "inner", notExistsRightSide, restriction != null);
 
-        SConfiguration configuration= EngineDriver.driver().getConfiguration();
-
-        boolean useDataset = SpliceClient.isClient() ||
+        boolean useDataset = SpliceClient.isClient() || broadcastMemoryExceeded ||
                 rightResultSet.getEstimatedCost() / 1000 > configuration.getBroadcastDatasetCostThreshold() ||
                         rightResultSet.accessExternalTable();
         /** For semi-join, it is possible that the right side is a result from complex operations, like a sequence
@@ -222,16 +275,16 @@ public class BroadcastJoinOperation extends JoinOperation{
                 (restriction ==null || (!isOuterJoin && !notExistsRightSide))) {
             DataSet<ExecRow> rightDataSet = rightResultSet.getDataSet(dsp);
             if (isOuterJoin)
-                result = leftDataSet.join(operationContext,rightDataSet, DataSet.JoinType.LEFTOUTER,true);
+                result = leftDataSet.join(operationContext,rightDataSet, DataSet.JoinType.LEFTOUTER,!broadcastMemoryExceeded);
             else if (notExistsRightSide)
-                result = leftDataSet.join(operationContext,rightDataSet, DataSet.JoinType.LEFTANTI,true);
+                result = leftDataSet.join(operationContext,rightDataSet, DataSet.JoinType.LEFTANTI,!broadcastMemoryExceeded);
 
             else { // Inner Join
                 if (isOneRowRightSide()) {
-                    result = leftDataSet.join(operationContext,rightDataSet, DataSet.JoinType.LEFTSEMI,true)
+                    result = leftDataSet.join(operationContext,rightDataSet, DataSet.JoinType.LEFTSEMI,!broadcastMemoryExceeded)
                             .filter(new JoinRestrictionPredicateFunction(operationContext));
                 } else {
-                    result = leftDataSet.join(operationContext,rightDataSet, DataSet.JoinType.INNER,true)
+                    result = leftDataSet.join(operationContext,rightDataSet, DataSet.JoinType.INNER,!broadcastMemoryExceeded)
                             .filter(new JoinRestrictionPredicateFunction(operationContext));
 
                 }
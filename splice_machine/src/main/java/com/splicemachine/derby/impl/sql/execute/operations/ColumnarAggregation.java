@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.FormatableBitSet;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.PrimitiveAggregates.Kind;
+import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarBatch;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarQualifier;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A plan for computing the aggregates of an aggregate operation directly over the column vectors
+ * of its table scan, in control execution.
+ *
+ * The plan applies when the aggregate reads a projection (without restriction) of a base table scan,
+ * every aggregate is a non-distinct COUNT of a numeric column or SUM, MIN or MAX of an integral or
+ * DOUBLE column, the aggregation is scalar or grouped on a single integral column, and every scan qualifier compares a numeric
+ * column with a constant. The scan then decodes only the referenced columns into a
+ * {@link ColumnarBatch}, the qualifiers are evaluated over the vectors, and the aggregates are
+ * accumulated into primitive arrays, without materializing a row per scanned record.
+ *
+ * The result is one initialized, unfinished aggregate row per group, which the rest of the
+ * aggregate operation merges and finishes as it would any other partial aggregate.
+ */
+public class ColumnarAggregation{
+    private static final Logger LOG=Logger.getLogger(ColumnarAggregation.class);
+
+    private final GenericAggregateOperation op;
+    private final SpliceGenericAggregator[] aggregates;
+    private final Kind[] kinds;
+    private final int[] inputColumns;
+    private final int groupColumn;
+    private final int groupRowColumn;
+    private final int[] formatIds;
+    private final ColumnarQualifier[][] qualifiers;
+
+    private ColumnarAggregation(GenericAggregateOperation op,
+                                Kind[] kinds,
+                                int[] inputColumns,
+                                int groupColumn,
+                                int groupRowColumn,
+                                int[] formatIds,
+                                ColumnarQualifier[][] qualifiers){
+        this.op=op;
+        this.aggregates=op.aggregates;
+        this.kinds=kinds;
+        this.inputColumns=inputColumns;
+        this.groupColumn=groupColumn;
+        this.groupRowColumn=groupRowColumn;
+        this.formatIds=formatIds;
+        this.qualifiers=qualifiers;
+    }
+
+    /**
+     * @param op the aggregate operation
+     * @param groupingKeys the (0-based) positions of the grouping columns in the source row, or null
+     *                     for a scalar aggregate
+     * @return the plan, or null if the aggregation can't be computed over column vectors
+     */
+    public static ColumnarAggregation plan(GenericAggregateOperation op,int[] groupingKeys) throws StandardException{
+        if(!(op.source instanceof ProjectRestrictOperation))
+            return null;
+        ProjectRestrictOperation pr=(ProjectRestrictOperation)op.source;
+        if(pr.restrictionMethodName!=null || pr.constantRestrictionMethodName!=null)
+            return null;
+        if(pr.getSource()==null || pr.getSource().getClass()!=TableScanOperation.class)
+            return null;
+        TableScanOperation scan=(TableScanOperation)pr.getSource();
+        if(scan.indexName!=null || scan.rowIdKey || scan.storedAs!=null || scan.joinKeyFilterColumns!=null)
+            return null;
+        FormatableBitSet accessedPks=scan.scanInformation.getAccessedPkColumns();
+        if(accessedPks!=null && accessedPks.getNumBitsSet()>0)
+            return null;
+        if(groupingKeys!=null && groupingKeys.length!=1)
+            return null;
+
+        ExecRow template=scan.currentTemplate;
+        int[] formatIds=new int[template.nColumns()];
+        Arrays.fill(formatIds,-1);
+
+        int groupColumn=-1;
+        int groupRowColumn=-1;
+        if(groupingKeys!=null){
+            groupColumn=scanColumn(pr,groupingKeys[0]+1);
+            if(groupColumn<0 || !ColumnarBatch.isIntegral(template.getColumn(groupColumn+1).getTypeFormatId()))
+                return null;
+            formatIds[groupColumn]=template.getColumn(groupColumn+1).getTypeFormatId();
+            groupRowColumn=groupingKeys[0]+1;
+        }
+
+        SpliceGenericAggregator[] aggregates=op.aggregates;
+        Kind[] kinds=new Kind[aggregates.length];
+        int[] inputColumns=new int[aggregates.length];
+        for(int i=0;i<aggregates.length;i++){
+            Kind kind=PrimitiveAggregates.kind(aggregates[i].getAggregatorInfo());
+            if(kind==null)
+                return null;
+            kinds[i]=kind;
+            if(kind==Kind.COUNT_STAR){
+                inputColumns[i]=-1;
+                continue;
+            }
+            int column=scanColumn(pr,aggregates[i].getInputColumnId());
+            if(column<0)
+                return null;
+            int formatId=template.getColumn(column+1).getTypeFormatId();
+            if(!ColumnarBatch.isSupported(formatId) || (kind!=Kind.COUNT && !PrimitiveAggregates.isSupportedInput(formatId)))
+                return null;
+            formatIds[column]=formatId;
+            inputColumns[i]=column;
+        }
+
+        ColumnarQualifier[][] qualifiers=null;
+        Qualifier[][] scanQualifiers=scan.scanInformation.getScanQualifiers();
+        if(scanQualifiers!=null){
+            int[] baseColumnMap=scan.getOperationInformation().getBaseColumnMap();
+            qualifiers=new ColumnarQualifier[scanQualifiers.length][];
+            for(int i=0;i<scanQualifiers.length;i++){
+                qualifiers[i]=new ColumnarQualifier[scanQualifiers[i].length];
+                for(int j=0;j<scanQualifiers[i].length;j++){
+                    Qualifier q=scanQualifiers[i][j];
+                    int column=baseColumnMap!=null?baseColumnMap[q.getStoragePosition()]:q.getStoragePosition();
+                    if(column<0 || column>=formatIds.length)
+                        return null;
+                    ColumnarQualifier cq=ColumnarQualifier.create(q,column,template.getColumn(column+1));
+                    if(cq==null)
+                        return null;
+                    formatIds[column]=template.getColumn(column+1).getTypeFormatId();
+                    qualifiers[i][j]=cq;
+                }
+            }
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug("Aggregating "+scan.getTableDisplayName()+" over column vectors "+Arrays.toString(formatIds));
+        return new ColumnarAggregation(op,kinds,inputColumns,groupColumn,groupRowColumn,formatIds,qualifiers);
+    }
+
+    public ColumnarBatch newBatch(){
+        return new ColumnarBatch(ColumnarBatch.DEFAULT_CAPACITY,formatIds);
+    }
+
+    public ColumnarQualifier[][] getQualifiers(){
+        return qualifiers;
+    }
+
+    public Accumulator newAccumulator(){
+        return new Accumulator();
+    }
+
+    /**
+     * The running aggregates of each group, in primitive arrays indexed by group ordinal.
+     */
+    public class Accumulator{
+        private final LongIntHashMap groupOrdinals=new LongIntHashMap();
+        private int nullGroupOrdinal=-1;
+        private long[] groupKeys=new long[16];
+        private int numGroups;
+        private final PrimitiveAggregates state;
+        private int[] ordinals;
+
+        Accumulator(){
+            boolean[] integral=new boolean[aggregates.length];
+            for(int i=0;i<aggregates.length;i++){
+                integral[i]=inputColumns[i]>=0 && ColumnarBatch.isIntegral(formatIds[inputColumns[i]]);
+            }
+            state=new PrimitiveAggregates(aggregates,kinds,integral);
+            if(groupColumn<0)
+                numGroups=1;
+        }
+
+        public void aggregate(ColumnarBatch batch){
+            int selected=batch.selectedCount();
+            if(selected==0)
+                return;
+            int[] selection=batch.selection();
+            if(ordinals==null)
+                ordinals=new int[batch.capacity()];
+            if(groupColumn>=0)
+                assignGroups(batch,selection,selected);
+            for(int i=0;i<selected;i++){
+                state.addRow(ordinals[i]);
+            }
+            for(int a=0;a<aggregates.length;a++){
+                if(kinds[a]==Kind.COUNT_STAR) continue;
+                int column=inputColumns[a];
+                boolean[] nulls=batch.nulls(column);
+                long[] longs=batch.longs(column);
+                if(longs!=null){
+                    for(int i=0;i<selected;i++){
+                        int row=selection[i];
+                        if(!nulls[row])
+                            state.addLong(a,ordinals[i],longs[row]);
+                    }
+                }else{
+                    double[] doubles=batch.doubles(column);
+                    for(int i=0;i<selected;i++){
+                        int row=selection[i];
+                        if(!nulls[row])
+                            state.addDouble(a,ordinals[i],doubles[row]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return an initialized, unfinished aggregate row for each group
+         */
+        public List<ExecRow> finish() throws StandardException{
+            List<ExecRow> rows=new ArrayList<>(numGroups);
+            for(int g=0;g<numGroups;g++){
+                if(state.isEmpty(g)) continue;
+                ExecRow row=op.getSourceExecIndexRow().getClone();
+                if(groupColumn>=0){
+                    DataValueDescriptor key=row.getColumn(groupRowColumn);
+                    if(g==nullGroupOrdinal)
+                        key.setToNull();
+                    else
+                        key.setValue(groupKeys[g]);
+                }
+                state.finish(g,row);
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        private void assignGroups(ColumnarBatch batch,int[] selection,int selected){
+            long[] keys=batch.longs(groupColumn);
+            boolean[] nulls=batch.nulls(groupColumn);
+            for(int i=0;i<selected;i++){
+                int row=selection[i];
+                int ordinal;
+                if(nulls[row]){
+                    if(nullGroupOrdinal<0)
+                        nullGroupOrdinal=newGroup(0L);
+                    ordinal=nullGroupOrdinal;
+                }else{
+                    int slot=groupOrdinals.indexOf(keys[row]);
+                    if(groupOrdinals.indexExists(slot))
+                        ordinal=groupOrdinals.indexGet(slot);
+                    else{
+                        ordinal=newGroup(keys[row]);
+                        groupOrdinals.indexInsert(slot,keys[row],ordinal);
+                    }
+                }
+                ordinals[i]=ordinal;
+            }
+        }
+
+        private int newGroup(long key){
+            int ordinal=numGroups++;
+            state.ensureCapacity(numGroups);
+            if(ordinal==groupKeys.length)
+                groupKeys=Arrays.copyOf(groupKeys,groupKeys.length*2);
+            groupKeys[ordinal]=key;
+            return ordinal;
+        }
+    }
+
+    /**
+     * @return the (0-based) position in the scan's template row of the column read by the projection at
+     * the given (1-based) position, or -1 if the projection computes it
+     */
+    private static int scanColumn(ProjectRestrictOperation pr,int projectedColumn){
+        if(!pr.doesProjection())
+            return projectedColumn-1;
+        if(pr.projectMapping==null || projectedColumn<1 || projectedColumn>pr.projectMapping.length)
+            return -1;
+        int sourceColumn=pr.projectMapping[projectedColumn-1];
+        return sourceColumn>0?sourceColumn-1:-1;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import com.splicemachine.primitives.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * A multi-map from encoded join keys to encoded rows, which keeps all of its data
+ * in a small number of large arrays instead of one object graph per row.
+ *
+ * Entries are appended to fixed-size byte pages using the layout
+ * {@code [keyLength][rowLength][key bytes][row bytes]}. Each entry is addressed by an int
+ * id; the id resolves to a page and offset through {@code addresses}, and entries sharing
+ * the same key are chained through {@code next}. Distinct keys are indexed with an
+ * open-addressing (linear probing) table which stores the head entry id of each chain.
+ *
+ * This class is <em>not</em> thread-safe while it is being built, but is safe to read
+ * from many threads once building has completed.
+ */
+class EncodedRowHashTable{
+    static final int DEFAULT_PAGE_SIZE = 1<<20;
+    private static final int HEADER_SIZE = 2*Integer.BYTES;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int pageSize;
+    private final Hash32 hashFunction = HashFunctions.murmur3(0);
+
+    private byte[][] pages = new byte[4][];
+    private int numPages;
+    private int pagePosition;
+    private long pageBytes;
+
+    private long[] addresses;
+    private int[] next;
+    private int size;
+
+    private int[] slots;
+    private int[] slotHashes;
+    private int mask;
+    private int numKeys;
+
+    EncodedRowHashTable(){
+        this(DEFAULT_PAGE_SIZE,1024);
+    }
+
+    EncodedRowHashTable(int pageSize,int initialKeyCapacity){
+        this.pageSize = pageSize;
+        int capacity = 16;
+        while(capacity*LOAD_FACTOR<initialKeyCapacity){
+            capacity<<=1;
+        }
+        this.slots = new int[capacity];
+        Arrays.fill(slots,-1);
+        this.slotHashes = new int[capacity];
+        this.mask = capacity-1;
+        this.addresses = new long[initialKeyCapacity];
+        this.next = new int[initialKeyCapacity];
+    }
+
+    /**
+     * Add a row to the table under the specified key.
+     */
+    void add(byte[] key,byte[] row){
+        int hash = hashFunction.hash(key,0,key.length);
+        int position = hash & mask;
+        int head;
+        while((head=slots[position])>=0){
+            if(slotHashes[position]==hash && keyEquals(head,key,0,key.length))
+                break;
+            position = (position+1) & mask;
+        }
+
+        int entry = append(key,row);
+        next[entry] = head;
+        slots[position] = entry;
+        if(head<0){
+            slotHashes[position] = hash;
+            numKeys++;
+            if(numKeys>LOAD_FACTOR*slots.length)
+                rehash();
+        }
+    }
+
+    /**
+     * @return the id of the first entry stored under the specified key, or {@code -1}
+     * if no row is stored under that key.
+     */
+    int find(byte[] key,int offset,int length){
+        int hash = hashFunction.hash(key,offset,length);
+        int position = hash & mask;
+        int head;
+        while((head=slots[position])>=0){
+            if(slotHashes[position]==hash && keyEquals(head,key,offset,length))
+                return head;
+            position = (position+1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the id of the next entry sharing the same key as {@code entry}, or {@code -1}
+     * if {@code entry} is the last one.
+     */
+    int next(int entry){
+        return next[entry];
+    }
+
+    byte[] page(int entry){
+        return pages[(int)(addresses[entry]>>>32)];
+    }
+
+    int rowOffset(int entry){
+        int offset = (int)addresses[entry];
+        byte[] page = page(entry);
+        return offset+HEADER_SIZE+readInt(page,offset);
+    }
+
+    int rowLength(int entry){
+        int offset = (int)addresses[entry];
+        return readInt(page(entry),offset+Integer.BYTES);
+    }
+
+    int size(){
+        return size;
+    }
+
+    int numKeys(){
+        return numKeys;
+    }
+
+    /**
+     * @return an estimate of the number of heap bytes retained by this table.
+     */
+    long estimatedSizeInBytes(){
+        return pageBytes
+                +8L*addresses.length
+                +4L*next.length
+                +8L*slots.length;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private int append(byte[] key,byte[] row){
+        int entryLength = HEADER_SIZE+key.length+row.length;
+        if(numPages==0 || pages[numPages-1].length-pagePosition<entryLength)
+            newPage(entryLength);
+        byte[] page = pages[numPages-1];
+        int offset = pagePosition;
+        writeInt(page,offset,key.length);
+        writeInt(page,offset+Integer.BYTES,row.length);
+        System.arraycopy(key,0,page,offset+HEADER_SIZE,key.length);
+        System.arraycopy(row,0,page,offset+HEADER_SIZE+key.length,row.length);
+        pagePosition+=entryLength;
+
+        if(size==addresses.length){
+            int newLength = addresses.length+(addresses.length>>1)+1;
+            addresses = Arrays.copyOf(addresses,newLength);
+            next = Arrays.copyOf(next,newLength);
+        }
+        int entry = size++;
+        addresses[entry] = (((long)(numPages-1))<<32) | offset;
+        return entry;
+    }
+
+    private void newPage(int minSize){
+        if(numPages==pages.length)
+            pages = Arrays.copyOf(pages,2*pages.length);
+        byte[] page = new byte[Math.max(pageSize,minSize)];
+        pages[numPages++] = page;
+        pageBytes+=page.length;
+        pagePosition = 0;
+    }
+
+    private boolean keyEquals(int entry,byte[] key,int offset,int length){
+        int entryOffset = (int)addresses[entry];
+        byte[] page = page(entry);
+        int keyLength = readInt(page,entryOffset);
+        return Bytes.equals(page,entryOffset+HEADER_SIZE,keyLength,key,offset,length);
+    }
+
+    private void rehash(){
+        int[] oldSlots = slots;
+        int[] oldHashes = slotHashes;
+        int newLength = oldSlots.length<<1;
+        slots = new int[newLength];
+        Arrays.fill(slots,-1);
+        slotHashes = new int[newLength];
+        mask = newLength-1;
+        for(int i=0;i<oldSlots.length;i++){
+            if(oldSlots[i]<0) continue;
+            int position = oldHashes[i] & mask;
+            while(slots[position]>=0){
+                position = (position+1) & mask;
+            }
+            slots[position] = oldSlots[i];
+            slotHashes[position] = oldHashes[i];
+        }
+    }
+
+    private static void writeInt(byte[] bytes,int offset,int value){
+        bytes[offset] = (byte)(value>>>24);
+        bytes[offset+1] = (byte)(value>>>16);
+        bytes[offset+2] = (byte)(value>>>8);
+        bytes[offset+3] = (byte)value;
+    }
+
+    private static int readInt(byte[] bytes,int offset){
+        return (bytes[offset] & 0xff)<<24
+                | (bytes[offset+1] & 0xff)<<16
+                | (bytes[offset+2] & 0xff)<<8
+                | (bytes[offset+3] & 0xff);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.EntryDataHash;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.stream.PeekableStream;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+import com.splicemachine.utils.IntArrays;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads the inner side of a broadcast join into an {@link EncodedRowHashTable}, keyed
+ * by the encoded bytes of the join columns.
+ *
+ * Comparing encoded bytes is only equivalent to comparing DataValueDescriptors when both sides
+ * of the join have the same type and the type has exactly one encoding per value (e.g. not
+ * CHAR, which ignores trailing blanks, or DOUBLE, where 0.0 = -0.0). When the join keys don't
+ * satisfy that, the load is delegated to {@link ValueRowMapTableLoader}.
+ */
+@ThreadSafe
+class EncodedRowMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
+    public static BroadcastJoinCache.JoinTableLoader INSTANCE = new EncodedRowMapTableLoader();
+
+    private EncodedRowMapTableLoader(){} //singleton class
+
+    @Override
+    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow,BroadcastJoinCache.MemoryReservation reservation) throws Exception{
+        PeekableStream<ExecRow> innerRows=Streams.peekingStream(streamLoader.call());
+        ExecRow first;
+        try{
+            first=innerRows.peek();
+        }catch(Exception e){
+            innerRows.close();
+            throw getException(e);
+        }
+        if(first!=null && !supportsEncodedKeys(first,innerHashKeys,outerTemplateRow,outerHashKeys)){
+            return ValueRowMapTableLoader.INSTANCE.load(() -> innerRows,innerHashKeys,outerHashKeys,outerTemplateRow,reservation);
+        }
+
+        EncodedRowHashTable table=new EncodedRowHashTable();
+        ExecRow innerTemplate=null;
+        try(Stream<ExecRow> rows=innerRows){
+            DataHash<ExecRow> keyEncoder=null;
+            DataHash<ExecRow> rowEncoder=null;
+            ExecRow right;
+            while((right=rows.next())!=null){
+                if(keyEncoder==null){
+                    innerTemplate=right.getNewNullRow();
+                    DescriptorSerializer[] keySerializers=VersionedSerializers.latestVersion(false).getSerializers(right);
+                    keyEncoder=BareKeyHash.encoder(innerHashKeys,null,keySerializers);
+                    DescriptorSerializer[] rowSerializers=VersionedSerializers.latestVersion(true).getSerializers(right);
+                    rowEncoder=new EntryDataHash(IntArrays.count(right.nColumns()),null,rowSerializers);
+                }
+                keyEncoder.setRow(right);
+                rowEncoder.setRow(right);
+                table.add(keyEncoder.encode(),rowEncoder.encode());
+                reservation.reserveTotal(table.estimatedSizeInBytes());
+            }
+        }catch(Exception e){
+            throw getException(e);
+        }
+
+        return new EncodedRowMappedJoinTable.Factory(table,outerHashKeys,innerTemplate);
+    }
+
+    static boolean supportsEncodedKeys(ExecRow innerRow,int[] innerHashKeys,ExecRow outerRow,int[] outerHashKeys){
+        if(outerRow==null || innerHashKeys.length!=outerHashKeys.length)
+            return false;
+        DataValueDescriptor[] innerFields=innerRow.getRowArray();
+        DataValueDescriptor[] outerFields=outerRow.getRowArray();
+        for(int i=0;i<innerHashKeys.length;i++){
+            DataValueDescriptor inner=innerFields[innerHashKeys[i]];
+            DataValueDescriptor outer=outerFields[outerHashKeys[i]];
+            if(inner==null || outer==null)
+                return false;
+            int typeFormatId=inner.getTypeFormatId();
+            if(typeFormatId!=outer.getTypeFormatId())
+                return false;
+            switch(typeFormatId){
+                case StoredFormatIds.SQL_BOOLEAN_ID:
+                case StoredFormatIds.SQL_TINYINT_ID:
+                case StoredFormatIds.SQL_SMALLINT_ID:
+                case StoredFormatIds.SQL_INTEGER_ID:
+                case StoredFormatIds.SQL_LONGINT_ID:
+                case StoredFormatIds.SQL_DATE_ID:
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private Exception getException(Throwable parent) {
+        if (parent instanceof BroadcastJoinMemoryExceededException)
+            return (Exception)parent;
+        if (parent.getCause() instanceof Exception)
+            return (Exception)parent.getCause();
+        if (parent instanceof Exception)
+            return (Exception)parent;
+        return new ExecutionException(parent);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.EntryDataDecoder;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.utils.IntArrays;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A JoinTable which probes an {@link EncodedRowHashTable}. Inner rows are only decoded
+ * when they are returned from {@link #fetchInner(ExecRow)}, so the build side costs
+ * a few bytes per row rather than a full object graph.
+ */
+class EncodedRowMappedJoinTable implements JoinTable{
+    private final EncodedRowHashTable table;
+    private final int[] outerHashKeys;
+    private final ExecRow innerTemplate;
+
+    private DataHash<ExecRow> outerKeyEncoder;
+    private KeyHashDecoder rowDecoder;
+
+    public EncodedRowMappedJoinTable(EncodedRowHashTable table,int[] outerHashKeys,ExecRow innerTemplate){
+        this.table=table;
+        this.outerHashKeys=outerHashKeys;
+        this.innerTemplate=innerTemplate;
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(table.size()<=0)
+            return Collections.emptyIterator();
+        for(int outerHashKey : outerHashKeys){
+            DataValueDescriptor dvd=outer.getColumn(outerHashKey+1);
+            if(dvd==null || dvd.isNull())
+                return Collections.emptyIterator(); //nulls never join
+        }
+        if(outerKeyEncoder==null){
+            DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(outer);
+            outerKeyEncoder=BareKeyHash.encoder(outerHashKeys,null,serializers);
+        }
+        outerKeyEncoder.setRow(outer);
+        byte[] key=outerKeyEncoder.encode();
+        int entry=table.find(key,0,key.length);
+        if(entry<0)
+            return Collections.emptyIterator();
+        if(rowDecoder==null){
+            DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(true).getSerializers(innerTemplate);
+            rowDecoder=new EntryDataDecoder(IntArrays.count(innerTemplate.nColumns()),null,serializers);
+        }
+        return new DecodingIterator(entry);
+    }
+
+    //nothing to close
+    @Override public void close(){}
+
+    private class DecodingIterator implements Iterator<ExecRow>{
+        private int entry;
+
+        DecodingIterator(int entry){
+            this.entry=entry;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return entry>=0;
+        }
+
+        @Override
+        public ExecRow next(){
+            if(entry<0) throw new NoSuchElementException();
+            ExecRow row=innerTemplate.getNewNullRow();
+            rowDecoder.set(table.page(entry),table.rowOffset(entry),table.rowLength(entry));
+            try{
+                rowDecoder.decode(row);
+            }catch(StandardException e){
+                throw new RuntimeException(e);
+            }
+            entry=table.next(entry);
+            return row;
+        }
+    }
+
+    static class Factory implements JoinTable.Factory{
+        private final EncodedRowHashTable table;
+        private final int[] outerHashKeys;
+        private final ExecRow innerTemplate;
+
+        public Factory(EncodedRowHashTable table,int[] outerHashKeys,ExecRow innerTemplate){
+            this.table=table;
+            this.outerHashKeys=outerHashKeys;
+            this.innerTemplate=innerTemplate;
+        }
+
+        @Override
+        public JoinTable newTable(){
+            return new EncodedRowMappedJoinTable(table,outerHashKeys,innerTemplate);
+        }
+
+        @Override
+        public long getEstimatedSizeInBytes(){
+            return table.estimatedSizeInBytes();
+        }
+    }
+}
@@ -14,6 +14,7 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.loader.GeneratedMethod;
 import com.splicemachine.db.iapi.sql.Activation;
@@ -24,6 +25,8 @@ import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
 import com.splicemachine.derby.impl.sql.execute.operations.framework.DerbyAggregateContext;
 import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
 import com.splicemachine.derby.impl.sql.execute.operations.iapi.AggregateContext;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.base.Strings;
@@ -166,6 +169,23 @@ public abstract class GenericAggregateOperation extends SpliceBaseOperation {
         this.setCurrentRow(row);
     }
 
+    /**
+     * @param groupingKeys the (0-based) positions of the grouping columns in the source row, or null for a
+     *                     scalar aggregate
+     * @return the rows to aggregate: either the source's rows or, when control execution can aggregate
+     * the source's table scan over column vectors, partial aggregates of them
+     */
+    protected DataSet<ExecRow> getSourceDataSet(DataSetProcessor dsp,int[] groupingKeys) throws StandardException{
+        if(dsp.getType()==DataSetProcessor.Type.CONTROL && EngineDriver.driver().getConfiguration().getColumnarAggregation()){
+            ColumnarAggregation aggregation=ColumnarAggregation.plan(this,groupingKeys);
+            if(aggregation!=null){
+                TableScanOperation scan=(TableScanOperation)((ProjectRestrictOperation)source).getSource();
+                return scan.getColumnarAggregateDataSet(dsp,aggregation);
+            }
+        }
+        return source.getDataSet(dsp);
+    }
+
 	public ExecIndexRow getSourceExecIndexRow() {
 		return sourceExecIndexRow;
 	}
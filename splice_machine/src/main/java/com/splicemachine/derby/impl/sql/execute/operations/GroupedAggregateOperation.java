@@ -153,28 +153,37 @@ public class GroupedAggregateOperation extends GenericAggregateOperation {
         return "Grouped" + super.prettyPrint(indentLevel);
     }
 
+    /**
+     * @return the (0-based) positions of the columns the source rows are grouped on: the grouping keys,
+     * followed by the grouping id column for a rollup
+     */
+    public int[] getExtendedGroupBy() {
+        int[] groupingKeys = groupedAggregateContext.getGroupingKeys();
+        if (!isRollup)
+            return groupingKeys;
+        int[] extendedGroupBy = new int[groupingKeys.length+1];
+        System.arraycopy(groupingKeys, 0, extendedGroupBy, 0, groupingKeys.length);
+        extendedGroupBy[groupingKeys.length] = groupedAggregateContext.getGroupingIdColumnPosition();
+        return extendedGroupBy;
+    }
+
     @Override
     public DataSet<ExecRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         if (!isOpen)
             throw new IllegalStateException("Operation is not open");
 
         OperationContext<GroupedAggregateOperation> operationContext = dsp.createOperationContext(this);
-        DataSet set = source.getDataSet(dsp);
+        int[] nonGroupedUniqueColumns = groupedAggregateContext.getNonGroupedUniqueColumns();
+        boolean hasDistinct = nonGroupedUniqueColumns != null && nonGroupedUniqueColumns.length > 0;
+        DataSet set = isRollup || hasDistinct ? source.getDataSet(dsp) : getSourceDataSet(dsp, groupedAggregateContext.getGroupingKeys());
 
         operationContext.pushScope();
         set = set.map(new CountReadFunction(operationContext));
         operationContext.popScope();
         // Have distinct Aggregates?
         boolean hasMultipleDistinct = false;
-        int numOfGroupKeys = groupedAggregateContext.getGroupingKeys().length;
-
-        int[] extendedGroupBy = groupedAggregateContext.getGroupingKeys();
-        if (isRollup) {
-            extendedGroupBy = new int[numOfGroupKeys+1];
-            for (int i=0; i<numOfGroupKeys; i++)
-                extendedGroupBy[i] = groupedAggregateContext.getGroupingKeys()[i];
-            extendedGroupBy[numOfGroupKeys] = groupedAggregateContext.getGroupingIdColumnPosition();
-        }
+
+        int[] extendedGroupBy = getExtendedGroupBy();
 
         if (isRollup) { // OLAP Rollup Functionality
             operationContext.pushScopeForOp(OperationContext.Scope.ROLLUP);
@@ -27,6 +27,7 @@ import com.splicemachine.db.iapi.types.HBaseRowLocation;
 import com.splicemachine.derby.utils.marshall.KeyDecoder;
 import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
@@ -39,22 +40,32 @@ import scala.collection.JavaConverters;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 /**
  * Utility for executing "look-ahead" index lookups, where the index lookup is backgrounded,
  * while other processes occur on the caller thread.
  *
+ * The lookups adapt to how the rows are consumed. The first lookup fetches {@code initialLookupBatchSize}
+ * rows, so that callers which only need the first few rows don't fetch thousands. Once the caller has consumed
+ * a batch, the next lookups fetch twice as many rows (up to {@code lookupBatchSize}) if the caller spent at least
+ * half of that batch's fetch time waiting for it. Only one lookup is in flight at first; whenever the caller has
+ * to wait for a lookup, another one is allowed in flight, up to {@code numConcurrentLookups}, and whenever a
+ * lookup is already complete by the time the caller needs it, one fewer is.
+ *
  * @author Scott Fines
  *         Created on: 9/4/13
  */
 public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
     protected static Logger LOG=Logger.getLogger(IndexRowReader.class);
-    private final int batchSize;
+    private final int maxBatchSize;
     private final int numBlocks;
     private final ExecRow outputTemplate;
     private final long mainTableConglomId;
@@ -67,17 +78,45 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
     private final PartitionFactory tableFactory;
 
     private List<Pair<ExecRow, DataResult>> currentResults;
-    private List<Future<List<Pair<ExecRow, DataResult>>>> resultFutures;
+    private List<Lookup> inFlight;
     private boolean populated=false;
+    private boolean sourceExhausted=false;
+    private int batchSize;
+    private int blocks=1;
+    /*how long the lookup of the current batch took, and how long the caller waited for it*/
+    private long lastFetchTime;
+    private long lastWaitTime;
     private EntryDecoder entryDecoder;
     protected Iterator<ExecRow> sourceIterator;
 
     private ExecRow heapRowToReturn;
     private ExecRow indexRowToReturn;
 
+    /*statistics*/
+    private long lookups;
+    private long batches;
+    private long waitTime;
+
+    IndexRowReader(Iterator<ExecRow> sourceIterator,
+                   ExecRow outputTemplate,
+                   TxnView txn,
+                   int lookupBatchSize,
+                   int numConcurrentLookups,
+                   long mainTableConglomId,
+                   byte[] predicateFilterBytes,
+                   KeyHashDecoder keyDecoder,
+                   KeyHashDecoder rowDecoder,
+                   int[] indexCols,
+                   TxnOperationFactory operationFactory,
+                   PartitionFactory tableFactory){
+        this(sourceIterator,outputTemplate,txn,lookupBatchSize,lookupBatchSize,numConcurrentLookups,mainTableConglomId,
+                predicateFilterBytes,keyDecoder,rowDecoder,indexCols,operationFactory,tableFactory);
+    }
+
     IndexRowReader(Iterator<ExecRow> sourceIterator,
                    ExecRow outputTemplate,
                    TxnView txn,
+                   int initialLookupBatchSize,
                    int lookupBatchSize,
                    int numConcurrentLookups,
                    long mainTableConglomId,
@@ -90,7 +129,8 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
         this.sourceIterator=sourceIterator;
         this.outputTemplate=outputTemplate;
         this.txn=txn;
-        batchSize=lookupBatchSize;
+        maxBatchSize=Math.max(lookupBatchSize,1);
+        batchSize=Math.max(Math.min(initialLookupBatchSize,maxBatchSize),1);
         this.numBlocks=Math.max(numConcurrentLookups, 2);
         this.mainTableConglomId=mainTableConglomId;
         this.predicateFilterBytes=predicateFilterBytes;
@@ -98,7 +138,7 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
         this.keyDecoder=new KeyDecoder(keyDecoder,0);
         this.rowDecoder=rowDecoder;
         this.indexCols=indexCols;
-        this.resultFutures=Lists.newArrayListWithCapacity(this.numBlocks);
+        this.inFlight=Lists.newArrayListWithCapacity(this.numBlocks);
         this.operationFactory = operationFactory;
     }
 
@@ -106,6 +146,33 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
     // doing base conglomerate row lookups.
     public int getMaxConcurrency() {return this.numBlocks;}
 
+    // The number of rows the next lookup will fetch.
+    int getBatchSize() {return batchSize;}
+
+    // The number of lookups currently allowed in flight.
+    int getConcurrency() {return blocks;}
+
+    /**
+     * @return the number of base rows looked up so far
+     */
+    public long getLookups(){
+        return lookups;
+    }
+
+    /**
+     * @return the number of lookups (each fetching a batch of base rows) submitted so far
+     */
+    public long getBatches(){
+        return batches;
+    }
+
+    /**
+     * @return the time (in nanoseconds) that the caller spent waiting for lookups to complete
+     */
+    public long getWaitTime(){
+        return waitTime;
+    }
+
     public void close() throws IOException{
         rowDecoder.close();
         keyDecoder.close();
@@ -162,39 +229,65 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
     /**********************************************************************************************************************************/
         /*private helper methods*/
     private void getMoreData() throws StandardException, IOException{
-        //read up to batchSize rows from the source, then submit them to the background thread for processing
-        List<Pair<byte[],ExecRow>> sourceRows=Lists.newArrayListWithCapacity(batchSize);
-        for(int i=0;i<batchSize;i++){
-            if(!sourceIterator.hasNext())
-                break;
-            ExecRow next=sourceIterator.next();
-            for(int index=0;index<indexCols.length;index++){
-                if(indexCols[index]!=-1){
-                    outputTemplate.setColumn(index+1,next.getColumn(indexCols[index]+1));
+        if(lastFetchTime>0 && 2*lastWaitTime>=lastFetchTime){
+            //the caller consumed the last batch faster than it was fetched, so fetch more rows at once
+            batchSize=Math.min(batchSize*2,maxBatchSize);
+        }
+        lastFetchTime=0;
+        //keep up to 'blocks' lookups in flight, as long as the source has rows
+        while(!sourceExhausted && inFlight.size()<blocks){
+            //read up to batchSize rows from the source, then submit them to the background thread for processing
+            List<Pair<byte[],ExecRow>> sourceRows=Lists.newArrayListWithCapacity(batchSize);
+            for(int i=0;i<batchSize;i++){
+                if(!sourceIterator.hasNext()){
+                    sourceExhausted=true;
+                    break;
+                }
+                ExecRow next=sourceIterator.next();
+                for(int index=0;index<indexCols.length;index++){
+                    if(indexCols[index]!=-1){
+                        outputTemplate.setColumn(index+1,next.getColumn(indexCols[index]+1));
+                    }
                 }
+                HBaseRowLocation rl=(HBaseRowLocation)next.getColumn(next.nColumns());
+                sourceRows.add(new Pair(rl.getBytes(), outputTemplate.getClone()));
             }
-            HBaseRowLocation rl=(HBaseRowLocation)next.getColumn(next.nColumns());
-            sourceRows.add(new Pair(rl.getBytes(), outputTemplate.getClone()));
-        }
-        if(!sourceRows.isEmpty()){
-            //submit to the background thread
+            if(sourceRows.isEmpty())
+                break;
             Lookup task=new Lookup(sourceRows);
-            resultFutures.add(SIDriver.driver().getExecutorService().submit(task));
+            task.result=getExecutorService().submit(task);
+            inFlight.add(task);
+            lookups+=sourceRows.size();
+            batches++;
         }
-
-        //if there is only one submitted future, call this again to set off an additional background process
-        if(resultFutures.size()<numBlocks && sourceRows.size()==batchSize)
-            getMoreData();
-        else if(!resultFutures.isEmpty()){
+        if(!inFlight.isEmpty()){
             waitForBlockCompletion();
         }
     }
 
+    ExecutorService getExecutorService(){
+        return SIDriver.driver().getExecutorService();
+    }
+
     private void waitForBlockCompletion() throws StandardException, IOException{
         //wait for the first future to return correctly or error-out
         try{
-            Future<List<Pair<ExecRow, DataResult>>> future=resultFutures.remove(0);
-            currentResults=future.get();
+            Lookup lookup=inFlight.remove(0);
+            Future<List<Pair<ExecRow, DataResult>>> future=lookup.result;
+            if(!future.isDone()){
+                //the rows are consumed faster than they are fetched, so fetch more at once
+                blocks=Math.min(blocks+1,numBlocks);
+                long start=System.nanoTime();
+                currentResults=future.get();
+                lastWaitTime=System.nanoTime()-start;
+                waitTime+=lastWaitTime;
+            }else{
+                //the lookups keep up with the caller, so fewer of them are enough
+                blocks=Math.max(blocks-1,1);
+                currentResults=future.get();
+                lastWaitTime=0;
+            }
+            lastFetchTime=Math.max(lookup.fetchTime,1);
         }catch(InterruptedException e){
             throw new InterruptedIOException(e.getMessage());
         }catch(ExecutionException e){
@@ -206,6 +299,9 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
 
     public class Lookup implements Callable<List<Pair<ExecRow, DataResult>>>{
         private final List<Pair<byte[],ExecRow>> sourceRows;
+        private Future<List<Pair<ExecRow, DataResult>>> result;
+        /*nanoseconds spent fetching the rows; visible to the caller once the result is*/
+        private long fetchTime;
 
         public Lookup(List<Pair<byte[],ExecRow>> sourceRows){
             this.sourceRows=sourceRows;
@@ -213,9 +309,21 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
 
         @Override
         public List<Pair<ExecRow, DataResult>> call() throws Exception{
+            long start=System.nanoTime();
+            //fetch the rows in key order, so that the rows of each region are fetched together
+            Integer[] order = new Integer[sourceRows.size()];
+            for(int i=0;i<order.length;i++){
+                order[i] = i;
+            }
+            Arrays.sort(order,new Comparator<Integer>(){
+                @Override
+                public int compare(Integer o1,Integer o2){
+                    return Bytes.BASE_COMPARATOR.compare(sourceRows.get(o1).getFirst(),sourceRows.get(o2).getFirst());
+                }
+            });
             List<byte[]> rowKeys = new ArrayList<>(sourceRows.size());
-            for(Pair<byte[],ExecRow> sourceRow : sourceRows){
-                rowKeys.add(sourceRow.getFirst());
+            for(Integer i : order){
+                rowKeys.add(sourceRows.get(i).getFirst());
             }
             Attributable attributable = new MapAttributes();
             attributable.addAttribute(SIConstants.ENTRY_PREDICATE_LABEL,predicateFilterBytes);
@@ -223,13 +331,15 @@ public class IndexRowReader implements Iterator<ExecRow>, Iterable<ExecRow>{
 
             try(Partition table = tableFactory.getTable(Long.toString(mainTableConglomId))){
                 Iterator<DataResult> results=table.batchGet(attributable,rowKeys);
-                List<Pair<ExecRow, DataResult>> locations=Lists.newArrayListWithCapacity(sourceRows.size());
-                for(Pair<byte[],ExecRow> sourceRow : sourceRows){
+                //but return them in the order of the index rows
+                Pair<ExecRow, DataResult>[] locations=new Pair[sourceRows.size()];
+                for(Integer i : order){
                     if(!results.hasNext())
                         throw new IllegalStateException("Programmer error: incompatible iterator sizes!");
-                    locations.add(Pair.newPair(sourceRow.getSecond(),results.next().getClone()));
+                    locations[i]=Pair.newPair(sourceRows.get(i).getSecond(),results.next().getClone());
                 }
-                return locations;
+                fetchTime=System.nanoTime()-start;
+                return Lists.newArrayList(locations);
             }
         }
     }
@@ -45,6 +45,7 @@ import java.util.Iterator;
 public class IndexRowReaderBuilder implements Externalizable{
     private Iterator<ExecRow> source;
     private int lookupBatchSize;
+    private int initialLookupBatchSize=-1;
     private int numConcurrentLookups=-1;
     private ExecRow outputTemplate;
     private long mainTableConglomId=-1;
@@ -92,6 +93,11 @@ public class IndexRowReaderBuilder implements Externalizable{
         return this;
     }
 
+    public IndexRowReaderBuilder initialLookupBatchSize(int initialLookupBatchSize){
+        this.initialLookupBatchSize=initialLookupBatchSize;
+        return this;
+    }
+
     public IndexRowReaderBuilder numConcurrentLookups(int numConcurrentLookups){
         this.numConcurrentLookups=numConcurrentLookups;
         return this;
@@ -190,6 +196,7 @@ public class IndexRowReaderBuilder implements Externalizable{
                 source,
                 outputTemplate,
                 txn,
+                initialLookupBatchSize>0?initialLookupBatchSize:lookupBatchSize,
                 lookupBatchSize,
                 Math.max(numConcurrentLookups,2),
                 mainTableConglomId,
@@ -207,6 +214,7 @@ public class IndexRowReaderBuilder implements Externalizable{
 
         driver.getOperationFactory().writeTxn(txn,out);
         out.writeInt(lookupBatchSize);
+        out.writeInt(initialLookupBatchSize);
         out.writeInt(numConcurrentLookups);
         out.writeObject(outputTemplate);
         out.writeLong(mainTableConglomId);
@@ -230,6 +238,7 @@ public class IndexRowReaderBuilder implements Externalizable{
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
         txn=SIDriver.driver().getOperationFactory().readTxn(in);
         lookupBatchSize=in.readInt();
+        initialLookupBatchSize=in.readInt();
         numConcurrentLookups=in.readInt();
         outputTemplate = (ExecRow) in.readObject();
         mainTableConglomId=in.readLong();
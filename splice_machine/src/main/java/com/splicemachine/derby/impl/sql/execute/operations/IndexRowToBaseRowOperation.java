@@ -297,6 +297,7 @@ public class IndexRowToBaseRowOperation extends SpliceBaseOperation{
         if(readerBuilder==null){
             SConfiguration configuration=EngineDriver.driver().getConfiguration();
             int indexBatchSize = configuration.getIndexBatchSize();
+            int initialIndexBatchSize = configuration.getIndexInitialBatchSize();
             int lookupBlocks = configuration.getIndexLookupBlocks();
             readerBuilder = new IndexRowReaderBuilder()
                     .mainTableConglomId(conglomId)
@@ -312,6 +313,7 @@ public class IndexRowToBaseRowOperation extends SpliceBaseOperation{
                     .mainTableRowDecodingMap(operationInformation.getBaseColumnMap())
                     .mainTableAccessedRowColumns(getMainTableRowColumns())
                     .numConcurrentLookups(lookupBlocks)
+                    .initialLookupBatchSize(initialIndexBatchSize)
                     .lookupBatchSize(indexBatchSize);
         }
         OperationContext context = dsp.createOperationContext(this);
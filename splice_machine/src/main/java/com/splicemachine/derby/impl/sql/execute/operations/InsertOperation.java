@@ -189,6 +189,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
                     SequenceKey key=new SequenceKey(
                             rlBytes,
                             isSingleRowResultSet()?1l:config.getSequenceBlockSize(),
+                            isSingleRowResultSet()?1l:config.getSequenceMaxBlockSize(),
                             defaultAutoIncrementValues[i].getFirst(),
                             defaultAutoIncrementValues[i].getSecond(),
                             SIDriver.driver().getTableFactory(),
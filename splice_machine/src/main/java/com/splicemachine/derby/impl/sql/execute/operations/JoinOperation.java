@@ -364,6 +364,10 @@ public abstract class JoinOperation extends SpliceBaseOperation {
 		throw new UnsupportedOperationException("Not supported");
 	}
 
+	public boolean isCompactJoinTable() {
+		throw new UnsupportedOperationException("Not supported");
+	}
+
 	@Override
 	public String getVTIFileName() {
 		return getSubOperations().get(0).getVTIFileName();
@@ -15,6 +15,7 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.loader.GeneratedMethod;
 import com.splicemachine.db.iapi.sql.Activation;
@@ -27,13 +28,19 @@ import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.Partition;
 
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -57,6 +64,10 @@ import java.util.List;
  * This class overrides four public methods and two protected methods
  * from TableScanResultSet.  In all cases the methods here set probing
  * state and then call the corresponding methods on "super".
+ *
+ * In control execution, the probes are sorted by key and grouped by the
+ * region they fall in, and the probes of a group are scanned one after the
+ * other by a single scanner, rather than each by a scanner of its own.
  */
 public class MultiProbeTableScanOperation extends TableScanOperation  {
     private static final long serialVersionUID = 1l;
@@ -223,31 +234,29 @@ public class MultiProbeTableScanOperation extends TableScanOperation  {
             List<DataScan> scans = scanInformation.getScans(getCurrentTransaction(), null, activation, getKeyDecodingMap());
             DataSet<ExecRow> dataSet = dsp.getEmpty();
             OperationContext<MultiProbeTableScanOperation> operationContext = dsp.<MultiProbeTableScanOperation>createOperationContext(this);
-            int i = 0;
-            List<ScanSetBuilder<ExecRow>> datasets = new ArrayList<>(scans.size());
             for (DataScan scan : scans) {
                 deSiify(scan);
-                ScanSetBuilder<ExecRow> ssb = dsp.<MultiProbeTableScanOperation, ExecRow>newScanSet(this, tableName)
-                        .tableDisplayName(tableDisplayName)
-                        .activation(this.getActivation())
-                        .transaction(txn)
-                        .scan(scan)
-                        .template(this.currentTemplate.getClone())
-                        .tableVersion(tableVersion)
-                        .indexName(indexName)
-                        .reuseRowLocation(true)
-                        .keyColumnEncodingOrder(scanInformation.getColumnOrdering())
-                        .keyColumnSortOrder(scanInformation.getConglomerate().getAscDescInfo())
-                        .keyColumnTypes(getKeyFormatIds())
-                        .accessedKeyColumns(scanInformation.getAccessedPkColumns())
-                        .keyDecodingMap(getKeyDecodingMap())
-                        .rowDecodingMap(getRowDecodingMap())
-                        .baseColumnMap(baseColumnMap)
-                        .optionalProbeValue(probeValues[i])
-                        .defaultRow(defaultRow, scanInformation.getDefaultValueMap());
-
-                datasets.add(ssb);
-                i++;
+            }
+            List<ScanSetBuilder<ExecRow>> datasets;
+            if (dsp.getType() == DataSetProcessor.Type.CONTROL && scanInformation.getScanQualifiers() == null) {
+                /*
+                 * Rather than a scan per probe, scan the probes of each region together, in key order. The rows
+                 * of a scan with qualifiers are checked against the probe value it was built for, so those keep
+                 * a scan per probe.
+                 */
+                int probesPerScan = EngineDriver.driver().getConfiguration().getControlExecutionProbesPerScan();
+                List<List<DataScan>> groups = groupScans(scans, getRegionStartKeys(), probesPerScan);
+                datasets = new ArrayList<>(groups.size());
+                for (List<DataScan> group : groups) {
+                    datasets.add(newScanSet(dsp, txn, group.get(0)).probeScans(group));
+                }
+            } else {
+                datasets = new ArrayList<>(scans.size());
+                int i = 0;
+                for (DataScan scan : scans) {
+                    datasets.add(newScanSet(dsp, txn, scan).optionalProbeValue(probeValues[i]));
+                    i++;
+                }
             }
             return dataSet.parallelProbe(datasets, operationContext).map(new SetCurrentLocatedRowAndRowKeyFunction<>(operationContext));
         }
@@ -256,4 +265,109 @@ public class MultiProbeTableScanOperation extends TableScanOperation  {
             }
     }
 
+    /**
+     * Sort the probe scans by start key, and split them into groups of at most {@code maxGroupSize} scans which
+     * start in the same region. If the scans were in descending key order, the groups and the scans in them are
+     * in descending order too. Scans of the same range are only kept once.
+     *
+     * @param regionStartKeys the start keys of the regions of the table
+     * @return the groups of scans, in the order in which their rows should be returned
+     */
+    static List<List<DataScan>> groupScans(List<DataScan> scans, List<byte[]> regionStartKeys, int maxGroupSize) {
+        List<List<DataScan>> groups = new ArrayList<>();
+        if (scans.isEmpty())
+            return groups;
+        Comparator<DataScan> byStartKey = new Comparator<DataScan>() {
+            @Override
+            public int compare(DataScan o1, DataScan o2) {
+                int c = compareKeys(o1.getStartKey(), o2.getStartKey());
+                return c != 0 ? c : compareKeys(o1.getStopKey(), o2.getStopKey());
+            }
+        };
+        boolean descending = byStartKey.compare(scans.get(0), scans.get(scans.size() - 1)) > 0;
+        List<DataScan> sorted = new ArrayList<>(scans);
+        Collections.sort(sorted, descending ? Collections.reverseOrder(byStartKey) : byStartKey);
+
+        byte[][] regions = regionStartKeys.toArray(new byte[regionStartKeys.size()][]);
+        Arrays.sort(regions, new Comparator<byte[]>() {
+            @Override
+            public int compare(byte[] o1, byte[] o2) {
+                return compareKeys(o1, o2);
+            }
+        });
+        List<DataScan> group = null;
+        int groupRegion = -1;
+        DataScan previous = null;
+        for (DataScan scan : sorted) {
+            if (previous != null && byStartKey.compare(previous, scan) == 0)
+                continue;
+            previous = scan;
+            int region = findRegion(regions, scan.getStartKey());
+            if (group == null || region != groupRegion || group.size() >= maxGroupSize) {
+                group = new ArrayList<>();
+                groups.add(group);
+                groupRegion = region;
+            }
+            group.add(scan);
+        }
+        return groups;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private ScanSetBuilder<ExecRow> newScanSet(DataSetProcessor dsp, TxnView txn, DataScan scan) throws StandardException {
+        return dsp.<MultiProbeTableScanOperation, ExecRow>newScanSet(this, tableName)
+                .tableDisplayName(tableDisplayName)
+                .activation(this.getActivation())
+                .transaction(txn)
+                .scan(scan)
+                .template(this.currentTemplate.getClone())
+                .tableVersion(tableVersion)
+                .indexName(indexName)
+                .reuseRowLocation(true)
+                .keyColumnEncodingOrder(scanInformation.getColumnOrdering())
+                .keyColumnSortOrder(scanInformation.getConglomerate().getAscDescInfo())
+                .keyColumnTypes(getKeyFormatIds())
+                .accessedKeyColumns(scanInformation.getAccessedPkColumns())
+                .keyDecodingMap(getKeyDecodingMap())
+                .rowDecodingMap(getRowDecodingMap())
+                .baseColumnMap(baseColumnMap)
+                .defaultRow(defaultRow, scanInformation.getDefaultValueMap());
+    }
+
+    private List<byte[]> getRegionStartKeys() throws IOException {
+        try (Partition table = SIDriver.driver().getTableFactory().getTable(tableName)) {
+            List<Partition> regions = table.subPartitions();
+            List<byte[]> startKeys = new ArrayList<>(regions.size());
+            for (Partition region : regions) {
+                startKeys.add(region.getStartKey());
+            }
+            return startKeys;
+        }
+    }
+
+    /*the index of the region containing the key, given the sorted start keys of the regions*/
+    private static int findRegion(byte[][] regionStartKeys, byte[] key) {
+        //the last region which starts at or before the key
+        int low = 0;
+        int high = regionStartKeys.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (compareKeys(regionStartKeys[mid], key) <= 0)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        return low;
+    }
+
+    /*an empty or missing key comes before any other key*/
+    private static int compareKeys(byte[] k1, byte[] k2) {
+        boolean empty1 = k1 == null || k1.length == 0;
+        boolean empty2 = k2 == null || k2.length == 0;
+        if (empty1 || empty2)
+            return empty1 == empty2 ? 0 : (empty1 ? -1 : 1);
+        return Bytes.BASE_COMPARATOR.compare(k1, k2);
+    }
+
 }
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.LongArrayList;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.AggregatorInfo;
+import com.splicemachine.db.impl.sql.execute.CountAggregator;
+import com.splicemachine.db.impl.sql.execute.MaxMinAggregator;
+import com.splicemachine.db.impl.sql.execute.SumAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarBatch;
+
+import java.util.Arrays;
+
+/**
+ * The running COUNT, SUM, MIN and MAX aggregates of a number of groups, kept in primitive arrays
+ * indexed by group ordinal rather than in an aggregate row per group.
+ *
+ * Once the input is exhausted, {@link #finish(int, ExecRow)} turns the state of a group into the
+ * same initialized, unfinished aggregate row that accumulating the group's rows one at a time
+ * would have produced.
+ */
+public class PrimitiveAggregates{
+    public enum Kind{ COUNT_STAR, COUNT, SUM, MIN, MAX }
+
+    private final SpliceGenericAggregator[] aggregates;
+    private final Kind[] kinds;
+    private final boolean[] integral;
+    private int capacity=16;
+    private long[] rowCounts=new long[capacity];
+    private final long[][] counts;
+    private final long[][] longValues;
+    private final double[][] doubleValues;
+    //the partial sums which overflowed a long, by group ordinal, left for the SUM aggregator to upgrade
+    private final IntObjectHashMap<LongArrayList>[] overflows;
+
+    /**
+     * @param aggregates the aggregates of the operation
+     * @param kinds the kind of each aggregate
+     * @param integral whether each aggregate reads an integral (rather than DOUBLE) input
+     */
+    @SuppressWarnings("unchecked")
+    public PrimitiveAggregates(SpliceGenericAggregator[] aggregates,Kind[] kinds,boolean[] integral){
+        this.aggregates=aggregates;
+        this.kinds=kinds;
+        this.integral=integral;
+        this.counts=new long[aggregates.length][capacity];
+        this.longValues=new long[aggregates.length][];
+        this.doubleValues=new double[aggregates.length][];
+        this.overflows=new IntObjectHashMap[aggregates.length];
+        for(int a=0;a<aggregates.length;a++){
+            if(kinds[a]==Kind.COUNT_STAR || kinds[a]==Kind.COUNT) continue;
+            if(integral[a])
+                longValues[a]=new long[capacity];
+            else
+                doubleValues[a]=new double[capacity];
+        }
+    }
+
+    /**
+     * @return the kind of the aggregate, or null if it isn't one of the supported aggregates
+     */
+    public static Kind kind(AggregatorInfo info){
+        if(info==null || info.isDistinct())
+            return null;
+        String className=info.getAggregatorClassName();
+        String name=info.getAggregateName();
+        if(CountAggregator.class.getName().equals(className))
+            return "COUNT(*)".equals(name)?Kind.COUNT_STAR:Kind.COUNT;
+        if(SumAggregator.class.getName().equals(className))
+            return Kind.SUM;
+        if(MaxMinAggregator.class.getName().equals(className))
+            return "MAX".equals(name)?Kind.MAX:Kind.MIN;
+        return null;
+    }
+
+    /**
+     * @return true if the aggregates of a column of the given type can be kept in primitive state:
+     * integral columns in longs, and DOUBLE columns in doubles. REAL columns are not, since their
+     * SUM is accumulated in single precision, which a running double sum wouldn't reproduce.
+     */
+    public static boolean isSupportedInput(int formatId){
+        return ColumnarBatch.isIntegral(formatId) || formatId==StoredFormatIds.SQL_DOUBLE_ID;
+    }
+
+    public Kind kind(int aggregate){
+        return kinds[aggregate];
+    }
+
+    /**
+     * Make room for the state of groups 0 through {@code numGroups-1}.
+     */
+    public void ensureCapacity(int numGroups){
+        if(numGroups<=capacity)
+            return;
+        int size=capacity;
+        while(size<numGroups)
+            size*=2;
+        capacity=size;
+        rowCounts=Arrays.copyOf(rowCounts,size);
+        for(int a=0;a<aggregates.length;a++){
+            counts[a]=Arrays.copyOf(counts[a],size);
+            if(longValues[a]!=null)
+                longValues[a]=Arrays.copyOf(longValues[a],size);
+            if(doubleValues[a]!=null)
+                doubleValues[a]=Arrays.copyOf(doubleValues[a],size);
+        }
+    }
+
+    /**
+     * Count a row of the group; the non-null inputs of the row are added separately.
+     */
+    public void addRow(int group){
+        rowCounts[group]++;
+    }
+
+    public boolean isEmpty(int group){
+        return rowCounts[group]==0;
+    }
+
+    public void addLong(int a,int group,long value){
+        long n=counts[a][group]++;
+        long[] state=longValues[a];
+        switch(kinds[a]){
+            case SUM:
+                long sum=state[group];
+                long result=sum+value;
+                if(((sum^result)&(value^result))<0){
+                    overflow(a,group,sum);
+                    result=value;
+                }
+                state[group]=result;
+                break;
+            case MIN:
+                if(n==0 || value<state[group])
+                    state[group]=value;
+                break;
+            case MAX:
+                if(n==0 || value>state[group])
+                    state[group]=value;
+                break;
+            default:
+                break;
+        }
+    }
+
+    public void addDouble(int a,int group,double value){
+        long n=counts[a][group]++;
+        double[] state=doubleValues[a];
+        switch(kinds[a]){
+            case SUM:
+                state[group]+=value;
+                break;
+            case MIN:
+                if(n==0 || value<state[group])
+                    state[group]=value;
+                break;
+            case MAX:
+                if(n==0 || value>state[group])
+                    state[group]=value;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Initialize the aggregates of {@code row} with the state of the group.
+     */
+    public void finish(int group,ExecRow row) throws StandardException{
+        for(int a=0;a<aggregates.length;a++){
+            finish(a,group,row);
+        }
+    }
+
+    /**
+     * @return an estimate of the number of bytes held per group
+     */
+    public long bytesPerGroup(){
+        return 8L+16L*aggregates.length;
+    }
+
+    /**
+     * Reset the state of every group.
+     */
+    public void clear(){
+        Arrays.fill(rowCounts,0L);
+        for(int a=0;a<aggregates.length;a++){
+            Arrays.fill(counts[a],0L);
+            if(longValues[a]!=null)
+                Arrays.fill(longValues[a],0L);
+            if(doubleValues[a]!=null)
+                Arrays.fill(doubleValues[a],0d);
+            overflows[a]=null;
+        }
+    }
+
+    private void finish(int a,int g,ExecRow row) throws StandardException{
+        SpliceGenericAggregator aggregator=aggregates[a];
+        aggregator.initialize(row);
+        DataValueDescriptor aggCol=row.getColumn(aggregator.getAggregatorColumnId());
+        ExecAggregator ua=(ExecAggregator)aggCol.getObject();
+        long count=counts[a][g];
+        switch(kinds[a]){
+            case COUNT_STAR:
+                ua.add(new SQLLongint(rowCounts[g]));
+                return;
+            case COUNT:
+                ua.add(new SQLLongint(count));
+                break;
+            case SUM:
+                if(count>0){
+                    if(integral[a]){
+                        LongArrayList overflow=overflows[a]==null?null:overflows[a].get(g);
+                        if(overflow!=null){
+                            for(int i=0;i<overflow.size();i++){
+                                aggregator.accumulate(new SQLLongint(overflow.get(i)),aggCol);
+                            }
+                        }
+                        aggregator.accumulate(new SQLLongint(longValues[a][g]),aggCol);
+                    }else
+                        aggregator.accumulate(new SQLDouble(doubleValues[a][g]),aggCol);
+                }
+                break;
+            default:
+                if(count>0){
+                    DataValueDescriptor value=row.getColumn(aggregator.getInputColumnId()).getNewNull();
+                    if(integral[a])
+                        value.setValue(longValues[a][g]);
+                    else
+                        value.setValue(doubleValues[a][g]);
+                    aggregator.accumulate(value,aggCol);
+                }
+        }
+        if(count<rowCounts[g]){
+            //let the aggregator know nulls were eliminated, as accumulating the null rows would have
+            aggregator.accumulate(row.getColumn(aggregator.getInputColumnId()).getNewNull(),aggCol);
+        }
+    }
+
+    private void overflow(int a,int g,long partialSum){
+        if(overflows[a]==null)
+            overflows[a]=new IntObjectHashMap<>();
+        LongArrayList partialSums=overflows[a].get(g);
+        if(partialSums==null){
+            partialSums=new LongArrayList();
+            overflows[a].put(g,partialSums);
+        }
+        partialSums.add(partialSum);
+    }
+}
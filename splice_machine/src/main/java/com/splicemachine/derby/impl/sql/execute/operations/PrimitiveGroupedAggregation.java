@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.collections.hashtable.LongTupleHashTable;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.derby.impl.sql.execute.operations.PrimitiveAggregates.Kind;
+import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarBatch;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A plan for grouping the rows of a grouped aggregate in a hash table of primitive keys, in
+ * control execution.
+ *
+ * The plan applies when the rows are grouped on one to three integral or (uncollated) character
+ * columns, and every aggregate is a non-distinct COUNT, SUM, MIN or MAX of an integral or DOUBLE
+ * column (or a COUNT of any column). Integral keys are held as longs, and character keys by their ordinal
+ * in a dictionary of the distinct values of the column, so that each group is identified by a
+ * tuple of longs in a {@link LongTupleHashTable}, and its aggregates are accumulated into
+ * {@link PrimitiveAggregates}, without keeping an aggregate row per group.
+ *
+ * The result is one initialized, unfinished aggregate row per group, as merging the rows of the
+ * group with {@code MergeAllAggregatesFunction} would have produced.
+ */
+public class PrimitiveGroupedAggregation{
+    private static final Logger LOG=Logger.getLogger(PrimitiveGroupedAggregation.class);
+    private static final int MAX_KEYS=3;
+    private static final int STRING_OVERHEAD=64;
+
+    private final GenericAggregateOperation op;
+    private final SpliceGenericAggregator[] aggregates;
+    private final Kind[] kinds;
+    private final boolean[] integral;
+    private final int[] keyColumns;
+    private final boolean[] stringKeys;
+
+    private PrimitiveGroupedAggregation(GenericAggregateOperation op,Kind[] kinds,boolean[] integral,int[] keyColumns,boolean[] stringKeys){
+        this.op=op;
+        this.aggregates=op.aggregates;
+        this.kinds=kinds;
+        this.integral=integral;
+        this.keyColumns=keyColumns;
+        this.stringKeys=stringKeys;
+    }
+
+    /**
+     * @param op the aggregate operation
+     * @param firstRow the first row to be grouped
+     * @return the plan, or null if the rows can't be grouped on primitive keys
+     */
+    public static PrimitiveGroupedAggregation plan(GenericAggregateOperation op,ExecRow firstRow) throws StandardException{
+        if(!(op instanceof GroupedAggregateOperation))
+            return null;
+        int[] keyColumns=((GroupedAggregateOperation)op).getExtendedGroupBy();
+        if(keyColumns==null || keyColumns.length==0 || keyColumns.length>MAX_KEYS)
+            return null;
+        boolean[] stringKeys=new boolean[keyColumns.length];
+        for(int i=0;i<keyColumns.length;i++){
+            DataValueDescriptor key=firstRow.getColumn(keyColumns[i]+1);
+            if(key==null)
+                return null;
+            if(key.getClass()==SQLChar.class || key.getClass()==SQLVarchar.class)
+                stringKeys[i]=true;
+            else if(!ColumnarBatch.isIntegral(key.getTypeFormatId()))
+                return null;
+        }
+
+        SpliceGenericAggregator[] aggregates=op.aggregates;
+        Kind[] kinds=new Kind[aggregates.length];
+        boolean[] integral=new boolean[aggregates.length];
+        for(int i=0;i<aggregates.length;i++){
+            Kind kind=PrimitiveAggregates.kind(aggregates[i].getAggregatorInfo());
+            if(kind==null)
+                return null;
+            //rows which have already been (partially) aggregated are merged the usual way
+            if(aggregates[i].isInitialized(firstRow))
+                return null;
+            kinds[i]=kind;
+            if(kind==Kind.COUNT_STAR || kind==Kind.COUNT)
+                continue;
+            DataValueDescriptor input=firstRow.getColumn(aggregates[i].getInputColumnId());
+            if(input==null || !PrimitiveAggregates.isSupportedInput(input.getTypeFormatId()))
+                return null;
+            integral[i]=ColumnarBatch.isIntegral(input.getTypeFormatId());
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug("Grouping on primitive keys "+Arrays.toString(keyColumns));
+        return new PrimitiveGroupedAggregation(op,kinds,integral,keyColumns,stringKeys);
+    }
+
+    public int[] getKeyColumns(){
+        return keyColumns;
+    }
+
+    public Table newTable(){
+        return new Table();
+    }
+
+    /**
+     * Merge the (initialized) aggregates of {@code from} into those of {@code into}.
+     */
+    public void merge(ExecRow into,ExecRow from) throws StandardException{
+        for(SpliceGenericAggregator aggregator : aggregates){
+            aggregator.merge(from,into);
+        }
+    }
+
+    /**
+     * The groups seen so far, and their running aggregates.
+     */
+    public class Table{
+        private final LongTupleHashTable groups;
+        private final PrimitiveAggregates state;
+        private final Map<String,Integer>[] dictionaries;
+        private final List<String>[] dictionaryValues;
+        private final long[] tuple;
+        private long dictionaryBytes;
+
+        @SuppressWarnings("unchecked")
+        Table(){
+            //the last element of a tuple holds the null flags of the keys
+            groups=new LongTupleHashTable(keyColumns.length+1,64,0.75f);
+            state=new PrimitiveAggregates(aggregates,kinds,integral);
+            dictionaries=new Map[keyColumns.length];
+            dictionaryValues=new List[keyColumns.length];
+            for(int i=0;i<keyColumns.length;i++){
+                if(stringKeys[i]){
+                    dictionaries[i]=new HashMap<>();
+                    dictionaryValues[i]=new ArrayList<>();
+                }
+            }
+            tuple=new long[keyColumns.length+1];
+        }
+
+        public void add(ExecRow row) throws StandardException{
+            long nulls=0L;
+            for(int i=0;i<keyColumns.length;i++){
+                DataValueDescriptor key=row.getColumn(keyColumns[i]+1);
+                if(key.isNull()){
+                    nulls|=1L<<i;
+                    tuple[i]=0L;
+                }else if(stringKeys[i])
+                    tuple[i]=dictionaryOrdinal(i,key.getString());
+                else
+                    tuple[i]=key.getLong();
+            }
+            tuple[keyColumns.length]=nulls;
+            int g=groups.add(tuple);
+            state.ensureCapacity(groups.size());
+            state.addRow(g);
+            for(int a=0;a<aggregates.length;a++){
+                if(kinds[a]==Kind.COUNT_STAR) continue;
+                DataValueDescriptor input=row.getColumn(aggregates[a].getInputColumnId());
+                if(input==null || input.isNull()) continue;
+                if(kinds[a]==Kind.COUNT)
+                    state.addLong(a,g,0L);
+                else if(integral[a])
+                    state.addLong(a,g,input.getLong());
+                else
+                    state.addDouble(a,g,input.getDouble());
+            }
+        }
+
+        public int size(){
+            return groups.size();
+        }
+
+        /**
+         * @return an estimate of the number of bytes held by the table
+         */
+        public long heapSize(){
+            return groups.heapSize()+state.bytesPerGroup()*groups.size()+dictionaryBytes;
+        }
+
+        /**
+         * @return an initialized, unfinished aggregate row for each group
+         */
+        public List<ExecRow> finish() throws StandardException{
+            List<ExecRow> rows=new ArrayList<>(groups.size());
+            for(int g=0;g<groups.size();g++){
+                groups.getTuple(g,tuple);
+                ExecRow row=op.getSourceExecIndexRow().getClone();
+                long nulls=tuple[keyColumns.length];
+                for(int i=0;i<keyColumns.length;i++){
+                    DataValueDescriptor key=row.getColumn(keyColumns[i]+1);
+                    if((nulls&(1L<<i))!=0)
+                        key.setToNull();
+                    else if(stringKeys[i])
+                        key.setValue(dictionaryValues[i].get((int)tuple[i]));
+                    else
+                        key.setValue(tuple[i]);
+                }
+                state.finish(g,row);
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        /**
+         * Forget every group, so that the table can be reused.
+         */
+        public void clear(){
+            groups.clear();
+            state.clear();
+            for(int i=0;i<keyColumns.length;i++){
+                if(stringKeys[i]){
+                    dictionaries[i].clear();
+                    dictionaryValues[i].clear();
+                }
+            }
+            dictionaryBytes=0L;
+        }
+
+        private long dictionaryOrdinal(int key,String value){
+            //CHAR and VARCHAR values compare equal regardless of trailing blanks
+            int end=value.length();
+            while(end>0 && value.charAt(end-1)==' ')
+                end--;
+            String trimmed=end==value.length()?value:value.substring(0,end);
+            Integer ordinal=dictionaries[key].get(trimmed);
+            if(ordinal==null){
+                ordinal=dictionaryValues[key].size();
+                dictionaries[key].put(trimmed,ordinal);
+                //keep the first value seen, as the generic grouping keeps the first key of each group
+                dictionaryValues[key].add(value);
+                dictionaryBytes+=STRING_OVERHEAD+2L*(value.length()+trimmed.length());
+            }
+            return ordinal;
+        }
+    }
+}
@@ -29,9 +29,11 @@ import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
 import com.splicemachine.derby.stream.function.SetCurrentLocatedRowAndRowKeyFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.storage.DataScan;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
@@ -57,6 +59,9 @@ public class TableScanOperation extends ScanOperation{
     protected int[] baseColumnMap;
     protected static final String NAME=TableScanOperation.class.getSimpleName().replaceAll("Operation","");
     protected byte[] tableNameBytes;
+    /*set (not serialized) by a broadcast join which this scan feeds, just before getDataSet() is called*/
+    protected long joinKeyFilterId=-1L;
+    protected int[] joinKeyFilterColumns;
 
     /**
      *
@@ -339,13 +344,35 @@ public class TableScanOperation extends ScanOperation{
      * @throws StandardException
      */
     public DataSet<ExecRow> getTableScannerBuilder(DataSetProcessor dsp) throws StandardException{
-        TxnView txn=getCurrentTransaction();
         operationContext = dsp.createOperationContext(this);
+        return newScanSet(dsp)
+                .buildDataSet(this)
+                .map(new SetCurrentLocatedRowAndRowKeyFunction<>(operationContext));
+    }
+
+    /**
+     * Scan the table into column vectors and aggregate them, returning the partial aggregate rows of
+     * {@code aggregation} rather than the scanned rows. Only supported in control execution.
+     */
+    public DataSet<ExecRow> getColumnarAggregateDataSet(DataSetProcessor dsp, ColumnarAggregation aggregation) throws StandardException{
+        if (!isOpen)
+            throw new IllegalStateException("Operation is not open");
+
+        operationContext = dsp.createOperationContext(this);
+        return newScanSet(dsp)
+                .columnarAggregation(aggregation)
+                .buildDataSet(this);
+    }
+
+    private ScanSetBuilder<ExecRow> newScanSet(DataSetProcessor dsp) throws StandardException{
+        TxnView txn=getCurrentTransaction();
+        DataScan scan=getNonSIScan();
         return dsp.<TableScanOperation,ExecRow>newScanSet(this,tableName)
                 .tableDisplayName(tableDisplayName)
                 .activation(activation)
                 .transaction(txn)
-                .scan(getNonSIScan())
+                .scan(scan)
+                .sharedScan(isShareable(scan,txn))
                 .template(currentTemplate)
                 .tableVersion(tableVersion)
                 .indexName(indexName)
@@ -366,8 +393,34 @@ public class TableScanOperation extends ScanOperation{
                 .partitionByColumns(getPartitionColumnMap())
                 .defaultRow(defaultRow,scanInformation.getDefaultValueMap())
                 .ignoreRecentTransactions(isReadOnly(txn))
-                .buildDataSet(this)
-                .map(new SetCurrentLocatedRowAndRowKeyFunction<>(operationContext));
+                .joinKeyFilter(joinKeyFilterId,joinKeyFilterColumns);
+    }
+
+    /**
+     * Have the scan discard rows whose keys can't be found by the given broadcast join.
+     *
+     * @param broadcastJoinId the sequence id of the (inner) broadcast join this scan is the outer side of
+     * @param keyColumns the positions of the join keys in this operation's row
+     */
+    public void setJoinKeyFilter(long broadcastJoinId,int[] keyColumns){
+        this.joinKeyFilterId=broadcastJoinId;
+        this.joinKeyFilterColumns=keyColumns;
+    }
+
+    /**
+     * A scan may be shared with concurrent queries if it reads the whole of a table without a primary key (whose
+     * rows have no order to keep), and if its transaction hasn't written anything.
+     */
+    private boolean isShareable(DataScan scan,TxnView txn) throws StandardException{
+        int[] keyColumns=scanInformation.getColumnOrdering();
+        return (keyColumns==null || keyColumns.length==0)
+                && !oneRowScan && !rowIdKey && !pin && storedAs==null
+                && isEmpty(scan.getStartKey()) && isEmpty(scan.getStopKey())
+                && isReadOnly(txn);
+    }
+
+    private static boolean isEmpty(byte[] key){
+        return key==null || key.length==0;
     }
 
     private boolean isReadOnly(TxnView txn) {
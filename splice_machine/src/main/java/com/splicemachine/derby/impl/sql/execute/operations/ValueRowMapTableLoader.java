@@ -36,11 +36,19 @@ import java.util.concurrent.ExecutionException;
 class ValueRowMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
     public static BroadcastJoinCache.JoinTableLoader INSTANCE = new ValueRowMapTableLoader();
 
+    /*
+     * Rough per-object costs used to estimate the retained heap: a cloned ValueRow plus its
+     * column array and list slot for every row, and a key row, map entry and list for every key.
+     */
+    private static final int ROW_OVERHEAD = 64;
+    private static final int KEY_OVERHEAD = 128;
+
     private ValueRowMapTableLoader(){} //singleton class
 
     @Override
-    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys, ExecRow outerTemplateRow) throws Exception {
+    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys, ExecRow outerTemplateRow,BroadcastJoinCache.MemoryReservation reservation) throws Exception {
         Map<ValueRow, List<ExecRow>> table=new HashMap<>();
+        long estimatedSize=0L;
 
         int numKeys = innerHashKeys.length;
         DataValueDescriptor[] keys = new DataValueDescriptor[numKeys];
@@ -56,17 +64,31 @@ class ValueRowMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
                 if(rows==null){
                     rows=new ArrayList<>(1);
                     table.put((ValueRow)keyRow.getClone(), rows);
+                    estimatedSize+=KEY_OVERHEAD+estimateSize(keys);
                 }
                 rows.add(right.getClone());
+                estimatedSize+=ROW_OVERHEAD+estimateSize(right.getRowArray());
+                reservation.reserveTotal(estimatedSize);
             }
         }catch(Exception e){
             throw getException(e);
         }
 
-        return new ValueRowMappedJoinTable.Factory(table,outerHashKeys);
+        return new ValueRowMappedJoinTable.Factory(table,outerHashKeys,estimatedSize);
+    }
+
+    private static long estimateSize(DataValueDescriptor[] dvds){
+        long size=0L;
+        for(DataValueDescriptor dvd : dvds){
+            if(dvd!=null)
+                size+=dvd.estimateMemoryUsage();
+        }
+        return size;
     }
 
     private Exception getException(Throwable parent) {
+        if (parent instanceof BroadcastJoinMemoryExceededException)
+            return (Exception)parent;
         if (parent.getCause() instanceof Exception)
             return (Exception)parent.getCause();
         if (parent instanceof Exception)
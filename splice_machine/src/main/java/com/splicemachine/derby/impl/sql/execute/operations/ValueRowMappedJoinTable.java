@@ -65,15 +65,22 @@ class ValueRowMappedJoinTable implements JoinTable{
     static class Factory implements JoinTable.Factory{
         private final Map<ValueRow,List<ExecRow>> table;
         private final int[] outerHashKeys;
+        private final long estimatedSize;
 
-        public Factory(Map<ValueRow, List<ExecRow>> table,int[] outerHashKeys){
+        public Factory(Map<ValueRow, List<ExecRow>> table,int[] outerHashKeys,long estimatedSize){
             this.table=table;
             this.outerHashKeys=outerHashKeys;
+            this.estimatedSize=estimatedSize;
         }
 
         @Override
         public JoinTable newTable(){
             return new ValueRowMappedJoinTable(table, outerHashKeys);
         }
+
+        @Override
+        public long getEstimatedSizeInBytes(){
+            return estimatedSize;
+        }
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+
+import java.util.Arrays;
+
+/**
+ * A run of scanned rows, decoded into one primitive vector per requested column rather than into
+ * a row of DataValueDescriptors.
+ *
+ * Columns are addressed by their (0-based) position in the scan's template row. Integral columns
+ * (TINYINT, SMALLINT, INTEGER and BIGINT) are held as longs, and REAL and DOUBLE columns as doubles.
+ * Each column also has a null vector. Rows are appended with {@link #beginRow()} and
+ * {@link #endRow()}; a row which is started but not ended (because it was filtered out) is
+ * overwritten by the next one.
+ *
+ * Filters narrow the batch through its selection vector, which lists the positions of the rows
+ * that are still selected, in order.
+ *
+ * @see SITableScanner#nextBatch(ColumnarBatch)
+ */
+public class ColumnarBatch{
+    public static final int DEFAULT_CAPACITY=1024;
+
+    private final int capacity;
+    private final int[] formatIds;
+    private final int[] columns;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final boolean[][] nulls;
+    private final int[] selection;
+    private int selected;
+    private int size;
+
+    /**
+     * @param capacity the maximum number of rows in the batch
+     * @param formatIds the type format id of each column of the template row, or -1 for columns which
+     *                  are not decoded
+     * @throws IllegalArgumentException if a column has a type which can't be held in a vector
+     */
+    public ColumnarBatch(int capacity,int[] formatIds){
+        this.capacity=capacity;
+        this.formatIds=formatIds;
+        this.longs=new long[formatIds.length][];
+        this.doubles=new double[formatIds.length][];
+        this.nulls=new boolean[formatIds.length][];
+        int numColumns=0;
+        for(int i=0;i<formatIds.length;i++){
+            if(formatIds[i]<0) continue;
+            if(isIntegral(formatIds[i]))
+                longs[i]=new long[capacity];
+            else if(isFloatingPoint(formatIds[i]))
+                doubles[i]=new double[capacity];
+            else
+                throw new IllegalArgumentException("Column "+i+" has type format id "+formatIds[i]+", which can't be held in a vector");
+            nulls[i]=new boolean[capacity];
+            numColumns++;
+        }
+        this.columns=new int[numColumns];
+        for(int i=0,j=0;i<formatIds.length;i++){
+            if(formatIds[i]>=0)
+                columns[j++]=i;
+        }
+        this.selection=new int[capacity];
+    }
+
+    public static boolean isIntegral(int formatId){
+        switch(formatId){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public static boolean isFloatingPoint(int formatId){
+        return formatId==StoredFormatIds.SQL_REAL_ID || formatId==StoredFormatIds.SQL_DOUBLE_ID;
+    }
+
+    /**
+     * @return true if columns of the given type can be decoded into a vector
+     */
+    public static boolean isSupported(int formatId){
+        return isIntegral(formatId) || isFloatingPoint(formatId);
+    }
+
+    public boolean hasColumn(int column){
+        return column>=0 && column<formatIds.length && formatIds[column]>=0;
+    }
+
+    public int getFormatId(int column){
+        return formatIds[column];
+    }
+
+    /**
+     * @return the long vector of an integral column, or null if the column isn't integral
+     */
+    public long[] longs(int column){
+        return longs[column];
+    }
+
+    /**
+     * @return the double vector of a REAL or DOUBLE column, or null if the column isn't one
+     */
+    public double[] doubles(int column){
+        return doubles[column];
+    }
+
+    public boolean[] nulls(int column){
+        return nulls[column];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int capacity(){
+        return capacity;
+    }
+
+    public boolean isFull(){
+        return size>=capacity;
+    }
+
+    public void clear(){
+        size=0;
+        selected=0;
+    }
+
+    /**
+     * Start a new row at position {@link #size()}, with every column null.
+     */
+    public void beginRow(){
+        for(int column : columns){
+            nulls[column][size]=true;
+        }
+    }
+
+    public void setLong(int column,long value){
+        longs[column][size]=value;
+        nulls[column][size]=false;
+    }
+
+    public void setDouble(int column,double value){
+        doubles[column][size]=value;
+        nulls[column][size]=false;
+    }
+
+    /**
+     * @return true if the column of the row being built hasn't been set
+     */
+    public boolean isNull(int column){
+        return nulls[column][size];
+    }
+
+    /**
+     * Add the row being built to the batch.
+     */
+    public void endRow(){
+        size++;
+    }
+
+    /**
+     * Select every row of the batch.
+     */
+    public void selectAll(){
+        for(int i=0;i<size;i++){
+            selection[i]=i;
+        }
+        selected=size;
+    }
+
+    /**
+     * @return the positions of the selected rows; only the first {@link #selectedCount()} entries are valid
+     */
+    public int[] selection(){
+        return selection;
+    }
+
+    public int selectedCount(){
+        return selected;
+    }
+
+    public void setSelectedCount(int selected){
+        assert selected<=size:"Cannot select more rows than are in the batch";
+        this.selected=selected;
+    }
+
+    @Override
+    public String toString(){
+        return "ColumnarBatch{columns="+Arrays.toString(columns)+", size="+size+", selected="+selected+"}";
+    }
+}
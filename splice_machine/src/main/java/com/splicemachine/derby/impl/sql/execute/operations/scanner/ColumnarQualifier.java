@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.NumberDataType;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.derby.utils.Scans;
+
+/**
+ * A scan qualifier comparing a column with a constant, evaluated over the vectors of a {@link ColumnarBatch}.
+ *
+ * The comparison follows {@code Scans.qualifyRecordFromRow}: it is done in the dominant type of the
+ * column and the constant, and nulls are handled according to the qualifier's ordered nulls and
+ * unknown return value.
+ */
+public class ColumnarQualifier{
+    private enum Domain{ LONG, FLOAT, DOUBLE }
+
+    private final int column;
+    private final int operator;
+    private final boolean negate;
+    private final boolean orderedNulls;
+    private final boolean unknownRV;
+    private final boolean alwaysFalse;
+    private final boolean nullConstant;
+    private final Domain domain;
+    private final long longConstant;
+    private final double doubleConstant;
+
+    private ColumnarQualifier(int column,int operator,boolean negate,boolean orderedNulls,boolean unknownRV,
+                              boolean alwaysFalse,boolean nullConstant,Domain domain,long longConstant,double doubleConstant){
+        this.column=column;
+        this.operator=operator;
+        this.negate=negate;
+        this.orderedNulls=orderedNulls;
+        this.unknownRV=unknownRV;
+        this.alwaysFalse=alwaysFalse;
+        this.nullConstant=nullConstant;
+        this.domain=domain;
+        this.longConstant=longConstant;
+        this.doubleConstant=doubleConstant;
+    }
+
+    /**
+     * @param qualifier the scan qualifier
+     * @param column the position in the template row of the qualified column
+     * @param columnTemplate the template of the qualified column
+     * @return the qualifier, or null if it can't be evaluated over vectors
+     */
+    public static ColumnarQualifier create(Qualifier qualifier,int column,DataValueDescriptor columnTemplate) throws StandardException{
+        if(columnTemplate==null || !ColumnarBatch.isSupported(columnTemplate.getTypeFormatId()))
+            return null;
+        int operator=qualifier.getOperator();
+        if(operator<Orderable.ORDER_OP_LESSTHAN || operator>Orderable.ORDER_OP_GREATEROREQUALS)
+            return null;
+        qualifier.clearOrderableCache();
+        DataValueDescriptor orderable=qualifier.getOrderable();
+        boolean alwaysFalse=Scans.filterNull(operator,null,orderable,qualifier.getVariantType());
+        if(orderable==null || orderable.isNull()){
+            return new ColumnarQualifier(column,operator,qualifier.negateCompareResult(),qualifier.getOrderedNulls(),
+                    qualifier.getUnknownRV(),alwaysFalse,true,Domain.LONG,0L,0d);
+        }
+        if(!ColumnarBatch.isSupported(orderable.getTypeFormatId()))
+            return null;
+        DataValueDescriptor dominant=columnTemplate.typePrecedence()>=orderable.typePrecedence()?columnTemplate:orderable;
+        Domain domain;
+        long longConstant=0L;
+        double doubleConstant=0d;
+        switch(dominant.getTypeFormatId()){
+            case StoredFormatIds.SQL_REAL_ID:
+                domain=Domain.FLOAT;
+                doubleConstant=NumberDataType.normalizeREAL(orderable.getFloat());
+                break;
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                domain=Domain.DOUBLE;
+                doubleConstant=orderable.getDouble();
+                break;
+            default:
+                domain=Domain.LONG;
+                longConstant=orderable.getLong();
+        }
+        return new ColumnarQualifier(column,operator,qualifier.negateCompareResult(),qualifier.getOrderedNulls(),
+                qualifier.getUnknownRV(),alwaysFalse,false,domain,longConstant,doubleConstant);
+    }
+
+    public int getColumn(){
+        return column;
+    }
+
+    /**
+     * @return true if the qualifier is true for the given row of the batch
+     */
+    public boolean qualifies(ColumnarBatch batch,int row){
+        if(alwaysFalse)
+            return false;
+        boolean isNull=batch.nulls(column)[row];
+        int result;
+        if(isNull || nullConstant){
+            if(!orderedNulls)
+                return unknownRV;
+            //nulls sort after every other value
+            result=isNull?(nullConstant?0:1):-1;
+        }else{
+            switch(domain){
+                case FLOAT:
+                    float f=value(batch,row);
+                    float fc=(float)doubleConstant;
+                    result=f==fc?0:(f>fc?1:-1);
+                    break;
+                case DOUBLE:
+                    double d=valueAsDouble(batch,row);
+                    result=d==doubleConstant?0:(d>doubleConstant?1:-1);
+                    break;
+                default:
+                    result=Long.compare(batch.longs(column)[row],longConstant);
+            }
+        }
+        boolean qualifies=matches(result);
+        return negate!=qualifies;
+    }
+
+    /**
+     * Narrow the selection of the batch to the rows this qualifier is true for.
+     */
+    public void filter(ColumnarBatch batch){
+        int[] selection=batch.selection();
+        int selected=batch.selectedCount();
+        int kept=0;
+        if(alwaysFalse){
+            batch.setSelectedCount(0);
+            return;
+        }
+        if(domain==Domain.LONG && !nullConstant && !negate){
+            //the common case, kept free of the per-row null and domain checks where we can
+            long[] values=batch.longs(column);
+            boolean[] nulls=batch.nulls(column);
+            for(int i=0;i<selected;i++){
+                int row=selection[i];
+                boolean qualifies;
+                if(nulls[row])
+                    qualifies=orderedNulls?matches(1):unknownRV;
+                else
+                    qualifies=matches(Long.compare(values[row],longConstant));
+                if(qualifies)
+                    selection[kept++]=row;
+            }
+        }else{
+            for(int i=0;i<selected;i++){
+                int row=selection[i];
+                if(qualifies(batch,row))
+                    selection[kept++]=row;
+            }
+        }
+        batch.setSelectedCount(kept);
+    }
+
+    /**
+     * Narrow the selection of the batch to the rows which satisfy every clause of a conjunctive normal form
+     * qualifier list, as used by {@code Scans.qualifyRecordFromRow}: the first list is ANDed, and each of the
+     * remaining lists is ORed.
+     */
+    public static void filter(ColumnarBatch batch,ColumnarQualifier[][] qualifiers){
+        if(qualifiers==null)
+            return;
+        for(ColumnarQualifier qualifier : qualifiers[0]){
+            qualifier.filter(batch);
+        }
+        int[] selection=batch.selection();
+        for(int and=1;and<qualifiers.length;and++){
+            int selected=batch.selectedCount();
+            int kept=0;
+            for(int i=0;i<selected;i++){
+                int row=selection[i];
+                for(ColumnarQualifier qualifier : qualifiers[and]){
+                    if(qualifier.qualifies(batch,row)){
+                        selection[kept++]=row;
+                        break;
+                    }
+                }
+            }
+            batch.setSelectedCount(kept);
+        }
+    }
+
+    private float value(ColumnarBatch batch,int row){
+        long[] longs=batch.longs(column);
+        return longs!=null?(float)longs[row]:(float)batch.doubles(column)[row];
+    }
+
+    private double valueAsDouble(ColumnarBatch batch,int row){
+        long[] longs=batch.longs(column);
+        return longs!=null?(double)longs[row]:batch.doubles(column)[row];
+    }
+
+    private boolean matches(int result){
+        switch(operator){
+            case Orderable.ORDER_OP_LESSTHAN:
+                return result<0;
+            case Orderable.ORDER_OP_EQUALS:
+                return result==0;
+            case Orderable.ORDER_OP_LESSOREQUALS:
+                return result<=0;
+            case Orderable.ORDER_OP_GREATERTHAN:
+                return result>0;
+            case Orderable.ORDER_OP_GREATEROREQUALS:
+                return result>=0;
+            default:
+                throw new IllegalStateException("Unexpected operator "+operator);
+        }
+    }
+}
@@ -23,6 +23,9 @@ import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.RowLocation;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinKeyFilter;
+import com.splicemachine.derby.impl.store.ColumnarRowAccumulator;
 import com.splicemachine.derby.impl.store.ExecRowAccumulator;
 import com.splicemachine.db.iapi.types.HBaseRowLocation;
 import com.splicemachine.derby.utils.StandardIterator;
@@ -83,13 +86,18 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private int[] keyDecodingMap;
     private FormatableBitSet accessedKeys;
     private SIFilterFactory filterFactory;
-    private ExecRowAccumulator accumulator;
+    private EntryAccumulator accumulator;
+    private ColumnarBatch columnarBatch;
     private EntryDecoder entryDecoder;
     private final Counter outputBytesCounter;
     private long demarcationPoint;
     private DataValueDescriptor optionalProbeValue;
     private ExecRow defaultRow;
     private FormatableBitSet defaultValueMap;
+    private long joinKeyFilterId = -1L;
+    private int[] joinKeyFilterColumns;
+    private BroadcastJoinKeyFilter joinKeyFilter;
+    private long joinKeyFilterSkipped;
 
     protected SITableScanner(DataScanner scanner,
                              final TransactionalRegion region,
@@ -198,6 +206,14 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     @Override
     public ExecRow next() throws StandardException, IOException {
         SIFilter filter = getSIFilter();
+        if(joinKeyFilterId>=0 && joinKeyFilter==null){
+            /*
+             * The broadcast join loads its inner table before it pulls any outer rows, so if the
+             * table isn't loaded by now (e.g. the join wasn't broadcast after all) then don't filter
+             */
+            joinKeyFilter = BroadcastJoinCache.getInstance().getKeyFilter(joinKeyFilterId);
+            joinKeyFilterId = -1L;
+        }
         do{
             template.resetRowArray(); //necessary to deal with null entries--maybe make the underlying call faster?
             List<DataCell> keyValues=regionScanner.next(-1);
@@ -227,6 +243,11 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
                             template.setColumn(i+1, defaultRow.getColumn(i+1).cloneValue(false));
                     }
                 }
+                if(joinKeyFilter!=null && !joinKeyFilter.mightContain(template,joinKeyFilterColumns)){
+                    //the row can't join with the inner side of the broadcast join that we feed
+                    joinKeyFilterSkipped++;
+                    continue;
+                }
                 measureOutputSize(keyValues);
                 currentKeyValue = keyValues.get(0);
                 setRowLocation(currentKeyValue);
@@ -236,6 +257,51 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         }while(true); //TODO -sf- this doesn't seem quite right
     }
 
+    /**
+     * Read the next run of rows into the column vectors of {@code batch}, rather than into the template row.
+     *
+     * Only the columns held by the batch are decoded, and the scan must not read any primary key
+     * columns. A scanner which has read batches must not be read a row at a time, and must be given
+     * the same batch every time.
+     *
+     * @return the number of rows read into the batch, or 0 if the scan is exhausted
+     */
+    public int nextBatch(ColumnarBatch batch) throws StandardException, IOException {
+        assert !isKeyed:"Cannot decode primary key columns into a columnar batch";
+        assert columnarBatch==null || columnarBatch==batch:"A scanner can only fill one columnar batch";
+        if(siFilter==null)
+            columnarBatch = batch;
+        SIFilter filter = getSIFilter();
+        batch.clear();
+        while(!batch.isFull()){
+            List<DataCell> keyValues=regionScanner.next(-1);
+            if(keyValues.size()<=0)
+                break;
+            batch.beginRow();
+            if(!filterRow(filter,keyValues)){
+                filterCounter.increment();
+                continue;
+            }
+            //fill the unpopulated non-null columns with default values
+            if (defaultRow != null && defaultValueMap != null) {
+                for (int i=defaultValueMap.anySetBit(); i>=0; i=defaultValueMap.anySetBit(i)) {
+                    if (batch.hasColumn(i) && batch.isNull(i)){
+                        DataValueDescriptor defaultValue = defaultRow.getColumn(i+1);
+                        if (defaultValue.isNull())
+                            continue;
+                        if (ColumnarBatch.isIntegral(batch.getFormatId(i)))
+                            batch.setLong(i, defaultValue.getLong());
+                        else
+                            batch.setDouble(i, defaultValue.getDouble());
+                    }
+                }
+            }
+            measureOutputSize(keyValues);
+            batch.endRow();
+        }
+        return batch.size();
+    }
+
     public long getBytesOutput(){
         return outputBytesCounter.getTotal();
     }
@@ -256,6 +322,10 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
 
     @Override
     public void close() throws StandardException, IOException {
+        if(joinKeyFilterSkipped>0){
+            BroadcastJoinCache.getInstance().recordKeyFilterSkippedRows(joinKeyFilterSkipped);
+            joinKeyFilterSkipped = 0;
+        }
         if(keyAccumulator!=null)
             keyAccumulator.close();
         if(siFilter!=null)
@@ -277,6 +347,23 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         return filterCounter.getTotal();
     }
 
+    /**
+     * @return the number of rows discarded by the broadcast join key filter since the last close
+     */
+    public long getRowsSkippedByJoinKeyFilter(){
+        return joinKeyFilterSkipped;
+    }
+
+    /**
+     * Discard rows whose keys are not in the key filter of the given broadcast join.
+     *
+     * @see com.splicemachine.derby.stream.iapi.ScanSetBuilder#joinKeyFilter(long, int[])
+     */
+    void setJoinKeyFilter(long broadcastJoinId,int[] keyColumns){
+        this.joinKeyFilterId = broadcastJoinId;
+        this.joinKeyFilterColumns = keyColumns;
+    }
+
     public long getRowsVisited() {
         return regionScanner.getRowsVisited();
     }
@@ -383,7 +470,10 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         if(siFilter==null) {
             boolean isCountStar = scan.getAttribute(SIConstants.SI_COUNT_STAR)!=null;
             predicateFilter= buildInitialPredicateFilter();
-            accumulator = ExecRowAccumulator.newAccumulator(predicateFilter, false, template, rowDecodingMap, tableVersion);
+            if(columnarBatch!=null)
+                accumulator = ColumnarRowAccumulator.newAccumulator(predicateFilter, columnarBatch, rowDecodingMap);
+            else
+                accumulator = ExecRowAccumulator.newAccumulator(predicateFilter, false, template, rowDecodingMap, tableVersion);
             siFilter = filterFactory.newFilter(predicateFilter,getRowEntryDecoder(),accumulator,isCountStar);
         }
         return siFilter;
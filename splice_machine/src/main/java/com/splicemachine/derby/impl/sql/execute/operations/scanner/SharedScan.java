@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.access.api.PartitionFactory;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.MultiTimeView;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A scan of a table which several concurrent queries read at once.
+ *
+ * The table is read in pages of rows, by whichever reader first needs the next page, and every page is kept until
+ * all the readers have read it (or until the slowest reader is too many pages behind, in which case it stops
+ * sharing and scans the rest of the table on its own). The rows are read with all their versions and without any
+ * transactional filtering, so each reader applies its own transaction, predicates and projection to them.
+ *
+ * A reader which attaches after the scan has started reads from the oldest page still kept, and then, once the
+ * shared scan is done, the rows before that page. Its rows are not in key order.
+ *
+ * The storage returns the rows which were committed when it scanned them, so a reader may only attach if its
+ * transaction started before this scan did: all the rows it can see have then been written before the scan started.
+ * Readers must not have written to the table themselves.
+ */
+@ThreadSafe
+public class SharedScan{
+    private static final Logger LOG=Logger.getLogger(SharedScan.class);
+
+    private final SharedScans owner;
+    private final String id;
+    private final PartitionFactory tableFactory;
+    private final String tableName;
+    private final DataScan scan;
+    private final long snapshotTimestamp;
+    private final int pageSize;
+    private final int maxPages;
+    private final MetricFactory metricFactory;
+    private final OperationFactory operationFactory;
+
+    private final Lock lock=new ReentrantLock();
+    private final Condition pageRead=lock.newCondition();
+    /*the pages which a reader still needs, the first of which is page number firstPage*/
+    private final List<Page> pages=new ArrayList<>();
+    private final Set<Reader> readers=new HashSet<>();
+    private long firstPage;
+    private long nextPage;
+    /*the key the next page starts at, or null at the start of the scan*/
+    private byte[] resumeKey;
+    private Partition table;
+    private DataScanner scanner;
+    private boolean reading;
+    private boolean exhausted;
+    private boolean failed;
+    /*no more readers may attach*/
+    private boolean finished;
+
+    SharedScan(SharedScans owner,String id,PartitionFactory tableFactory,String tableName,DataScan scan,
+               long snapshotTimestamp,int pageSize,int maxPages,MetricFactory metricFactory,OperationFactory operationFactory){
+        this.owner=owner;
+        this.id=id;
+        this.tableFactory=tableFactory;
+        this.tableName=tableName;
+        this.scan=scan;
+        this.snapshotTimestamp=snapshotTimestamp;
+        this.pageSize=pageSize;
+        this.maxPages=maxPages;
+        this.metricFactory=metricFactory;
+        this.operationFactory=operationFactory;
+    }
+
+    /**
+     * @param partition the reader's table, which it scans the rows it does not share from
+     * @param readerScan the scan the reader would have run on its own
+     * @param beginTimestamp the begin timestamp of the reader's transaction
+     * @return a reader of this scan, or {@code null} if the reader can't share this scan
+     */
+    Reader attach(Partition partition,DataScan readerScan,long beginTimestamp,MetricFactory readerMetrics){
+        lock.lock();
+        try{
+            if(finished || beginTimestamp>=snapshotTimestamp) return null;
+            byte[] joinKey=pages.isEmpty()?resumeKey:pages.get(0).startKey;
+            Reader reader=new Reader(partition,readerScan,firstPage,joinKey,readerMetrics);
+            readers.add(reader);
+            return reader;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    String getId(){
+        return id;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * @return the next page for {@code reader}, or {@code null} if it must scan the rest of its rows on its own
+     */
+    private Page next(Reader reader) throws IOException{
+        lock.lock();
+        try{
+            while(true){
+                if(reader.nextPage<firstPage) return null; //fell behind
+                if(reader.nextPage<nextPage){
+                    Page page=pages.get((int)(reader.nextPage-firstPage));
+                    reader.nextPage++;
+                    trim();
+                    return page;
+                }
+                if(exhausted){
+                    reader.caughtUp=true;
+                    return null;
+                }
+                if(failed) return null;
+                if(reading){
+                    try{
+                        pageRead.await();
+                    }catch(InterruptedException ie){
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                    continue;
+                }
+                reading=true;
+                Page page=null;
+                lock.unlock();
+                try{
+                    page=read(reader);
+                }finally{
+                    lock.lock();
+                    reading=false;
+                    if(page==null){
+                        failed=true;
+                        finish();
+                    }
+                    if(readers.isEmpty())
+                        closeScanner();
+                    pageRead.signalAll();
+                }
+                pages.add(page);
+                nextPage++;
+                resumeKey=page.endKey;
+                if(page.last){
+                    exhausted=true;
+                    finish();
+                }
+                trim();
+            }
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /*called by the one reader which is reading, without holding the lock*/
+    private Page read(Reader reader) throws IOException{
+        if(scanner==null){
+            if(table==null)
+                table=tableFactory.getTable(tableName);
+            scanner=table.openScanner(scan,metricFactory);
+        }
+        List<List<DataCell>> rows=new ArrayList<>(pageSize);
+        boolean last=false;
+        while(rows.size()<pageSize){
+            List<DataCell> row=scanner.next(-1);
+            if(row.isEmpty()){
+                last=true;
+                break;
+            }
+            //the scanner may reuse its cells, and the rows are read by other threads
+            List<DataCell> copy=new ArrayList<>(row.size());
+            for(DataCell cell : row){
+                DataCell clone=cell.getClone();
+                clone.dataType(); //parse the type once, here
+                copy.add(clone);
+            }
+            rows.add(copy);
+        }
+        byte[] endKey=rows.isEmpty()?resumeKey:after(rows.get(rows.size()-1).get(0).key());
+        return new Page(reader,rows,resumeKey,endKey,last);
+    }
+
+    /*drops the pages which no reader needs any more, and those which are too far behind*/
+    private void trim(){
+        long needed=nextPage;
+        for(Reader reader : readers){
+            needed=Math.min(needed,reader.nextPage);
+        }
+        while(!pages.isEmpty() && (firstPage<needed || pages.size()>maxPages)){
+            pages.remove(0);
+            firstPage++;
+        }
+    }
+
+    private void detach(Reader reader){
+        lock.lock();
+        try{
+            if(!readers.remove(reader)) return;
+            trim();
+            if(readers.isEmpty()){
+                finish();
+                if(!reading)
+                    closeScanner();
+            }
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    private void finish(){
+        finished=true;
+        owner.remove(this);
+    }
+
+    private void closeScanner(){
+        try{
+            if(scanner!=null)
+                scanner.close();
+            if(table!=null)
+                table.close();
+        }catch(IOException e){
+            LOG.warn("Unable to close shared scan of "+id,e);
+        }finally{
+            scanner=null;
+            table=null;
+        }
+    }
+
+    /*the smallest key after key*/
+    private static byte[] after(byte[] key){
+        return Arrays.copyOf(key,key.length+1);
+    }
+
+    private static class Page{
+        private final Reader reader;
+        private final List<List<DataCell>> rows;
+        private final byte[] startKey;
+        private final byte[] endKey;
+        private final boolean last;
+
+        Page(Reader reader,List<List<DataCell>> rows,byte[] startKey,byte[] endKey,boolean last){
+            this.reader=reader;
+            this.rows=rows;
+            this.startKey=startKey;
+            this.endKey=endKey;
+            this.last=last;
+        }
+    }
+
+    /**
+     * The rows of the shared scan, as read by one query. Once the shared scan has nothing more for it, the reader
+     * scans the rows it still misses itself: the rest of the table if it fell behind, and the rows before the point
+     * it attached at.
+     */
+    @NotThreadSafe
+    public class Reader implements DataScanner{
+        private final Partition partition;
+        private final DataScan readerScan;
+        private final byte[] joinKey;
+        private final MetricFactory readerMetrics;
+        private final MultiTimeView readTime=Metrics.multiTimeView();
+        /*guarded by the scan's lock*/
+        private long nextPage;
+        private boolean caughtUp;
+
+        private byte[] resumeKey;
+        private Page page;
+        private int pageRow;
+        private boolean attached=true;
+        private Deque<byte[][]> ranges;
+        private DataScanner own;
+        private long rowsRead;
+        private long rowsShared;
+        private long bytesOutput;
+        private long rowsFiltered;
+        private long rowsVisited;
+
+        private Reader(Partition partition,DataScan readerScan,long nextPage,byte[] joinKey,MetricFactory readerMetrics){
+            this.partition=partition;
+            this.readerScan=readerScan;
+            this.nextPage=nextPage;
+            this.joinKey=joinKey;
+            this.resumeKey=joinKey;
+            this.readerMetrics=readerMetrics;
+        }
+
+        @Override
+        @Nonnull
+        public List<DataCell> next(int limit) throws IOException{
+            while(true){
+                if(page!=null && pageRow<page.rows.size()){
+                    List<DataCell> row=page.rows.get(pageRow++);
+                    rowsRead++;
+                    if(page.reader!=this)
+                        rowsShared++;
+                    if(pageRow==page.rows.size())
+                        resumeKey=page.endKey;
+                    return row;
+                }
+                if(attached){
+                    page=SharedScan.this.next(this);
+                    pageRow=0;
+                    if(page!=null) continue;
+                    attached=false;
+                    detach(this);
+                    ranges=remainingRanges();
+                }
+                if(own!=null){
+                    List<DataCell> cells=own.next(limit);
+                    if(!cells.isEmpty()) return cells;
+                    closeOwn();
+                }
+                if(ranges.isEmpty()) return Collections.emptyList();
+                byte[][] range=ranges.removeFirst();
+                own=partition.openScanner(rangeScan(range[0],range[1]),readerMetrics);
+            }
+        }
+
+        @Override
+        public void close() throws IOException{
+            if(attached){
+                attached=false;
+                detach(this);
+            }
+            page=null;
+            ranges=new ArrayDeque<>();
+            closeOwn();
+        }
+
+        @Override
+        public Partition getPartition(){
+            return partition;
+        }
+
+        /**
+         * @return the rows this reader read from pages which another reader fetched
+         */
+        public long getRowsShared(){
+            return rowsShared;
+        }
+
+        /*Metrics reporting, of the rows this reader scanned on its own*/
+        @Override
+        public TimeView getReadTime(){
+            return readTime;
+        }
+
+        @Override
+        public long getBytesOutput(){
+            return bytesOutput+(own==null?0L:own.getBytesOutput());
+        }
+
+        @Override
+        public long getRowsFiltered(){
+            return rowsFiltered+(own==null?0L:own.getRowsFiltered());
+        }
+
+        @Override
+        public long getRowsVisited(){
+            return rowsRead+rowsVisited+(own==null?0L:own.getRowsVisited());
+        }
+
+        private Deque<byte[][]> remainingRanges(){
+            Deque<byte[][]> ranges=new ArrayDeque<>(2);
+            if(!caughtUp)
+                ranges.add(new byte[][]{resumeKey==null?readerScan.getStartKey():resumeKey,readerScan.getStopKey()});
+            if(joinKey!=null)
+                ranges.add(new byte[][]{readerScan.getStartKey(),joinKey});
+            return ranges;
+        }
+
+        private DataScan rangeScan(byte[] start,byte[] stop){
+            DataScan rangeScan=operationFactory.newScan();
+            rangeScan.setAllAttributes(new HashMap<>(readerScan.allAttributes()));
+            rangeScan.startKey(start).stopKey(stop).cacheRows(1000).batchCells(-1);
+            rangeScan.setTimeRange(readerScan.lowVersion(),readerScan.highVersion());
+            rangeScan.returnAllVersions();
+            return rangeScan;
+        }
+
+        private void closeOwn() throws IOException{
+            if(own==null) return;
+            try{
+                readTime.update(own.getReadTime());
+                bytesOutput+=own.getBytesOutput();
+                rowsFiltered+=own.getRowsFiltered();
+                rowsVisited+=own.getRowsVisited();
+                own.close();
+            }finally{
+                own=null;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.access.api.PartitionFactory;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.timestamp.api.TimestampSource;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link SharedScan}s running in this JVM, by table and key range.
+ */
+public class SharedScans{
+    private static final SharedScans INSTANCE=new SharedScans();
+    static final int PAGE_SIZE=1024;
+
+    private final ConcurrentMap<String,SharedScan> running=new ConcurrentHashMap<>();
+
+    SharedScans(){
+    }
+
+    public static SharedScans getInstance(){
+        return INSTANCE;
+    }
+
+    /**
+     * Reads the rows of {@code scan} from a running shared scan of the same range, or from a new one if none can
+     * be shared.
+     *
+     * @param partition the table, which the query scans the rows it does not share from
+     * @param scan a scan which returns all versions, and does no transactional filtering
+     * @param beginTimestamp the begin timestamp of the transaction reading the rows, which must not have written
+     *                       to the table
+     * @param bufferRows the number of rows a new shared scan keeps for its slowest reader
+     */
+    public SharedScan.Reader open(Partition partition,DataScan scan,long beginTimestamp,int bufferRows,MetricFactory metricFactory) throws IOException{
+        SIDriver driver=SIDriver.driver();
+        return open(partition,scan,beginTimestamp,PAGE_SIZE,Math.max(1,bufferRows/PAGE_SIZE),metricFactory,
+                driver.getTableFactory(),driver.getTimestampSource(),driver.baseOperationFactory());
+    }
+
+    SharedScan.Reader open(Partition partition,DataScan scan,long beginTimestamp,int pageSize,int maxPages,
+                           MetricFactory metricFactory,PartitionFactory tableFactory,TimestampSource timestampSource,
+                           OperationFactory operationFactory) throws IOException{
+        String id=partition.getTableName()+"/"+hex(scan.getStartKey())+"/"+hex(scan.getStopKey());
+        while(true){
+            SharedScan current=running.get(id);
+            if(current!=null){
+                SharedScan.Reader reader=current.attach(partition,scan,beginTimestamp,metricFactory);
+                if(reader!=null) return reader;
+            }
+            /*
+             * Start a new one, which the queries that start from now on will share. It has its own table, as it
+             * may outlive the query starting it, and it isn't measured by any one query.
+             */
+            SharedScan shared=new SharedScan(this,id,tableFactory,partition.getTableName(),scan,timestampSource.nextTimestamp(),
+                    pageSize,maxPages,Metrics.noOpMetricFactory(),operationFactory);
+            SharedScan.Reader reader=shared.attach(partition,scan,beginTimestamp,metricFactory);
+            assert reader!=null:"Unable to read a new shared scan";
+            boolean registered=current==null?running.putIfAbsent(id,shared)==null:running.replace(id,current,shared);
+            if(registered) return reader;
+            //someone else started one first
+        }
+    }
+
+    void remove(SharedScan scan){
+        running.remove(scan.getId(),scan);
+    }
+
+    int size(){
+        return running.size();
+    }
+
+    private static String hex(byte[] key){
+        return key==null?"":Bytes.toHex(key);
+    }
+}
@@ -21,6 +21,7 @@ import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.ColumnarAggregation;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -39,6 +40,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Companion Builder class for SITableScanner
@@ -50,6 +52,8 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     protected DataScanner scanner;
     protected ExecRow template;
     protected DataScan scan;
+    protected List<DataScan> probeScans;
+    protected boolean sharedScan;
     protected int[] rowColumnMap;
     protected TxnView txn;
     protected int[] keyColumnEncodingOrder;
@@ -90,6 +94,9 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     protected byte[] token = SpliceClient.token;
 
     protected boolean ignoreRecentTransactions = false;
+    protected long joinKeyFilterId = -1L;
+    protected int[] joinKeyFilterColumns;
+    protected ColumnarAggregation columnarAggregation;
 
     @Override
     public ScanSetBuilder<V> metricFactory(MetricFactory metricFactory){
@@ -118,6 +125,19 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return this;
     }
 
+    @Override
+    public ScanSetBuilder<V> probeScans(List<DataScan> probeScans){
+        assert probeScans!=null && !probeScans.isEmpty():"No probe scans specified!";
+        this.probeScans=probeScans;
+        return this;
+    }
+
+    @Override
+    public ScanSetBuilder<V> sharedScan(boolean sharedScan){
+        this.sharedScan=sharedScan;
+        return this;
+    }
+
     public ScanSetBuilder<V> optionalProbeValue(DataValueDescriptor optionalProbeValue){
         assert optionalProbeValue!=null:"Null optionalProbeValues are not allowed!";
         this.optionalProbeValue=optionalProbeValue;
@@ -394,7 +414,7 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     }
 
     public SITableScanner build(){
-            return new SITableScanner(
+            SITableScanner tableScanner = new SITableScanner(
                     scanner,
                     region,
                     template,
@@ -415,6 +435,9 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
                     defaultRow,
                     defaultValueMap,
                     ignoreRecentTransactions);
+            if(joinKeyFilterColumns!=null)
+                tableScanner.setJoinKeyFilter(joinKeyFilterId,joinKeyFilterColumns);
+            return tableScanner;
     }
 
     @Override
@@ -490,6 +513,10 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
             if (defaultValueMap != null)
                 out.writeObject(defaultValueMap);
             out.writeBoolean(ignoreRecentTransactions);
+            out.writeLong(joinKeyFilterId);
+            out.writeBoolean(joinKeyFilterColumns!=null);
+            if (joinKeyFilterColumns!=null)
+                ArrayUtil.writeIntArray(out,joinKeyFilterColumns);
     }
     private void writeNullableString (String nullableString,ObjectOutput out) throws IOException {
         out.writeBoolean(nullableString!=null);
@@ -571,6 +598,9 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
             if (in.readBoolean())
                 defaultValueMap = (FormatableBitSet) in.readObject();
             ignoreRecentTransactions = in.readBoolean();
+            joinKeyFilterId = in.readLong();
+            if (in.readBoolean())
+                joinKeyFilterColumns = ArrayUtil.readIntArray(in);
     }
 
     protected TxnView readTxn(ObjectInput in) throws IOException{
@@ -732,4 +762,21 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     public boolean getIgnoreRecentTransactions() {
         return ignoreRecentTransactions;
     }
+
+    @Override
+    public ScanSetBuilder<V> joinKeyFilter(long broadcastJoinId, int[] keyColumns) {
+        this.joinKeyFilterId = broadcastJoinId;
+        this.joinKeyFilterColumns = keyColumns;
+        return this;
+    }
+
+    @Override
+    public ScanSetBuilder<V> columnarAggregation(ColumnarAggregation columnarAggregation) {
+        this.columnarAggregation = columnarAggregation;
+        return this;
+    }
+
+    public ColumnarAggregation getColumnarAggregation() {
+        return columnarAggregation;
+    }
 }
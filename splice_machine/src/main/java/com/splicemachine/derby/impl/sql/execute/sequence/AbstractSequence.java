@@ -16,85 +16,263 @@ package com.splicemachine.derby.impl.sql.execute.sequence;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.pipeline.Exceptions;
+import org.apache.log4j.Logger;
 
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * A sequence which hands out values from blocks it allocates from a shared counter.
+ *
+ * Blocks start at {@code blockAllocationSize} values. A block which is used up within a second is followed by one
+ * twice as large (up to {@code maxBlockAllocationSize}), and one which lasts longer than a minute by one half as
+ * large (down to {@code blockAllocationSize}). When a sequence has an executor to prefetch with, it allocates the
+ * next block in the background once three quarters of the current one are used, so that callers only wait for an
+ * allocation when values are taken faster than a block can be allocated.
+ */
 public abstract class AbstractSequence implements Sequence, Externalizable{
-    protected final AtomicLong remaining=new AtomicLong(0l);
-    protected final AtomicLong currPosition=new AtomicLong(0l);
+    private static final Logger LOG=Logger.getLogger(AbstractSequence.class);
+    private static final long GROW_NANOS=TimeUnit.SECONDS.toNanos(1);
+    private static final long SHRINK_NANOS=TimeUnit.MINUTES.toNanos(1);
+
     protected long blockAllocationSize;
+    protected long maxBlockAllocationSize;
     protected long incrementSteps;
     protected final Lock updateLock=new ReentrantLock();
     protected long startingValue;
+    /*the value the allocation in progress starts from, as read by getCurrentValue()*/
+    protected long allocationStart;
+
+    private final Lock allocationLock=new ReentrantLock();
+    private volatile Block current=Block.EMPTY;
+    /*guarded by updateLock*/
+    private Future<Block> prefetch;
+    private long blockSize;
+
+    private final AtomicLong allocations=new AtomicLong(0l);
+    private final AtomicLong allocationTime=new AtomicLong(0l);
+    private final AtomicLong prefetches=new AtomicLong(0l);
+    private final AtomicLong waits=new AtomicLong(0l);
 
     public AbstractSequence(){
 
     }
 
     public AbstractSequence(long blockAllocationSize,long incrementSteps,long startingValue){
+        this(blockAllocationSize,blockAllocationSize,incrementSteps,startingValue);
+    }
+
+    public AbstractSequence(long blockAllocationSize,long maxBlockAllocationSize,long incrementSteps,long startingValue){
         if(incrementSteps>blockAllocationSize)
             blockAllocationSize=incrementSteps;
         this.blockAllocationSize=blockAllocationSize;
+        this.maxBlockAllocationSize=Math.max(blockAllocationSize,maxBlockAllocationSize);
         this.incrementSteps=incrementSteps;
         this.startingValue=startingValue;
     }
 
     public long getNext() throws StandardException{
-        if(remaining.getAndDecrement()<=0)
-            allocateBlock(false);
-        return currPosition.getAndAdd(incrementSteps);
+        while(true){
+            Block block=current;
+            long taken=block.taken.getAndIncrement();
+            if(taken<block.count){
+                if(taken==block.prefetchAt)
+                    prefetch(block);
+                return block.start+taken*incrementSteps;
+            }
+            nextBlock(block);
+        }
     }
 
     public long peekAtCurrentValue() throws StandardException {
-        if(remaining.get()<= 0)
-            allocateBlock(true);
-        return currPosition.get();
+        while(true){
+            Block block=current;
+            long taken=block.taken.get();
+            if(taken<block.count)
+                return block.start+taken*incrementSteps;
+            nextBlock(block);
+        }
     }
 
     protected abstract long getCurrentValue() throws IOException;
 
+    /**
+     * Sets the shared counter to {@code nextValue}, if it still is at {@link #allocationStart}.
+     */
     protected abstract boolean atomicIncrement(long nextValue) throws IOException;
 
+    /**
+     * @return the executor to allocate the next block with in the background, or {@code null} to only allocate
+     * blocks when they are needed
+     */
+    protected ExecutorService getPrefetchExecutor(){
+        return null;
+    }
+
     public abstract void close() throws IOException;
 
-    private void allocateBlock(boolean peek) throws StandardException{
-        boolean success=false;
+    /*Allocation statistics*/
+
+    /**
+     * @return the number of values in the blocks this sequence allocates now
+     */
+    public long getBlockSize(){
+        updateLock.lock();
+        try{
+            return currentBlockSize();
+        }finally{
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of blocks allocated
+     */
+    public long getAllocations(){
+        return allocations.get();
+    }
+
+    /**
+     * @return the time spent allocating blocks, in nanoseconds
+     */
+    public long getAllocationTime(){
+        return allocationTime.get();
+    }
+
+    /**
+     * @return the number of blocks allocated in the background, before they were needed
+     */
+    public long getPrefetches(){
+        return prefetches.get();
+    }
+
+    /**
+     * @return the number of times callers had to wait for a block to be allocated
+     */
+    public long getWaits(){
+        return waits.get();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void nextBlock(Block used) throws StandardException{
+        updateLock.lock();
+        try{
+            if(current!=used) return; //someone else got the next block
+            Block next=null;
+            Future<Block> pending=prefetch;
+            prefetch=null;
+            if(pending==null || !pending.isDone())
+                waits.incrementAndGet();
+            if(pending!=null){
+                try{
+                    next=pending.get();
+                }catch(InterruptedException ie){
+                    Thread.currentThread().interrupt();
+                    throw Exceptions.parseException(ie);
+                }catch(ExecutionException ee){
+                    LOG.warn("Unable to prefetch a sequence block, allocating it now",ee.getCause());
+                }
+            }
+            if(next==null)
+                next=allocate(adapt(used,used.count));
+            current=next;
+        }finally{
+            updateLock.unlock();
+        }
+    }
+
+    private void prefetch(final Block block){
+        ExecutorService executor=getPrefetchExecutor();
+        if(executor==null) return;
+        updateLock.lock();
+        try{
+            if(current!=block || prefetch!=null) return;
+            final long size=adapt(block,block.prefetchAt+1);
+            prefetch=executor.submit(() -> allocate(size));
+            prefetches.incrementAndGet();
+        }catch(RejectedExecutionException ree){
+            //allocate it when it's needed
+            prefetch=null;
+        }finally{
+            updateLock.unlock();
+        }
+    }
+
+    /*the size of the block after one of which {@code used} values were taken so far*/
+    private long adapt(Block block,long used){
+        long size=currentBlockSize();
+        if(block!=Block.EMPTY && used>0){
+            long lifetime=(System.nanoTime()-block.created)/used*block.count;
+            if(lifetime<GROW_NANOS)
+                size=Math.min(size*2,maxBlockAllocationSize);
+            else if(lifetime>SHRINK_NANOS)
+                size=Math.max(size/2,blockAllocationSize);
+        }
+        blockSize=size;
+        return size;
+    }
+
+    private long currentBlockSize(){
+        if(blockSize<=0)
+            blockSize=blockAllocationSize;
+        return blockSize;
+    }
+
+    private Block allocate(long size) throws StandardException{
         long absIncrement = incrementSteps < 0 ? -incrementSteps :
                                                   incrementSteps;
-        while(!success){
-            updateLock.lock();
-            try{
-                if(remaining.getAndDecrement()>0)
-                    return;
-                currPosition.set(getCurrentValue());
-
-                // Use a multiple of the increment in order to honor the increment size.
-                long remainingCount = blockAllocationSize/absIncrement;
-                success=atomicIncrement(currPosition.get()+
-                        (absIncrement>blockAllocationSize?incrementSteps:
-                         incrementSteps*remainingCount));
-                if(success){
-                    long v = remainingCount;
-                    remaining.set(peek?v:v-1);
-                }
-            }catch(IOException e){
-                throw Exceptions.parseException(e);
-            }finally{
-                updateLock.unlock();
+        // Use a multiple of the increment in order to honor the increment size.
+        long count=Math.max(1l,size/absIncrement);
+        allocationLock.lock();
+        try{
+            long start=System.nanoTime();
+            boolean success=false;
+            while(!success){
+                allocationStart=getCurrentValue();
+                success=atomicIncrement(allocationStart+incrementSteps*count);
             }
+            allocations.incrementAndGet();
+            allocationTime.addAndGet(System.nanoTime()-start);
+            return new Block(allocationStart,count);
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }finally{
+            allocationLock.unlock();
         }
     }
 
+    private static final class Block{
+        static final Block EMPTY=new Block(0l,0l);
+
+        final long start;
+        final long count;
+        /*once this value is taken, the next block is allocated in the background*/
+        final long prefetchAt;
+        final long created=System.nanoTime();
+        final AtomicLong taken=new AtomicLong(0l);
+
+        Block(long start,long count){
+            this.start=start;
+            this.count=count;
+            this.prefetchAt=count<4?-1l:count-count/4;
+        }
+    }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException{
         out.writeLong(blockAllocationSize);
+        out.writeLong(maxBlockAllocationSize);
         out.writeLong(incrementSteps);
         out.writeLong(startingValue);
     }
@@ -102,6 +280,7 @@ public abstract class AbstractSequence implements Sequence, Externalizable{
     @Override
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
         blockAllocationSize=in.readLong();
+        maxBlockAllocationSize=in.readLong();
         incrementSteps=in.readLong();
         startingValue=in.readLong();
     }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.sequence;
+
+import com.splicemachine.derby.management.SequenceManagement;
+import com.splicemachine.derby.management.SequenceStatistics;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.tools.CachedResourcePool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the block allocations of the sequences in a pool.
+ */
+public class SequenceAllocationStatistics implements SequenceManagement{
+    private final CachedResourcePool<SpliceSequence,SequenceKey> sequences;
+
+    public SequenceAllocationStatistics(CachedResourcePool<SpliceSequence,SequenceKey> sequences){
+        this.sequences=sequences;
+    }
+
+    @Override
+    public int getSequenceCount(){
+        return sequences.values().size();
+    }
+
+    @Override
+    public long getAllocations(){
+        long allocations=0l;
+        for(SpliceSequence sequence : sequences.values()){
+            allocations+=sequence.getAllocations();
+        }
+        return allocations;
+    }
+
+    @Override
+    public long getWaits(){
+        long waits=0l;
+        for(SpliceSequence sequence : sequences.values()){
+            waits+=sequence.getWaits();
+        }
+        return waits;
+    }
+
+    @Override
+    public List<SequenceStatistics> getSequences(){
+        List<SequenceStatistics> stats=new ArrayList<>();
+        for(SpliceSequence sequence : sequences.values()){
+            stats.add(new SequenceStatistics(Bytes.toHex(sequence.sysColumnsRow),
+                    sequence.getBlockSize(),
+                    sequence.getAllocations(),
+                    TimeUnit.NANOSECONDS.toMillis(sequence.getAllocationTime()),
+                    sequence.getPrefetches(),
+                    sequence.getWaits()));
+        }
+        return stats;
+    }
+}
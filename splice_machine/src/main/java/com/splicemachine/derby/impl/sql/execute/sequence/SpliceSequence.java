@@ -19,12 +19,14 @@ import com.splicemachine.access.configuration.OperationConfiguration;
 import com.splicemachine.encoding.Encoding;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.*;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.concurrent.ExecutorService;
 
 public class SpliceSequence extends AbstractSequence{
     protected byte[] sysColumnsRow;
@@ -42,7 +44,18 @@ public class SpliceSequence extends AbstractSequence{
                           long incrementSteps,
                           PartitionFactory partitionFactory,
                           TxnOperationFactory operationFactory){
-        super(blockAllocationSize,incrementSteps,startingValue);
+        this(blockAllocationSize,blockAllocationSize,sysColumnsRow,startingValue,incrementSteps,partitionFactory,operationFactory);
+    }
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
+    public SpliceSequence(long blockAllocationSize,
+                          long maxBlockAllocationSize,
+                          byte[] sysColumnsRow,
+                          long startingValue,
+                          long incrementSteps,
+                          PartitionFactory partitionFactory,
+                          TxnOperationFactory operationFactory){
+        super(blockAllocationSize,maxBlockAllocationSize,incrementSteps,startingValue);
         this.sysColumnsRow=sysColumnsRow;
         this.partitionFactory = partitionFactory;
         this.opFactory = operationFactory;
@@ -70,10 +83,18 @@ public class SpliceSequence extends AbstractSequence{
             put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,autoIncrementValueQualifier,Encoding.encode(next));
             return sysColumnTable.checkAndPut(sysColumnsRow,
                     SIConstants.DEFAULT_FAMILY_BYTES,
-                    autoIncrementValueQualifier,currPosition.get()==startingValue?null:Encoding.encode(currPosition.get()),put);
+                    autoIncrementValueQualifier,allocationStart==startingValue?null:Encoding.encode(allocationStart),put);
         }
     }
 
+    @Override
+    protected ExecutorService getPrefetchExecutor(){
+        //a single value is allocated when it's needed, so that it isn't lost when the sequence is dropped
+        SIDriver driver=SIDriver.driver();
+        if(blockAllocationSize<=1 || driver==null) return null;
+        return driver.getExecutorService();
+    }
+
     @Override
     public void close() throws IOException{
         // No Op
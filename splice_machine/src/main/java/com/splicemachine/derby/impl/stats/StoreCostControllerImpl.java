@@ -31,6 +31,7 @@ import com.splicemachine.db.iapi.types.RowLocation;
 import com.splicemachine.db.impl.sql.catalog.SYSTABLESTATISTICSRowFactory;
 import com.splicemachine.db.vti.VTICosting;
 import com.splicemachine.derby.impl.load.ImportUtils;
+import com.splicemachine.pipeline.writehandler.WriteStatistics;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnView;
@@ -129,7 +130,8 @@ public class StoreCostControllerImpl implements StoreCostController {
             }
             partitionStats = new ArrayList<>(partitions.size());
             PartitionStatisticsDescriptor tStats;
-
+            boolean applyWrites = WriteStatisticsFlusher.isEnabled();
+            long now = System.currentTimeMillis();
 
             for (String partitionName : partitionNames) {
                 tStats = partitionMap.get(partitionName);
@@ -137,6 +139,10 @@ public class StoreCostControllerImpl implements StoreCostController {
                     missingPartitions++;
                     continue; //skip missing partitions entirely
                 }
+                if (applyWrites) {
+                    // include the rows written on this server which haven't been flushed to the statistics yet
+                    tStats = WriteStatisticsFlusher.applyChanges(tStats, WriteStatistics.getInstance().getDelta(partitionName), now);
+                }
                 partitionStats.add(new PartitionStatisticsImpl(tStats, fallbackNullFraction,extraQualifierMultiplier));
             }
         } else {
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.concurrent.MoreExecutors;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.context.ContextManager;
+import com.splicemachine.db.iapi.services.context.ContextService;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.db.impl.sql.catalog.SYSTABLESTATISTICSRowFactory;
+import com.splicemachine.derby.jdbc.SpliceTransactionResourceImpl;
+import com.splicemachine.pipeline.writehandler.WriteStatistics;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the partition statistics in SYS.SYSTABLESTATS roughly current between collections, by periodically
+ * applying the rows which this server's write pipeline inserted into and deleted from each region (as counted by
+ * {@link WriteStatistics}).
+ *
+ * Only the row count and size of a partition are adjusted; its column statistics stay as they were collected.
+ * An adjusted partition is marked stale, so that it is clear its statistics should be collected again. Changes
+ * to partitions without statistics, or with merged statistics, are dropped.
+ */
+public class WriteStatisticsFlusher implements Runnable{
+    private static final Logger LOG=Logger.getLogger(WriteStatisticsFlusher.class);
+    private static final AtomicBoolean started=new AtomicBoolean(false);
+    private static volatile boolean enabled;
+
+    /**
+     * Start flushing every {@code splice.statistics.writeStatistics.flushInterval} milliseconds, unless that is 0.
+     */
+    public static void start(SConfiguration config){
+        long interval=config.getWriteStatisticsFlushInterval();
+        if(interval<=0 || !started.compareAndSet(false,true))
+            return;
+        enabled=true;
+        ScheduledExecutorService flushService=MoreExecutors.namedSingleThreadScheduledExecutor("write-statistics-flusher-%d");
+        flushService.scheduleWithFixedDelay(new WriteStatisticsFlusher(),interval,interval,TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return {@code true} if changes are being flushed, so that pending changes may be used by the optimizer
+     */
+    public static boolean isEnabled(){
+        return enabled;
+    }
+
+    @Override
+    public void run(){
+        try{
+            flush();
+        }catch(Throwable t){
+            LOG.warn("Unable to update partition statistics with the rows written since the last update",t);
+        }
+    }
+
+    /**
+     * Apply the changes which have not been applied yet to SYS.SYSTABLESTATS. If that fails, the changes are
+     * kept to be applied by the next flush.
+     */
+    public void flush() throws Exception{
+        long now=System.currentTimeMillis();
+        List<WriteStatistics.PartitionDelta> drained=WriteStatistics.getInstance().drain();
+        Map<Long,List<WriteStatistics.PartitionDelta>> conglomerates=new HashMap<>();
+        for(WriteStatistics.PartitionDelta delta : drained){
+            //system tables don't have statistics to keep current
+            if(delta.getConglomerateId()<DataDictionary.FIRST_USER_TABLE_NUMBER) continue;
+            List<WriteStatistics.PartitionDelta> deltas=conglomerates.get(delta.getConglomerateId());
+            if(deltas==null){
+                deltas=new ArrayList<>();
+                conglomerates.put(delta.getConglomerateId(),deltas);
+            }
+            deltas.add(delta);
+        }
+        if(conglomerates.isEmpty()) return;
+
+        ContextManager currentCm=ContextService.getFactory().getCurrentContextManager();
+        Txn txn=SIDriver.driver().lifecycleManager().beginTransaction(Bytes.toBytes(SYSTABLESTATISTICSRowFactory.TABLENAME_STRING));
+        DataDictionary dd=null;
+        boolean prepared=false;
+        boolean committed=false;
+        int updated=0;
+        try{
+            SpliceTransactionResourceImpl transactionResource=new SpliceTransactionResourceImpl();
+            try{
+                prepared=transactionResource.marshallTransaction(txn);
+                LanguageConnectionContext lcc=transactionResource.getLcc();
+                dd=lcc.getDataDictionary();
+                TransactionController tc=lcc.getTransactionExecute();
+                for(Map.Entry<Long,List<WriteStatistics.PartitionDelta>> conglomerate : conglomerates.entrySet()){
+                    updated+=update(dd,tc,conglomerate.getKey(),conglomerate.getValue(),now);
+                }
+                txn.commit();
+                committed=true;
+            }finally{
+                if(prepared)
+                    transactionResource.close();
+            }
+        }finally{
+            if(!committed){
+                txn.rollback();
+                for(WriteStatistics.PartitionDelta delta : drained){
+                    WriteStatistics.getInstance().restore(delta);
+                }
+            }
+            if(currentCm!=null)
+                ContextService.getFactory().setCurrentContextManager(currentCm);
+        }
+        //now that the new statistics are visible, make sure nothing still holds the old ones
+        for(Long conglomerateId : conglomerates.keySet()){
+            dd.getDataDictionaryCache().partitionStatisticsCacheRemove(conglomerateId);
+        }
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"Updated the statistics of %d partitions of %d conglomerates",updated,conglomerates.size());
+    }
+
+    /**
+     * @return the statistics of the partition, with the changes applied, or {@code statistics} itself if the
+     * changes cannot be applied to it: because there are none, they are already included in the statistics,
+     * or the statistics are not per partition.
+     */
+    public static PartitionStatisticsDescriptor applyChanges(PartitionStatisticsDescriptor statistics,
+                                                             WriteStatistics.PartitionDelta delta,
+                                                             long timestamp){
+        if(delta==null || delta.getFirstChange()==0L || delta.getFirstChange()<statistics.getTimestamp())
+            return statistics;
+        int statsType=statistics.getStatsType();
+        double scale;
+        if(statsType==SYSTABLESTATISTICSRowFactory.REGULAR_NONMERGED_STATS)
+            scale=1d;
+        else if(statsType==SYSTABLESTATISTICSRowFactory.SAMPLE_NONMERGED_STATS)
+            scale=statistics.getSampleFraction();
+        else
+            return statistics;
+
+        //sampled statistics hold the counts of the sample, so scale the changes down to match
+        long inserted=Math.round(delta.getRowsInserted()*scale);
+        long deleted=Math.round(delta.getRowsDeleted()*scale);
+        long insertedBytes=Math.round(delta.getBytesInserted()*scale);
+        int meanRowWidth=statistics.getMeanRowWidth();
+        if(meanRowWidth==0 && inserted>0)
+            meanRowWidth=(int)(insertedBytes/inserted);
+        long rowCount=Math.max(0L,statistics.getRowCount()+inserted-deleted);
+        long partitionSize=Math.max(0L,statistics.getPartitionSize()+insertedBytes-deleted*meanRowWidth);
+
+        PartitionStatisticsDescriptor adjusted=new PartitionStatisticsDescriptor(statistics.getConglomerateId(),
+                statistics.getPartitionId(),
+                timestamp,
+                true,
+                statistics.isInProgress(),
+                rowCount,
+                partitionSize,
+                meanRowWidth,
+                statistics.getNumberOfPartitions(),
+                statsType,
+                statistics.getSampleFraction());
+        adjusted.setColumnStatsDescriptors(statistics.getColumnStatsDescriptors());
+        return adjusted;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int update(DataDictionary dd,
+                              TransactionController tc,
+                              long conglomerateId,
+                              List<WriteStatistics.PartitionDelta> deltas,
+                              long timestamp) throws StandardException{
+        //read the statistics as they are now, in case they were collected again on another server
+        dd.getDataDictionaryCache().partitionStatisticsCacheRemove(conglomerateId);
+        Map<String,PartitionStatisticsDescriptor> partitions=new HashMap<>();
+        for(PartitionStatisticsDescriptor statistics : dd.getPartitionStatistics(conglomerateId,tc)){
+            partitions.put(statistics.getPartitionId(),statistics);
+        }
+        int updated=0;
+        for(WriteStatistics.PartitionDelta delta : deltas){
+            PartitionStatisticsDescriptor statistics=partitions.get(delta.getPartitionName());
+            if(statistics==null) continue;
+            PartitionStatisticsDescriptor adjusted=applyChanges(statistics,delta,timestamp);
+            if(adjusted!=statistics){
+                dd.updatePartitionStatistics(adjusted,tc);
+                updated++;
+            }
+        }
+        return updated;
+    }
+}
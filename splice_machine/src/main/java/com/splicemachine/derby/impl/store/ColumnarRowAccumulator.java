@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.store;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarBatch;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.storage.ByteEntryAccumulator;
+import com.splicemachine.storage.EntryPredicateFilter;
+
+/**
+ * The columnar counterpart of {@link ExecRowAccumulator}: decodes the fields of a packed row straight
+ * into the vectors of a {@link ColumnarBatch}, at the row the batch is building, without going
+ * through a DataValueDescriptor.
+ *
+ * Only the fields of columns held by the batch are collected, so the rest of a wide row is never decoded.
+ */
+public class ColumnarRowAccumulator extends ByteEntryAccumulator{
+    private final ColumnarBatch batch;
+    private final int[] columnMap;
+    private final boolean hasColumns;
+
+    private ColumnarRowAccumulator(EntryPredicateFilter predicateFilter,
+                                   BitSet fieldsToCollect,
+                                   ColumnarBatch batch,
+                                   int[] columnMap){
+        super(predicateFilter,false,fieldsToCollect);
+        this.batch=batch;
+        this.columnMap=columnMap;
+        this.hasColumns=!fieldsToCollect.isEmpty();
+    }
+
+    /**
+     * @param columnMap the position in the template row of each stored field, or -1 for fields which
+     *                  aren't scanned
+     */
+    public static ColumnarRowAccumulator newAccumulator(EntryPredicateFilter predicateFilter,
+                                                        ColumnarBatch batch,
+                                                        int[] columnMap){
+        BitSet fieldsToCollect=new BitSet(columnMap.length);
+        for(int i=0;i<columnMap.length;i++){
+            if(batch.hasColumn(columnMap[i]))
+                fieldsToCollect.set(i);
+        }
+        return new ColumnarRowAccumulator(predicateFilter,fieldsToCollect,batch,columnMap);
+    }
+
+    @Override
+    protected void occupy(int position,byte[] data,int offset,int length){
+        decode(position,data,offset,length);
+        super.occupy(position,data,offset,length);
+    }
+
+    @Override
+    protected void occupyDouble(int position,byte[] data,int offset,int length){
+        decode(position,data,offset,length);
+        super.occupyDouble(position,data,offset,length);
+    }
+
+    @Override
+    protected void occupyFloat(int position,byte[] data,int offset,int length){
+        decode(position,data,offset,length);
+        super.occupyFloat(position,data,offset,length);
+    }
+
+    @Override
+    protected void occupyScalar(int position,byte[] data,int offset,int length){
+        decode(position,data,offset,length);
+        super.occupyScalar(position,data,offset,length);
+    }
+
+    @Override
+    public boolean isFinished(){
+        return !hasColumns || super.isFinished();
+    }
+
+    @Override
+    public byte[] finish(){
+        return SIConstants.EMPTY_BYTE_ARRAY;
+    }
+
+    private void decode(int position,byte[] data,int offset,int length){
+        if(!hasColumns || position>=columnMap.length) return;
+        int column=columnMap[position];
+        if(!batch.hasColumn(column)) return;
+        //same decodings as the ScalarDescriptorSerializer, RealDescriptorSerializer and DoubleDescriptorSerializer
+        switch(batch.getFormatId(column)){
+            case StoredFormatIds.SQL_TINYINT_ID:
+                batch.setLong(column,Encoding.decodeByte(data,offset,false));
+                return;
+            case StoredFormatIds.SQL_SMALLINT_ID:
+                batch.setLong(column,Encoding.decodeShort(data,offset,false));
+                return;
+            case StoredFormatIds.SQL_INTEGER_ID:
+                batch.setLong(column,Encoding.decodeInt(data,offset,false));
+                return;
+            case StoredFormatIds.SQL_LONGINT_ID:
+                batch.setLong(column,Encoding.decodeLong(data,offset,false));
+                return;
+            case StoredFormatIds.SQL_REAL_ID:
+                batch.setDouble(column,Encoding.decodeFloat(data,offset,false));
+                return;
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                batch.setDouble(column,Encoding.decodeDouble(data,offset,false));
+                return;
+            default:
+                throw new IllegalStateException("Unexpected type format id "+batch.getFormatId(column)+" for column "+column);
+        }
+    }
+}
@@ -30,7 +30,10 @@ import com.splicemachine.db.iapi.reference.Property;
 import com.splicemachine.db.impl.jdbc.EmbedConnection;
 import com.splicemachine.derby.ddl.DDLDriver;
 import com.splicemachine.derby.ddl.DDLEnvironmentLoader;
+import com.splicemachine.derby.ddl.DDLPropagationStatistics;
 import com.splicemachine.derby.impl.db.SpliceDatabase;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
+import com.splicemachine.derby.impl.stats.WriteStatisticsFlusher;
 import com.splicemachine.derby.impl.store.access.SpliceAccessManager;
 import com.splicemachine.lifecycle.DatabaseLifecycleService;
 import com.splicemachine.pipeline.ContextFactoryDriverService;
@@ -39,7 +42,9 @@ import com.splicemachine.pipeline.PipelineDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.contextfactory.ReferenceCountingFactoryDriver;
+import com.splicemachine.pipeline.foreignkey.ParentKeyCache;
 import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.si.impl.rollforward.RollForwardStatus;
 import com.splicemachine.tools.EmbedConnectionMaker;
 import com.splicemachine.tools.version.ManifestReader;
 import com.splicemachine.utils.logging.LogManager;
@@ -123,6 +128,13 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
         db = (SpliceDatabase)((EmbedConnection)internalConnection).getLanguageConnection().getDatabase();
         db.registerDDL();
 
+        if(!isMaster){
+            //keep the statistics of the regions we write to current
+            WriteStatisticsFlusher.start(configuration);
+            //load the plans of the statements this server ran before it restarted
+            StatementCacheWarmer.start(db.getDataDictionary());
+        }
+
         logging = new LogManager();
     }
 
@@ -137,6 +149,21 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
 
             ObjectName rollforward = new ObjectName("com.splicemachine.si.api.rollforward:type=RollForward");
             mbs.registerMBean(SIDriver.driver().getRollForward(),rollforward);
+
+            RollForwardStatus readResolverStatus = SIDriver.driver().getReadResolverStatus();
+            if(readResolverStatus!=null){
+                ObjectName readResolver = new ObjectName("com.splicemachine.si.impl.rollforward:type=RollForwardManagement");
+                mbs.registerMBean(readResolverStatus,readResolver);
+            }
+
+            ObjectName broadcastJoinCache = new ObjectName("com.splicemachine.derby.impl.sql.execute.operations:type=BroadcastJoinCache");
+            mbs.registerMBean(BroadcastJoinCache.getInstance(),broadcastJoinCache);
+            ObjectName sequences = new ObjectName("com.splicemachine.derby.impl.sql.execute.sequence:type=SequenceAllocation");
+            mbs.registerMBean(EngineDriver.driver().sequenceManagement(),sequences);
+            ObjectName parentKeyCache = new ObjectName("com.splicemachine.pipeline.foreignkey:type=ParentKeyCache");
+            mbs.registerMBean(ParentKeyCache.statistics(),parentKeyCache);
+            ObjectName ddlPropagation = new ObjectName("com.splicemachine.derby.ddl:type=DDLPropagation");
+            mbs.registerMBean(DDLPropagationStatistics.statistics(),ddlPropagation);
             db.getDataDictionary().getDataDictionaryCache().registerJMX(mbs);
 
 
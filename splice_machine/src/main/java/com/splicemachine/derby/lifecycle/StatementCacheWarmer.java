@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.lifecycle;
+
+import com.splicemachine.concurrent.MoreExecutors;
+import com.splicemachine.db.iapi.services.context.ContextManager;
+import com.splicemachine.db.iapi.services.context.ContextService;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.impl.sql.catalog.PersistentStatementCache;
+import com.splicemachine.derby.jdbc.SpliceTransactionResourceImpl;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.impl.driver.SIDriver;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Prepares the statements kept in the persistent statement cache once a server has started, so that the first
+ * executions of the statements it ran before it restarted don't wait for them to be compiled.
+ */
+public class StatementCacheWarmer implements Runnable{
+    private static final Logger LOG=Logger.getLogger(StatementCacheWarmer.class);
+
+    private final PersistentStatementCache cache;
+
+    private StatementCacheWarmer(PersistentStatementCache cache){
+        this.cache=cache;
+    }
+
+    public static void start(DataDictionary dd){
+        PersistentStatementCache cache=dd.getDataDictionaryCache().getPersistentStatementCache();
+        if(cache==null) return;
+        ExecutorService warmer=MoreExecutors.namedSingleThreadExecutor("statement-cache-warmer-%d",true);
+        warmer.execute(new StatementCacheWarmer(cache));
+        warmer.shutdown();
+    }
+
+    @Override
+    public void run(){
+        long start=System.currentTimeMillis();
+        ContextManager currentCm=ContextService.getFactory().getCurrentContextManager();
+        Txn txn=null;
+        try{
+            txn=SIDriver.driver().lifecycleManager().beginTransaction();
+            SpliceTransactionResourceImpl transactionResource=new SpliceTransactionResourceImpl();
+            boolean prepared=false;
+            try{
+                prepared=transactionResource.marshallTransaction(txn);
+                int warmed=cache.warm(transactionResource.getLcc());
+                LOG.info("Prepared "+warmed+" statements from the persistent statement cache in "
+                        +(System.currentTimeMillis()-start)+" ms");
+            }finally{
+                if(prepared)
+                    transactionResource.close();
+            }
+        }catch(Throwable t){
+            LOG.warn("Unable to prepare the statements in the persistent statement cache",t);
+        }finally{
+            if(txn!=null){
+                try{
+                    txn.commit();
+                }catch(Exception e){
+                    LOG.warn("Unable to commit the transaction the statement cache was warmed in",e);
+                }
+            }
+            if(currentCm!=null)
+                ContextService.getFactory().setCurrentContextManager(currentCm);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.management;
+
+import javax.management.MXBean;
+
+/**
+ * JMX view of the join tables cached for broadcast joins on this server.
+ */
+@MXBean
+public interface BroadcastJoinCacheManagement{
+
+    /**
+     * @return the number of requests which found their join table already loaded.
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of requests which had to load their join table.
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of loads for a join table which had been evicted while its
+     * operation was still running.
+     */
+    long getRebuildCount();
+
+    /**
+     * @return the number of loads abandoned because they would exceed the memory limit.
+     */
+    long getRejectedLoadCount();
+
+    /**
+     * @return the number of join tables currently cached.
+     */
+    long getCachedTableCount();
+
+    /**
+     * @return the estimated heap held by the cached join tables.
+     */
+    long getCachedBytes();
+
+    /**
+     * @return the maximum heap which cached join tables may hold.
+     */
+    long getMaxBytes();
+
+    /**
+     * @return the number of outer rows which table scans have discarded because their join keys
+     * were not in the key filter of the inner table.
+     */
+    long getKeyFilterSkippedRows();
+}
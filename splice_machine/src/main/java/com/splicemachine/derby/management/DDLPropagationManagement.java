@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.management;
+
+import javax.management.MXBean;
+
+/**
+ * JMX view of how DDL changes travel between this server and the rest of the cluster.
+ */
+@MXBean
+public interface DDLPropagationManagement{
+
+    /**
+     * @return the number of times this server looked for new DDL changes.
+     */
+    long getRefreshes();
+
+    /**
+     * @return the time spent looking for and applying new DDL changes, in milliseconds.
+     */
+    long getRefreshTime();
+
+    /**
+     * @return the number of DDL changes this server applied.
+     */
+    long getChangesApplied();
+
+    /**
+     * @return the largest number of DDL changes applied in one refresh.
+     */
+    long getLargestBatch();
+
+    /**
+     * @return the number of applied DDL changes which only kept their own transaction off the dictionary cache.
+     */
+    long getScopedChanges();
+
+    /**
+     * @return the number of DDL changes made on this server which every server acknowledged.
+     */
+    long getChangesPropagated();
+
+    /**
+     * @return the average time until every server acknowledged a DDL change made on this server, in milliseconds.
+     */
+    double getAveragePropagationTime();
+
+    /**
+     * @return the longest time until every server acknowledged a DDL change made on this server, in milliseconds.
+     */
+    long getMaxPropagationTime();
+}
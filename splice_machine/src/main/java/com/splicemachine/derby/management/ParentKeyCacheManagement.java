@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.management;
+
+import javax.management.MXBean;
+
+/**
+ * JMX view of the parent keys which foreign key checks on this server remember.
+ */
+@MXBean
+public interface ParentKeyCacheManagement{
+
+    /**
+     * @return the number of child rows whose parent key was checked.
+     */
+    long getCheckedRows();
+
+    /**
+     * @return the number of child rows whose parent key was found in the cache.
+     */
+    long getHitCount();
+
+    /**
+     * @return the fraction of checked child rows whose parent key was found in the cache.
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of batched lookups sent to parent tables.
+     */
+    long getParentLookups();
+
+    /**
+     * @return the number of parent keys looked up.
+     */
+    long getParentKeysRead();
+
+    /**
+     * @return the number of times the cached keys of a parent table were dropped because a parent key was deleted.
+     */
+    long getInvalidations();
+}
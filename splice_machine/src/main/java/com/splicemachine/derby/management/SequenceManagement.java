@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.management;
+
+import javax.management.MXBean;
+import java.util.List;
+
+/**
+ * JMX view of how the sequences and identity columns in use on this server allocate their blocks of values.
+ */
+@MXBean
+public interface SequenceManagement{
+
+    /**
+     * @return the number of sequences with values allocated on this server.
+     */
+    int getSequenceCount();
+
+    /**
+     * @return the number of blocks allocated by all sequences.
+     */
+    long getAllocations();
+
+    /**
+     * @return the number of times callers had to wait for a block to be allocated, over all sequences.
+     */
+    long getWaits();
+
+    /**
+     * @return the allocation statistics of each sequence.
+     */
+    List<SequenceStatistics> getSequences();
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The block allocation statistics of a single sequence, as reported by {@link SequenceManagement}.
+ */
+public class SequenceStatistics{
+    private final String sequenceRow;
+    private final long blockSize;
+    private final long allocations;
+    private final long allocationTime;
+    private final long prefetches;
+    private final long waits;
+
+    @ConstructorProperties({"sequenceRow","blockSize","allocations","allocationTime","prefetches","waits"})
+    public SequenceStatistics(String sequenceRow,long blockSize,long allocations,long allocationTime,long prefetches,long waits){
+        this.sequenceRow=sequenceRow;
+        this.blockSize=blockSize;
+        this.allocations=allocations;
+        this.allocationTime=allocationTime;
+        this.prefetches=prefetches;
+        this.waits=waits;
+    }
+
+    /**
+     * @return the row which holds the sequence's value, in hex.
+     */
+    public String getSequenceRow(){
+        return sequenceRow;
+    }
+
+    /**
+     * @return the number of values in the blocks the sequence allocates now.
+     */
+    public long getBlockSize(){
+        return blockSize;
+    }
+
+    /**
+     * @return the number of blocks allocated.
+     */
+    public long getAllocations(){
+        return allocations;
+    }
+
+    /**
+     * @return the time spent allocating blocks, in milliseconds.
+     */
+    public long getAllocationTime(){
+        return allocationTime;
+    }
+
+    /**
+     * @return the number of blocks allocated in the background, before they were needed.
+     */
+    public long getPrefetches(){
+        return prefetches;
+    }
+
+    /**
+     * @return the number of times callers had to wait for a block to be allocated.
+     */
+    public long getWaits(){
+        return waits;
+    }
+}
@@ -22,9 +22,12 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.store.access.Qualifier;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SharedScan;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SharedScans;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
 import com.splicemachine.derby.stream.function.Partitioner;
 import com.splicemachine.derby.stream.iapi.*;
+import com.splicemachine.derby.stream.iterator.ColumnarAggregateIterator;
 import com.splicemachine.derby.stream.iterator.TableScannerIterator;
 import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
 import com.splicemachine.pipeline.Exceptions;
@@ -35,7 +38,9 @@ import com.splicemachine.si.impl.TxnRegion;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.storage.DataScanner;
 import com.splicemachine.storage.Partition;
+import com.splicemachine.storage.util.MultiRangeScanner;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.commons.collections.iterators.SingletonIterator;
 import org.apache.log4j.Logger;
@@ -116,7 +121,20 @@ public class ControlDataSetProcessor implements DataSetProcessor{
                     TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
                             txnSupplier,transactory,txnOperationFactory);
 
-                    this.region(localRegion).scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
+                    DataScanner scanner;
+                    if(probeScans!=null)
+                        scanner=new MultiRangeScanner(p,probeScans,metricFactory);
+                    else if(sharedScan && spliceOperation!=null && SIDriver.driver().getConfiguration().getControlExecutionSharedScans())
+                        scanner=openSharedScan(p,spliceOperation);
+                    else
+                        scanner=p.openScanner(getScan(),metricFactory);
+                    this.region(localRegion).scanner(scanner); //set the scanner
+                    if(columnarAggregation!=null){
+                        ColumnarAggregateIterator aggregateIterator=new ColumnarAggregateIterator(this,spliceOperation,columnarAggregation);
+                        if(spliceOperation!=null)
+                            spliceOperation.registerCloseable(p);
+                        return new ControlDataSet(aggregateIterator);
+                    }
                     TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
                     if(spliceOperation!=null){
                         spliceOperation.registerCloseable(tableScannerIterator);
@@ -127,6 +145,20 @@ public class ControlDataSetProcessor implements DataSetProcessor{
                     throw Exceptions.parseException(e);
                 }
             }
+
+            private DataScanner openSharedScan(Partition p,final SpliceOperation op) throws StandardException, IOException{
+                final SharedScan.Reader reader=SharedScans.getInstance().open(p,getScan(),txn.getBeginTimestamp(),
+                        SIDriver.driver().getConfiguration().getControlExecutionSharedScanBufferRows(),metricFactory);
+                op.registerCloseable(new AutoCloseable(){
+                    @Override
+                    public void close() throws Exception{
+                        OperationContext context=op.getOperationContext();
+                        if(context!=null)
+                            context.recordSharedScanRows(reader.getRowsShared());
+                    }
+                });
+                return reader;
+            }
         };
     }
 
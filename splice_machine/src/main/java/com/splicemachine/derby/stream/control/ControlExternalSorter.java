@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.EntryDataDecoder;
+import com.splicemachine.derby.utils.marshall.EntryDataHash;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.utils.IntArrays;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Sorts the tuples of a control-side {@link ControlPairDataSet} within a bounded amount of heap.
+ *
+ * Tuples are buffered until their estimated size exceeds the memory limit. The buffer is then
+ * sorted, and written as a run of encoded rows to a temporary file. When the tuples are read, the
+ * spilled runs and the rows still buffered are merged, decoding one row per run at a time. The sort
+ * is stable: tuples with equal keys are returned in the order they were added.
+ *
+ * Only tuples whose key and value are both {@link ExecRow}s can be spilled; anything else is
+ * sorted in memory, as before.
+ */
+class ControlExternalSorter<K,V> implements AutoCloseable{
+    private static final Logger LOG=Logger.getLogger(ControlExternalSorter.class);
+    private static final int ROW_OVERHEAD=64;
+    private static final int BUFFER_SIZE=64*1024;
+
+    private final Comparator<Tuple2<K,V>> tupleComparator;
+    private final long maxMemory;
+    private final File spillDirectory;
+    private final OperationContext<?> context;
+
+    private List<Tuple2<K,V>> buffer=new ArrayList<>();
+    private long bufferedBytes;
+    private boolean spillable=true;
+    private final List<File> runs=new ArrayList<>();
+    private final List<Run> openRuns=new ArrayList<>();
+
+    private ExecRow keyTemplate;
+    private ExecRow valueTemplate;
+    private DataHash<ExecRow> keyEncoder;
+    private DataHash<ExecRow> valueEncoder;
+
+    ControlExternalSorter(Comparator<K> comparator,long maxMemory,File spillDirectory,OperationContext<?> context){
+        this.tupleComparator=(o1,o2) -> comparator.compare(o1._1(),o2._1());
+        this.maxMemory=maxMemory;
+        this.spillDirectory=spillDirectory;
+        this.context=context;
+    }
+
+    void add(Tuple2<K,V> tuple) throws IOException{
+        buffer.add(tuple);
+        if(!spillable)
+            return;
+        if(!(tuple._1() instanceof ExecRow) || !(tuple._2() instanceof ExecRow)){
+            spillable=false;
+            return;
+        }
+        bufferedBytes+=ROW_OVERHEAD+estimateSize((ExecRow)tuple._1())+estimateSize((ExecRow)tuple._2());
+        if(bufferedBytes>maxMemory)
+            spill();
+    }
+
+    void addAll(Iterator<Tuple2<K,V>> tuples) throws IOException{
+        while(tuples.hasNext())
+            add(tuples.next());
+    }
+
+    boolean hasSpilled(){
+        return !runs.isEmpty();
+    }
+
+    /**
+     * @return the tuples added so far, in the order they were added. Only valid if nothing has
+     * been spilled.
+     */
+    Iterator<Tuple2<K,V>> unsorted(){
+        assert runs.isEmpty():"Tuples have been spilled";
+        return buffer.iterator();
+    }
+
+    /**
+     * @return the tuples added so far, sorted by key. Spilled runs are deleted as soon as they have
+     * been read; any which are left when the merge is abandoned are deleted by {@link #close()}.
+     */
+    Iterator<Tuple2<K,V>> sorted() throws IOException{
+        buffer.sort(tupleComparator);
+        if(runs.isEmpty())
+            return buffer.iterator();
+        for(int i=0;i<runs.size();i++){
+            openRuns.add(new Run(i,runs.get(i)));
+        }
+        List<Tuple2<K,V>> inMemory=buffer;
+        buffer=null;
+        return new MergingIterator(inMemory.iterator());
+    }
+
+    @Override
+    public void close(){
+        for(Run run : openRuns){
+            run.close();
+        }
+        for(File run : runs){
+            if(run.exists() && !run.delete())
+                LOG.warn("Unable to delete sort run "+run);
+        }
+        openRuns.clear();
+        runs.clear();
+    }
+
+    private void spill() throws IOException{
+        if(keyEncoder==null && !initEncoders((ExecRow)buffer.get(0)._1(),(ExecRow)buffer.get(0)._2())){
+            spillable=false;
+            return;
+        }
+        if(runs.isEmpty())
+            registerCleanup();
+        buffer.sort(tupleComparator);
+        File file=File.createTempFile("splice-sort-",".run",spillDirectory);
+        runs.add(file);
+        long bytes=0L;
+        try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),BUFFER_SIZE))){
+            for(Tuple2<K,V> tuple : buffer){
+                ExecRow key=(ExecRow)tuple._1();
+                ExecRow value=(ExecRow)tuple._2();
+                bytes+=write(out,keyEncoder,key);
+                bytes+=write(out,valueEncoder,value);
+                bytes+=writeBytes(out,value.getKey());
+            }
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug("Spilled "+buffer.size()+" rows ("+bytes+" bytes) to "+file);
+        if(context!=null)
+            context.recordSpill(buffer.size(),bytes);
+        buffer=new ArrayList<>();
+        bufferedBytes=0L;
+    }
+
+    private boolean initEncoders(ExecRow key,ExecRow value){
+        if(!hasAllColumns(key) || !hasAllColumns(value))
+            return false;
+        keyTemplate=key.getNewNullRow();
+        valueTemplate=value.getNewNullRow();
+        keyEncoder=new EntryDataHash(IntArrays.count(key.nColumns()),null,VersionedSerializers.latestVersion(true).getSerializers(key));
+        valueEncoder=new EntryDataHash(IntArrays.count(value.nColumns()),null,VersionedSerializers.latestVersion(true).getSerializers(value));
+        return true;
+    }
+
+    private void registerCleanup() throws IOException{
+        SpliceOperation op=context==null? null : context.getOperation();
+        if(op==null)
+            return;
+        try{
+            op.registerCloseable(this);
+        }catch(StandardException e){
+            throw new IOException(e);
+        }
+    }
+
+    private static int write(DataOutputStream out,DataHash<ExecRow> encoder,ExecRow row) throws IOException{
+        encoder.setRow(row);
+        try{
+            return writeBytes(out,encoder.encode());
+        }catch(StandardException e){
+            throw new IOException(e);
+        }
+    }
+
+    private static int writeBytes(DataOutputStream out,byte[] bytes) throws IOException{
+        if(bytes==null){
+            out.writeInt(-1);
+            return 4;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4+bytes.length;
+    }
+
+    private static boolean hasAllColumns(ExecRow row){
+        for(DataValueDescriptor dvd : row.getRowArray()){
+            if(dvd==null)
+                return false;
+        }
+        return true;
+    }
+
+    private static long estimateSize(ExecRow row){
+        long size=0L;
+        for(DataValueDescriptor dvd : row.getRowArray()){
+            if(dvd!=null)
+                size+=dvd.estimateMemoryUsage();
+        }
+        return size;
+    }
+
+    /**
+     * A spilled run, positioned on its next unread tuple.
+     */
+    private class Run{
+        private final int index;
+        private final File file;
+        private final KeyHashDecoder keyDecoder;
+        private final KeyHashDecoder valueDecoder;
+        private DataInputStream in;
+        private Tuple2<K,V> current;
+
+        Run(int index,File file) throws IOException{
+            this.index=index;
+            this.file=file;
+            DescriptorSerializer[] keySerializers=VersionedSerializers.latestVersion(true).getSerializers(keyTemplate);
+            DescriptorSerializer[] valueSerializers=VersionedSerializers.latestVersion(true).getSerializers(valueTemplate);
+            this.keyDecoder=new EntryDataDecoder(IntArrays.count(keyTemplate.nColumns()),null,keySerializers);
+            this.valueDecoder=new EntryDataDecoder(IntArrays.count(valueTemplate.nColumns()),null,valueSerializers);
+            this.in=new DataInputStream(new BufferedInputStream(new FileInputStream(file),BUFFER_SIZE));
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean advance() throws IOException{
+            byte[] key=readBytes();
+            if(key==null){
+                close();
+                if(!file.delete())
+                    LOG.warn("Unable to delete sort run "+file);
+                current=null;
+                return false;
+            }
+            byte[] value=readBytes();
+            ExecRow keyRow=keyTemplate.getNewNullRow();
+            ExecRow valueRow=valueTemplate.getNewNullRow();
+            try{
+                keyDecoder.set(key,0,key.length);
+                keyDecoder.decode(keyRow);
+                valueDecoder.set(value,0,value.length);
+                valueDecoder.decode(valueRow);
+            }catch(StandardException e){
+                throw new IOException(e);
+            }
+            byte[] rowKey=readBytes();
+            if(rowKey!=null)
+                valueRow.setKey(rowKey);
+            current=new Tuple2<>((K)keyRow,(V)valueRow);
+            return true;
+        }
+
+        private byte[] readBytes() throws IOException{
+            int length;
+            try{
+                length=in.readInt();
+            }catch(EOFException eof){
+                return null;
+            }
+            if(length<0)
+                return null;
+            byte[] bytes=new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        void close(){
+            if(in==null)
+                return;
+            try{
+                in.close();
+            }catch(IOException e){
+                LOG.warn("Unable to close sort run "+file,e);
+            }
+            in=null;
+        }
+    }
+
+    private class MergingIterator implements Iterator<Tuple2<K,V>>{
+        private final Iterator<Tuple2<K,V>> inMemory;
+        private final int inMemoryIndex;
+        private final PriorityQueue<Head> heap;
+
+        MergingIterator(Iterator<Tuple2<K,V>> inMemory) throws IOException{
+            this.inMemory=inMemory;
+            this.inMemoryIndex=openRuns.size();
+            //ties go to the earlier run, which keeps the sort stable
+            this.heap=new PriorityQueue<>(openRuns.size()+1,(h1,h2) -> {
+                int c=tupleComparator.compare(h1.tuple,h2.tuple);
+                return c!=0? c : Integer.compare(h1.run,h2.run);
+            });
+            for(Run run : openRuns){
+                if(run.advance())
+                    heap.add(new Head(run.current,run.index));
+            }
+            advanceInMemory();
+        }
+
+        @Override
+        public boolean hasNext(){
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public Tuple2<K,V> next(){
+            Head head=heap.poll();
+            if(head==null)
+                throw new NoSuchElementException();
+            try{
+                if(head.run==inMemoryIndex)
+                    advanceInMemory();
+                else{
+                    Run run=openRuns.get(head.run);
+                    if(run.advance())
+                        heap.add(new Head(run.current,head.run));
+                }
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+            return head.tuple;
+        }
+
+        private void advanceInMemory(){
+            if(inMemory.hasNext())
+                heap.add(new Head(inMemory.next(),inMemoryIndex));
+        }
+    }
+
+    private class Head{
+        private final Tuple2<K,V> tuple;
+        private final int run;
+
+        Head(Tuple2<K,V> tuple,int run){
+            this.tuple=tuple;
+            this.run=run;
+        }
+    }
+}
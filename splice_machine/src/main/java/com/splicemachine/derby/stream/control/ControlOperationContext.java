@@ -53,6 +53,12 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         long rowsJoinedLeft;
         long rowsJoinedRight;
         long rowsProduced;
+        long rowsSpilled;
+        long bytesSpilled;
+        long indexLookups;
+        long indexLookupBatches;
+        long indexLookupWaitTime;
+        long sharedScanRows;
         List<String> badRecords;
         public ActivationHolder activationHolder;
         public SpliceTransactionResourceImpl impl;
@@ -272,6 +278,54 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         return tooBusy;
     }
 
+    @Override
+    public void recordSpill(long rows, long bytes) {
+        rowsSpilled+=rows;
+        bytesSpilled+=bytes;
+    }
+
+    @Override
+    public long getRecordsSpilled() {
+        return rowsSpilled;
+    }
+
+    @Override
+    public long getBytesSpilled() {
+        return bytesSpilled;
+    }
+
+    @Override
+    public void recordIndexLookups(long lookups, long batches, long waitTime) {
+        indexLookups+=lookups;
+        indexLookupBatches+=batches;
+        indexLookupWaitTime+=waitTime;
+    }
+
+    @Override
+    public long getIndexLookups() {
+        return indexLookups;
+    }
+
+    @Override
+    public long getIndexLookupBatches() {
+        return indexLookupBatches;
+    }
+
+    @Override
+    public long getIndexLookupWaitTime() {
+        return indexLookupWaitTime;
+    }
+
+    @Override
+    public void recordSharedScanRows(long rows) {
+        sharedScanRows+=rows;
+    }
+
+    @Override
+    public long getSharedScanRows() {
+        return sharedScanRows;
+    }
+
     @Override
     public void pushScope(String displayName) {
         // no op
@@ -14,7 +14,11 @@
 
 package com.splicemachine.derby.stream.control;
 
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.derby.impl.sql.execute.operations.GenericAggregateOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.PrimitiveGroupedAggregation;
 import org.spark_project.guava.base.Function;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
@@ -34,6 +38,8 @@ import org.spark_project.guava.base.Predicate;
 import org.spark_project.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -50,6 +56,8 @@ import static com.splicemachine.derby.stream.control.ControlUtils.multimapFromIt
  *
  */
 public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
+    private static final Comparator<ExecRow> KEY_ORDER = new RowComparator();
+
     public Iterator<Tuple2<K,V>> source;
     public ControlPairDataSet(Iterator<Tuple2<K,V>> source) {
         this.source = source;
@@ -92,21 +100,25 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
         final Iterator<Tuple2<K,V>> limitIterator = limit(checkCancellation(source,function2), function2.operationContext);
         return new ControlPairDataSet(new Iterator<Tuple2<K,V>>(){
-            private Iterator<Map.Entry<K,V>> set;
+            private Iterator<Tuple2<K,V>> set;
             @Override
             public boolean hasNext() {
                 if (set == null) {
                     try {
-                        HashMap<K, V> map = Maps.newHashMap();
-                        while (limitIterator.hasNext()) {
-                            Tuple2<K, V> t = limitIterator.next();
-                            if (map.containsKey(t._1())) {
-                                function2.call( map.get(t._1()),t._2());
-                            } else {
-                                map.put((K)((ExecRow)t._1).getClone(), function2.call(null,t._2()));
+                        PeekingIterator<Tuple2<K, V>> rows = Iterators.peekingIterator(limitIterator);
+                        set = primitiveGroupedAggregate(rows, function2);
+                        if (set == null) {
+                            HashMap<K, V> map = Maps.newHashMap();
+                            while (rows.hasNext()) {
+                                Tuple2<K, V> t = rows.next();
+                                if (map.containsKey(t._1())) {
+                                    function2.call( map.get(t._1()),t._2());
+                                } else {
+                                    map.put((K)((ExecRow)t._1).getClone(), function2.call(null,t._2()));
+                                }
                             }
+                            set = Iterators.transform(map.entrySet().iterator(), entry -> new Tuple2<>(entry.getKey(), entry.getValue()));
                         }
-                        set = map.entrySet().iterator();
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -116,8 +128,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
             @Override
             public Tuple2<K,V> next() {
-                Map.Entry<K,V> entry = set.next();
-                return Tuple2.apply(entry.getKey(),entry.getValue());
+                return set.next();
             }
 
             @Override
@@ -144,18 +155,13 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator, OperationContext operationContext) {
-        /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
-         */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
-            }
-        }).immutableSortedCopy(() -> limit(ControlUtils.checkCancellation(source,operationContext), operationContext)).iterator());
+        ControlExternalSorter<K, V> sorter = sorterFor(comparator, operationContext);
+        try {
+            return new ControlPairDataSet<>(sorter.sorted());
+        } catch (IOException e) {
+            sorter.close();
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -172,7 +178,18 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, Iterable<V>> groupByKey(OperationContext context) {
-        Multimap<K,V> newMap = multimapFromIterator(limit(ControlUtils.checkCancellation(source,context), context));
+        // Spilling only happens for ExecRow keys, so the rows are grouped in a hash map unless the
+        // sorter ran out of memory, in which case equal keys are adjacent in the merged runs
+        ControlExternalSorter<K, V> sorter = sorterFor((Comparator<K>) KEY_ORDER, context);
+        if (sorter.hasSpilled()) {
+            try {
+                return new ControlPairDataSet<>(new GroupingIterator<>(sorter.sorted(), (Comparator<K>) KEY_ORDER));
+            } catch (IOException e) {
+                sorter.close();
+                throw new RuntimeException(e);
+            }
+        }
+        Multimap<K,V> newMap = multimapFromIterator(sorter.unsorted());
         return new ControlPairDataSet<>(FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
             @Nullable
             @Override
@@ -233,6 +250,85 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         return subtractByKey(rightDataSet, operationContext);
     }
 
+    /**
+     * @return the tuples of a grouped aggregate reduced in a hash table of primitive keys, or null if
+     * they have to be reduced with the generic function
+     */
+    @SuppressWarnings("unchecked")
+    private Iterator<Tuple2<K, V>> primitiveGroupedAggregate(PeekingIterator<Tuple2<K, V>> rows, SpliceFunction2<?, V, V, V> function2) throws StandardException {
+        if (function2.getClass() != MergeAllAggregatesFunction.class || !rows.hasNext())
+            return null;
+        EngineDriver driver = EngineDriver.driver();
+        if (driver == null || !driver.getConfiguration().getPrimitiveGroupedAggregation())
+            return null;
+        Tuple2<K, V> first = rows.peek();
+        if (!(first._1() instanceof ExecRow) || !(first._2() instanceof ExecRow) || !(function2.getOperation() instanceof GenericAggregateOperation))
+            return null;
+        PrimitiveGroupedAggregation aggregation = PrimitiveGroupedAggregation.plan((GenericAggregateOperation) function2.getOperation(), (ExecRow) first._2());
+        if (aggregation == null)
+            return null;
+        SConfiguration config = driver.getConfiguration();
+        File spillDirectory = config.getControlExecutionSpillDirectory() == null ? null : new File(config.getControlExecutionSpillDirectory());
+        return (Iterator) new PrimitiveGroupedAggregateIterator(aggregation, (Iterator) rows, KEY_ORDER,
+                config.getControlExecutionSortMemory(), spillDirectory, function2.operationContext);
+    }
+
+    /**
+     * Buffers the source in a sorter which spills to disk once it exceeds the configured memory limit.
+     */
+    private ControlExternalSorter<K, V> sorterFor(Comparator<K> comparator, OperationContext operationContext) {
+        long maxMemory = Long.MAX_VALUE;
+        File spillDirectory = null;
+        EngineDriver driver = EngineDriver.driver();
+        if (driver != null) {
+            SConfiguration config = driver.getConfiguration();
+            maxMemory = config.getControlExecutionSortMemory();
+            if (config.getControlExecutionSpillDirectory() != null)
+                spillDirectory = new File(config.getControlExecutionSpillDirectory());
+        }
+        ControlExternalSorter<K, V> sorter = new ControlExternalSorter<>(comparator, maxMemory, spillDirectory, operationContext);
+        boolean success = false;
+        try {
+            sorter.addAll(limit(ControlUtils.checkCancellation(source, operationContext), operationContext));
+            success = true;
+            return sorter;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            if (!success)
+                sorter.close();
+        }
+    }
+
+    /**
+     * Groups the values of adjacent tuples whose keys are equal.
+     */
+    private static class GroupingIterator<K, V> implements Iterator<Tuple2<K, Iterable<V>>> {
+        private final PeekingIterator<Tuple2<K, V>> sorted;
+        private final Comparator<K> comparator;
+
+        GroupingIterator(Iterator<Tuple2<K, V>> sorted, Comparator<K> comparator) {
+            this.sorted = Iterators.peekingIterator(sorted);
+            this.comparator = comparator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return sorted.hasNext();
+        }
+
+        @Override
+        public Tuple2<K, Iterable<V>> next() {
+            Tuple2<K, V> first = sorted.next();
+            List<V> values = new ArrayList<>();
+            values.add(first._2());
+            while (sorted.hasNext() && comparator.compare(first._1(), sorted.peek()._1()) == 0) {
+                values.add(sorted.next()._2());
+            }
+            return new Tuple2<K, Iterable<V>>(first._1(), values);
+        }
+    }
+
     @Override
     public String toString() {
         // We can't consume the iterator since it's a streaming iterator
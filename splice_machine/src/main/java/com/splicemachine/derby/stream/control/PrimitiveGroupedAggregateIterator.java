@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.execute.operations.PrimitiveGroupedAggregation;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import org.spark_project.guava.collect.Iterators;
+import org.spark_project.guava.collect.PeekingIterator;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reduces the keyed rows of a grouped aggregate in the hash table of a {@link PrimitiveGroupedAggregation}.
+ *
+ * When the table grows past the memory limit, its groups are written out as partial aggregate rows to a
+ * {@link ControlExternalSorter}, and the table is emptied. Once the source is exhausted, the partial rows
+ * of each group are adjacent in the sorted output, and are merged into one.
+ */
+class PrimitiveGroupedAggregateIterator implements Iterator<Tuple2<ExecRow,ExecRow>>{
+    private final PrimitiveGroupedAggregation aggregation;
+    private final Iterator<Tuple2<ExecRow,ExecRow>> source;
+    private final Comparator<ExecRow> keyOrder;
+    private final long maxMemory;
+    private final File spillDirectory;
+    private final OperationContext<?> context;
+
+    private ControlExternalSorter<ExecRow,ExecRow> sorter;
+    private Iterator<Tuple2<ExecRow,ExecRow>> results;
+
+    PrimitiveGroupedAggregateIterator(PrimitiveGroupedAggregation aggregation,
+                                      Iterator<Tuple2<ExecRow,ExecRow>> source,
+                                      Comparator<ExecRow> keyOrder,
+                                      long maxMemory,
+                                      File spillDirectory,
+                                      OperationContext<?> context){
+        this.aggregation=aggregation;
+        this.source=source;
+        this.keyOrder=keyOrder;
+        this.maxMemory=maxMemory;
+        this.spillDirectory=spillDirectory;
+        this.context=context;
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(results==null){
+            try{
+                results=aggregate();
+            }catch(Exception e){
+                if(sorter!=null)
+                    sorter.close();
+                throw new RuntimeException(e);
+            }
+        }
+        return results.hasNext();
+    }
+
+    @Override
+    public Tuple2<ExecRow,ExecRow> next(){
+        return results.next();
+    }
+
+    @Override
+    public void remove(){
+        throw new RuntimeException("Not Implemented");
+    }
+
+    private Iterator<Tuple2<ExecRow,ExecRow>> aggregate() throws StandardException, IOException{
+        PrimitiveGroupedAggregation.Table table=aggregation.newTable();
+        while(source.hasNext()){
+            table.add(source.next()._2());
+            if(context!=null)
+                context.recordRead();
+            if(table.heapSize()>maxMemory)
+                spill(table);
+        }
+        if(sorter==null)
+            return tuples(table.finish()).iterator();
+        spill(table);
+        return new MergingIterator(sorter.sorted());
+    }
+
+    private void spill(PrimitiveGroupedAggregation.Table table) throws StandardException, IOException{
+        if(sorter==null)
+            sorter=new ControlExternalSorter<>(keyOrder,maxMemory,spillDirectory,context);
+        for(Tuple2<ExecRow,ExecRow> tuple : tuples(table.finish())){
+            sorter.add(tuple);
+        }
+        table.clear();
+    }
+
+    private List<Tuple2<ExecRow,ExecRow>> tuples(List<ExecRow> rows) throws StandardException{
+        List<Tuple2<ExecRow,ExecRow>> tuples=new ArrayList<>(rows.size());
+        for(ExecRow row : rows){
+            tuples.add(new Tuple2<>(row.getKeyedExecRow(aggregation.getKeyColumns()),row));
+        }
+        return tuples;
+    }
+
+    /**
+     * Merges the partial aggregates of adjacent tuples whose keys are equal.
+     */
+    private class MergingIterator implements Iterator<Tuple2<ExecRow,ExecRow>>{
+        private final PeekingIterator<Tuple2<ExecRow,ExecRow>> sorted;
+
+        MergingIterator(Iterator<Tuple2<ExecRow,ExecRow>> sorted){
+            this.sorted=Iterators.peekingIterator(sorted);
+        }
+
+        @Override
+        public boolean hasNext(){
+            return sorted.hasNext();
+        }
+
+        @Override
+        public Tuple2<ExecRow,ExecRow> next(){
+            Tuple2<ExecRow,ExecRow> first=sorted.next();
+            try{
+                while(sorted.hasNext() && keyOrder.compare(first._1(),sorted.peek()._1())==0){
+                    aggregation.merge(first._2(),sorted.next()._2());
+                }
+            }catch(StandardException e){
+                sorter.close();
+                throw new RuntimeException(e);
+            }
+            if(!sorted.hasNext())
+                sorter.close();
+            return first;
+        }
+
+        @Override
+        public void remove(){
+            throw new RuntimeException("Not Implemented");
+        }
+    }
+}
@@ -154,6 +154,7 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
 
         if (operationContext != null)
             operationContext.recordRead();
+        ByteCSVTokenizer.Row tokens = values instanceof ByteCSVTokenizer.Row ? (ByteCSVTokenizer.Row) values : null;
 
         try {
             ExecRow returnRow = execRow.getClone();
@@ -189,6 +190,9 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
                 columnID = i;
                 int type = dvd.getTypeFormatId();
 
+                // parse the column straight from the bytes read, where possible
+                if (tokens != null && !hasFormat(type, dateTimeFormat, timestampFormat) && tokens.setValue(i - 1, dvd))
+                    continue;
                 String value = values.get(i - 1);
                 if (shouldBeNull(value,quotedColumns.valueAt(i-1)))
                     value = null;
@@ -263,6 +267,11 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
 
     /* ****************************************************************************************************************/
     /*private helper methods*/
+    private static boolean hasFormat(int type,String dateTimeFormat,String timestampFormat){
+        return (type == StoredFormatIds.SQL_DATE_ID && dateTimeFormat != null)
+                || (type == StoredFormatIds.SQL_TIMESTAMP_ID && timestampFormat != null);
+    }
+
     @SuppressWarnings("SimplifiableIfStatement") //the logic is clearer this way, without a performance penalty
     private static boolean shouldBeNull(String value,boolean wasQuoted){
         if(value==null) return true;
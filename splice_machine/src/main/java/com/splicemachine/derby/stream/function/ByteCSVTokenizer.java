@@ -0,0 +1,532 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDate;
+import com.splicemachine.db.iapi.types.SQLTime;
+import com.splicemachine.db.iapi.types.SQLTimestamp;
+import com.splicemachine.derby.stream.utils.BooleanList;
+import org.supercsv.exception.SuperCsvException;
+import org.supercsv.prefs.CsvPreference;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A CSV tokenizer which scans the raw bytes of its input, rather than decoded characters.
+ *
+ * This is only correct for charsets in which the quote and delimiter characters can never be part of
+ * another character (see {@link #supports(Charset, CsvPreference)}), which holds for UTF-8 and its ASCII
+ * and Latin-1 relatives. Quoting, spaces, empty lines and multi-line quoted columns are handled
+ * exactly as {@link QuoteTrackingTokenizer} handles them.
+ *
+ * Columns are left where they were read, in the input buffer (escaped quotes and line terminators
+ * are unescaped in place), and are only decoded into Strings when asked for. Integer, decimal, date
+ * and timestamp columns in their canonical formats can instead be parsed straight into a
+ * DataValueDescriptor with {@link Row#setValue(int, DataValueDescriptor)}, which never creates
+ * a String for them at all.
+ */
+@NotThreadSafe
+public class ByteCSVTokenizer implements Closeable{
+    private static final byte NEWLINE='\n';
+    private static final byte CARRIAGE_RETURN='\r';
+    private static final byte SPACE=' ';
+    private static final int DEFAULT_BUFFER_SIZE=1<<16;
+    /*the most digits which are guaranteed to fit in a long*/
+    private static final int MAX_LONG_DIGITS=18;
+
+    private final InputStream input;
+    private final Charset charset;
+    private final int quoteChar;
+    private final int delimiterChar;
+    private final boolean surroundingSpacesNeedQuotes;
+    private final boolean ignoreEmptyLines;
+    private final int maxLinesPerRow;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    /*the current row occupies [rowStart,writePosition) of the buffer, and its current column [columnStart,writePosition)*/
+    private int rowStart;
+    private int columnStart;
+    private int writePosition;
+
+    /*column boundaries, relative to rowStart so that they survive the buffer being compacted*/
+    private int[] columnStarts=new int[16];
+    private int[] columnEnds=new int[16];
+    private int numColumns;
+    private final BooleanList quotedColumns=new BooleanList();
+    private final Row row=new Row();
+
+    private int lineNumber;
+
+    public ByteCSVTokenizer(InputStream input,Charset charset,CsvPreference preferences){
+        this(input,charset,preferences,DEFAULT_BUFFER_SIZE);
+    }
+
+    public ByteCSVTokenizer(InputStream input,Charset charset,CsvPreference preferences,int bufferSize){
+        assert supports(charset,preferences):"Unsupported charset or preferences";
+        this.input=input;
+        this.charset=charset;
+        this.quoteChar=preferences.getQuoteChar();
+        this.delimiterChar=preferences.getDelimiterChar();
+        this.surroundingSpacesNeedQuotes=preferences.isSurroundingSpacesNeedQuotes();
+        this.ignoreEmptyLines=preferences.isIgnoreEmptyLines();
+        this.maxLinesPerRow=preferences.getMaxLinesPerRow();
+        this.buffer=new byte[bufferSize];
+    }
+
+    /**
+     * @return true if files in {@code charset} can be tokenized a byte at a time with these preferences.
+     */
+    public static boolean supports(Charset charset,CsvPreference preferences){
+        if(!StandardCharsets.UTF_8.equals(charset)
+                && !StandardCharsets.US_ASCII.equals(charset)
+                && !StandardCharsets.ISO_8859_1.equals(charset))
+            return false;
+        return preferences.getQuoteChar()<0x80
+                && preferences.getDelimiterChar()<0x80
+                && preferences.getCommentMatcher()==null;
+    }
+
+    /**
+     * Reads the next row.
+     *
+     * @return false if there are no more rows
+     * @throws IOException if the input could not be read
+     * @throws SuperCsvException if the row is malformed. The next call will continue with the following line.
+     */
+    public boolean readRow() throws IOException{
+        numColumns=0;
+        quotedColumns.clear();
+
+        // find the start of the next line (ignoring empty lines if necessary)
+        while(true){
+            rowStart=columnStart=writePosition=position;
+            if(position==limit && !fill())
+                return false; // EOF
+            lineNumber++;
+            if(!ignoreEmptyLines || !atLineTerminator())
+                break;
+            skipLineTerminator();
+        }
+
+        boolean quoteMode=false;
+        boolean wasQuoted=false;
+        int quoteScopeStartingLine=-1;
+        int potentialSpaces=0;
+        while(true){
+            boolean endOfInput=position==limit && !fill();
+            if(endOfInput || atLineTerminator()){
+                if(!quoteMode){
+                    // a newline (or the end of a last line which has no terminator)
+                    if(!endOfInput) skipLineTerminator();
+                    endColumn(potentialSpaces,wasQuoted);
+                    return true;
+                }
+                /*
+                 * A newline within quotes is part of the column (the specific line terminator is lost, \n will have
+                 * to suffice).
+                 */
+                if(!endOfInput){
+                    byte c=buffer[position++];
+                    buffer[writePosition++]=NEWLINE;
+                    if(c==CARRIAGE_RETURN && peek()==NEWLINE)
+                        position++;
+                }
+                if(maxLinesPerRow>0 && lineNumber-quoteScopeStartingLine+1>=maxLinesPerRow){
+                    String msg=maxLinesPerRow==1?
+                            String.format("unexpected end of line while reading quoted column on line %d",
+                                    lineNumber):
+                            String.format("max number of lines to read exceeded while reading quoted column"+
+                                            " beginning on line %d and ending on line %d",
+                                    quoteScopeStartingLine,lineNumber);
+                    throw new SuperCsvException(msg);
+                }
+                if(endOfInput || (position==limit && !fill()))
+                    throw partialRecord(quoteScopeStartingLine,endOfInput);
+                lineNumber++;
+                continue;
+            }
+            byte c=buffer[position++];
+
+            if(!quoteMode){
+                if(c==delimiterChar){
+                    endColumn(potentialSpaces,wasQuoted);
+                    potentialSpaces=0;
+                    wasQuoted=false;
+                }else if(c==SPACE){
+                    potentialSpaces++;
+                }else if(c==quoteChar){
+                    quoteMode=true;
+                    wasQuoted=true;
+                    quoteScopeStartingLine=lineNumber;
+                    // cater for spaces before a quoted section (be lenient!)
+                    if(!surroundingSpacesNeedQuotes || writePosition>columnStart){
+                        appendSpaces(potentialSpaces);
+                    }
+                    potentialSpaces=0;
+                }else{
+                    if(!surroundingSpacesNeedQuotes || writePosition>columnStart){
+                        appendSpaces(potentialSpaces);
+                    }
+                    potentialSpaces=0;
+                    buffer[writePosition++]=c;
+                }
+            }else if(c==quoteChar){
+                if(peek()==quoteChar){
+                    // an escaped quote ("")
+                    buffer[writePosition++]=c;
+                    position++;
+                }else{
+                    quoteMode=false;
+                    quoteScopeStartingLine=-1;
+                }
+            }else{
+                buffer[writePosition++]=c;
+            }
+        }
+    }
+
+    /**
+     * @return the columns of the row last read. The row, and the Strings it decodes, are only valid until the next
+     * call to {@link #readRow()}
+     */
+    public Row getRow(){
+        return row;
+    }
+
+    /**
+     * @return whether each column of the row last read was quoted. Reused by the next call to {@link #readRow()}
+     */
+    public BooleanList getQuotedColumns(){
+        return quotedColumns;
+    }
+
+    public int getLineNumber(){
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException{
+        input.close();
+    }
+
+    /**
+     * The columns of the current row. Columns are decoded into Strings by {@link #get(int)} (an empty column is
+     * {@code null}, as with {@link QuoteTrackingTokenizer}), or parsed directly into a DataValueDescriptor by
+     * {@link #setValue(int, DataValueDescriptor)}.
+     */
+    public final class Row extends AbstractList<String>{
+
+        private Row(){ }
+
+        @Override
+        public String get(int index){
+            checkIndex(index);
+            int start=rowStart+columnStarts[index];
+            int length=columnEnds[index]-columnStarts[index];
+            return length>0?new String(buffer,start,length,charset):null;
+        }
+
+        @Override
+        public int size(){
+            return numColumns;
+        }
+
+        /**
+         * Sets {@code dvd} directly from the bytes of a column, if the column is null, or is in the canonical format of
+         * an integer, decimal, date or timestamp column.
+         *
+         * @return true if the value was set. When false, the column should be converted from its String form instead,
+         * which also reports any errors in the value.
+         */
+        public boolean setValue(int index,DataValueDescriptor dvd) throws StandardException{
+            checkIndex(index);
+            int start=rowStart+columnStarts[index];
+            int end=rowStart+columnEnds[index];
+            int type=dvd.getTypeFormatId();
+            switch(type){
+                case StoredFormatIds.SQL_TINYINT_ID:
+                case StoredFormatIds.SQL_SMALLINT_ID:
+                case StoredFormatIds.SQL_INTEGER_ID:
+                case StoredFormatIds.SQL_LONGINT_ID:
+                case StoredFormatIds.SQL_DECIMAL_ID:
+                case StoredFormatIds.SQL_DATE_ID:
+                case StoredFormatIds.SQL_TIMESTAMP_ID:
+                    break;
+                default:
+                    return false;
+            }
+            if(start==end || (!quotedColumns.valueAt(index) && isNullString(start,end))){
+                dvd.setToNull();
+                return true;
+            }
+            switch(type){
+                case StoredFormatIds.SQL_TINYINT_ID:
+                    return setIntegral(dvd,start,end,Byte.MIN_VALUE,Byte.MAX_VALUE);
+                case StoredFormatIds.SQL_SMALLINT_ID:
+                    return setIntegral(dvd,start,end,Short.MIN_VALUE,Short.MAX_VALUE);
+                case StoredFormatIds.SQL_INTEGER_ID:
+                    return setIntegral(dvd,start,end,Integer.MIN_VALUE,Integer.MAX_VALUE);
+                case StoredFormatIds.SQL_LONGINT_ID:
+                    return setIntegral(dvd,start,end,Long.MIN_VALUE,Long.MAX_VALUE);
+                case StoredFormatIds.SQL_DECIMAL_ID:
+                    return setDecimal(dvd,start,end);
+                case StoredFormatIds.SQL_DATE_ID:
+                    return setDate(dvd,start,end);
+                default:
+                    return setTimestamp(dvd,start,end);
+            }
+        }
+
+        private void checkIndex(int index){
+            if(index<0 || index>=numColumns)
+                throw new IndexOutOfBoundsException("Index: "+index+", Size: "+numColumns);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * Reads more of the input, first moving the current row to the start of the buffer (and growing the buffer if
+     * the row already fills it). Only called once everything in the buffer has been consumed.
+     *
+     * Everything consumed by the row is kept, not just what has been written, as skipped spaces may still
+     * be written back.
+     */
+    private boolean fill() throws IOException{
+        if(eof) return false;
+        int live=limit-rowStart;
+        if(rowStart>0){
+            System.arraycopy(buffer,rowStart,buffer,0,live);
+            columnStart-=rowStart;
+            writePosition-=rowStart;
+            rowStart=0;
+        }
+        if(live==buffer.length)
+            buffer=Arrays.copyOf(buffer,2*buffer.length);
+        position=limit=live;
+        int read;
+        do{
+            read=input.read(buffer,limit,buffer.length-limit);
+        }while(read==0);
+        if(read<0){
+            eof=true;
+            return false;
+        }
+        limit+=read;
+        return true;
+    }
+
+    private int peek() throws IOException{
+        if(position==limit && !fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private boolean atLineTerminator(){
+        byte c=buffer[position];
+        return c==NEWLINE || c==CARRIAGE_RETURN;
+    }
+
+    /*consumes a \n, \r or \r\n*/
+    private void skipLineTerminator() throws IOException{
+        if(buffer[position++]==CARRIAGE_RETURN && peek()==NEWLINE)
+            position++;
+    }
+
+    private void appendSpaces(int spaces){
+        for(int i=0;i<spaces;i++){
+            buffer[writePosition++]=SPACE;
+        }
+    }
+
+    private void endColumn(int potentialSpaces,boolean wasQuoted){
+        if(!surroundingSpacesNeedQuotes){
+            appendSpaces(potentialSpaces);
+        }
+        if(numColumns==columnStarts.length){
+            columnStarts=Arrays.copyOf(columnStarts,2*numColumns);
+            columnEnds=Arrays.copyOf(columnEnds,2*numColumns);
+        }
+        columnStarts[numColumns]=columnStart-rowStart;
+        columnEnds[numColumns]=writePosition-rowStart;
+        numColumns++;
+        quotedColumns.append(wasQuoted);
+        columnStart=writePosition;
+    }
+
+    private SuperCsvException partialRecord(int quoteScopeStartingLine,boolean endOfInput){
+        String column=new String(buffer,columnStart,writePosition-columnStart,charset);
+        if(endOfInput)
+            column+=(char)NEWLINE; // the last line had no terminator of its own
+        return new SuperCsvException(String.format(
+                "partial record found [%s] while reading quoted column beginning on line %d and ending on line %d",
+                column,quoteScopeStartingLine,lineNumber));
+    }
+
+    private boolean isNullString(int start,int end){
+        return end-start==4
+                && (buffer[start]|0x20)=='n'
+                && (buffer[start+1]|0x20)=='u'
+                && (buffer[start+2]|0x20)=='l'
+                && (buffer[start+3]|0x20)=='l';
+    }
+
+    /*
+     * The parsers below only accept the plainest form of each value, and leave anything else (signs, surrounding
+     * spaces, overflow, out of range values) to the String conversion, so that its leniency and errors are kept.
+     */
+    private boolean setIntegral(DataValueDescriptor dvd,int start,int end,long min,long max) throws StandardException{
+        boolean negative=buffer[start]=='-';
+        if(negative) start++;
+        int digits=end-start;
+        if(digits<1 || digits>MAX_LONG_DIGITS)
+            return false;
+        long value=0L;
+        for(int i=start;i<end;i++){
+            int d=buffer[i]-'0';
+            if(d<0 || d>9)
+                return false;
+            value=value*10+d;
+        }
+        if(negative) value=-value;
+        if(value<min || value>max)
+            return false;
+        if(max==Long.MAX_VALUE)
+            dvd.setValue(value);
+        else
+            dvd.setValue((int)value);
+        return true;
+    }
+
+    private boolean setDecimal(DataValueDescriptor dvd,int start,int end) throws StandardException{
+        boolean negative=buffer[start]=='-';
+        if(negative) start++;
+        long unscaled=0L;
+        int digits=0;
+        int scale=0;
+        boolean fraction=false;
+        for(int i=start;i<end;i++){
+            byte c=buffer[i];
+            if(c=='.' && !fraction){
+                fraction=true;
+                continue;
+            }
+            int d=c-'0';
+            if(d<0 || d>9 || ++digits>MAX_LONG_DIGITS)
+                return false;
+            unscaled=unscaled*10+d;
+            if(fraction) scale++;
+        }
+        if(digits==0)
+            return false;
+        dvd.setBigDecimal(BigDecimal.valueOf(negative?-unscaled:unscaled,scale));
+        return true;
+    }
+
+    /*yyyy-mm-dd*/
+    private int parseDate(int start,int end) throws StandardException{
+        if(end-start<10 || buffer[start+4]!='-' || buffer[start+7]!='-')
+            return -1;
+        int year=digits(start,4);
+        int month=digits(start+5,2);
+        int day=digits(start+8,2);
+        if(year<0 || month<0 || day<0)
+            return -1;
+        return SQLDate.computeEncodedDate(year,month,day);
+    }
+
+    private boolean setDate(DataValueDescriptor dvd,int start,int end){
+        if(end-start!=10)
+            return false;
+        try{
+            int encodedDate=parseDate(start,end);
+            if(encodedDate<0)
+                return false;
+            dvd.setValue(encodedDate);
+            return true;
+        }catch(StandardException se){
+            return false;
+        }
+    }
+
+    /*yyyy-mm-dd[ hh:mm:ss[.fffffffff]]*/
+    private boolean setTimestamp(DataValueDescriptor dvd,int start,int end){
+        if(!(dvd instanceof SQLTimestamp))
+            return false;
+        int length=end-start;
+        if(length!=10 && length<19)
+            return false;
+        try{
+            int encodedDate=parseDate(start,end);
+            if(encodedDate<0)
+                return false;
+            int encodedTime=0;
+            int nanos=0;
+            if(length>10){
+                if(buffer[start+10]!=SPACE || buffer[start+13]!=':' || buffer[start+16]!=':')
+                    return false;
+                int hour=digits(start+11,2);
+                int minute=digits(start+14,2);
+                int second=digits(start+17,2);
+                if(hour<0 || minute<0 || second<0)
+                    return false;
+                encodedTime=SQLTime.computeEncodedTime(hour,minute,second);
+                if(length>19){
+                    int fractionDigits=length-20;
+                    if(buffer[start+19]!='.' || fractionDigits<1 || fractionDigits>9)
+                        return false;
+                    nanos=digits(start+20,fractionDigits);
+                    if(nanos<0)
+                        return false;
+                    for(int i=fractionDigits;i<9;i++){
+                        nanos*=10;
+                    }
+                }
+            }
+            ((SQLTimestamp)dvd).setValue(encodedDate,encodedTime,nanos);
+            return true;
+        }catch(StandardException se){
+            return false;
+        }
+    }
+
+    /*the value of count decimal digits, or -1 if they aren't all digits*/
+    private int digits(int start,int count){
+        int value=0;
+        for(int i=start;i<start+count;i++){
+            int d=buffer[i]-'0';
+            if(d<0 || d>9)
+                return -1;
+            value=value*10+d;
+        }
+        return value;
+    }
+}
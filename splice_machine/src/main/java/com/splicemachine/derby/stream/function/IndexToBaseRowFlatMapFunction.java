@@ -68,6 +68,7 @@ public class IndexToBaseRowFlatMapFunction<Op extends SpliceOperation> extends S
         indexRowToBaseRowOperation.registerCloseable(new AutoCloseable() {
             @Override
             public void close() throws Exception {
+                operationContext.recordIndexLookups(reader.getLookups(), reader.getBatches(), reader.getWaitTime());
                 reader.close();
             }
         });
@@ -21,6 +21,7 @@ import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.utils.BooleanList;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -67,6 +68,7 @@ import java.util.NoSuchElementException;
                     private boolean initialized = false;
                     private Reader reader;
                     private SpliceCsvReader spliceCsvReader;
+                    private ByteCSVTokenizer tokenizer;
                     private boolean hasNext = true;
                     private boolean stale = false;
                     @Override
@@ -75,19 +77,28 @@ import java.util.NoSuchElementException;
                                 return hasNext;
                             try {
                                 if (!initialized) {
-                                    reader = new BufferedReader(new InputStreamReader(s,charset));
-                                    spliceCsvReader = new SpliceCsvReader(reader, preference);
+                                    Charset cs = Charset.forName(charset);
+                                    if (ByteCSVTokenizer.supports(cs, preference)) {
+                                        // tokenize the raw bytes, rather than decoding the whole file first
+                                        tokenizer = new ByteCSVTokenizer(s, cs, preference);
+                                    } else {
+                                        reader = new BufferedReader(new InputStreamReader(s, cs));
+                                        spliceCsvReader = new SpliceCsvReader(reader, preference);
+                                    }
                                     initialized = true;
                                 }
                                 while (true) {
                                     try {
-                                        if (!spliceCsvReader.hasNext()) {
-                                            reader.close();
+                                        if (!readNext()) {
+                                            if (tokenizer != null)
+                                                tokenizer.close();
+                                            else
+                                                reader.close();
                                             hasNext = false;
                                             return false;
                                         }
-                                        List<String> next=spliceCsvReader.next();
-                                        BooleanList quotedColumns = spliceCsvReader.nextQuotedColumns();
+                                        List<String> next = tokenizer != null ? tokenizer.getRow() : spliceCsvReader.next();
+                                        BooleanList quotedColumns = tokenizer != null ? tokenizer.getQuotedColumns() : spliceCsvReader.nextQuotedColumns();
                                         nextRow = call(next,quotedColumns);
                                         if (nextRow != null) {
                                             stale = true;
@@ -106,6 +117,10 @@ import java.util.NoSuchElementException;
                             }
                     }
 
+                    private boolean readNext() throws IOException {
+                        return tokenizer != null ? tokenizer.readRow() : spliceCsvReader.hasNext();
+                    }
+
                     @Override
                     public ExecRow next() {
                         if(!hasNext()) throw new NoSuchElementException();
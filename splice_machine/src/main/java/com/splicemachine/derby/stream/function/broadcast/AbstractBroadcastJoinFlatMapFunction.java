@@ -22,7 +22,10 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.DataSetProcessorFactory;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.db.shared.common.reference.SQLState;
 import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinMemoryExceededException;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.MultiProbeTableScanOperation;
 import com.splicemachine.derby.stream.function.InnerJoinNullFilterFunction;
@@ -33,6 +36,7 @@ import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.stream.Stream;
 import com.splicemachine.stream.Streams;
+import org.apache.spark.TaskContext;
 import org.spark_project.guava.base.Function;
 import org.spark_project.guava.collect.FluentIterable;
 
@@ -46,10 +50,11 @@ import java.util.concurrent.Future;
  * Created by dgomezferro on 11/4/15.
  */
 public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends SpliceFlatMapFunction<JoinOperation, Iterator<In>, Out> {
-    private static final BroadcastJoinCache broadcastJoinCache = new BroadcastJoinCache();
+    private static final BroadcastJoinCache broadcastJoinCache = BroadcastJoinCache.getInstance();
     private JoinOperation operation;
     private Future<JoinTable> joinTable ;
     private boolean init = false;
+    private boolean inSpark;
 
     public AbstractBroadcastJoinFlatMapFunction() {
     }
@@ -66,6 +71,17 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
             table = joinTable.get();
         } catch (ExecutionException ee) {
             Throwable c = ee.getCause();
+            if (c instanceof BroadcastJoinMemoryExceededException) {
+                if (inSpark) {
+                    // there's nowhere left to resubmit to
+                    throw StandardException.newException(SQLState.LANG_BROADCAST_JOIN_MEMORY_EXCEEDED,
+                            ((BroadcastJoinMemoryExceededException) c).getMaxBytes());
+                }
+                // resubmit to Spark, which will use a non-broadcast join for this operation
+                if (operation instanceof BroadcastJoinOperation)
+                    ((BroadcastJoinOperation) operation).markBroadcastMemoryExceeded();
+                throw (ResubmitDistributedException) c;
+            }
             if (c instanceof ResubmitDistributedException) {
                 throw (ResubmitDistributedException) c;
             }
@@ -96,6 +112,7 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
         if (init)
             return;
         init = true;
+        inSpark = TaskContext.get() != null;
         joinTable = SIDriver.driver().getExecutorService().submit(() -> {
             operation = getOperation();
             ControlExecutionLimiter limiter = operation.getActivation().getLanguageConnectionContext().getControlExecutionLimiter();
@@ -132,7 +149,8 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
                 }));
             };
             ExecRow leftTemplate = operation.getLeftOperation().getExecRowDefinition();
-            return broadcastJoinCache.get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
+            return broadcastJoinCache.get(operation.getSequenceId(), operation.isCompactJoinTable(), rhsLoader,
+                    operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
         });
     }
 }
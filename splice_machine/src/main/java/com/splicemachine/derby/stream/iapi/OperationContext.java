@@ -40,6 +40,29 @@ public interface OperationContext<Op extends SpliceOperation> extends Externaliz
     long getRetryAttempts();
     long getRegionTooBusyExceptions();
 
+    /**
+     * Records that {@code rows} rows, encoded in {@code bytes} bytes, were spilled to disk
+     * by a sort which ran out of memory.
+     */
+    void recordSpill(long rows, long bytes);
+    long getRecordsSpilled();
+    long getBytesSpilled();
+
+    /**
+     * Records that an index lookup fetched {@code lookups} base rows in {@code batches} batches, and
+     * that the operation waited {@code waitTime} nanoseconds for them.
+     */
+    void recordIndexLookups(long lookups, long batches, long waitTime);
+    long getIndexLookups();
+    long getIndexLookupBatches();
+    long getIndexLookupWaitTime();
+
+    /**
+     * Records that a scan read {@code rows} rows which a concurrent query's scan fetched from the table.
+     */
+    void recordSharedScanRows(long rows);
+    long getSharedScanRows();
+
     BadRecordsRecorder getBadRecordsRecorder();
 
     boolean isPermissive();
@@ -19,12 +19,14 @@ import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.ColumnarAggregation;
 import com.splicemachine.metrics.MetricFactory;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.storage.DataScan;
 import com.splicemachine.storage.DataScanner;
 import java.io.IOException;
+import java.util.List;
 
 /**
  *
@@ -65,6 +67,19 @@ public interface ScanSetBuilder<V>{
 
     ScanSetBuilder<V> scan(DataScan scan);
 
+    /**
+     * Scan each of these ranges in turn, instead of the range of {@link #scan(DataScan)}, whose attributes are
+     * still used. Only control execution supports multiple ranges.
+     */
+    ScanSetBuilder<V> probeScans(List<DataScan> probeScans);
+
+    /**
+     * Allow the scan to share a scan of the same range with concurrent queries, in which case the rows are not
+     * returned in key order. Only control execution shares scans, and only if splice.controlExecution.sharedScans
+     * is set.
+     */
+    ScanSetBuilder<V> sharedScan(boolean sharedScan);
+
     ScanSetBuilder<V> transaction(TxnView txn);
 
     ScanSetBuilder<V> optionalProbeValue(DataValueDescriptor optionalProbeValue);
@@ -281,4 +296,23 @@ public interface ScanSetBuilder<V>{
      * @return
      */
     ScanSetBuilder<V> defaultRow(ExecRow defaultRow, FormatableBitSet defaultValueMap);
+
+    /**
+     * Discard rows whose join keys are not in the key filter of a broadcast join's inner table.
+     * Only valid when this scan is the outer side of an inner broadcast join.
+     *
+     * @param broadcastJoinId the sequence id of the broadcast join operation
+     * @param keyColumns the (0-based) positions of the join keys in the scanned row
+     * @return
+     */
+    ScanSetBuilder<V> joinKeyFilter(long broadcastJoinId, int[] keyColumns);
+
+    /**
+     * Aggregate the scanned rows over column vectors, rather than returning them. Only honored
+     * by control execution, and not serialized.
+     *
+     * @param columnarAggregation the aggregation to compute
+     * @return
+     */
+    ScanSetBuilder<V> columnarAggregation(ColumnarAggregation columnarAggregation);
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.iterator;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.ColumnarAggregation;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarBatch;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarQualifier;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.stream.function.IteratorUtils;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Scans a table into column vectors and aggregates them, returning the partial aggregate rows
+ * of a {@link ColumnarAggregation} in place of the scanned rows.
+ */
+@NotThreadSafe
+public class ColumnarAggregateIterator implements Iterable<ExecRow>, Iterator<ExecRow>, Closeable {
+    private final TableScannerBuilder siTableBuilder;
+    private final SpliceOperation operation;
+    private final ColumnarAggregation aggregation;
+    private SITableScanner tableScanner;
+    private Iterator<ExecRow> aggregates;
+
+    public ColumnarAggregateIterator(TableScannerBuilder siTableBuilder, SpliceOperation operation, ColumnarAggregation aggregation) {
+        this.siTableBuilder = siTableBuilder;
+        this.operation = operation;
+        this.aggregation = aggregation;
+    }
+
+    @Override
+    public Iterator<ExecRow> iterator() {
+        return IteratorUtils.asInterruptibleIterator(this);
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            if (aggregates == null)
+                aggregates = aggregate();
+            return aggregates.hasNext();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public ExecRow next() {
+        return aggregates.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new RuntimeException("Not Implemented");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (tableScanner != null) {
+            try {
+                tableScanner.close();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private Iterator<ExecRow> aggregate() throws Exception {
+        tableScanner = siTableBuilder.build();
+        tableScanner.open();
+        if (operation != null)
+            operation.registerCloseable(this);
+        ColumnarBatch batch = aggregation.newBatch();
+        ColumnarQualifier[][] qualifiers = aggregation.getQualifiers();
+        ColumnarAggregation.Accumulator accumulator = aggregation.newAccumulator();
+        while (tableScanner.nextBatch(batch) > 0) {
+            batch.selectAll();
+            ColumnarQualifier.filter(batch, qualifiers);
+            accumulator.aggregate(batch);
+        }
+        tableScanner.close();
+        tableScanner = null;
+        return accumulator.finish().iterator();
+    }
+}
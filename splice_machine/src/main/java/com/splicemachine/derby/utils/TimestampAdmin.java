@@ -92,7 +92,11 @@ public class TimestampAdmin extends BaseAdminProcedures {
 	private static final ResultColumnDescriptor[] TIMESTAMP_REQUEST_INFO_COLUMNS = new GenericColumnDescriptor[] {
 		new GenericColumnDescriptor("hostName",           DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR)),
 		new GenericColumnDescriptor("totalRequestCount",  DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
-		new GenericColumnDescriptor("avgRequestDuration", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE))
+		new GenericColumnDescriptor("avgRequestDuration", DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE)),
+		new GenericColumnDescriptor("totalBatchCount",    DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("avgBatchSize",       DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DOUBLE)),
+		new GenericColumnDescriptor("p50RequestMicros",   DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT)),
+		new GenericColumnDescriptor("p99RequestMicros",   DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT))
 	};
 	
 	public static void SYSCS_GET_TIMESTAMP_REQUEST_INFO(final ResultSet[] resultSet) throws SQLException {
@@ -100,9 +104,10 @@ public class TimestampAdmin extends BaseAdminProcedures {
             @Override
             public void operate(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException, SQLException {
                 List<Pair<String, TimestampClientStatistics>> mgrs = JMXUtils.getTimestampClientStatistics(connections);
-				ExecRow template = new ValueRow(3);
+				ExecRow template = new ValueRow(7);
 				template.setRowArray(new DataValueDescriptor[]{
-					new SQLVarchar(), new SQLDouble(), new SQLDouble()
+					new SQLVarchar(), new SQLDouble(), new SQLDouble(),
+					new SQLLongint(), new SQLDouble(), new SQLLongint(), new SQLLongint()
 				});
 				List<ExecRow> rows = Lists.newArrayListWithExpectedSize(mgrs.size());
 				for (Pair<String, TimestampClientStatistics> mgmtPair : mgrs) {
@@ -113,6 +118,10 @@ public class TimestampAdmin extends BaseAdminProcedures {
 						dvds[0].setValue(mgmtPair.getFirst()); // region server name
 						dvds[1].setValue(mgmt.getNumberTimestampRequests());
 						dvds[2].setValue(mgmt.getAvgTimestampRequestDuration());
+						dvds[3].setValue(mgmt.getNumberTimestampBatches());
+						dvds[4].setValue(mgmt.getAvgTimestampBatchSize());
+						dvds[5].setValue(mgmt.getTimestampRequestDurationP50Micros());
+						dvds[6].setValue(mgmt.getTimestampRequestDurationP99Micros());
 					} catch (StandardException se) {
 						throw PublicAPI.wrapStandardException(se);
 					}
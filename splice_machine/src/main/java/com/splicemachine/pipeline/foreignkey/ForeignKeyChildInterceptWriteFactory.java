@@ -19,6 +19,7 @@ import com.splicemachine.ddl.DDLMessage.*;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
 import com.splicemachine.pipeline.context.PipelineWriteContext;
 import com.splicemachine.pipeline.contextfactory.LocalWriteFactory;
+import com.splicemachine.si.impl.driver.SIDriver;
 import java.io.IOException;
 
 /**
@@ -30,17 +31,21 @@ class ForeignKeyChildInterceptWriteFactory implements LocalWriteFactory{
     private final long referencedConglomerateNumber;
     private final FKConstraintInfo fkConstraintInfo;
     private final PipelineExceptionFactory exceptionFactory;
+    /* The parent keys found by the handlers of this factory. */
+    private final ParentKeyCache parentKeys;
 
     ForeignKeyChildInterceptWriteFactory(long referencedConglomerateNumber, FKConstraintInfo fkConstraintInfo,
                                          PipelineExceptionFactory exceptionFactory) {
         this.referencedConglomerateNumber = referencedConglomerateNumber;
         this.fkConstraintInfo = fkConstraintInfo;
         this.exceptionFactory = exceptionFactory;
+        this.parentKeys = new ParentKeyCache(Long.toString(referencedConglomerateNumber),
+                SIDriver.driver().getConfiguration().getForeignKeyParentKeyCacheSize());
     }
 
     @Override
     public void addTo(PipelineWriteContext ctx, boolean keepState, int expectedWrites) throws IOException {
-        ctx.addLast(new ForeignKeyChildInterceptWriteHandler(referencedConglomerateNumber, fkConstraintInfo,exceptionFactory));
+        ctx.addLast(new ForeignKeyChildInterceptWriteHandler(referencedConglomerateNumber, fkConstraintInfo,exceptionFactory,parentKeys));
     }
 
     @Override
@@ -38,12 +38,14 @@ import com.splicemachine.storage.DataFilter;
 import com.splicemachine.storage.DataResult;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.util.MapAttributes;
+import com.splicemachine.utils.ByteSlice;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Intercepts insert/updates to a FK constraint backing index and sends the rowKey over to the referenced primary-key or
@@ -59,11 +61,14 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
     private final MultiFieldDecoder multiFieldDecoder;
     private final TypeProvider typeProvider;
     private FKConstraintInfo fkConstraintInfo;
+    private final ParentKeyCache parentKeys;
 
     public ForeignKeyChildInterceptWriteHandler(long referencedConglomerateNumber,
                                                 FKConstraintInfo fkConstraintInfo,
-                                                PipelineExceptionFactory exceptionFactory) {
+                                                PipelineExceptionFactory exceptionFactory,
+                                                ParentKeyCache parentKeys) {
         this.referencedConglomerateNumber = referencedConglomerateNumber;
+        this.parentKeys = parentKeys;
         this.violationProcessor = new ForeignKeyViolationProcessor(
                 new ForeignKeyViolationProcessor.ChildFkConstraintContextProvider(fkConstraintInfo),
                 exceptionFactory);
@@ -80,6 +85,11 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
         if (isForeignKeyInterceptNecessary(mutation.getType())) {
             mutations.add(mutation);
             ctx.success(mutation);
+        } else if (mutation.getType() == KVPair.Type.DELETE) {
+            // the parent key may go away once no child row references it
+            byte[] checkRowKey = getCheckRowKey(mutation.getRowKey());
+            if (checkRowKey != null)
+                parentKeys.remove(checkRowKey);
         }
         ctx.sendUpstream(mutation);
     }
@@ -92,23 +102,37 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
     @Override
     public void flush(WriteContext ctx) throws IOException {
         try {
-            initTable();
-            HashSet<byte[]> culledLookups = new HashSet(mutations.size());
+            long txnId = ctx.getTxn().getTxnId();
+            long version = parentKeys.version();
+            Map<ByteSlice,Integer> culledLookups = new HashMap<>(mutations.size());
+            List<byte[]> rowKeysToFetch = new ArrayList<>(mutations.size());
             int[] locations = new int[mutations.size()];
-            int counter = 0;
+            int hits = 0;
             for (int i =0; i<mutations.size();i++) {
                 byte[] checkRowKey = getCheckRowKey(mutations.get(i).getRowKey());
-                if (culledLookups.contains(checkRowKey)) {
-                    locations[i] = counter-1;
-                } else {
-                    culledLookups.add(checkRowKey);
-                    locations[i] = counter;
-                    counter++;
+                if (checkRowKey == null || parentKeys.contains(txnId, checkRowKey)) {
+                    // a null column is not checked, and a parent key we have found already is still there
+                    locations[i] = -1;
+                    if (checkRowKey != null)
+                        hits++;
+                    continue;
+                }
+                ByteSlice key = ByteSlice.wrap(checkRowKey);
+                Integer location = culledLookups.get(key);
+                if (location == null) {
+                    location = rowKeysToFetch.size();
+                    culledLookups.put(key, location);
+                    rowKeysToFetch.add(checkRowKey);
                 }
+                locations[i] = location;
             }
+            parentKeys.recordChecks(mutations.size(), hits);
 
-            List<byte[]> rowKeysToFetch = new ArrayList<>(culledLookups.size());
-            rowKeysToFetch.addAll(culledLookups);
+            // All found...
+            if (rowKeysToFetch.isEmpty())
+                return;
+
+            initTable();
             SimpleTxnFilter readUncommittedFilter;
             SimpleTxnFilter readCommittedFilter;
             if (ctx.getTxn() instanceof ActiveWriteTxn) {
@@ -121,6 +145,7 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
                 throw new IOException("invalidTxn");
 
             Iterator<DataResult> iterator = table.batchGet(new MapAttributes(),rowKeysToFetch);
+            parentKeys.recordLookup(rowKeysToFetch.size());
             BitSet misses = new BitSet(rowKeysToFetch.size());
 
             int i = 0;
@@ -130,6 +155,8 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
                 readUncommittedFilter.reset();
                 if (!hasData(result,readCommittedFilter) || !hasData(result,readUncommittedFilter))
                     misses.set(i);
+                else
+                    parentKeys.add(txnId, version, rowKeysToFetch.get(i));
                 i++;
             }
 
@@ -139,7 +166,7 @@ public class ForeignKeyChildInterceptWriteHandler implements WriteHandler{
             // Assemble failures for the write pipeline with error codes.
             i=0;
             for (int location: locations) {
-                if (misses.get(location))
+                if (location >= 0 && misses.get(location))
                     failWrite(mutations.get(i),ctx);
                 i++;
             }
@@ -68,6 +68,8 @@ public class ForeignKeyParentInterceptWriteHandler implements WriteHandler{
     public void next(KVPair mutation, WriteContext ctx) {
         if (isForeignKeyInterceptNecessary(mutation.getType())) {
             mutations.add(mutation);
+            // child rows written from now on can't rely on having found this key before
+            ParentKeyCache.parentKeyDeleted(ctx.getRegion().getTableName());
         }
         ctx.sendUpstream(mutation);
     }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.foreignkey;
+
+import com.splicemachine.derby.management.ParentKeyCacheManagement;
+import com.splicemachine.utils.ByteSlice;
+import org.spark_project.guava.cache.Cache;
+import org.spark_project.guava.cache.CacheBuilder;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The parent keys which foreign key checks on a child index have found, so that child rows which reference a parent
+ * key again don't have to look it up again.
+ *
+ * A parent key is remembered for the transaction which wrote a child row referencing it. As long as that row exists,
+ * deleting the parent key fails its check for references, so the key can't go away while the transaction writes
+ * more rows referencing it. A key is forgotten when a child row referencing it is deleted, and all keys of a parent
+ * table are when one of its keys is deleted on this server. DDL on the constraint replaces the write factories, and
+ * with them their caches.
+ */
+public class ParentKeyCache{
+    private static final int MAX_TRANSACTIONS=64;
+    private static final ConcurrentMap<String,AtomicLong> parentDeletes=new ConcurrentHashMap<>();
+    private static final Statistics statistics=new Statistics();
+
+    private final String parentTable;
+    private final int maxKeys;
+    private final Cache<Long,Set<ByteSlice>> transactions;
+    private volatile long deletes;
+
+    ParentKeyCache(String parentTable,int maxKeys){
+        this.parentTable=parentTable;
+        this.maxKeys=maxKeys;
+        this.transactions=CacheBuilder.newBuilder()
+                .maximumSize(MAX_TRANSACTIONS)
+                .expireAfterAccess(1,TimeUnit.MINUTES)
+                .build();
+        this.deletes=deleteCount(parentTable).get();
+    }
+
+    public static ParentKeyCacheManagement statistics(){
+        return statistics;
+    }
+
+    /**
+     * Drops the cached keys of {@code parentTable}, before one of its keys is deleted.
+     */
+    static void parentKeyDeleted(String parentTable){
+        deleteCount(parentTable).incrementAndGet();
+    }
+
+    /**
+     * @return a token to pass to {@link #add}, taken before looking up parent keys
+     */
+    long version(){
+        return deleteCount(parentTable).get();
+    }
+
+    boolean contains(long txnId,byte[] parentKey){
+        if(maxKeys<=0) return false;
+        long current=version();
+        if(current!=deletes){
+            transactions.invalidateAll();
+            deletes=current;
+            statistics.invalidations.incrementAndGet();
+        }
+        Set<ByteSlice> keys=transactions.getIfPresent(txnId);
+        return keys!=null && keys.contains(ByteSlice.wrap(parentKey));
+    }
+
+    /**
+     * Remembers that {@code parentKey} was found for transaction {@code txnId}, unless a parent key was deleted since
+     * {@code version} was taken.
+     */
+    void add(long txnId,long version,byte[] parentKey){
+        if(maxKeys<=0 || version!=version()) return;
+        Set<ByteSlice> keys;
+        try{
+            keys=transactions.get(txnId,new Callable<Set<ByteSlice>>(){
+                @Override
+                public Set<ByteSlice> call(){
+                    return Collections.newSetFromMap(new ConcurrentHashMap<ByteSlice,Boolean>());
+                }
+            });
+        }catch(ExecutionException e){
+            throw new IllegalStateException(e.getCause());
+        }
+        if(keys.size()<maxKeys)
+            keys.add(ByteSlice.wrap(parentKey));
+    }
+
+    /**
+     * Forgets {@code parentKey}, once a child row referencing it is deleted.
+     */
+    void remove(byte[] parentKey){
+        ByteSlice key=ByteSlice.wrap(parentKey);
+        for(Set<ByteSlice> keys : transactions.asMap().values()){
+            keys.remove(key);
+        }
+    }
+
+    void recordChecks(long rows,long hits){
+        statistics.checkedRows.addAndGet(rows);
+        statistics.hits.addAndGet(hits);
+    }
+
+    void recordLookup(long keys){
+        statistics.lookups.incrementAndGet();
+        statistics.keysRead.addAndGet(keys);
+    }
+
+    private static AtomicLong deleteCount(String parentTable){
+        AtomicLong count=parentDeletes.get(parentTable);
+        if(count==null){
+            count=new AtomicLong(0l);
+            AtomicLong existing=parentDeletes.putIfAbsent(parentTable,count);
+            if(existing!=null)
+                count=existing;
+        }
+        return count;
+    }
+
+    private static class Statistics implements ParentKeyCacheManagement{
+        private final AtomicLong checkedRows=new AtomicLong(0l);
+        private final AtomicLong hits=new AtomicLong(0l);
+        private final AtomicLong lookups=new AtomicLong(0l);
+        private final AtomicLong keysRead=new AtomicLong(0l);
+        private final AtomicLong invalidations=new AtomicLong(0l);
+
+        @Override public long getCheckedRows(){ return checkedRows.get(); }
+        @Override public long getHitCount(){ return hits.get(); }
+        @Override public long getParentLookups(){ return lookups.get(); }
+        @Override public long getParentKeysRead(){ return keysRead.get(); }
+        @Override public long getInvalidations(){ return invalidations.get(); }
+
+        @Override
+        public double getHitRate(){
+            long checked=checkedRows.get();
+            return checked==0?0d:((double)hits.get())/checked;
+        }
+    }
+}
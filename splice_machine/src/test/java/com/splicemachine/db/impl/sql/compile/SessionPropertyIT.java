@@ -204,6 +204,46 @@ public class SessionPropertyIT extends SpliceUnitTest {
 
     }
 
+    @Test
+    public void testBroadcastJoinCompactTableSessionProperty() throws Exception {
+        TestConnection conn = methodWatcher.createConnection();
+        conn.execute("set session_property broadcastJoinCompactTable=true");
+
+        String sqlText = "values current session_property";
+        ResultSet rs = conn.query(sqlText);
+        String expected = "1                |\n" +
+                "---------------------------------\n" +
+                "BROADCASTJOINCOMPACTTABLE=true; |";
+        assertEquals("\n" + sqlText + "\n", expected, TestUtils.FormattedResult.ResultFactory.toStringUnsorted(rs));
+        rs.close();
+
+        // the join returns the same rows whichever layout the right side is cached in
+        sqlText = "select count(*) from t1 a, t1 b --splice-properties joinStrategy=BROADCAST\n where a.a1=b.a1";
+        expected = "1  |\n" +
+                "-----\n" +
+                "160 |";
+        rs = conn.query(sqlText);
+        assertEquals("\n" + sqlText + "\n", expected, TestUtils.FormattedResult.ResultFactory.toStringUnsorted(rs));
+        rs.close();
+
+        conn.execute("set session_property broadcastJoinCompactTable=false");
+        rs = conn.query(sqlText);
+        assertEquals("\n" + sqlText + "\n", expected, TestUtils.FormattedResult.ResultFactory.toStringUnsorted(rs));
+        rs.close();
+
+        // reset property
+        conn.execute("set session_property broadcastJoinCompactTable=null");
+        sqlText = "values current session_property";
+        rs = conn.query(sqlText);
+        expected = "1 |\n" +
+                "----\n" +
+                "   |";
+        assertEquals("\n" + sqlText + "\n", expected, TestUtils.FormattedResult.ResultFactory.toStringUnsorted(rs));
+        rs.close();
+
+        conn.close();
+    }
+
     @Test
     public void testIllegalSessionPropertyNameAndValue() throws Exception  {
         TestConnection conn = methodWatcher.createConnection();
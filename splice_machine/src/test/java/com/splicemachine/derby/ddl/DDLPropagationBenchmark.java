@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.splicemachine.derby.ddl;
+
+import com.splicemachine.derby.test.framework.SpliceNetConnection;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures how long DDL statements take to be acknowledged by every server when many of them are issued at once,
+ * and how queries on an unrelated table fare in the meantime. Each DDL thread creates and drops its own tables,
+ * the pattern of applications which use many temporary tables. Run it against builds, or with settings of
+ * {@code splice.ddl.scopedCacheBlocking}, to compare; the servers' DDLPropagation JMX bean breaks the time down.
+ *
+ * This is not run as part of the test suite; run it directly, passing the JDBC url, the number of concurrent DDL
+ * threads and the number of tables each of them creates as arguments.
+ */
+public class DDLPropagationBenchmark{
+    private static final String SCHEMA="DDL_BENCHMARK";
+
+    public static void main(String...args) throws Exception{
+        final String url = args.length>0? args[0] : SpliceNetConnection.getDefaultLocalURL();
+        int threads = args.length>1? Integer.parseInt(args[1]) : 16;
+        final int tables = args.length>2? Integer.parseInt(args[2]) : 50;
+
+        try(Connection conn = connect(url); Statement s = conn.createStatement()){
+            try{
+                s.execute("create schema "+SCHEMA);
+            }catch(SQLException se){
+                //already there
+            }
+            try{
+                s.execute("drop table "+SCHEMA+".READER");
+            }catch(SQLException se){
+                //not there
+            }
+            s.execute("create table "+SCHEMA+".READER (k int primary key, v int)");
+            s.execute("insert into "+SCHEMA+".READER values (1,1),(2,2),(3,3)");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads+1);
+        final AtomicBoolean done = new AtomicBoolean(false);
+        Future<List<Long>> reader = executor.submit(new Callable<List<Long>>(){
+            @Override
+            public List<Long> call() throws Exception{
+                List<Long> latencies = new ArrayList<>();
+                try(Connection conn = connect(url); Statement s = conn.createStatement()){
+                    while(!done.get()){
+                        long start = System.nanoTime();
+                        try(ResultSet rs = s.executeQuery("select count(*) from "+SCHEMA+".READER where k > 1")){
+                            while(rs.next()){ }
+                        }
+                        latencies.add(System.nanoTime()-start);
+                    }
+                }
+                return latencies;
+            }
+        });
+
+        List<Future<List<Long>>> writers = new ArrayList<>(threads);
+        long start = System.nanoTime();
+        for(int t=0;t<threads;t++){
+            final int thread = t;
+            writers.add(executor.submit(new Callable<List<Long>>(){
+                @Override
+                public List<Long> call() throws Exception{
+                    List<Long> latencies = new ArrayList<>(2*tables);
+                    try(Connection conn = connect(url); Statement s = conn.createStatement()){
+                        for(int i=0;i<tables;i++){
+                            String table = SCHEMA+".T_"+thread+"_"+i;
+                            long start = System.nanoTime();
+                            s.execute("create table "+table+" (a int, b varchar(10))");
+                            latencies.add(System.nanoTime()-start);
+                            start = System.nanoTime();
+                            s.execute("drop table "+table);
+                            latencies.add(System.nanoTime()-start);
+                        }
+                    }
+                    return latencies;
+                }
+            }));
+        }
+        List<Long> ddl = new ArrayList<>();
+        for(Future<List<Long>> writer : writers){
+            ddl.addAll(writer.get());
+        }
+        long elapsed = System.nanoTime()-start;
+        done.set(true);
+        List<Long> queries = reader.get();
+        executor.shutdown();
+
+        System.out.printf("%d threads, %d tables each: %d DDL statements in %.2f s%n",threads,tables,ddl.size(),elapsed/1e9d);
+        print("DDL",ddl);
+        print("queries",queries);
+    }
+
+    private static Connection connect(String url) throws SQLException{
+        return SpliceNetConnection.getConnectionAs(url,SpliceNetConnection.DEFAULT_USER,SpliceNetConnection.DEFAULT_USER_PASSWORD);
+    }
+
+    private static void print(String label,List<Long> latencies){
+        if(latencies.isEmpty()) return;
+        Collections.sort(latencies);
+        long total = 0L;
+        for(long latency : latencies){
+            total += latency;
+        }
+        System.out.printf("%s: %d  mean: %.2f ms  p50: %.2f ms  p99: %.2f ms  max: %.2f ms%n",
+                label,latencies.size(),total/(latencies.size()*1e6d),
+                latencies.get(latencies.size()/2)/1e6d,
+                latencies.get((int)(latencies.size()*0.99d))/1e6d,
+                latencies.get(latencies.size()-1)/1e6d);
+    }
+}
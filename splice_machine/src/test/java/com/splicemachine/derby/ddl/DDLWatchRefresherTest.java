@@ -20,6 +20,7 @@ import com.splicemachine.concurrent.TickingClock;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.ddl.DDLMessage.*;
+import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
 import com.splicemachine.protobuf.ProtoUtil;
 import com.splicemachine.si.api.filter.TransactionReadController;
 import com.splicemachine.si.api.txn.Txn;
@@ -37,10 +38,14 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Scott Fines
@@ -277,9 +282,74 @@ public class DDLWatchRefresherTest{
 //        Assert.assertEquals("Incorrect global stop count!",1,assertionListener.getEndGlobalCount());
     }
 
+    @Test
+    public void appliesNewChangesInTransactionOrder() throws Exception{
+        TestChecker checker=getTestChecker();
+        Clock clock = new IncrementingClock(0);
+
+        TxnStore supplier = new TestingTxnStore(clock,new TestingTimestampSource(),null,100l);
+        supplier.recordNewTransaction(txn);
+        TestDDLWatchRefresher refresher = new TestDDLWatchRefresher(checker,null,ef,supplier);
+        refresher.setTimeout(false);
+
+        DDLChange later = ProtoUtil.createNoOpDDLChange(0x300l,"later",DDLMessage.DDLChangeType.DROP_TABLE);
+        DDLChange earlier = ProtoUtil.createNoOpDDLChange(0x200l,"earlier",DDLMessage.DDLChangeType.ADD_COLUMN);
+        checker.addChange(later);
+        checker.addChange(earlier);
+
+        final List<String> applied = new ArrayList<>();
+        CountingListener assertionListener = new CountingListener(){
+            @Override
+            public void startChange(DDLChange change){
+                super.startChange(change);
+                applied.add(change.getChangeId());
+            }
+        };
+        boolean shouldCont=refresher.refreshDDL(Collections.<DDLWatcher.DDLListener>singleton(assertionListener));
+        Assert.assertTrue("Returned an error State!",shouldCont);
+        Assert.assertEquals("Changes applied out of order!",Arrays.asList("earlier","later"),applied);
+        Assert.assertEquals(2,refresher.numCurrentDDLChanges());
+    }
+
+    @Test
+    public void scopedChangeOnlyBlocksItsOwnTransaction() throws Exception{
+        TestChecker checker=getTestChecker();
+        Clock clock = new IncrementingClock(0);
+
+        TxnStore supplier = new TestingTxnStore(clock,new TestingTimestampSource(),null,100l);
+        supplier.recordNewTransaction(txn);
+        SITransactionReadController txnController=new SITransactionReadController(supplier);
+        TestDDLWatchRefresher refresher = new TestDDLWatchRefresher(checker,txnController,ef,supplier,true);
+        refresher.setTimeout(false);
+
+        DDLChange createTable = ProtoUtil.createNoOpDDLChange(txn.getTxnId(),"createTable",DDLMessage.DDLChangeType.CREATE_TABLE);
+        checker.addChange(createTable);
+        CountingListener assertionListener = new CountingListener();
+        boolean shouldCont=refresher.refreshDDL(Collections.<DDLWatcher.DDLListener>singleton(assertionListener));
+        Assert.assertTrue("Returned an error State!",shouldCont);
+
+        WritableTxn other=new WritableTxn(0x200l,0x200l,null,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,null,true,null);
+        Assert.assertTrue("Scoped change should not invalidate the cache!",refresher.cacheIsValid());
+        Assert.assertFalse("The creating transaction wrote to the cache!",refresher.canWriteCache(transactionManager(txn)));
+        Assert.assertTrue("Other transactions can't write to the cache!",refresher.canWriteCache(transactionManager(other)));
+
+        checker.removeChange(createTable.getChangeId());
+        shouldCont=refresher.refreshDDL(Collections.<DDLWatcher.DDLListener>singleton(assertionListener));
+        Assert.assertTrue("Returned an error State!",shouldCont);
+        Assert.assertEquals("Incorrect initiated count!",0,assertionListener.getCount(createTable));
+        Assert.assertTrue(refresher.cacheIsValid());
+        Assert.assertEquals(0,refresher.numCurrentDDLChanges());
+    }
+
     /* ****************************************************************************************************************/
     /*private helper classes and methods*/
 
+    private static SpliceTransactionManager transactionManager(TxnView txn) throws Exception{
+        SpliceTransactionManager txnManager=mock(SpliceTransactionManager.class);
+        when(txnManager.getActiveStateTxn()).thenReturn(txn);
+        return txnManager;
+    }
+
 
 
 
@@ -305,6 +375,14 @@ public class DDLWatchRefresherTest{
             super(watchChecker, txnController, exceptionFactory, txnSupplier);
         }
 
+        public TestDDLWatchRefresher(DDLWatchChecker watchChecker,
+                                     TransactionReadController txnController,
+                                     SqlExceptionFactory exceptionFactory,
+                                     TxnSupplier txnSupplier,
+                                     boolean scopedCacheBlocking) {
+            super(watchChecker, txnController, exceptionFactory, txnSupplier, scopedCacheBlocking);
+        }
+
         public void setTimeout(boolean timeout) {
             this.timeout = timeout;
         }
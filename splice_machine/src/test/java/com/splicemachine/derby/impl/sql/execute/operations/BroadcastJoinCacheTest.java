@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Category(ArchitectureIndependent.class)
+public class BroadcastJoinCacheTest{
+
+    @Test
+    public void testLoadersRespectMemoryLimit() throws Exception{
+        for(BroadcastJoinCache.JoinTableLoader loader : new BroadcastJoinCache.JoinTableLoader[]{
+                ValueRowMapTableLoader.INSTANCE,EncodedRowMapTableLoader.INSTANCE}){
+            try{
+                loader.load(rows(1000),new int[]{0},new int[]{0},row(new SQLInteger()),
+                        new BroadcastJoinCache.MemoryReservation(1024));
+                Assert.fail("Expected the load to exceed 1024 bytes");
+            }catch(BroadcastJoinMemoryExceededException expected){
+                Assert.assertEquals(1024,expected.getMaxBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testAccountsForCachedTables() throws Exception{
+        BroadcastJoinCache cache=new BroadcastJoinCache(ValueRowMapTableLoader.INSTANCE,Long.MAX_VALUE);
+        int[] keys=new int[]{0};
+        JoinTable.Factory factory=cache.get(1L,false,rows(100),keys,keys,row(new SQLInteger()));
+        Assert.assertTrue(factory.getEstimatedSizeInBytes()>0);
+        Assert.assertEquals(factory.getEstimatedSizeInBytes(),cache.getCachedBytes());
+        Assert.assertEquals(1,cache.getMissCount());
+
+        cache.get(1L,false,rows(100),keys,keys,row(new SQLInteger()));
+        Assert.assertEquals(1,cache.getHitCount());
+        Assert.assertEquals(1,cache.getCachedTableCount());
+
+        //closing every table releases the cached copy
+        factory.newTable().close();
+        factory.newTable().close();
+        Assert.assertEquals(0,cache.getCachedTableCount());
+        Assert.assertEquals(0,cache.getCachedBytes());
+    }
+
+    @Test
+    public void testRejectsTablesOverLimit() throws Exception{
+        BroadcastJoinCache cache=new BroadcastJoinCache(ValueRowMapTableLoader.INSTANCE,4096);
+        int[] keys=new int[]{0};
+        try{
+            cache.get(1L,false,rows(10000),keys,keys,row(new SQLInteger()));
+            Assert.fail("Expected the table to exceed the cache limit");
+        }catch(BroadcastJoinMemoryExceededException expected){
+            //expected
+        }
+        Assert.assertEquals(1,cache.getRejectedLoadCount());
+        Assert.assertEquals(0,cache.getCachedTableCount());
+        Assert.assertEquals(0,cache.getCachedBytes());
+    }
+
+    @Test
+    public void testBuildsKeyFilterWhileLoading() throws Exception{
+        BroadcastJoinCache cache=new BroadcastJoinCache(EncodedRowMapTableLoader.INSTANCE,Long.MAX_VALUE);
+        int[] keys=new int[]{0};
+        Assert.assertNull(cache.getKeyFilter(1L));
+        JoinTable.Factory factory=cache.get(1L,false,rows(100),keys,keys,row(new SQLInteger()));
+        BroadcastJoinKeyFilter filter=cache.getKeyFilter(1L);
+        Assert.assertNotNull(filter);
+        for(int i=0;i<100;i++){
+            Assert.assertTrue(filter.mightContain(row(new SQLInteger(i)),keys));
+        }
+        Assert.assertEquals("Looking up the filter should not count as a hit",0,cache.getHitCount());
+
+        factory.newTable().close();
+        Assert.assertNull(cache.getKeyFilter(1L));
+    }
+
+    @Test
+    public void testReservationsShareTheLimit() throws Exception{
+        AtomicLong used=new AtomicLong(0L);
+        BroadcastJoinCache.MemoryReservation first=new BroadcastJoinCache.MemoryReservation(used,1000);
+        BroadcastJoinCache.MemoryReservation second=new BroadcastJoinCache.MemoryReservation(used,1000);
+        first.reserveTotal(400);
+        first.reserveTotal(600);
+        try{
+            second.reserveTotal(600);
+            Assert.fail("Expected the second reservation to exceed the shared limit");
+        }catch(BroadcastJoinMemoryExceededException expected){
+            Assert.assertEquals(1000,expected.getMaxBytes());
+        }
+        Assert.assertEquals("A failed reservation should not hold any memory",600,used.get());
+
+        first.release();
+        second.reserveTotal(600);
+        Assert.assertEquals(600,used.get());
+    }
+
+    @Test
+    public void testFailedLoadReleasesReservation() throws Exception{
+        BroadcastJoinCache cache=new BroadcastJoinCache((streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow,reservation) -> {
+            reservation.reserveTotal(512);
+            throw new IOException("failed to read the table");
+        },4096);
+        int[] keys=new int[]{0};
+        try{
+            cache.get(1L,false,rows(10),keys,keys,row(new SQLInteger()));
+            Assert.fail("Expected the load to fail");
+        }catch(IOException expected){
+            //expected
+        }
+        Assert.assertEquals(0,cache.getCachedBytes());
+        Assert.assertEquals(0,cache.getRejectedLoadCount());
+    }
+
+    @Test
+    public void testLoadsCannotTogetherExceedLimit() throws Exception{
+        BroadcastJoinCache cache=new BroadcastJoinCache(ValueRowMapTableLoader.INSTANCE,Long.MAX_VALUE);
+        int[] keys=new int[]{0};
+        JoinTable.Factory factory=cache.get(1L,false,rows(100),keys,keys,row(new SQLInteger()));
+        long tableSize=factory.getEstimatedSizeInBytes();
+        factory.newTable().close();
+
+        //room for one table, but not two
+        cache=new BroadcastJoinCache(ValueRowMapTableLoader.INSTANCE,tableSize+tableSize/2);
+        JoinTable.Factory cached=cache.get(1L,false,rows(100),keys,keys,row(new SQLInteger()));
+        try{
+            cache.get(2L,false,rows(100),keys,keys,row(new SQLInteger()));
+            Assert.fail("Expected the second table to exceed the cache limit");
+        }catch(BroadcastJoinMemoryExceededException expected){
+            //expected
+        }
+        Assert.assertEquals(tableSize,cache.getCachedBytes());
+        Assert.assertEquals(1,cache.getRejectedLoadCount());
+        cached.newTable().close();
+        Assert.assertEquals(0,cache.getCachedBytes());
+    }
+
+    @Test
+    public void testCachesEachLayoutSeparately() throws Exception{
+        AtomicLong rowLoads=new AtomicLong(0L);
+        AtomicLong compactLoads=new AtomicLong(0L);
+        BroadcastJoinCache cache=new BroadcastJoinCache((streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow,reservation) -> {
+            rowLoads.incrementAndGet();
+            return ValueRowMapTableLoader.INSTANCE.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow,reservation);
+        },(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow,reservation) -> {
+            compactLoads.incrementAndGet();
+            return EncodedRowMapTableLoader.INSTANCE.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow,reservation);
+        },Long.MAX_VALUE);
+        int[] keys=new int[]{0};
+        JoinTable.Factory rowTable=cache.get(1L,false,rows(100),keys,keys,row(new SQLInteger()));
+        JoinTable.Factory compactTable=cache.get(1L,true,rows(100),keys,keys,row(new SQLInteger()));
+        Assert.assertEquals(1,rowLoads.get());
+        Assert.assertEquals(1,compactLoads.get());
+        Assert.assertEquals(2,cache.getMissCount());
+        Assert.assertEquals(2,cache.getCachedTableCount());
+
+        cache.get(1L,true,rows(100),keys,keys,row(new SQLInteger()));
+        Assert.assertEquals(1,compactLoads.get());
+        Assert.assertEquals(1,cache.getHitCount());
+
+        //closing one layout's table leaves the other cached
+        rowTable.newTable().close();
+        Assert.assertEquals(1,cache.getCachedTableCount());
+        Assert.assertNotNull(cache.getKeyFilter(1L));
+        compactTable.newTable().close();
+        compactTable.newTable().close();
+        Assert.assertEquals(0,cache.getCachedTableCount());
+        Assert.assertNull(cache.getKeyFilter(1L));
+    }
+
+    private static Callable<Stream<ExecRow>> rows(int count){
+        List<ExecRow> rows=new ArrayList<>(count);
+        for(int i=0;i<count;i++){
+            rows.add(row(new SQLInteger(i),new SQLVarchar("row"+i)));
+        }
+        return () -> Streams.wrap(rows);
+    }
+
+    private static ExecRow row(DataValueDescriptor... dvds){
+        return new ValueRow(dvds);
+    }
+}
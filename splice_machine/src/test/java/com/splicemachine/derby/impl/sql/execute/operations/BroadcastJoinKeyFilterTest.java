@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class BroadcastJoinKeyFilterTest{
+    private static final int[] INNER_KEYS = new int[]{1};
+    private static final int[] OUTER_KEYS = new int[]{0};
+
+    @Test
+    public void testContainsAllInnerKeys() throws Exception{
+        BroadcastJoinKeyFilter.Builder builder=new BroadcastJoinKeyFilter.Builder(INNER_KEYS,OUTER_KEYS,row(new SQLInteger(),new SQLVarchar()));
+        for(int i=0;i<10000;i++){
+            builder.add(row(new SQLVarchar("row"+i),new SQLInteger(2*i)));
+        }
+        BroadcastJoinKeyFilter filter=builder.build();
+        Assert.assertNotNull(filter);
+
+        int falsePositives=0;
+        for(int i=0;i<10000;i++){
+            Assert.assertTrue("Missing key "+2*i,filter.mightContain(row(new SQLInteger(2*i),new SQLVarchar()),OUTER_KEYS));
+            if(filter.mightContain(row(new SQLInteger(2*i+1),new SQLVarchar()),OUTER_KEYS))
+                falsePositives++;
+        }
+        Assert.assertTrue("Too many false positives: "+falsePositives,falsePositives<500);
+    }
+
+    @Test
+    public void testNullKeysNeverMatch() throws Exception{
+        BroadcastJoinKeyFilter.Builder builder=new BroadcastJoinKeyFilter.Builder(INNER_KEYS,OUTER_KEYS,row(new SQLInteger()));
+        builder.add(row(new SQLVarchar("a"),new SQLInteger(1)));
+        BroadcastJoinKeyFilter filter=builder.build();
+        Assert.assertFalse(filter.mightContain(row(new SQLInteger()),OUTER_KEYS));
+    }
+
+    @Test
+    public void testEmptyInnerTableMatchesNothing() throws Exception{
+        BroadcastJoinKeyFilter filter=new BroadcastJoinKeyFilter.Builder(INNER_KEYS,OUTER_KEYS,row(new SQLInteger())).build();
+        Assert.assertFalse(filter.mightContain(row(new SQLInteger(1)),OUTER_KEYS));
+    }
+
+    @Test
+    public void testCharKeysIgnoreTrailingBlanks() throws Exception{
+        BroadcastJoinKeyFilter.Builder builder=new BroadcastJoinKeyFilter.Builder(OUTER_KEYS,OUTER_KEYS,row(new SQLChar()));
+        builder.add(row(new SQLChar("abc   ")));
+        BroadcastJoinKeyFilter filter=builder.build();
+        Assert.assertTrue(filter.mightContain(row(new SQLChar("abc")),OUTER_KEYS));
+    }
+
+    @Test
+    public void testNoFilterForUnsupportedKeys() throws Exception{
+        BroadcastJoinKeyFilter.Builder builder=new BroadcastJoinKeyFilter.Builder(OUTER_KEYS,OUTER_KEYS,row(new SQLDouble()));
+        builder.add(row(new SQLDouble(1d)));
+        Assert.assertNull(builder.build());
+
+        builder=new BroadcastJoinKeyFilter.Builder(OUTER_KEYS,OUTER_KEYS,row(new SQLVarchar()));
+        builder.add(row(new SQLInteger(1)));
+        Assert.assertNull(builder.build());
+    }
+
+    private static ExecRow row(DataValueDescriptor... dvds){
+        return new ValueRow(dvds);
+    }
+}
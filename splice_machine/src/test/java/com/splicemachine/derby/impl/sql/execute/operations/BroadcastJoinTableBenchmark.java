@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.Streams;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Compares the retained heap and probe throughput of the broadcast join table loaders.
+ *
+ * This is not run as part of the test suite; run it directly with a fixed heap, e.g.
+ * {@code -Xms4g -Xmx4g}, and pass the number of inner rows and probes as arguments.
+ */
+public class BroadcastJoinTableBenchmark{
+
+    public static void main(String...args) throws Exception{
+        int numRows = args.length>0? Integer.parseInt(args[0]) : 2_000_000;
+        int numProbes = args.length>1? Integer.parseInt(args[1]) : 5_000_000;
+
+        System.out.printf("Benchmarking %d inner rows, %d probes%n",numRows,numProbes);
+        System.out.println("-----");
+        System.out.printf("ValueRowMapTableLoader%n");
+        benchmark(ValueRowMapTableLoader.INSTANCE,numRows,numProbes);
+        System.out.println("-----");
+        System.out.printf("EncodedRowMapTableLoader%n");
+        benchmark(EncodedRowMapTableLoader.INSTANCE,numRows,numProbes);
+        System.out.println("-----");
+    }
+
+    private static void benchmark(BroadcastJoinCache.JoinTableLoader loader,int numRows,int numProbes) throws Exception{
+        Callable<Stream<ExecRow>> innerRows = () -> Streams.wrap(new Iterator<ExecRow>(){
+            private int i = 0;
+            @Override public boolean hasNext(){ return i<numRows; }
+
+            @Override
+            public ExecRow next(){
+                int key = i++;
+                return new ValueRow(new DataValueDescriptor[]{
+                        new SQLInteger(key),
+                        new SQLLongint(key*31L),
+                        new SQLDouble(key/7d),
+                        new SQLVarchar("dimension value "+key)
+                });
+            }
+        });
+        ExecRow outer = new ValueRow(new DataValueDescriptor[]{
+                new SQLLongint(),new SQLInteger()
+        });
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        JoinTable.Factory factory = loader.load(innerRows,new int[]{0},new int[]{1},outer,new BroadcastJoinCache.MemoryReservation(Long.MAX_VALUE));
+        long buildTime = System.nanoTime()-start;
+        long heapAfter = usedHeap();
+
+        Random random = new Random(0L);
+        long matched = 0;
+        try(JoinTable table = factory.newTable()){
+            start = System.nanoTime();
+            for(int i=0;i<numProbes;i++){
+                outer.getColumn(2).setValue(random.nextInt(2*numRows));
+                Iterator<ExecRow> rows = table.fetchInner(outer);
+                while(rows.hasNext()){
+                    matched+=rows.next().getColumn(2).getLong();
+                }
+            }
+        }
+        long probeTime = System.nanoTime()-start;
+
+        //print this out so that the loop doesn't get optimized away
+        System.out.printf("matched=%d%n",matched);
+        System.out.printf("build time: %.2f ms%n",buildTime/1e6d);
+        System.out.printf("retained heap: %.2f MB (%.1f bytes/row)%n",
+                (heapAfter-heapBefore)/(1024d*1024d),(heapAfter-heapBefore)/(double)numRows);
+        System.out.printf("probe throughput: %.0f probes/s%n",numProbes/(probeTime/1e9d));
+    }
+
+    private static long usedHeap() throws InterruptedException{
+        Runtime runtime = Runtime.getRuntime();
+        for(int i=0;i<3;i++){
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory()-runtime.freeMemory();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Streams;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class EncodedRowMapTableLoaderTest{
+
+    @Test
+    public void testFetchesAllMatchingRows() throws Exception{
+        List<ExecRow> inner=new ArrayList<>();
+        for(int i=0;i<5000;i++){
+            inner.add(row(new SQLInteger(i%100),new SQLVarchar("row"+i),new SQLLongint(i)));
+        }
+        JoinTable.Factory factory=EncodedRowMapTableLoader.INSTANCE.load(() -> Streams.wrap(inner),
+                new int[]{0},new int[]{1},row(new SQLVarchar(),new SQLInteger()),new BroadcastJoinCache.MemoryReservation(Long.MAX_VALUE));
+        Assert.assertTrue(factory instanceof EncodedRowMappedJoinTable.Factory);
+
+        try(JoinTable table=factory.newTable()){
+            for(int key=0;key<100;key++){
+                Iterator<ExecRow> rows=table.fetchInner(row(new SQLVarchar("outer"),new SQLInteger(key)));
+                int count=0;
+                long sum=0;
+                while(rows.hasNext()){
+                    ExecRow next=rows.next();
+                    Assert.assertEquals(key,next.getColumn(1).getInt());
+                    Assert.assertEquals("row"+next.getColumn(3).getLong(),next.getColumn(2).getString());
+                    sum+=next.getColumn(3).getLong();
+                    count++;
+                }
+                Assert.assertEquals(50,count);
+                Assert.assertEquals(50L*key+100L*(49*50/2),sum);
+            }
+        }
+    }
+
+    @Test
+    public void testMissingAndNullKeysDoNotMatch() throws Exception{
+        List<ExecRow> inner=new ArrayList<>();
+        inner.add(row(new SQLInteger(1),new SQLVarchar()));
+        JoinTable.Factory factory=EncodedRowMapTableLoader.INSTANCE.load(() -> Streams.wrap(inner),
+                new int[]{0},new int[]{0},row(new SQLInteger()),new BroadcastJoinCache.MemoryReservation(Long.MAX_VALUE));
+
+        try(JoinTable table=factory.newTable()){
+            Assert.assertFalse(table.fetchInner(row(new SQLInteger(2))).hasNext());
+            Assert.assertFalse(table.fetchInner(row(new SQLInteger())).hasNext());
+            Iterator<ExecRow> rows=table.fetchInner(row(new SQLInteger(1)));
+            Assert.assertTrue(rows.hasNext());
+            Assert.assertTrue("Null columns should decode as null",rows.next().getColumn(2).isNull());
+        }
+    }
+
+    @Test
+    public void testEmptyInnerSide() throws Exception{
+        JoinTable.Factory factory=EncodedRowMapTableLoader.INSTANCE.load(() -> Streams.wrap(new ArrayList<ExecRow>()),
+                new int[]{0},new int[]{0},row(new SQLInteger()),new BroadcastJoinCache.MemoryReservation(Long.MAX_VALUE));
+        try(JoinTable table=factory.newTable()){
+            Assert.assertFalse(table.fetchInner(row(new SQLInteger(1))).hasNext());
+        }
+    }
+
+    @Test
+    public void testFallsBackForUnsupportedKeyTypes() throws Exception{
+        List<ExecRow> inner=new ArrayList<>();
+        inner.add(row(new SQLVarchar("a"),new SQLInteger(1)));
+        JoinTable.Factory factory=EncodedRowMapTableLoader.INSTANCE.load(() -> Streams.wrap(inner),
+                new int[]{0},new int[]{0},row(new SQLVarchar()),new BroadcastJoinCache.MemoryReservation(Long.MAX_VALUE));
+        Assert.assertTrue(factory instanceof ValueRowMappedJoinTable.Factory);
+
+        try(JoinTable table=factory.newTable()){
+            Assert.assertTrue(table.fetchInner(row(new SQLVarchar("a"))).hasNext());
+        }
+    }
+
+    @Test
+    public void testFallsBackForMismatchedKeyTypes() throws Exception{
+        ExecRow inner=row(new SQLInteger(1));
+        Assert.assertFalse(EncodedRowMapTableLoader.supportsEncodedKeys(inner,new int[]{0},row(new SQLLongint(1)),new int[]{0}));
+        Assert.assertTrue(EncodedRowMapTableLoader.supportsEncodedKeys(inner,new int[]{0},row(new SQLInteger(1)),new int[]{0}));
+    }
+
+    static ExecRow row(DataValueDescriptor... dvds){
+        return new ValueRow(dvds);
+    }
+}
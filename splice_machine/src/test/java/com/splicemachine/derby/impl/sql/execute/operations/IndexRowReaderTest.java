@@ -14,12 +14,35 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import com.splicemachine.access.api.PartitionFactory;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.HBaseRowLocation;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Attributable;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataResult;
+import com.splicemachine.storage.Partition;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @Category(ArchitectureIndependent.class)
 public class IndexRowReaderTest {
@@ -60,4 +83,99 @@ public class IndexRowReaderTest {
 
         assertTrue("Expected a max concurrency of 2", irr.getMaxConcurrency() == 2);
     }
+
+    // Checks that lookups start with a single small batch in flight, grow while the caller waits on them,
+    // and need fewer lookups in flight once they keep up with the caller.
+    @Test
+    public void testReaderAdaptsToTheCaller() throws Exception {
+        final AtomicLong fetchMillis = new AtomicLong(20);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            IndexRowReader irr = new IndexRowReader(
+                sourceRows(2000),
+                row(),
+                null,
+                4,  // initialLookupBatchSize
+                32, // lookupBatchSize
+                4,
+                0,
+                null,
+                mock(KeyHashDecoder.class),
+                mock(KeyHashDecoder.class),
+                new int[0],
+                mock(TxnOperationFactory.class),
+                tableFactory(fetchMillis)) {
+                @Override
+                ExecutorService getExecutorService() {
+                    return executor;
+                }
+            };
+
+            // the first lookup is small, and doesn't grow before its rows are consumed
+            assertTrue(irr.hasNext());
+            assertEquals(4, irr.getBatchSize());
+            assertEquals(1L, irr.getBatches());
+            for (int i = 1; i < 4; i++) {
+                assertTrue(irr.hasNext());
+            }
+            assertEquals(4, irr.getBatchSize());
+            assertEquals(1L, irr.getBatches());
+
+            // the caller waited for the whole first batch, so the next lookups are bigger, and more are in flight
+            assertTrue(irr.hasNext());
+            assertEquals(8, irr.getBatchSize());
+            assertTrue(irr.getConcurrency() > 1);
+            for (int i = 0; i < 200; i++) {
+                assertTrue(irr.hasNext());
+            }
+            assertEquals("The batches should not grow beyond the maximum", 32, irr.getBatchSize());
+
+            // now the lookups are faster than the caller, so they are complete whenever the caller needs them
+            fetchMillis.set(0);
+            for (int i = 0; i < 400 && irr.getConcurrency() > 1; i++) {
+                assertTrue(irr.hasNext());
+                Thread.sleep(1);
+            }
+            assertEquals(1, irr.getConcurrency());
+            assertEquals(32, irr.getBatchSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Iterator<ExecRow> sourceRows(int count) throws Exception {
+        List<ExecRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ExecRow row = mock(ExecRow.class);
+            when(row.nColumns()).thenReturn(1);
+            when(row.getColumn(1)).thenReturn(new HBaseRowLocation(Bytes.toBytes(i)));
+            rows.add(row);
+        }
+        return rows.iterator();
+    }
+
+    private static ExecRow row() {
+        ExecRow row = mock(ExecRow.class);
+        when(row.getClone()).thenReturn(row);
+        return row;
+    }
+
+    // A table which takes fetchMillis to return the rows of each lookup
+    private static PartitionFactory tableFactory(final AtomicLong fetchMillis) throws Exception {
+        final DataResult result = mock(DataResult.class);
+        when(result.getClone()).thenReturn(result);
+        when(result.iterator()).thenReturn(Collections.<DataCell>emptyIterator());
+        Partition table = mock(Partition.class);
+        when(table.batchGet(any(Attributable.class), any(List.class))).thenAnswer(new Answer<Iterator<DataResult>>() {
+            @Override
+            public Iterator<DataResult> answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(fetchMillis.get());
+                List<?> rowKeys = (List<?>) invocation.getArguments()[1];
+                return Collections.nCopies(rowKeys.size(), result).iterator();
+            }
+        });
+        PartitionFactory tableFactory = mock(PartitionFactory.class);
+        when(tableFactory.getTable(any(String.class))).thenReturn(table);
+        return tableFactory;
+    }
 }
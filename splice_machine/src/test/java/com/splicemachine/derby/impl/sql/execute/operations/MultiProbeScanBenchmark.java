@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.derby.test.framework.SpliceNetConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the latency of IN-list queries executed as a multi-probe scan in control execution, as the number of
+ * probes grows. It runs against a server started for either platform (mem or HBase), so the two can be compared,
+ * and against builds before and after a change to the probing.
+ *
+ * This is not run as part of the test suite; run it directly, passing the JDBC url, the number of rows in the
+ * table, the number of iterations and the probe counts as arguments.
+ */
+public class MultiProbeScanBenchmark{
+    private static final String SCHEMA="MULTIPROBE_BENCHMARK";
+
+    public static void main(String...args) throws Exception{
+        String url = args.length>0? args[0] : SpliceNetConnection.getDefaultLocalURL();
+        int numRows = args.length>1? Integer.parseInt(args[1]) : 1_000_000;
+        int iterations = args.length>2? Integer.parseInt(args[2]) : 10;
+        int[] probeCounts = {1,10,100,1000,5000};
+        if(args.length>3){
+            probeCounts = new int[args.length-3];
+            for(int i=3;i<args.length;i++){
+                probeCounts[i-3] = Integer.parseInt(args[i]);
+            }
+        }
+
+        try(Connection conn = SpliceNetConnection.getConnectionAs(url,SpliceNetConnection.DEFAULT_USER,SpliceNetConnection.DEFAULT_USER_PASSWORD)){
+            createTable(conn,numRows);
+            Random random = new Random(0L);
+            System.out.printf("Benchmarking %d rows, %d iterations, probes %s%n",numRows,iterations,Arrays.toString(probeCounts));
+            for(int probes : probeCounts){
+                String sql = query(probes);
+                try(PreparedStatement ps = conn.prepareStatement(sql)){
+                    long total = 0L;
+                    long min = Long.MAX_VALUE;
+                    long rows = 0L;
+                    for(int i=0;i<=iterations;i++){
+                        for(int p=1;p<=probes;p++){
+                            ps.setLong(p,random.nextInt(numRows));
+                        }
+                        long start = System.nanoTime();
+                        try(ResultSet rs = ps.executeQuery()){
+                            while(rs.next()){
+                                rows++;
+                            }
+                        }
+                        long time = System.nanoTime()-start;
+                        //the first execution compiles the statement and warms up
+                        if(i==0) continue;
+                        total += time;
+                        min = Math.min(min,time);
+                    }
+                    System.out.printf("probes=%d  rows=%d  mean: %.2f ms  min: %.2f ms%n",
+                            probes,rows,total/(iterations*1e6d),min/1e6d);
+                }
+            }
+        }
+    }
+
+    private static void createTable(Connection conn,int numRows) throws SQLException{
+        try(Statement s = conn.createStatement()){
+            try{
+                s.execute("create schema "+SCHEMA);
+            }catch(SQLException se){
+                //already there
+            }
+            try{
+                s.execute("drop table "+SCHEMA+".T");
+            }catch(SQLException se){
+                //not there
+            }
+            s.execute("create table "+SCHEMA+".T (k bigint primary key, v varchar(20))");
+        }
+        conn.setAutoCommit(false);
+        try(PreparedStatement ps = conn.prepareStatement("insert into "+SCHEMA+".T values (?,?)")){
+            for(int i=0;i<numRows;i++){
+                ps.setLong(1,i);
+                ps.setString(2,"value "+i);
+                ps.addBatch();
+                if(i%10000==9999)
+                    ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        try(Statement s = conn.createStatement()){
+            s.execute("call syscs_util.syscs_split_table_evenly('"+SCHEMA+"','T',8)");
+        }catch(SQLException se){
+            //the mem platform has a single region
+        }
+    }
+
+    private static String query(int probes){
+        StringBuilder sb = new StringBuilder("select k, v from "+SCHEMA+".T --splice-properties useSpark=false\n where k in (");
+        for(int i=0;i<probes;i++){
+            if(i>0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.append(')').toString();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.DataScan;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests how the probes of a MultiProbeTableScanOperation are grouped for control execution.
+ */
+@Category(ArchitectureIndependent.class)
+public class MultiProbeScanGroupingTest{
+    private static final List<byte[]> REGIONS=Arrays.asList(new byte[0],new byte[]{20},new byte[]{40});
+
+    @Test
+    public void groupsProbesByRegionInKeyOrder() throws Exception{
+        List<DataScan> scans=scans(5,45,25,15,41,21);
+        List<List<DataScan>> groups=MultiProbeTableScanOperation.groupScans(scans,REGIONS,100);
+        Assert.assertEquals(Arrays.asList(Arrays.asList(5,15),Arrays.asList(21,25),Arrays.asList(41,45)),keys(groups));
+    }
+
+    @Test
+    public void keepsDescendingOrder() throws Exception{
+        List<DataScan> scans=scans(45,41,25,21,15,5);
+        List<List<DataScan>> groups=MultiProbeTableScanOperation.groupScans(scans,REGIONS,100);
+        Assert.assertEquals(Arrays.asList(Arrays.asList(45,41),Arrays.asList(25,21),Arrays.asList(15,5)),keys(groups));
+    }
+
+    @Test
+    public void splitsLargeGroups() throws Exception{
+        List<DataScan> scans=scans(1,2,3,4,5);
+        List<List<DataScan>> groups=MultiProbeTableScanOperation.groupScans(scans,REGIONS,2);
+        Assert.assertEquals(Arrays.asList(Arrays.asList(1,2),Arrays.asList(3,4),Collections.singletonList(5)),keys(groups));
+    }
+
+    @Test
+    public void ignoresDuplicateProbes() throws Exception{
+        List<DataScan> scans=scans(1,3,20,3,1);
+        List<List<DataScan>> groups=MultiProbeTableScanOperation.groupScans(scans,REGIONS,100);
+        Assert.assertEquals(Arrays.asList(Arrays.asList(1,3),Collections.singletonList(20)),keys(groups));
+    }
+
+    @Test
+    public void singleRegion() throws Exception{
+        List<DataScan> scans=scans(2,1,3);
+        List<List<DataScan>> groups=MultiProbeTableScanOperation.groupScans(scans,Collections.singletonList(new byte[0]),100);
+        Assert.assertEquals(Collections.singletonList(Arrays.asList(1,2,3)),keys(groups));
+        Assert.assertTrue(MultiProbeTableScanOperation.groupScans(new ArrayList<DataScan>(),REGIONS,100).isEmpty());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static List<DataScan> scans(int... keys){
+        List<DataScan> scans=new ArrayList<>(keys.length);
+        for(int key : keys){
+            DataScan scan=mock(DataScan.class);
+            when(scan.getStartKey()).thenReturn(new byte[]{(byte)key});
+            when(scan.getStopKey()).thenReturn(new byte[]{(byte)key,(byte)0xFF});
+            scans.add(scan);
+        }
+        return scans;
+    }
+
+    private static List<List<Integer>> keys(List<List<DataScan>> groups){
+        List<List<Integer>> keys=new ArrayList<>(groups.size());
+        for(List<DataScan> group : groups){
+            List<Integer> groupKeys=new ArrayList<>(group.size());
+            for(DataScan scan : group){
+                groupKeys.add((int)scan.getStartKey()[0]);
+            }
+            keys.add(groupKeys);
+        }
+        return keys;
+    }
+}
@@ -261,6 +261,26 @@ public class MultiProbeTableScanOperatonIT extends SpliceUnitTest {
 
 	}
 
+    @Test
+    public void testMultiProbeWithQualifiersOnControl() throws Exception {
+        // the rows of each probe are qualified against its own probe value, so each probe must keep its own scan
+        ResultSet rs = methodWatcher.executeQuery(format("select count(*) from %s --splice-properties useSpark=false, index=%s\n" +
+                " where j in (1181) and (i = 1 or i = 118)", t6Watcher, "idx"));
+        Assert.assertTrue(rs.next());
+        Assert.assertEquals("wrong count", 3, rs.getInt(1));
+        rs.close();
+
+        rs = methodWatcher.executeQuery(format("select i from %s --splice-properties useSpark=false, index=%s\n" +
+                " where i in (1, 2, 118) and j = 1181 and i <> 2 order by i", t6Watcher, "idx"));
+        int[] expected = {1, 1, 118};
+        for (int i : expected) {
+            Assert.assertTrue("missing rows", rs.next());
+            Assert.assertEquals("wrong row", i, rs.getInt(1));
+        }
+        Assert.assertFalse("too many rows", rs.next());
+        rs.close();
+    }
+
 	@Test
     public void testMultiProbeWithLargeInListThroughSpark() throws Exception {
         ResultSet rs = methodWatcher.executeQuery(format("select count(*) from %s --splice-properties useSpark=true, index=%s\n" +
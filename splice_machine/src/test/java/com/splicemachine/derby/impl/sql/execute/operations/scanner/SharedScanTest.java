@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.access.api.PartitionFactory;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.OperationFactory;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataFilter;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.timestamp.api.TimestampSource;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests how concurrent readers share a {@link SharedScan}.
+ */
+@Category(ArchitectureIndependent.class)
+public class SharedScanTest{
+    private static final int PAGE_SIZE=10;
+
+    private SharedScans scans;
+    private Partition partition;
+    private PartitionFactory tableFactory;
+    private TimestampSource timestampSource;
+    private OperationFactory operationFactory;
+    private int scannersOpened;
+    private long timestamp;
+
+    @Before
+    public void setUp() throws Exception{
+        scans=new SharedScans();
+        scannersOpened=0;
+        timestamp=100L;
+        partition=mock(Partition.class);
+        when(partition.getTableName()).thenReturn("T");
+        tableFactory=mock(PartitionFactory.class);
+        when(tableFactory.getTable("T")).thenReturn(partition);
+        timestampSource=mock(TimestampSource.class);
+        when(timestampSource.nextTimestamp()).thenAnswer(new Answer<Long>(){
+            @Override
+            public Long answer(InvocationOnMock invocation){
+                return timestamp++;
+            }
+        });
+        operationFactory=mock(OperationFactory.class);
+        when(operationFactory.newScan()).thenAnswer(new Answer<DataScan>(){
+            @Override
+            public DataScan answer(InvocationOnMock invocation){
+                return new RangeScan();
+            }
+        });
+    }
+
+    @Test
+    public void lateReaderWrapsAround() throws Exception{
+        givenRows(95);
+        SharedScan.Reader first=open(1L,100);
+        List<Integer> firstKeys=read(first,25);
+
+        SharedScan.Reader late=open(2L,100);
+        List<Integer> lateKeys=new ArrayList<>();
+        boolean done=false;
+        while(!done){
+            //the late reader is ahead, but reads slower, so that each reader fetches some of the pages
+            List<Integer> l=read(late,3);
+            List<Integer> f=read(first,7);
+            lateKeys.addAll(l);
+            firstKeys.addAll(f);
+            done=l.isEmpty() && f.isEmpty();
+        }
+
+        Assert.assertEquals(keys(1,95),firstKeys);
+        Assert.assertEquals("The late reader starts where the shared scan was",31,(int)lateKeys.get(0));
+        Assert.assertEquals(95,lateKeys.size());
+        Assert.assertEquals(new HashSet<>(keys(1,95)),new HashSet<>(lateKeys));
+        Assert.assertTrue(first.getRowsShared()>0);
+        Assert.assertTrue(late.getRowsShared()>0);
+        Assert.assertEquals("Each row after the first 30 is fetched by one reader, and shared with the other",
+                65,first.getRowsShared()+late.getRowsShared());
+        Assert.assertEquals("One shared scan, and one for the rows the late reader missed",2,scannersOpened);
+        Assert.assertEquals(0,scans.size());
+    }
+
+    @Test
+    public void readerWhichFallsBehindScansTheRest() throws Exception{
+        givenRows(100);
+        SharedScan.Reader fast=open(1L,2);
+        SharedScan.Reader slow=open(2L,2);
+        List<Integer> fastKeys=read(fast,1);
+        List<Integer> slowKeys=read(slow,5);
+        fastKeys.addAll(read(fast,Integer.MAX_VALUE));
+        slowKeys.addAll(read(slow,Integer.MAX_VALUE));
+
+        Assert.assertEquals(keys(1,100),fastKeys);
+        Assert.assertEquals("A reader which stays at the start keeps the key order",keys(1,100),slowKeys);
+        Assert.assertEquals("The slow reader only shared the first page",PAGE_SIZE,slow.getRowsShared());
+        Assert.assertEquals(2,scannersOpened);
+    }
+
+    @Test
+    public void newerTransactionsDoNotShare() throws Exception{
+        givenRows(30);
+        SharedScan.Reader older=open(1L,100);
+        read(older,1);
+        //began once the first shared scan had started
+        SharedScan.Reader newer=open(timestamp++,100);
+        Assert.assertEquals(keys(1,30),read(newer,Integer.MAX_VALUE));
+        Assert.assertEquals(keys(2,30),read(older,Integer.MAX_VALUE));
+        Assert.assertEquals(0,newer.getRowsShared());
+        Assert.assertEquals(0,older.getRowsShared());
+        Assert.assertEquals(2,scannersOpened);
+    }
+
+    @Test
+    public void closedScansAreNotShared() throws Exception{
+        givenRows(30);
+        SharedScan.Reader first=open(1L,100);
+        read(first,5);
+        first.close();
+        Assert.assertEquals(0,scans.size());
+
+        SharedScan.Reader second=open(2L,100);
+        Assert.assertEquals(keys(1,30),read(second,Integer.MAX_VALUE));
+        Assert.assertEquals(2,scannersOpened);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private SharedScan.Reader open(long beginTimestamp,int maxPages) throws IOException{
+        return scans.open(partition,new RangeScan(),beginTimestamp,PAGE_SIZE,maxPages,Metrics.noOpMetricFactory(),
+                tableFactory,timestampSource,operationFactory);
+    }
+
+    private void givenRows(int numRows) throws IOException{
+        final List<List<DataCell>> rows=new ArrayList<>(numRows);
+        for(int i=1;i<=numRows;i++){
+            DataCell cell=mock(DataCell.class);
+            when(cell.key()).thenReturn(new byte[]{(byte)i});
+            when(cell.getClone()).thenReturn(cell);
+            rows.add(Collections.singletonList(cell));
+        }
+        when(partition.openScanner(any(DataScan.class),any(MetricFactory.class))).thenAnswer(new Answer<DataScanner>(){
+            @Override
+            public DataScanner answer(InvocationOnMock invocation){
+                scannersOpened++;
+                return new ListScanner(rows,(DataScan)invocation.getArguments()[0]);
+            }
+        });
+    }
+
+    private static List<Integer> read(DataScanner scanner,int maxRows) throws IOException{
+        List<Integer> keys=new ArrayList<>();
+        while(keys.size()<maxRows){
+            List<DataCell> row=scanner.next(-1);
+            if(row.isEmpty()) break;
+            keys.add((int)row.get(0).key()[0]);
+        }
+        return keys;
+    }
+
+    private static List<Integer> keys(int from,int to){
+        List<Integer> keys=new ArrayList<>();
+        for(int i=from;i<=to;i++){
+            keys.add(i);
+        }
+        return keys;
+    }
+
+    private static class ListScanner implements DataScanner{
+        private final Iterator<List<DataCell>> rows;
+        private final byte[] stop;
+        private List<DataCell> next;
+
+        ListScanner(List<List<DataCell>> rows,DataScan scan){
+            byte[] start=scan.getStartKey();
+            this.stop=scan.getStopKey();
+            this.rows=rows.iterator();
+            while(this.rows.hasNext()){
+                List<DataCell> row=this.rows.next();
+                if(start==null || Bytes.BASE_COMPARATOR.compare(row.get(0).key(),start)>=0){
+                    next=row;
+                    break;
+                }
+            }
+        }
+
+        @Override
+        @Nonnull
+        public List<DataCell> next(int limit){
+            List<DataCell> row=next;
+            if(row==null || (stop!=null && stop.length>0 && Bytes.BASE_COMPARATOR.compare(row.get(0).key(),stop)>=0))
+                return Collections.emptyList();
+            next=rows.hasNext()?rows.next():null;
+            return row;
+        }
+
+        @Override public void close(){ }
+        @Override public Partition getPartition(){ return null; }
+        @Override public TimeView getReadTime(){ return Metrics.noOpTimeView(); }
+        @Override public long getBytesOutput(){ return 0; }
+        @Override public long getRowsFiltered(){ return 0; }
+        @Override public long getRowsVisited(){ return 0; }
+    }
+
+    private static class RangeScan implements DataScan{
+        private final Map<String,byte[]> attributes=new HashMap<>();
+        private byte[] startKey=new byte[0];
+        private byte[] stopKey=new byte[0];
+
+        @Override public DataScan startKey(byte[] startKey){ this.startKey=startKey; return this; }
+        @Override public DataScan stopKey(byte[] stopKey){ this.stopKey=stopKey; return this; }
+        @Override public DataScan filter(DataFilter df){ return this; }
+        @Override public DataScan reverseOrder(){ return this; }
+        @Override public boolean isDescendingScan(){ return false; }
+        @Override public DataScan cacheRows(int rowsToCache){ return this; }
+        @Override public DataScan batchCells(int cellsToBatch){ return this; }
+        @Override public byte[] getStartKey(){ return startKey; }
+        @Override public byte[] getStopKey(){ return stopKey; }
+        @Override public long highVersion(){ return Long.MAX_VALUE; }
+        @Override public long lowVersion(){ return 0L; }
+        @Override public DataFilter getFilter(){ return null; }
+        @Override public void setTimeRange(long lowVersion,long highVersion){ }
+        @Override public void returnAllVersions(){ }
+        @Override public void setSmall(boolean small){ }
+        @Override public void addAttribute(String key,byte[] value){ attributes.put(key,value); }
+        @Override public byte[] getAttribute(String key){ return attributes.get(key); }
+        @Override public Map<String,byte[]> allAttributes(){ return attributes; }
+        @Override public void setAllAttributes(Map<String,byte[]> attrMap){ attributes.putAll(attrMap); }
+    }
+}
@@ -15,6 +15,14 @@
 package com.splicemachine.derby.impl.sql.execute.sequence;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Assert;
@@ -59,11 +67,79 @@ public class AbstractSequenceTest {
 		}
 	}
 	
+	@Test
+	public void blocksGrowWhenUsedQuickly() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(10,80,1,0,null);
+		for (long i = 0; i< 1000; i++) {
+			Assert.assertEquals(i,sequence.getNext());
+		}
+		Assert.assertEquals(80,sequence.getBlockSize());
+		Assert.assertTrue("Blocks should have grown, but allocated "+sequence.getAllocations(),sequence.getAllocations()<20);
+	}
+
+	@Test
+	public void nextBlockIsPrefetched() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			SpliceTestSequence sequence = new SpliceTestSequence(1000,1000,10,20,executor);
+			for (long i = 0; i< 1000; i++) {
+				Assert.assertEquals(i*10+20,sequence.getNext());
+			}
+			Assert.assertEquals(10020,sequence.peekAtCurrentValue());
+			Assert.assertEquals(10020,sequence.getNext());
+			Assert.assertEquals("Every block but the first should be prefetched",10,sequence.getPrefetches());
+			Assert.assertEquals(11,sequence.getAllocations());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void concurrentCallersGetDistinctValues() throws Exception {
+		ExecutorService prefetcher = Executors.newSingleThreadExecutor();
+		ExecutorService callers = Executors.newFixedThreadPool(8);
+		try {
+			final SpliceTestSequence sequence = new SpliceTestSequence(10,1000,1,0,prefetcher);
+			List<Future<List<Long>>> results = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				results.add(callers.submit(new Callable<List<Long>>() {
+					@Override
+					public List<Long> call() throws Exception {
+						List<Long> values = new ArrayList<>();
+						for (int i = 0; i < 10000; i++) {
+							values.add(sequence.getNext());
+						}
+						return values;
+					}
+				}));
+			}
+			Set<Long> values = new HashSet<>();
+			for (Future<List<Long>> result : results) {
+				values.addAll(result.get());
+			}
+			Assert.assertEquals(80000,values.size());
+		} finally {
+			callers.shutdownNow();
+			prefetcher.shutdownNow();
+		}
+	}
+
 	private class SpliceTestSequence extends AbstractSequence {
 		long currentValue = -1;
+		ExecutorService prefetchExecutor;
 		SpliceTestSequence(long blockAllocationSize, long incrementSteps, long startingValue) {
 			super(blockAllocationSize,incrementSteps,startingValue);
 		}
+
+		SpliceTestSequence(long blockAllocationSize, long maxBlockAllocationSize, long incrementSteps, long startingValue, ExecutorService prefetchExecutor) {
+			super(blockAllocationSize,maxBlockAllocationSize,incrementSteps,startingValue);
+			this.prefetchExecutor = prefetchExecutor;
+		}
+
+			@Override
+			protected ExecutorService getPrefetchExecutor() {
+				return prefetchExecutor;
+			}
 		
 			@Override
 			protected long getCurrentValue() throws IOException {
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.store;
+
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarBatch;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class ColumnarRowAccumulatorTest{
+
+    @Test
+    public void decodesScannedColumnsIntoVectors() throws Exception{
+        //stored fields 0..3 map to template columns 2, 0, -1 (not scanned), 1
+        int[] columnMap={2,0,-1,1};
+        int[] formatIds={StoredFormatIds.SQL_INTEGER_ID,StoredFormatIds.SQL_DOUBLE_ID,StoredFormatIds.SQL_LONGINT_ID};
+        ColumnarBatch batch=new ColumnarBatch(4,formatIds);
+        ColumnarRowAccumulator accumulator=ColumnarRowAccumulator.newAccumulator(null,batch,columnMap);
+
+        batch.beginRow();
+        addScalar(accumulator,0,Encoding.encode(Long.MAX_VALUE));
+        addScalar(accumulator,1,Encoding.encode(-17));
+        accumulator.add(2,new byte[]{1,2,3},0,3);
+        byte[] d=Encoding.encode(2.5d);
+        accumulator.addDouble(3,d,0,d.length);
+        Assert.assertTrue("Should have collected every scanned column",accumulator.isFinished());
+        batch.endRow();
+
+        accumulator.reset();
+        batch.beginRow();
+        addScalar(accumulator,1,Encoding.encode(42));
+        batch.endRow();
+
+        Assert.assertEquals(2,batch.size());
+        Assert.assertEquals(-17L,batch.longs(0)[0]);
+        Assert.assertEquals(2.5d,batch.doubles(1)[0],0d);
+        Assert.assertEquals(Long.MAX_VALUE,batch.longs(2)[0]);
+        Assert.assertFalse(batch.nulls(0)[0]);
+        Assert.assertFalse(batch.nulls(1)[0]);
+        Assert.assertFalse(batch.nulls(2)[0]);
+
+        Assert.assertEquals(42L,batch.longs(0)[1]);
+        Assert.assertTrue("Missing field should be null",batch.nulls(1)[1]);
+        Assert.assertTrue("Missing field should be null",batch.nulls(2)[1]);
+    }
+
+    @Test
+    public void skipsColumnsTheBatchDoesNotHold() throws Exception{
+        int[] columnMap={0,1};
+        int[] formatIds={-1,StoredFormatIds.SQL_SMALLINT_ID};
+        ColumnarBatch batch=new ColumnarBatch(2,formatIds);
+        ColumnarRowAccumulator accumulator=ColumnarRowAccumulator.newAccumulator(null,batch,columnMap);
+
+        Assert.assertFalse(batch.hasColumn(0));
+        batch.beginRow();
+        addScalar(accumulator,0,Encoding.encode(1));
+        Assert.assertFalse("Should still need the SMALLINT column",accumulator.isFinished());
+        addScalar(accumulator,1,Encoding.encode((short)-3));
+        batch.endRow();
+
+        Assert.assertNull(batch.longs(0));
+        Assert.assertEquals(-3L,batch.longs(1)[0]);
+    }
+
+    @Test
+    public void filtersSelectionByColumnValues() throws Exception{
+        int[] formatIds={StoredFormatIds.SQL_INTEGER_ID};
+        ColumnarBatch batch=new ColumnarBatch(8,formatIds);
+        for(int i=0;i<5;i++){
+            batch.beginRow();
+            if(i!=2)
+                batch.setLong(0,i);
+            batch.endRow();
+        }
+        batch.selectAll();
+        Assert.assertEquals(5,batch.selectedCount());
+
+        //keep the non-null odd values, the way a qualifier narrows the selection
+        int[] selection=batch.selection();
+        int kept=0;
+        for(int i=0;i<batch.selectedCount();i++){
+            int row=selection[i];
+            if(!batch.nulls(0)[row] && (batch.longs(0)[row]&1)==1)
+                selection[kept++]=row;
+        }
+        batch.setSelectedCount(kept);
+        Assert.assertEquals(2,batch.selectedCount());
+        Assert.assertEquals(1,selection[0]);
+        Assert.assertEquals(3,selection[1]);
+
+        batch.clear();
+        Assert.assertEquals(0,batch.size());
+        Assert.assertEquals(0,batch.selectedCount());
+    }
+
+    private static void addScalar(ColumnarRowAccumulator accumulator,int position,byte[] data){
+        accumulator.addScalar(position,data,0,data.length);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.impl.store;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.CountAggregator;
+import com.splicemachine.db.impl.sql.execute.LongBufferedSumAggregator;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.ColumnarBatch;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.storage.EntryAccumulator;
+import com.splicemachine.storage.EntryDecoder;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.storage.EntryPredicateFilter;
+import com.splicemachine.utils.kryo.KryoPool;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares SUM and COUNT over two columns of a wide table, read through the row path (decoding each
+ * packed row into a row of DataValueDescriptors and accumulating them) against the columnar path
+ * (decoding runs of packed rows into column vectors and aggregating the vectors).
+ *
+ * This is not run as part of the test suite; run it directly, passing the number of rows, the width
+ * of the table and the number of iterations as arguments.
+ */
+public class ColumnarScanBenchmark{
+
+    public static void main(String...args) throws Exception{
+        int numRows = args.length>0? Integer.parseInt(args[0]) : 1_000_000;
+        int width = args.length>1? Integer.parseInt(args[1]) : 50;
+        int iterations = args.length>2? Integer.parseInt(args[2]) : 10;
+
+        byte[][] rows = encodeRows(numRows,width);
+        //aggregate SUM(c5) and COUNT(c17) (or the last column of narrower tables)
+        int sumField = Math.min(5,width-1);
+        int countField = Math.min(17,width-1);
+
+        System.out.printf("Benchmarking %d rows of %d BIGINT columns, %d iterations%n",numRows,width,iterations);
+        for(int i=0;i<iterations;i++){
+            long start = System.nanoTime();
+            long rowResult = rowPath(rows,width,sumField,countField);
+            long rowTime = System.nanoTime()-start;
+
+            start = System.nanoTime();
+            long columnarResult = columnarPath(rows,width,sumField,countField);
+            long columnarTime = System.nanoTime()-start;
+
+            if(rowResult!=columnarResult)
+                throw new IllegalStateException("Row and columnar results differ: "+rowResult+" != "+columnarResult);
+            //print the result so that the loops don't get optimized away
+            System.out.printf("result=%d  row path: %.1f Mrows/s  columnar path: %.1f Mrows/s%n",
+                    rowResult,numRows/(rowTime/1e3d),numRows/(columnarTime/1e3d));
+        }
+    }
+
+    private static long rowPath(byte[][] rows,int width,int sumField,int countField) throws Exception{
+        DataValueDescriptor[] dvds = new DataValueDescriptor[width];
+        dvds[sumField] = new SQLLongint();
+        dvds[countField] = new SQLLongint();
+        ValueRow template = new ValueRow(dvds);
+        int[] columnMap = identity(width);
+        EntryPredicateFilter predicateFilter = new EntryPredicateFilter(new BitSet());
+        EntryAccumulator accumulator = ExecRowAccumulator.newAccumulator(predicateFilter,false,template,columnMap,"2.0");
+
+        LongBufferedSumAggregator sum = new LongBufferedSumAggregator(64);
+        ExecAggregator count = new CountAggregator().setup(null,"COUNT",null);
+        EntryDecoder decoder = new EntryDecoder();
+        for(byte[] row : rows){
+            accumulator.reset();
+            decoder.set(row);
+            predicateFilter.match(decoder,accumulator);
+            sum.accumulate(template.getColumn(sumField+1),null);
+            count.accumulate(template.getColumn(countField+1),null);
+        }
+        return sum.getResult().getLong()+count.getResult().getLong();
+    }
+
+    private static long columnarPath(byte[][] rows,int width,int sumField,int countField) throws Exception{
+        int[] formatIds = new int[width];
+        Arrays.fill(formatIds,-1);
+        formatIds[sumField] = StoredFormatIds.SQL_LONGINT_ID;
+        formatIds[countField] = StoredFormatIds.SQL_LONGINT_ID;
+        ColumnarBatch batch = new ColumnarBatch(ColumnarBatch.DEFAULT_CAPACITY,formatIds);
+        EntryPredicateFilter predicateFilter = new EntryPredicateFilter(new BitSet());
+        ColumnarRowAccumulator accumulator = ColumnarRowAccumulator.newAccumulator(predicateFilter,batch,identity(width));
+
+        long sum = 0L;
+        long count = 0L;
+        EntryDecoder decoder = new EntryDecoder();
+        int next = 0;
+        while(next<rows.length){
+            batch.clear();
+            while(!batch.isFull() && next<rows.length){
+                accumulator.reset();
+                batch.beginRow();
+                decoder.set(rows[next++]);
+                predicateFilter.match(decoder,accumulator);
+                batch.endRow();
+            }
+            long[] sums = batch.longs(sumField);
+            boolean[] sumNulls = batch.nulls(sumField);
+            boolean[] countNulls = batch.nulls(countField);
+            for(int i=0;i<batch.size();i++){
+                if(!sumNulls[i]) sum+=sums[i];
+                if(!countNulls[i]) count++;
+            }
+        }
+        return sum+count;
+    }
+
+    private static byte[][] encodeRows(int numRows,int width) throws Exception{
+        BitSet setCols = new BitSet(width);
+        setCols.set(0,width);
+        BitSet scalarCols = setCols.clone();
+        BitSet empty = new BitSet();
+        EntryEncoder encoder = EntryEncoder.create(new KryoPool(1),width,setCols,scalarCols,empty,empty);
+        Random random = new Random(0L);
+        byte[][] rows = new byte[numRows][];
+        for(int i=0;i<numRows;i++){
+            MultiFieldEncoder fields = encoder.getEntryEncoder();
+            fields.reset();
+            for(int c=0;c<width;c++){
+                fields.encodeNext((long)random.nextInt(1_000_000));
+            }
+            rows[i] = encoder.encode();
+        }
+        return rows;
+    }
+
+    private static int[] identity(int width){
+        int[] map = new int[width];
+        for(int i=0;i<width;i++){
+            map[i] = i;
+        }
+        return map;
+    }
+}
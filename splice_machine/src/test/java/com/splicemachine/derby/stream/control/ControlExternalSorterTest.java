@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.stream.function.RowComparator;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.io.File;
+import java.util.Iterator;
+
+@Category(ArchitectureIndependent.class)
+public class ControlExternalSorterTest{
+    static{
+        ClassSize.setDummyCatalog();
+    }
+
+    @Rule
+    public TemporaryFolder tempFolder=new TemporaryFolder();
+
+    @Test
+    public void testSortsInMemoryUnderLimit() throws Exception{
+        ControlOperationContext context=new ControlOperationContext();
+        try(ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),Long.MAX_VALUE,tempFolder.getRoot(),context)){
+            for(int i=0;i<1000;i++){
+                sorter.add(tuple((i*7919)%1000,i));
+            }
+            Assert.assertFalse(sorter.hasSpilled());
+            assertSorted(sorter.sorted(),1000);
+            Assert.assertEquals(0L,context.getRecordsSpilled());
+        }
+    }
+
+    @Test
+    public void testSpillsAndMergesRuns() throws Exception{
+        ControlOperationContext context=new ControlOperationContext();
+        File dir=tempFolder.newFolder();
+        try(ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),16*1024,dir,context)){
+            for(int i=0;i<10000;i++){
+                sorter.add(tuple((i*7919)%10000,i));
+            }
+            Assert.assertTrue(sorter.hasSpilled());
+            Assert.assertTrue("Expected several runs",dir.listFiles().length>1);
+            assertSorted(sorter.sorted(),10000);
+            Assert.assertTrue(context.getRecordsSpilled()>0);
+            Assert.assertTrue(context.getBytesSpilled()>0);
+            Assert.assertEquals("Runs should be deleted once read",0,dir.listFiles().length);
+        }
+    }
+
+    @Test
+    public void testSpilledSortIsStable() throws Exception{
+        File dir=tempFolder.newFolder();
+        try(ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),4*1024,dir,null)){
+            for(int i=0;i<5000;i++){
+                sorter.add(tuple(i%10,i));
+            }
+            Assert.assertTrue(sorter.hasSpilled());
+            Iterator<Tuple2<ExecRow,ExecRow>> sorted=sorter.sorted();
+            int lastKey=-1;
+            int lastValue=-1;
+            int count=0;
+            while(sorted.hasNext()){
+                Tuple2<ExecRow,ExecRow> next=sorted.next();
+                int key=next._1().getColumn(1).getInt();
+                int value=next._2().getColumn(1).getInt();
+                Assert.assertTrue(key>=lastKey);
+                if(key==lastKey)
+                    Assert.assertTrue("Equal keys should keep their input order",value>lastValue);
+                Assert.assertEquals("row"+value,next._2().getColumn(2).getString());
+                lastKey=key;
+                lastValue=value;
+                count++;
+            }
+            Assert.assertEquals(5000,count);
+        }
+    }
+
+    @Test
+    public void testCloseDeletesUnreadRuns() throws Exception{
+        File dir=tempFolder.newFolder();
+        ControlExternalSorter<ExecRow,ExecRow> sorter=new ControlExternalSorter<>(new RowComparator(),4*1024,dir,null);
+        for(int i=0;i<5000;i++){
+            sorter.add(tuple(i,i));
+        }
+        Iterator<Tuple2<ExecRow,ExecRow>> sorted=sorter.sorted();
+        sorted.next();
+        Assert.assertTrue(dir.listFiles().length>0);
+        sorter.close();
+        Assert.assertEquals(0,dir.listFiles().length);
+    }
+
+    private static void assertSorted(Iterator<Tuple2<ExecRow,ExecRow>> sorted,int expectedCount) throws Exception{
+        int count=0;
+        while(sorted.hasNext()){
+            Tuple2<ExecRow,ExecRow> next=sorted.next();
+            Assert.assertEquals(count,next._1().getColumn(1).getInt());
+            Assert.assertEquals("row"+next._2().getColumn(1).getInt(),next._2().getColumn(2).getString());
+            count++;
+        }
+        Assert.assertEquals(expectedCount,count);
+    }
+
+    private static Tuple2<ExecRow,ExecRow> tuple(int key,int value){
+        return new Tuple2<>(row(new SQLInteger(key)),row(new SQLInteger(value),new SQLVarchar("row"+value)));
+    }
+
+    private static ExecRow row(DataValueDescriptor... dvds){
+        return new ValueRow(dvds);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.services.cache.ClassSize;
+import com.splicemachine.db.iapi.services.loader.ClassFactory;
+import com.splicemachine.db.iapi.sql.ResultColumnDescriptor;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLReal;
+import com.splicemachine.db.iapi.types.UserType;
+import com.splicemachine.db.impl.sql.GenericColumnDescriptor;
+import com.splicemachine.db.impl.sql.GenericResultDescription;
+import com.splicemachine.db.impl.sql.execute.AggregatorInfo;
+import com.splicemachine.db.impl.sql.execute.CountAggregator;
+import com.splicemachine.db.impl.sql.execute.IndexRow;
+import com.splicemachine.db.impl.sql.execute.MaxMinAggregator;
+import com.splicemachine.db.impl.sql.execute.SumAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.GroupedAggregateOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.PrimitiveGroupedAggregation;
+import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+import com.splicemachine.derby.stream.function.MergeAllAggregatesFunction;
+import com.splicemachine.derby.stream.function.RowComparator;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import scala.Tuple2;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that grouping a grouped aggregate on primitive keys gives the same groups and aggregates as
+ * reducing its rows with {@link MergeAllAggregatesFunction}.
+ */
+@Category(ArchitectureIndependent.class)
+public class PrimitiveGroupedAggregateIteratorTest{
+    static{
+        ClassSize.setDummyCatalog();
+    }
+
+    private static final int NUM_ROWS=2000;
+    private static final int NUM_GROUPS=37;
+    /*
+     * The layout of the rows: the grouping key, the aggregated input, then the result and aggregator
+     * columns of SUM, COUNT, COUNT(*), MIN and MAX
+     */
+    private static final String[] NAMES={"SUM","COUNT","COUNT(*)","MIN","MAX"};
+    private static final String[] CLASSES={SumAggregator.class.getName(),CountAggregator.class.getName(),
+            CountAggregator.class.getName(),MaxMinAggregator.class.getName(),MaxMinAggregator.class.getName()};
+
+    @Test
+    public void testMatchesGenericReductionOfDoubles() throws Exception{
+        assertMatchesGenericReduction(new SQLDouble(),Types.DOUBLE);
+    }
+
+    @Test
+    public void testMatchesGenericReductionOfIntegers() throws Exception{
+        assertMatchesGenericReduction(new SQLInteger(),Types.INTEGER);
+    }
+
+    @Test
+    public void testDoesNotPlanRealInputs() throws Exception{
+        GroupedAggregateOperation op=operation(new SQLReal(),Types.REAL);
+        Assert.assertNull("SUM of a REAL is accumulated in single precision, so it can't be kept in a double",
+                PrimitiveGroupedAggregation.plan(op,row(op,0,new SQLReal(1.5f))));
+    }
+
+    private static void assertMatchesGenericReduction(DataValueDescriptor inputType,int sqlType) throws Exception{
+        GroupedAggregateOperation op=operation(inputType,sqlType);
+        PrimitiveGroupedAggregation aggregation=PrimitiveGroupedAggregation.plan(op,input(op,inputType,0));
+        Assert.assertNotNull("Expected the aggregate to be grouped on primitive keys",aggregation);
+
+        List<Tuple2<ExecRow,ExecRow>> source=new ArrayList<>(NUM_ROWS);
+        for(int i=0;i<NUM_ROWS;i++){
+            ExecRow row=input(op,inputType,i);
+            source.add(new Tuple2<>(row.getKeyedExecRow(new int[]{0}),row));
+        }
+        Map<Integer,ExecRow> actual=new HashMap<>();
+        Iterator<Tuple2<ExecRow,ExecRow>> groups=new PrimitiveGroupedAggregateIterator(aggregation,source.iterator(),
+                new RowComparator(),Long.MAX_VALUE,null,null);
+        while(groups.hasNext()){
+            ExecRow group=groups.next()._2();
+            Assert.assertNull("Groups should not repeat",actual.put(group.getColumn(1).getInt(),group));
+        }
+
+        OperationContext context=mock(OperationContext.class);
+        when(context.getOperation()).thenReturn(op);
+        MergeAllAggregatesFunction<GroupedAggregateOperation> merge=new MergeAllAggregatesFunction<>(context);
+        Map<Integer,ExecRow> expected=new HashMap<>();
+        for(int i=0;i<NUM_ROWS;i++){
+            ExecRow row=input(op,inputType,i);
+            int key=row.getColumn(1).getInt();
+            expected.put(key,merge.call(expected.get(key),row));
+        }
+
+        Assert.assertEquals(expected.keySet(),actual.keySet());
+        for(Map.Entry<Integer,ExecRow> group : expected.entrySet()){
+            ExecRow expectedRow=group.getValue();
+            ExecRow actualRow=actual.get(group.getKey());
+            for(SpliceGenericAggregator aggregator : op.aggregates){
+                Assert.assertEquals("Null elimination of "+aggregator.getAggregatorInfo().getAggregateName(),
+                        aggregator.finish(expectedRow),aggregator.finish(actualRow));
+            }
+            for(int a=0;a<NAMES.length;a++){
+                Assert.assertEquals(NAMES[a]+" of group "+group.getKey(),
+                        expectedRow.getColumn(3+2*a).getString(),actualRow.getColumn(3+2*a).getString());
+            }
+        }
+    }
+
+    private static GroupedAggregateOperation operation(DataValueDescriptor inputType,int sqlType) throws Exception{
+        ClassFactory cf=mock(ClassFactory.class);
+        when(cf.loadApplicationClass(anyString())).thenAnswer(invocation -> Class.forName((String)invocation.getArguments()[0]));
+        SpliceGenericAggregator[] aggregates=new SpliceGenericAggregator[NAMES.length];
+        for(int a=0;a<NAMES.length;a++){
+            int resultType=NAMES[a].startsWith("COUNT") || sqlType==Types.INTEGER && NAMES[a].equals("SUM")
+                    ? Types.BIGINT : sqlType;
+            DataTypeDescriptor dtd=DataTypeDescriptor.getBuiltInDataTypeDescriptor(resultType,true);
+            GenericResultDescription rd=new GenericResultDescription(
+                    new ResultColumnDescriptor[]{new GenericColumnDescriptor(NAMES[a],dtd)},"SELECT");
+            aggregates[a]=new SpliceGenericAggregator(new AggregatorInfo(NAMES[a],CLASSES[a],1,2+2*a,3+2*a,false,rd),cf);
+        }
+
+        IndexRow template=new IndexRow(2+2*NAMES.length);
+        template.setColumn(1,new SQLInteger());
+        template.setColumn(2,inputType.getNewNull());
+        for(int a=0;a<NAMES.length;a++){
+            template.setColumn(3+2*a,NAMES[a].startsWith("COUNT")? new SQLLongint() : inputType.getNewNull());
+            template.setColumn(4+2*a,new UserType());
+        }
+
+        GroupedAggregateOperation op=mock(GroupedAggregateOperation.class);
+        op.aggregates=aggregates;
+        when(op.getExtendedGroupBy()).thenReturn(new int[]{0});
+        when(op.getSourceExecIndexRow()).thenReturn(template);
+        return op;
+    }
+
+    private static ExecRow input(GroupedAggregateOperation op,DataValueDescriptor inputType,int i) throws Exception{
+        DataValueDescriptor value=inputType.getNewNull();
+        //every seventh input is null, so that COUNT differs from COUNT(*)
+        if(i%7!=0){
+            if(inputType instanceof SQLDouble)
+                value.setValue(i*0.5d);
+            else
+                value.setValue(i);
+        }
+        return row(op,i%NUM_GROUPS,value);
+    }
+
+    private static ExecRow row(GroupedAggregateOperation op,int key,DataValueDescriptor value) throws Exception{
+        ExecRow row=op.getSourceExecIndexRow().getNewNullRow();
+        row.getColumn(1).setValue(key);
+        row.setColumn(2,value);
+        for(int a=0;a<NAMES.length;a++){
+            row.setColumn(4+2*a,new UserType());
+        }
+        return row;
+    }
+}
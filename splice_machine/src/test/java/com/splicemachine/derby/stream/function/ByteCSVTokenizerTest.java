@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDate;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLSmallint;
+import com.splicemachine.db.iapi.types.SQLTimestamp;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.derby.stream.utils.BooleanList;
+import org.junit.Assert;
+import org.junit.Test;
+import org.supercsv.exception.SuperCsvException;
+import org.supercsv.prefs.CsvPreference;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that the ByteCSVTokenizer tokenizes exactly as the QuoteTrackingTokenizer does, and its direct parsing of
+ * typed columns.
+ */
+public class ByteCSVTokenizerTest{
+    private static final CsvPreference ONE_LINE_PER_ROW=new CsvPreference.Builder('"',',',"\n").maxLinesPerRow(1).build();
+
+    @Test
+    public void tokenizesUnquotedColumns() throws Exception{
+        checkMatches("hello,goodbye,parseThis!,boots\n",CsvPreference.STANDARD_PREFERENCE);
+    }
+
+    @Test
+    public void tokenizesQuotedColumns() throws Exception{
+        checkMatches("\"hello\",goodbye,\"parse,\"\"This\"\"!\",boots\n",CsvPreference.STANDARD_PREFERENCE);
+    }
+
+    @Test
+    public void tokenizesQuotesAcrossLineBreaks() throws Exception{
+        checkMatches("\"hello\",goodbye,parseThis!,\"boots\r\nmagoo\"\nnext,row",CsvPreference.STANDARD_PREFERENCE);
+    }
+
+    @Test
+    public void tokenizesEmptyLinesAndColumns() throws Exception{
+        checkMatches("\n\r\na,,\"\", \r\n  b  ,null,\"null\"\r\r",CsvPreference.STANDARD_PREFERENCE);
+    }
+
+    @Test
+    public void tokenizesMultiByteCharacters() throws Exception{
+        checkMatches("\u00e9t\u00e9,\"\u65e5\u672c\u8a9e\",\ud83d\ude00\n",CsvPreference.STANDARD_PREFERENCE);
+    }
+
+    @Test
+    public void reportsTheSameErrors() throws Exception{
+        checkMatches("a,\"b\nc\",d\ne,f\n",ONE_LINE_PER_ROW);
+        checkMatches("a,b\n\"c,d\n",CsvPreference.STANDARD_PREFERENCE);
+    }
+
+    @Test
+    public void parsesIntegralColumnsDirectly() throws Exception{
+        ByteCSVTokenizer.Row row=readRow("12,-7,9223372036854775,NULL,,40000\n");
+        checkParsed(row,0,new SQLInteger(),new SQLInteger(12));
+        checkParsed(row,1,new SQLSmallint(),new SQLSmallint(-7));
+        checkParsed(row,2,new SQLLongint(),new SQLLongint(9223372036854775L));
+        checkParsed(row,3,new SQLInteger(),new SQLInteger());
+        checkParsed(row,4,new SQLLongint(),new SQLLongint());
+        //out of range for a smallint, so left for the String conversion to report
+        Assert.assertFalse("Should not have parsed an out of range value",row.setValue(5,new SQLSmallint()));
+    }
+
+    @Test
+    public void parsesDecimalColumnsDirectly() throws Exception{
+        ByteCSVTokenizer.Row row=readRow("1.50,-0.25,.5,17\n");
+        for(int i=0;i<row.size();i++){
+            SQLDecimal expected=new SQLDecimal();
+            expected.setValue(row.get(i));
+            checkParsed(row,i,new SQLDecimal(),expected);
+        }
+    }
+
+    @Test
+    public void parsesDatesAndTimestampsDirectly() throws Exception{
+        ByteCSVTokenizer.Row row=readRow("2019-03-04,2019-03-04 05:06:07,2019-03-04 05:06:07.12,2019-03-04\n");
+        SQLDate date=new SQLDate();
+        date.setValue(row.get(0));
+        checkParsed(row,0,new SQLDate(),date);
+        for(int i=1;i<row.size();i++){
+            SQLTimestamp expected=new SQLTimestamp();
+            expected.setValue(row.get(i));
+            checkParsed(row,i,new SQLTimestamp(),expected);
+        }
+    }
+
+    @Test
+    public void leavesOtherValuesToStringConversion() throws Exception{
+        ByteCSVTokenizer.Row row=readRow("+5, 5,1e3,2019-3-4,2019-02-30,\"null\",hello\n");
+        Assert.assertFalse(row.setValue(0,new SQLInteger()));
+        Assert.assertFalse(row.setValue(1,new SQLInteger()));
+        Assert.assertFalse(row.setValue(2,new SQLDecimal()));
+        Assert.assertFalse(row.setValue(3,new SQLDate()));
+        Assert.assertFalse(row.setValue(4,new SQLDate()));
+        Assert.assertFalse("A quoted null is not null",row.setValue(5,new SQLInteger()));
+        Assert.assertFalse(row.setValue(6,new SQLVarchar()));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ByteCSVTokenizer.Row readRow(String input) throws IOException{
+        ByteCSVTokenizer tokenizer=new ByteCSVTokenizer(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8,CsvPreference.STANDARD_PREFERENCE);
+        Assert.assertTrue("Did not read a row",tokenizer.readRow());
+        return tokenizer.getRow();
+    }
+
+    private static void checkParsed(ByteCSVTokenizer.Row row,int column,DataValueDescriptor dvd,DataValueDescriptor expected) throws Exception{
+        Assert.assertTrue("Did not parse column "+column+" directly",row.setValue(column,dvd));
+        Assert.assertEquals("Incorrect value for column "+column,expected.isNull(),dvd.isNull());
+        if(!expected.isNull())
+            Assert.assertEquals("Incorrect value for column "+column,expected,dvd);
+    }
+
+    private static void checkMatches(String input,CsvPreference preference) throws IOException{
+        List<String> expected=tokenize(new QuoteTrackingTokenizer(new StringReader(input),preference),null);
+        //small buffers, so that rows are split across reads
+        for(int bufferSize : new int[]{1,3,64}){
+            ByteCSVTokenizer tokenizer=new ByteCSVTokenizer(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                    StandardCharsets.UTF_8,preference,bufferSize);
+            Assert.assertEquals("Incorrect rows with a buffer of "+bufferSize,expected,tokenize(null,tokenizer));
+        }
+    }
+
+    /*the rows (with their quoting and line number) or errors, in the order that they are read*/
+    private static List<String> tokenize(QuoteTrackingTokenizer chars,ByteCSVTokenizer bytes) throws IOException{
+        List<String> rows=new ArrayList<>();
+        while(true){
+            List<String> columns=new ArrayList<>();
+            BooleanList quotedColumns=new BooleanList();
+            try{
+                boolean read;
+                if(chars!=null){
+                    read=chars.readColumns(columns,quotedColumns);
+                }else{
+                    read=bytes.readRow();
+                    if(read){
+                        columns.addAll(bytes.getRow());
+                        quotedColumns=bytes.getQuotedColumns();
+                    }
+                }
+                if(!read)
+                    return rows;
+                rows.add(columns+" "+quotedColumns+" @"+(chars!=null?chars.getLineNumber():bytes.getLineNumber()));
+            }catch(SuperCsvException sce){
+                rows.add(sce.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.foreignkeys;
+
+import com.splicemachine.derby.management.ParentKeyCacheManagement;
+import com.splicemachine.derby.test.framework.SpliceNetConnection;
+
+import javax.management.JMX;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Measures loading a fact table whose rows reference a small dimension table, and how many parent keys the
+ * foreign key checks look up while doing so. It reads the lookup counts from the ParentKeyCache MXBean of the
+ * server, so run it against a single server (mem or standalone), with the cache on and off
+ * (splice.foreignKey.parentKeyCacheSize=0) to compare.
+ *
+ * This is not run as part of the test suite; run it directly, passing the JDBC url, the JMX url of the server, the
+ * number of fact rows and the number of dimension rows as arguments.
+ */
+public class ForeignKeyImportBenchmark{
+    private static final String SCHEMA="FK_IMPORT_BENCHMARK";
+
+    public static void main(String...args) throws Exception{
+        String url = args.length>0? args[0] : SpliceNetConnection.getDefaultLocalURL();
+        String jmxUrl = args.length>1? args[1] : "service:jmx:rmi:///jndi/rmi://localhost:10102/jmxrmi";
+        int factRows = args.length>2? Integer.parseInt(args[2]) : 1_000_000;
+        int dimensionRows = args.length>3? Integer.parseInt(args[3]) : 100;
+
+        try(Connection conn = SpliceNetConnection.getConnectionAs(url,SpliceNetConnection.DEFAULT_USER,SpliceNetConnection.DEFAULT_USER_PASSWORD);
+            JMXConnector jmx = JMXConnectorFactory.connect(new JMXServiceURL(jmxUrl))){
+            MBeanServerConnection mbs = jmx.getMBeanServerConnection();
+            ParentKeyCacheManagement cache = JMX.newMXBeanProxy(mbs,
+                    new ObjectName("com.splicemachine.pipeline.foreignkey:type=ParentKeyCache"),ParentKeyCacheManagement.class);
+            createTables(conn,factRows,dimensionRows);
+
+            long checked = cache.getCheckedRows();
+            long hits = cache.getHitCount();
+            long lookups = cache.getParentLookups();
+            long keysRead = cache.getParentKeysRead();
+            long start = System.nanoTime();
+            try(Statement s = conn.createStatement()){
+                s.execute("insert into "+SCHEMA+".F select * from "+SCHEMA+".STAGE");
+            }
+            long time = System.nanoTime()-start;
+
+            System.out.printf("Loaded %d rows referencing %d parent keys in %.2f s%n",factRows,dimensionRows,time/1e9d);
+            checked = cache.getCheckedRows()-checked;
+            hits = cache.getHitCount()-hits;
+            System.out.printf("checked rows: %d  cache hits: %d (%.1f%%)  parent lookups: %d  parent keys read: %d%n",
+                    checked,hits,checked==0?0d:100d*hits/checked,
+                    cache.getParentLookups()-lookups,cache.getParentKeysRead()-keysRead);
+        }
+    }
+
+    private static void createTables(Connection conn,int factRows,int dimensionRows) throws SQLException{
+        try(Statement s = conn.createStatement()){
+            try{
+                s.execute("create schema "+SCHEMA);
+            }catch(SQLException se){
+                //already there
+            }
+            for(String table : new String[]{"F","D","STAGE"}){
+                try{
+                    s.execute("drop table "+SCHEMA+"."+table);
+                }catch(SQLException se){
+                    //not there
+                }
+            }
+            s.execute("create table "+SCHEMA+".D (d int primary key, name varchar(20))");
+            s.execute("create table "+SCHEMA+".F (f bigint, d int references "+SCHEMA+".D(d), v varchar(20))");
+            s.execute("create table "+SCHEMA+".STAGE (f bigint, d int, v varchar(20))");
+        }
+        try(PreparedStatement ps = conn.prepareStatement("insert into "+SCHEMA+".D values (?,?)")){
+            for(int i=0;i<dimensionRows;i++){
+                ps.setInt(1,i);
+                ps.setString(2,"dimension "+i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        //the rows to load, so that only the insert into the child table is measured
+        conn.setAutoCommit(false);
+        try(PreparedStatement ps = conn.prepareStatement("insert into "+SCHEMA+".STAGE values (?,?,?)")){
+            for(int i=0;i<factRows;i++){
+                ps.setLong(1,i);
+                ps.setInt(2,i%dimensionRows);
+                ps.setString(3,"value "+i);
+                ps.addBatch();
+                if(i%10000==9999)
+                    ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.pipeline.foreignkey;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Tests which parent keys a {@link ParentKeyCache} remembers.
+ */
+@Category(ArchitectureIndependent.class)
+public class ParentKeyCacheTest{
+    private static final byte[] KEY=Bytes.toBytes("parent");
+
+    @Test
+    public void keysAreRememberedForTheirTransaction(){
+        ParentKeyCache cache=new ParentKeyCache("keysAreRememberedForTheirTransaction",10);
+        Assert.assertFalse(cache.contains(1L,KEY));
+        cache.add(1L,cache.version(),KEY);
+        Assert.assertTrue(cache.contains(1L,Bytes.toBytes("parent")));
+        Assert.assertFalse("Another transaction has no child row referencing the key",cache.contains(2L,KEY));
+    }
+
+    @Test
+    public void parentDeleteDropsKeys(){
+        ParentKeyCache cache=new ParentKeyCache("parentDeleteDropsKeys",10);
+        cache.add(1L,cache.version(),KEY);
+        ParentKeyCache.parentKeyDeleted("parentDeleteDropsKeys");
+        Assert.assertFalse(cache.contains(1L,KEY));
+    }
+
+    @Test
+    public void keysFoundBeforeAParentDeleteAreNotAdded(){
+        ParentKeyCache cache=new ParentKeyCache("keysFoundBeforeAParentDeleteAreNotAdded",10);
+        long version=cache.version();
+        ParentKeyCache.parentKeyDeleted("keysFoundBeforeAParentDeleteAreNotAdded");
+        cache.add(1L,version,KEY);
+        Assert.assertFalse(cache.contains(1L,KEY));
+    }
+
+    @Test
+    public void deletesFromOtherParentsKeepKeys(){
+        ParentKeyCache cache=new ParentKeyCache("deletesFromOtherParentsKeepKeys",10);
+        cache.add(1L,cache.version(),KEY);
+        ParentKeyCache.parentKeyDeleted("someOtherParent");
+        Assert.assertTrue(cache.contains(1L,KEY));
+    }
+
+    @Test
+    public void childDeleteDropsKey(){
+        ParentKeyCache cache=new ParentKeyCache("childDeleteDropsKey",10);
+        cache.add(1L,cache.version(),KEY);
+        cache.add(2L,cache.version(),KEY);
+        cache.remove(Bytes.toBytes("parent"));
+        Assert.assertFalse(cache.contains(1L,KEY));
+        Assert.assertFalse(cache.contains(2L,KEY));
+    }
+
+    @Test
+    public void keysAreBounded(){
+        ParentKeyCache cache=new ParentKeyCache("keysAreBounded",2);
+        for(int i=0;i<3;i++){
+            cache.add(1L,cache.version(),Bytes.toBytes(i));
+        }
+        Assert.assertTrue(cache.contains(1L,Bytes.toBytes(0)));
+        Assert.assertTrue(cache.contains(1L,Bytes.toBytes(1)));
+        Assert.assertFalse(cache.contains(1L,Bytes.toBytes(2)));
+    }
+
+    @Test
+    public void emptyCacheRemembersNothing(){
+        ParentKeyCache cache=new ParentKeyCache("emptyCacheRemembersNothing",0);
+        cache.add(1L,cache.version(),KEY);
+        Assert.assertFalse(cache.contains(1L,KEY));
+    }
+}
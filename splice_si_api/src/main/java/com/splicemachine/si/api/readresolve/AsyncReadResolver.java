@@ -14,9 +14,6 @@
 
 package com.splicemachine.si.api.readresolve;
 
-import com.lmax.disruptor.*;
-import com.lmax.disruptor.dsl.Disruptor;
-import com.lmax.disruptor.dsl.ProducerType;
 import com.splicemachine.annotations.ThreadSafe;
 import com.splicemachine.si.api.rollforward.RollForward;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -26,16 +23,33 @@ import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Read-Resolver which asynchronously submits regions for execution, discarding
+ * Read-Resolver which asynchronously resolves rows in batches, discarding
  * any entries which exceed the size of the processing queue.
  * <p/>
- * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
- * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * Each region has its own queue of rows to resolve, grouped by the transaction which wrote them. A row
+ * which is already queued for the same transaction is not queued again, so a region which is scanned
+ * repeatedly before its rows are resolved only resolves them once. A region's queue is drained by a single
+ * background thread at a time, which hands the rows of each transaction to the {@link KeyedReadResolver} as
+ * one batch, so that each batch becomes one write to the region. The rows that are submitted while a drain is
+ * in progress make up the next drain.
+ * <p/>
+ * The total number of rows queued across all regions is bounded by the buffer size; rows submitted while the
+ * queues are full are dropped, since they will be submitted again by the next read that sees them.
  *
  * @author Scott Fines
  *         Date: 7/1/14
@@ -43,10 +57,12 @@ import java.util.concurrent.TimeUnit;
 @ThreadSafe
 public class AsyncReadResolver{
     private static final Logger LOG=Logger.getLogger(AsyncReadResolver.class);
-    private final RingBuffer<ResolveEvent> ringBuffer;
-    private final Disruptor<ResolveEvent> disruptor;
+    /*The maximum number of rows resolved in a single write to the region*/
+    private static final int MAX_BATCH_SIZE=1024;
 
     private final ThreadPoolExecutor consumerThreads;
+    private final ConcurrentMap<String,RegionQueue> regionQueues=new ConcurrentHashMap<>();
+    private final int maxQueueSize;
     private volatile boolean stopped;
     private final TxnSupplier txnSupplier;
     private final RollForwardStatus status;
@@ -62,102 +78,172 @@ public class AsyncReadResolver{
         this.trafficControl=trafficControl;
         this.status=status;
         this.synchronousResolver = synchronousResolver;
+        this.maxQueueSize=bufferSize;
         consumerThreads=new ThreadPoolExecutor(maxThreads,maxThreads,
                 60,TimeUnit.SECONDS,
                 new LinkedBlockingQueue<Runnable>(),
                 new ThreadFactoryBuilder().setNameFormat("readResolver-%d").setDaemon(true).build());
-
-        int bSize=1;
-        while(bSize<bufferSize)
-            bSize<<=1;
-        disruptor=new Disruptor<>(new ResolveEventFactory(),bSize,consumerThreads,
-                ProducerType.MULTI,
-                new BlockingWaitStrategy()); //we want low latency here, but it might cost too much in CPU
-        disruptor.handleEventsWith(new ResolveEventHandler());
-        ringBuffer=disruptor.getRingBuffer();
     }
 
     public void start(){
-        disruptor.start();
+        consumerThreads.prestartAllCoreThreads();
     }
 
     public void shutdown(){
         stopped=true;
-        disruptor.shutdown();
         consumerThreads.shutdownNow();
+        for(RegionQueue queue : regionQueues.values()){
+            queue.discard();
+        }
+        regionQueues.clear();
+    }
+
+    public RollForwardStatus getStatus(){
+        return status;
     }
 
     @ThreadSafe
     public ReadResolver getResolver(Partition region,RollForward rollForward){
-        return new PartitionReadResolver(region,rollForward);
+        return new PartitionReadResolver(region);
     }
 
-    private static class ResolveEvent{
-        Partition region;
-        long txnId;
-        ByteSlice rowKey=new ByteSlice();
-        RollForward rollForward;
+    /* ****************************************************************************************************************/
+    /*private helper methods and classes*/
+    private RegionQueue queueFor(Partition region){
+        String name=region.getName();
+        RegionQueue queue=regionQueues.get(name);
+        if(queue==null){
+            RegionQueue newQueue=new RegionQueue(region);
+            queue=regionQueues.putIfAbsent(name,newQueue);
+            if(queue==null)
+                queue=newQueue;
+        }
+        return queue;
     }
 
-    private static class ResolveEventFactory implements EventFactory<ResolveEvent>{
+    private class RegionQueue implements Runnable{
+        private final Partition region;
+        private Map<Long,Set<ByteSlice>> pending=new LinkedHashMap<>();
+        private boolean scheduled;
+        private volatile boolean retired;
 
-        @Override
-        public ResolveEvent newInstance(){
-            return new ResolveEvent();
+        RegionQueue(Partition region){
+            this.region=region;
         }
-    }
 
-    private class ResolveEventHandler implements EventHandler<ResolveEvent>{
+        synchronized void submit(ByteSlice rowKey,long txnId){
+            if(stopped) return; //shutdown has already discarded the queue
+            Set<ByteSlice> rowKeys=pending.get(txnId);
+            if(rowKeys==null){
+                rowKeys=new HashSet<>();
+                pending.put(txnId,rowKeys);
+            }else if(rowKeys.contains(rowKey)){
+                status.readResolveDeduplicated();
+                return;
+            }
+            rowKeys.add(ByteSlice.wrap(rowKey.getByteCopy()));
+            status.readResolveQueued();
+            if(!scheduled)
+                schedule();
+        }
 
         @Override
-        public void onEvent(ResolveEvent event,long sequence,boolean endOfBatch) throws Exception{
+        public void run(){
+            Map<Long,Set<ByteSlice>> toResolve;
+            synchronized(this){
+                toResolve=pending;
+                pending=new LinkedHashMap<>();
+            }
+            for(Map.Entry<Long,Set<ByteSlice>> entry : toResolve.entrySet()){
+                resolve(entry.getKey(),entry.getValue());
+            }
+            synchronized(this){
+                //go to the back of the line, so that a busy region doesn't hold up the others
+                if(pending.isEmpty())
+                    scheduled=false;
+                else
+                    schedule();
+            }
+        }
+
+        /*takes the rows which have not been handed to a drain off the queue, without resolving them*/
+        synchronized void discard(){
+            int rows=0;
+            for(Set<ByteSlice> rowKeys : pending.values()){
+                rows+=rowKeys.size();
+            }
+            pending=new LinkedHashMap<>();
+            if(rows>0)
+                status.readResolveDiscarded(rows);
+        }
+
+        private void schedule(){
+            scheduled=true;
             try{
-                if(synchronousResolver.resolve(event.region,
-                        event.rowKey,
-                        event.txnId,
-                        txnSupplier,
-                        status,
-                        false,
-                        trafficControl)){
-//                    event.rollForward.recordResolved(event.rowKey,event.txnId);
+                consumerThreads.execute(this);
+            }catch(RejectedExecutionException ree){
+                //we've been shut down, so there's nothing to do
+                scheduled=false;
+            }
+        }
+
+        private void resolve(long txnId,Set<ByteSlice> rowKeys){
+            if(stopped || region.isClosed() || region.isClosing()){
+                retire();
+                status.readResolveDiscarded(rowKeys.size());
+                return;
+            }
+            List<ByteSlice> batch=new ArrayList<>(Math.min(rowKeys.size(),MAX_BATCH_SIZE));
+            for(ByteSlice rowKey : rowKeys){
+                batch.add(rowKey);
+                if(batch.size()==MAX_BATCH_SIZE){
+                    resolveBatch(txnId,batch);
+                    batch.clear();
                 }
+            }
+            if(!batch.isEmpty())
+                resolveBatch(txnId,batch);
+        }
+
+        private void resolveBatch(long txnId,List<ByteSlice> rowKeys){
+            int resolved=0;
+            try{
+                resolved=synchronousResolver.resolve(region,rowKeys,txnId,txnSupplier,status,false,trafficControl);
             }catch(Exception e){
                 LOG.info("Error during read resolution",e);
-                throw e;
+            }finally{
+                status.readResolveBatch(rowKeys.size(),resolved);
+            }
+        }
+
+        private void retire(){
+            if(!retired){
+                retired=true;
+                regionQueues.remove(region.getName(),this);
             }
         }
     }
 
     private class PartitionReadResolver implements ReadResolver{
         private final Partition region;
-        private final RollForward rollForward;
+        private RegionQueue queue;
 
-        public PartitionReadResolver(Partition region,RollForward rollForward){
+        public PartitionReadResolver(Partition region){
             this.region=region;
-            this.rollForward=rollForward;
         }
 
         @Override
         public void resolve(ByteSlice rowKey,long txnId){
             if(stopped) return; //we aren't running, so do nothing
-            long sequence;
-            try{
-                sequence=ringBuffer.tryNext();
-            }catch(InsufficientCapacityException e){
+            if(status.getReadResolveQueueDepth()>=maxQueueSize){
+                status.readResolveDropped();
                 if(LOG.isTraceEnabled())
                     LOG.trace("Unable to submit for read resolution");
                 return;
             }
-
-            try{
-                ResolveEvent event=ringBuffer.get(sequence);
-                event.region=region;
-                event.txnId=txnId;
-                event.rowKey.set(rowKey.getByteCopy());
-                event.rollForward=rollForward;
-            }finally{
-                ringBuffer.publish(sequence);
-            }
+            if(queue==null || queue.retired)
+                queue=queueFor(region);
+            queue.submit(rowKey,txnId);
         }
 
         @Override
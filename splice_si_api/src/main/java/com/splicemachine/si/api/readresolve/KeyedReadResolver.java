@@ -20,6 +20,8 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 
+import java.util.List;
+
 /**
  * @author Scott Fines
  *         Date: 12/21/15
@@ -32,4 +34,17 @@ public interface KeyedReadResolver{
                     RollForwardStatus status,
                     boolean failOnError,
                     TrafficControl trafficControl);
+
+    /**
+     * Resolves rows which were all written by the same transaction, writing them to the region in a single batch.
+     *
+     * @return the number of rows which were resolved
+     */
+    int resolve(Partition region,
+                List<ByteSlice> rowKeys,
+                long txnId,
+                TxnSupplier txnSupplier,
+                RollForwardStatus status,
+                boolean failOnError,
+                TrafficControl trafficControl);
 }
@@ -25,6 +25,18 @@ import java.util.List;
  */
 public interface TxnStore extends TxnSupplier{
 
+    /**
+     * The outcome of keeping a single transaction alive as part of a batch.
+     */
+    enum KeepAliveResult{
+        /** The transaction was kept alive, and should continue to be */
+        ACTIVE,
+        /** The transaction is no longer active (or is read-only), and need not be kept alive */
+        INACTIVE,
+        /** The transaction had already timed out, and must be rolled back */
+        TIMED_OUT
+    }
+
     /**
      * Write the Transaction to underlying storage.
      *
@@ -47,6 +59,16 @@ public interface TxnStore extends TxnSupplier{
 
     boolean keepAlive(long txnId) throws IOException;
 
+    /**
+     * Keep alive a batch of transactions, using as few remote calls as the storage allows.
+     *
+     * @param txnIds the ids of the transactions to keep alive
+     * @return the outcome for each transaction, in the same order as {@code txnIds}
+     * @throws IOException if the batch as a whole could not be kept alive. Transactions which
+     * have timed out are reported as {@link KeepAliveResult#TIMED_OUT} rather than by an exception.
+     */
+    KeepAliveResult[] keepAlive(long[] txnIds) throws IOException;
+
     void elevateTransaction(Txn txn,byte[] newDestinationTable) throws IOException;
 
     /**
@@ -42,6 +42,18 @@ public interface TxnSupplier {
 		 */
 		TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException;
 
+		/**
+		 * Get the transactions associated with each of {@code txnIds}, using as few remote calls
+		 * as the store allows.
+		 *
+		 * Transactions which cannot be found are returned as {@code null}, rather than by throwing
+		 * {@link TransactionMissing}.
+		 *
+		 * @param txnIds the transaction ids to fetch.
+		 * @return the transactions, in the same order as {@code txnIds}
+		 */
+		TxnView[] getTransactions(long[] txnIds) throws IOException;
+
 		/**
 		 * Determines whether this Store has the transaction in its local cache
 		 * or not.
@@ -217,6 +217,13 @@ public class SIDriver {
         return readResolver.getResolver(basePartition,getRollForward());
     }
 
+    /**
+     * @return the status of asynchronous read resolution, or {@code null} if read resolution is disabled
+     */
+    public RollForwardStatus getReadResolverStatus(){
+        return readResolver==null?null:readResolver.getStatus();
+    }
+
     public TxnLifecycleManager lifecycleManager(){
         return lifecycleManager;
     }
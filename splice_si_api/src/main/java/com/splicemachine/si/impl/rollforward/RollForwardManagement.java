@@ -27,4 +27,34 @@ public interface RollForwardManagement {
     long getTotalUpdates();
 
     long getTotalRowsToResolve();
+
+    /**
+     * @return the number of rows waiting for asynchronous read resolution
+     */
+    long getReadResolveQueueDepth();
+
+    /**
+     * @return the number of rows resolved by asynchronous read resolution
+     */
+    long getTotalReadResolvedRows();
+
+    /**
+     * @return the number of rows per second resolved by asynchronous read resolution, over the last few seconds
+     */
+    double getReadResolveRate();
+
+    /**
+     * @return the number of batched writes made by asynchronous read resolution
+     */
+    long getTotalReadResolveBatches();
+
+    /**
+     * @return the number of rows not submitted for read resolution because the queue was full
+     */
+    long getTotalReadResolveDropped();
+
+    /**
+     * @return the number of rows not submitted for read resolution because they were already queued
+     */
+    long getTotalReadResolveDeduplicated();
 }
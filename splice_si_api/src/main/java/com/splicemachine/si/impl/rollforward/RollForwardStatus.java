@@ -21,18 +21,45 @@ import java.util.concurrent.atomic.AtomicLong;
  * Date: 9/4/14
  */
 public class RollForwardStatus implements RollForwardManagement{
+    private static final long RATE_WINDOW_MS = 5000l;
+
     private final AtomicLong numUpdates = new AtomicLong(0l);
     private final AtomicLong rowsToResolve = new AtomicLong(0l);
 
+    private final AtomicLong readResolveQueueDepth = new AtomicLong(0l);
+    private final AtomicLong readResolvedRows = new AtomicLong(0l);
+    private final AtomicLong readResolveBatches = new AtomicLong(0l);
+    private final AtomicLong readResolveDropped = new AtomicLong(0l);
+    private final AtomicLong readResolveDeduplicated = new AtomicLong(0l);
+    private final AtomicLong windowResolvedRows = new AtomicLong(0l);
+    private volatile long windowStart = System.currentTimeMillis();
+    private volatile double readResolveRate;
+
     @Override public long getTotalUpdates() { return numUpdates.get(); }
     @Override public long getTotalRowsToResolve() { return  rowsToResolve.get(); }
+    @Override public long getReadResolveQueueDepth() { return readResolveQueueDepth.get(); }
+    @Override public long getTotalReadResolvedRows() { return readResolvedRows.get(); }
+    @Override public long getTotalReadResolveBatches() { return readResolveBatches.get(); }
+    @Override public long getTotalReadResolveDropped() { return readResolveDropped.get(); }
+    @Override public long getTotalReadResolveDeduplicated() { return readResolveDeduplicated.get(); }
+
+    @Override
+    public double getReadResolveRate(){
+        if(System.currentTimeMillis()-windowStart>2*RATE_WINDOW_MS)
+            return 0d; //nothing has been resolved for a while
+        return readResolveRate;
+    }
 
     public void rowResolved(){
+        rowsResolved(1);
+    }
+
+    public void rowsResolved(int numRows){
         boolean shouldContinue;
         do{
             long curr = rowsToResolve.get();
             if(curr<=0) return; //we didn't record this row, but we DID resolve it
-            shouldContinue = !rowsToResolve.compareAndSet(curr,curr-1);
+            shouldContinue = !rowsToResolve.compareAndSet(curr,Math.max(0l,curr-numRows));
         }while(shouldContinue);
     }
 
@@ -40,4 +67,48 @@ public class RollForwardStatus implements RollForwardManagement{
         rowsToResolve.incrementAndGet();
         numUpdates.incrementAndGet();
     }
+
+    public void readResolveQueued(){
+        readResolveQueueDepth.incrementAndGet();
+    }
+
+    public void readResolveDropped(){
+        readResolveDropped.incrementAndGet();
+    }
+
+    public void readResolveDeduplicated(){
+        readResolveDeduplicated.incrementAndGet();
+    }
+
+    /**
+     * Records that {@code numRows} rows have been taken off the read resolution queue, in a single batch.
+     *
+     * @param numRows the number of rows in the batch
+     * @param resolvedRows the number of those rows which were resolved
+     */
+    public void readResolveBatch(int numRows,int resolvedRows){
+        readResolveQueueDepth.addAndGet(-numRows);
+        readResolveBatches.incrementAndGet();
+        readResolvedRows.addAndGet(resolvedRows);
+        windowResolvedRows.addAndGet(resolvedRows);
+        long now = System.currentTimeMillis();
+        if(now-windowStart>=RATE_WINDOW_MS){
+            synchronized(this){
+                long elapsed = now-windowStart;
+                if(elapsed>=RATE_WINDOW_MS){
+                    readResolveRate = windowResolvedRows.getAndSet(0l)*1000d/elapsed;
+                    windowStart = now;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that {@code numRows} rows have been taken off the read resolution queue without being resolved,
+     * e.g. because their region has closed.
+     */
+    public void readResolveDiscarded(int numRows){
+        readResolveQueueDepth.addAndGet(-numRows);
+        readResolveDropped.addAndGet(numRows);
+    }
 }
@@ -0,0 +1,456 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.TaskId;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.AbstractTxnView;
+import com.splicemachine.si.impl.txn.LazyTxnView;
+import com.splicemachine.utils.ByteSlice;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A bounded cache of completed transactions, keyed by primitive transaction id.
+ * <p/>
+ * Rather than holding on to the {@link TxnView} it was given, the cache keeps only the fields that
+ * visibility and conflict checks need (begin, commit and global commit timestamps, parent id, state,
+ * isolation level, the additive and writable flags, and the task id) packed into long arrays. A hit
+ * reads the fields in place into a single small view, which decodes them (and looks the parent up
+ * through the supplier passed to {@link #get(long, TxnSupplier)}) only when they are asked for, so
+ * the cache holds no objects per entry. Destination tables and keep-alive times are not kept, since
+ * a completed transaction has no further use for them.
+ * <p/>
+ * The cache is split into lock-striped segments. Lookups are optimistic and take no lock unless
+ * they race with a write to the same segment. When a segment is full, the entry to replace is
+ * chosen with the CLOCK algorithm: a hit marks an entry as referenced, and the clock hand skips (and
+ * clears) referenced entries until it finds one which hasn't been used since it last went past.
+ * <p/>
+ * This class is thread-safe.
+ */
+class CompletedTxnCache{
+    private static final int INITIAL_SEGMENT_CAPACITY=64;
+
+    /*
+     * The layout of an entry within a segment's data array
+     */
+    private static final int TXN_ID=0;
+    private static final int BEGIN_TS=1;
+    private static final int COMMIT_TS=2;
+    private static final int GLOBAL_COMMIT_TS=3;
+    private static final int PARENT_TXN_ID=4;
+    private static final int FLAGS=5;
+    private static final int TASK_ID=6;
+    private static final int STRIDE=7;
+
+    /*
+     * The bits of the FLAGS field. The task attempt number occupies the upper 32 bits.
+     */
+    private static final long STATE_MASK=0xFFL;
+    private static final int ISOLATION_LEVEL_SHIFT=8;
+    private static final long ISOLATION_LEVEL_MASK=0xFFL;
+    private static final long ADDITIVE=1L<<16;
+    private static final long ALLOWS_WRITES=1L<<17;
+    private static final long HAS_TASK_ID=1L<<18;
+    private static final int TASK_ATTEMPT_SHIFT=32;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final AtomicLong evictions=new AtomicLong();
+
+    CompletedTxnCache(int maxSize,int concurrencyLevel){
+        int numSegments=1;
+        int shift=0;
+        while(numSegments<concurrencyLevel){
+            numSegments<<=1;
+            shift++;
+        }
+        this.segmentShift=64-shift;
+        int segmentCapacity=Math.max(1,(maxSize+numSegments-1)/numSegments);
+        this.segments=new Segment[numSegments];
+        for(int i=0;i<numSegments;i++){
+            segments[i]=new Segment(segmentCapacity);
+        }
+    }
+
+    /**
+     * @return a view of the cached transaction, or {@code null} if it is not cached
+     */
+    TxnView get(long txnId,TxnSupplier parents){
+        return segmentFor(txnId).get(txnId,parents);
+    }
+
+    boolean contains(long txnId){
+        return segmentFor(txnId).contains(txnId);
+    }
+
+    /**
+     * Caches the transaction, replacing any entry for the same transaction id.
+     */
+    void put(TxnView txn){
+        long[] entry=new long[STRIDE];
+        entry[TXN_ID]=txn.getTxnId();
+        entry[BEGIN_TS]=txn.getBeginTimestamp();
+        entry[COMMIT_TS]=txn.getCommitTimestamp();
+        entry[GLOBAL_COMMIT_TS]=txn.getGlobalCommitTimestamp();
+        TxnView parent=txn.getParentTxnView();
+        entry[PARENT_TXN_ID]=parent==null? Txn.ROOT_TRANSACTION.getTxnId() : parent.getTxnId();
+        long flags=txn.getState().getId()&STATE_MASK;
+        Txn.IsolationLevel level=txn.getIsolationLevel();
+        if(level!=null)
+            flags|=(level.encode()&ISOLATION_LEVEL_MASK)<<ISOLATION_LEVEL_SHIFT;
+        if(txn.isAdditive())
+            flags|=ADDITIVE;
+        if(txn.allowsWrites())
+            flags|=ALLOWS_WRITES;
+        TaskId taskId=txn.getTaskId();
+        if(taskId!=null){
+            flags|=HAS_TASK_ID|((long)taskId.getTaskAttemptNumber()<<TASK_ATTEMPT_SHIFT);
+            entry[TASK_ID]=((long)taskId.getStageId()<<32)|(taskId.getPartitionId()&0xFFFFFFFFL);
+        }
+        entry[FLAGS]=flags;
+        segmentFor(entry[TXN_ID]).put(entry);
+    }
+
+    int size(){
+        int size=0;
+        for(Segment segment : segments){
+            size+=segment.size();
+        }
+        return size;
+    }
+
+    int capacity(){
+        return segments.length*segments[0].maxCapacity;
+    }
+
+    long getEvictions(){
+        return evictions.get();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private Segment segmentFor(long txnId){
+        //the high bits pick the segment, and the low bits the position within it
+        return segments.length==1? segments[0] : segments[(int)(hash(txnId)>>>segmentShift)];
+    }
+
+    private static long hash(long txnId){
+        long h=txnId*0x9E3779B97F4A7C15L;
+        return h^(h>>>29);
+    }
+
+    /**
+     * One stripe of the cache. Entries live in fixed slots of {@code data}, which are found through
+     * an open-addressed {@code index} of slot numbers (offset by one, so that 0 marks an empty bucket).
+     * The index is never more than half full, so probes stay short.
+     */
+    private class Segment{
+        private final StampedLock lock=new StampedLock();
+        private final int maxCapacity;
+        private long[] data;
+        private boolean[] referenced;
+        private int[] index;
+        private int size;
+        private int hand;
+
+        Segment(int maxCapacity){
+            this.maxCapacity=maxCapacity;
+            allocate(Math.min(maxCapacity,INITIAL_SEGMENT_CAPACITY));
+        }
+
+        TxnView get(long txnId,TxnSupplier parents){
+            long stamp=lock.tryOptimisticRead();
+            if(stamp!=0L){
+                TxnView txn=read(txnId,parents);
+                if(lock.validate(stamp))
+                    return txn;
+            }
+            stamp=lock.readLock();
+            try{
+                return read(txnId,parents);
+            }finally{
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean contains(long txnId){
+            long stamp=lock.tryOptimisticRead();
+            if(stamp!=0L){
+                boolean found=find(index,data,txnId)>=0;
+                if(lock.validate(stamp))
+                    return found;
+            }
+            stamp=lock.readLock();
+            try{
+                return find(index,data,txnId)>=0;
+            }finally{
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void put(long[] entry){
+            long stamp=lock.writeLock();
+            try{
+                int slot=find(index,data,entry[TXN_ID]);
+                if(slot<0){
+                    if(size<capacity()){
+                        slot=size++;
+                    }else if(capacity()<maxCapacity){
+                        allocate(Math.min(maxCapacity,capacity()*2));
+                        slot=size++;
+                    }else{
+                        slot=evict();
+                    }
+                    insertIntoIndex(index,hash(entry[TXN_ID]),slot);
+                }
+                System.arraycopy(entry,0,data,slot*STRIDE,STRIDE);
+                referenced[slot]=false;
+            }finally{
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size(){
+            long stamp=lock.readLock();
+            try{
+                return size;
+            }finally{
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /*
+         * Reads the entry for the transaction in place, or returns null if it isn't present. May be called
+         * without holding the lock, in which case the arrays may be replaced or modified underneath us;
+         * the caller must then validate before trusting the result. The view only holds the raw fields,
+         * so a torn read can't fail here.
+         */
+        private TxnView read(long txnId,TxnSupplier parents){
+            long[] d=data;
+            boolean[] r=referenced;
+            int slot=find(index,d,txnId);
+            if(slot<0 || (slot+1)*STRIDE>d.length)
+                return null;
+            int offset=slot*STRIDE;
+            if(d[offset+TXN_ID]!=txnId)
+                return null;
+            if(slot<r.length)
+                r[slot]=true; //a racy write is fine, the bit is only a hint to the clock
+            return new CachedTxnView(txnId,d[offset+BEGIN_TS],d[offset+COMMIT_TS],d[offset+GLOBAL_COMMIT_TS],
+                    d[offset+PARENT_TXN_ID],d[offset+FLAGS],d[offset+TASK_ID],parents);
+        }
+
+        private int capacity(){
+            return referenced.length;
+        }
+
+        private int evict(){
+            while(referenced[hand]){
+                referenced[hand]=false;
+                hand=(hand+1)%capacity();
+            }
+            int victim=hand;
+            hand=(hand+1)%capacity();
+            removeFromIndex(data[victim*STRIDE+TXN_ID]);
+            evictions.incrementAndGet();
+            return victim;
+        }
+
+        private void allocate(int capacity){
+            int indexSize=Integer.highestOneBit(Math.max(2,capacity)*2-1)<<1;
+            long[] newData=new long[capacity*STRIDE];
+            boolean[] newReferenced=new boolean[capacity];
+            int[] newIndex=new int[indexSize];
+            if(data!=null){
+                System.arraycopy(data,0,newData,0,size*STRIDE);
+                System.arraycopy(referenced,0,newReferenced,0,size);
+                for(int i=0;i<size;i++){
+                    insertIntoIndex(newIndex,hash(newData[i*STRIDE+TXN_ID]),i);
+                }
+            }
+            this.data=newData;
+            this.referenced=newReferenced;
+            this.index=newIndex;
+        }
+
+        private void removeFromIndex(long txnId){
+            int[] idx=index;
+            int mask=idx.length-1;
+            int bucket=(int)hash(txnId)&mask;
+            while(idx[bucket]!=0 && data[(idx[bucket]-1)*STRIDE+TXN_ID]!=txnId){
+                bucket=(bucket+1)&mask;
+            }
+            if(idx[bucket]==0) return;
+            /*
+             * Shift back any later entries in the probe sequence which would no longer be reachable
+             * once this bucket is empty.
+             */
+            int empty=bucket;
+            int next=(empty+1)&mask;
+            while(idx[next]!=0){
+                int home=(int)hash(data[(idx[next]-1)*STRIDE+TXN_ID])&mask;
+                if(((next-home)&mask)>=((next-empty)&mask)){
+                    idx[empty]=idx[next];
+                    empty=next;
+                }
+                next=(next+1)&mask;
+            }
+            idx[empty]=0;
+        }
+    }
+
+    /**
+     * A view of a cached transaction, which decodes its packed fields as they are asked for. The parent
+     * is looked up through the supplier the first time it is needed, and the task id is only built
+     * when it is asked for.
+     */
+    private static final class CachedTxnView extends AbstractTxnView{
+        private final long commitTimestamp;
+        private final long globalCommitTimestamp;
+        private final long parentTxnId;
+        private final long flags;
+        private final long task;
+        private final TxnSupplier parents;
+        private TxnView parent;
+
+        CachedTxnView(long txnId,long beginTimestamp,long commitTimestamp,long globalCommitTimestamp,
+                      long parentTxnId,long flags,long task,TxnSupplier parents){
+            super(txnId,beginTimestamp,isolationLevel(flags));
+            this.commitTimestamp=commitTimestamp;
+            this.globalCommitTimestamp=globalCommitTimestamp;
+            this.parentTxnId=parentTxnId;
+            this.flags=flags;
+            this.task=task;
+            this.parents=parents;
+        }
+
+        @Override
+        public TxnView getParentTxnView(){
+            if(parent==null){
+                parent=parentTxnId==Txn.ROOT_TRANSACTION.getTxnId()
+                        ? Txn.ROOT_TRANSACTION
+                        : new LazyTxnView(parentTxnId,parents,null);
+            }
+            return parent;
+        }
+
+        @Override
+        public long getParentTxnId(){
+            return parentTxnId;
+        }
+
+        @Override
+        public Txn.State getState(){
+            return Txn.State.fromByte((byte)(flags&STATE_MASK));
+        }
+
+        @Override
+        public Txn.IsolationLevel getIsolationLevel(){
+            if(isolationLevel!=null) return isolationLevel;
+            return getParentTxnView().getIsolationLevel();
+        }
+
+        @Override
+        public boolean isAdditive(){
+            return (flags&ADDITIVE)!=0;
+        }
+
+        @Override
+        public boolean allowsWrites(){
+            return (flags&ALLOWS_WRITES)!=0;
+        }
+
+        @Override
+        public long getCommitTimestamp(){
+            return commitTimestamp;
+        }
+
+        @Override
+        public long getGlobalCommitTimestamp(){
+            if(getState()==Txn.State.ROLLEDBACK) return -1l;
+            if(globalCommitTimestamp==-1l) return getParentTxnView().getGlobalCommitTimestamp();
+            return globalCommitTimestamp;
+        }
+
+        @Override
+        public long getEffectiveCommitTimestamp(){
+            if(getState()==Txn.State.ROLLEDBACK) return -1l;
+            if(globalCommitTimestamp>=0) return globalCommitTimestamp;
+            TxnView parentTxn=getParentTxnView();
+            if(Txn.ROOT_TRANSACTION.equals(parentTxn)) return commitTimestamp;
+            return parentTxn.getEffectiveCommitTimestamp();
+        }
+
+        @Override
+        public Iterator<ByteSlice> getDestinationTables(){
+            return Collections.emptyIterator();
+        }
+
+        @Override
+        public TaskId getTaskId(){
+            if((flags&HAS_TASK_ID)==0) return null;
+            return new TaskId((int)(task>>>32),(int)task,(int)(flags>>>TASK_ATTEMPT_SHIFT));
+        }
+
+        private static Txn.IsolationLevel isolationLevel(long flags){
+            byte level=(byte)((flags>>>ISOLATION_LEVEL_SHIFT)&ISOLATION_LEVEL_MASK);
+            return level==0? null : Txn.IsolationLevel.fromByte(level);
+        }
+
+        @Override
+        public void readExternal(ObjectInput input) throws IOException, ClassNotFoundException{
+            throw new UnsupportedOperationException("CachedTxnView is not intended to be serialized");
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput output) throws IOException{
+            throw new UnsupportedOperationException("CachedTxnView is not intended to be serialized");
+        }
+    }
+
+    private static int find(int[] index,long[] data,long txnId){
+        int mask=index.length-1;
+        int bucket=(int)hash(txnId)&mask;
+        //bounded, in case we are racing with a writer
+        for(int i=0;i<index.length;i++){
+            int slot=index[bucket]-1;
+            if(slot<0)
+                return -1;
+            int offset=slot*STRIDE;
+            if(offset+TXN_ID<data.length && data[offset+TXN_ID]==txnId)
+                return slot;
+            bucket=(bucket+1)&mask;
+        }
+        return -1;
+    }
+
+    private static void insertIntoIndex(int[] index,long hash,int slot){
+        int mask=index.length-1;
+        int bucket=(int)hash&mask;
+        while(index[bucket]!=0){
+            bucket=(bucket+1)&mask;
+        }
+        index[bucket]=slot+1;
+    }
+}
@@ -14,7 +14,7 @@
 
 package com.splicemachine.si.impl.store;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.carrotsearch.hppc.LongArrayList;
 import com.splicemachine.si.api.txn.TaskId;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -28,22 +28,23 @@ import java.util.concurrent.atomic.AtomicLong;
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
+ * Cached transactions are held in a compact form (see {@link CompletedTxnCache}), so the views returned
+ * from the cache are rebuilt on each hit, and are not the same objects that were cached. Their parents
+ * are looked up through this supplier when they are needed.
+ * <p/>
  * This class is thread-safe, and safe to be shared between many threads.
  *
  * @author Scott Fines
  *         Date: 6/18/14
  */
 public class CompletedTxnCacheSupplier implements TxnSupplier{
-    private ConcurrentLinkedHashMap<Long, TxnView> cache; // autobox for now
+    private final CompletedTxnCache cache;
     private final TxnSupplier delegate;
     private final AtomicLong hits=new AtomicLong();
     private final AtomicLong requests=new AtomicLong();
 
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
-        cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
-                .maximumWeightedCapacity(maxSize)
-                .concurrencyLevel(concurrencyLevel)
-                .build();
+        this.cache=new CompletedTxnCache(maxSize,concurrencyLevel);
         this.delegate=delegate;
     }
 
@@ -64,7 +65,7 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         if(txnId==-1)
             return Txn.ROOT_TRANSACTION;
         requests.incrementAndGet();
-        TxnView txn=cache.get(txnId); // autobox until Cliff C merge
+        TxnView txn=cache.get(txnId,this);
         if(txn!=null){
             hits.incrementAndGet();
             return txn;
@@ -77,26 +78,73 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         switch(transaction.getEffectiveState()){
             case COMMITTED:
             case ROLLEDBACK:
-                cache.put(transaction.getTxnId(),transaction); // Cache for Future Use
+                cache.put(transaction); // Cache for Future Use
         }
         return transaction;
     }
 
+    @Override
+    @SuppressFBWarnings("SF_SWITCH_NO_DEFAULT") //intentional
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        LongArrayList missing=null;
+        for(int i=0;i<txnIds.length;i++){
+            long txnId=txnIds[i];
+            if(txnId==-1){
+                txns[i]=Txn.ROOT_TRANSACTION;
+                continue;
+            }
+            requests.incrementAndGet();
+            txns[i]=cache.get(txnId,this);
+            if(txns[i]!=null)
+                hits.incrementAndGet();
+            else{
+                if(missing==null) missing=new LongArrayList(txnIds.length-i);
+                missing.add(txnId);
+            }
+        }
+        if(missing==null) return txns;
+
+        TxnView[] fetched=delegate.getTransactions(missing.toArray());
+        int f=0;
+        for(int i=0;i<txnIds.length;i++){
+            if(txns[i]!=null) continue;
+            TxnView transaction=fetched[f++];
+            txns[i]=transaction;
+            if(transaction==null) continue; //don't cache read-only transactions
+
+            switch(transaction.getEffectiveState()){
+                case COMMITTED:
+                case ROLLEDBACK:
+                    cache.put(transaction); // Cache for Future Use
+            }
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId){
-        return cache.get(txnId)!=null;
+        return cache.contains(txnId);
     }
 
     @Override
+    @SuppressFBWarnings("SF_SWITCH_NO_DEFAULT") //intentional
     public void cache(TxnView toCache){
-        if(toCache.getState()==Txn.State.ACTIVE) return; //cannot cache incomplete transactions
-        cache.put(toCache.getTxnId(),toCache);
+        /*
+         * A child which has committed is still incomplete while its parent is active, since the
+         * parent may yet roll back, so go by the effective state rather than the child's own
+         */
+        switch(toCache.getEffectiveState()){
+            case COMMITTED:
+            case ROLLEDBACK:
+                cache.put(toCache);
+        }
     }
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
         requests.incrementAndGet();
-        TxnView txn=cache.get(txnId);
+        TxnView txn=cache.get(txnId,this);
         if(txn!=null)
             hits.incrementAndGet();
         return txn;
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.api.readresolve;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.impl.rollforward.RollForwardStatus;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.ByteSlice;
+import com.splicemachine.utils.GreenLight;
+import com.splicemachine.utils.TrafficControl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class AsyncReadResolverTest{
+    private final RollForwardStatus status=new RollForwardStatus();
+    private final RecordingResolver keyedResolver=new RecordingResolver();
+    private AsyncReadResolver asyncResolver;
+
+    @After
+    public void tearDown(){
+        keyedResolver.gate.countDown();
+        if(asyncResolver!=null)
+            asyncResolver.shutdown();
+    }
+
+    @Test
+    public void resolvesQueuedRowsOnceInOneBatchPerTransaction() throws Exception{
+        ReadResolver resolver=start(1024).getResolver(region(false),null);
+
+        resolver.resolve(row(0),0x100l);
+        Assert.assertTrue("first batch never started",keyedResolver.entered.await(10,TimeUnit.SECONDS));
+        //these queue up behind the first batch
+        for(int i=0;i<10;i++){
+            resolver.resolve(row(i),0x200l);
+        }
+        for(int i=0;i<5;i++){
+            resolver.resolve(row(i),0x300l);
+            resolver.resolve(row(i),0x300l);
+        }
+        Assert.assertEquals(16l,status.getReadResolveQueueDepth());
+        keyedResolver.gate.countDown();
+        awaitEmptyQueue();
+
+        Assert.assertEquals(3,keyedResolver.batches.size());
+        Assert.assertEquals(1,keyedResolver.batches.get(0).size());
+        Assert.assertEquals(10,keyedResolver.batches.get(1).size());
+        Assert.assertEquals(5,keyedResolver.batches.get(2).size());
+        Assert.assertEquals(Collections.singletonList(0x100l),keyedResolver.txnIds.subList(0,1));
+        Assert.assertEquals(16l,status.getTotalReadResolvedRows());
+        Assert.assertEquals(3l,status.getTotalReadResolveBatches());
+        Assert.assertEquals(5l,status.getTotalReadResolveDeduplicated());
+        Assert.assertEquals(0l,status.getTotalReadResolveDropped());
+    }
+
+    @Test
+    public void dropsRowsWhenTheQueueIsFull() throws Exception{
+        ReadResolver resolver=start(4).getResolver(region(false),null);
+
+        resolver.resolve(row(0),0x100l);
+        Assert.assertTrue("first batch never started",keyedResolver.entered.await(10,TimeUnit.SECONDS));
+        for(int i=0;i<10;i++){
+            resolver.resolve(row(i),0x200l);
+        }
+        Assert.assertEquals(4l,status.getReadResolveQueueDepth());
+        Assert.assertEquals(7l,status.getTotalReadResolveDropped());
+        keyedResolver.gate.countDown();
+        awaitEmptyQueue();
+
+        Assert.assertEquals(4l,status.getTotalReadResolvedRows());
+    }
+
+    @Test
+    public void discardsRowsOfAClosedRegion() throws Exception{
+        ReadResolver resolver=start(1024).getResolver(region(true),null);
+        keyedResolver.gate.countDown();
+
+        resolver.resolve(row(0),0x100l);
+        resolver.resolve(row(1),0x100l);
+        awaitEmptyQueue();
+
+        Assert.assertTrue(keyedResolver.batches.isEmpty());
+        Assert.assertEquals(2l,status.getTotalReadResolveDropped());
+        Assert.assertEquals(0l,status.getTotalReadResolvedRows());
+    }
+
+    @Test
+    public void shutdownEmptiesTheQueue() throws Exception{
+        ReadResolver resolver=start(4).getResolver(region(false),null);
+
+        resolver.resolve(row(0),0x100l);
+        Assert.assertTrue("first batch never started",keyedResolver.entered.await(10,TimeUnit.SECONDS));
+        for(int i=0;i<3;i++){
+            resolver.resolve(row(i),0x200l);
+        }
+        Assert.assertEquals(4l,status.getReadResolveQueueDepth());
+
+        asyncResolver.shutdown();
+        awaitEmptyQueue();
+        Assert.assertEquals(0l,status.getTotalReadResolvedRows());
+        Assert.assertEquals(3l,status.getTotalReadResolveDropped());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private AsyncReadResolver start(int bufferSize){
+        asyncResolver=new AsyncReadResolver(1,bufferSize,null,status,GreenLight.INSTANCE,keyedResolver);
+        asyncResolver.start();
+        return asyncResolver;
+    }
+
+    private void awaitEmptyQueue() throws InterruptedException{
+        long end=System.currentTimeMillis()+10000;
+        while(status.getReadResolveQueueDepth()>0 && System.currentTimeMillis()<end){
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("Rows were not resolved",0l,status.getReadResolveQueueDepth());
+    }
+
+    private static Partition region(boolean closed){
+        Partition region=mock(Partition.class);
+        when(region.getName()).thenReturn(closed?"closedRegion":"region");
+        when(region.isClosed()).thenReturn(closed);
+        return region;
+    }
+
+    private static ByteSlice row(int i){
+        //reuse the same slice, as the transactional filter does
+        ROW.set(Bytes.toBytes(i));
+        return ROW;
+    }
+
+    private static final ByteSlice ROW=new ByteSlice();
+
+    private static class RecordingResolver implements KeyedReadResolver{
+        private final CountDownLatch entered=new CountDownLatch(1);
+        private final CountDownLatch gate=new CountDownLatch(1);
+        private final List<List<ByteSlice>> batches=Collections.synchronizedList(new ArrayList<List<ByteSlice>>());
+        private final List<Long> txnIds=Collections.synchronizedList(new ArrayList<Long>());
+
+        @Override
+        public boolean resolve(Partition region,ByteSlice rowKey,long txnId,TxnSupplier txnSupplier,
+                               RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+            throw new UnsupportedOperationException("rows should be resolved in batches");
+        }
+
+        @Override
+        public int resolve(Partition region,List<ByteSlice> rowKeys,long txnId,TxnSupplier txnSupplier,
+                           RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+            entered.countDown();
+            try{
+                gate.await();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+            batches.add(new ArrayList<>(rowKeys));
+            txnIds.add(txnId);
+            return rowKeys.size();
+        }
+    }
+}
@@ -16,6 +16,7 @@ package com.splicemachine.si.impl.store;
 
 import com.splicemachine.concurrent.IncrementingClock;
 import com.splicemachine.si.api.txn.*;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
 import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Assert;
@@ -159,4 +160,26 @@ public class CompletedTxnCacheSupplierTest{
         TxnView fromCache=store.getTransaction(txn.getTxnId());
         assertTxnsMatch("Transaction from store is not correct!",txn,fromCache);
     }
+
+    @Test
+    public void testDoesNotCacheCommittedChildOfActiveParent() throws Exception{
+        TxnStore backStore=new TestingTxnStore(new IncrementingClock(),new TestingTimestampSource(),null,Long.MAX_VALUE);
+        TxnSupplier store=new CompletedTxnCacheSupplier(backStore,10,16);
+
+        TxnView parent=new InheritingTxnView(Txn.ROOT_TRANSACTION,0x100l,0x100l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                true,false,true,true,-1l,-1l,Txn.State.ACTIVE);
+        TxnView child=new InheritingTxnView(parent,0x101l,0x101l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                true,false,true,true,0x200l,-1l,Txn.State.COMMITTED);
+        store.cache(child);
+        Assert.assertFalse("Child of an active parent should not be cached",store.transactionCached(child.getTxnId()));
+
+        TxnView rolledBackParent=new InheritingTxnView(Txn.ROOT_TRANSACTION,0x102l,0x102l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                true,false,true,true,-1l,-1l,Txn.State.ROLLEDBACK);
+        TxnView orphan=new InheritingTxnView(rolledBackParent,0x103l,0x103l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                true,false,true,true,0x200l,-1l,Txn.State.COMMITTED);
+        store.cache(rolledBackParent);
+        store.cache(orphan);
+        Assert.assertTrue("Child of a rolled back parent is complete",store.transactionCached(orphan.getTxnId()));
+        Assert.assertEquals(Txn.State.ROLLEDBACK,store.getTransactionFromCache(orphan.getTxnId()).getEffectiveState());
+    }
 }
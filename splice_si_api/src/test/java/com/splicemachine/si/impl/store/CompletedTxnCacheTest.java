@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.TaskId;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.utils.ByteSlice;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Category(ArchitectureIndependent.class)
+public class CompletedTxnCacheTest{
+
+    @Test
+    public void testRoundTripsCommittedChild() throws Exception{
+        final CompletedTxnCache cache=new CompletedTxnCache(16,1);
+        TxnSupplier parents=supplierOf(cache);
+        TxnView parent=new InheritingTxnView(Txn.ROOT_TRANSACTION,0x100l,0x100l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                true,false,true,true,0x300l,0x300l,Txn.State.COMMITTED);
+        TxnView child=new InheritingTxnView(parent,0x101l,0x101l,Txn.IsolationLevel.READ_COMMITTED,
+                true,true,true,true,0x200l,-1l,Txn.State.COMMITTED,
+                Collections.<ByteSlice>emptyIterator(),-1l,new TaskId(3,7,1));
+        cache.put(parent);
+        cache.put(child);
+
+        TxnView cached=cache.get(0x101l,parents);
+        Assert.assertNotNull("Child should be cached",cached);
+        Assert.assertEquals(0x101l,cached.getTxnId());
+        Assert.assertEquals(0x101l,cached.getBeginTimestamp());
+        Assert.assertEquals(0x200l,cached.getCommitTimestamp());
+        Assert.assertEquals(Txn.State.COMMITTED,cached.getState());
+        Assert.assertEquals(Txn.IsolationLevel.READ_COMMITTED,cached.getIsolationLevel());
+        Assert.assertTrue(cached.isAdditive());
+        Assert.assertTrue(cached.allowsWrites());
+        Assert.assertEquals(0x100l,cached.getParentTxnId());
+        Assert.assertEquals("Effective commit timestamp should come from the parent",0x300l,cached.getEffectiveCommitTimestamp());
+        Assert.assertEquals(0x100l,cached.getEffectiveBeginTimestamp());
+        Assert.assertEquals(Txn.State.COMMITTED,cached.getEffectiveState());
+        TaskId taskId=cached.getTaskId();
+        Assert.assertNotNull(taskId);
+        Assert.assertEquals(3,taskId.getStageId());
+        Assert.assertEquals(7,taskId.getPartitionId());
+        Assert.assertEquals(1,taskId.getTaskAttemptNumber());
+    }
+
+    @Test
+    public void testHitsOnlyAllocateTheView() throws Exception{
+        Assume.assumeTrue("Per-thread allocation counts are not available",
+                ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads=(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Per-thread allocation counts are not enabled",threads.isThreadAllocatedMemoryEnabled());
+
+        CompletedTxnCache cache=new CompletedTxnCache(16,1);
+        TxnSupplier parents=supplierOf(cache);
+        cache.put(new InheritingTxnView(Txn.ROOT_TRANSACTION,0x100l,0x100l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                true,false,true,true,0x200l,-1l,Txn.State.COMMITTED,
+                Collections.<ByteSlice>emptyIterator(),-1l,new TaskId(3,7,1)));
+        int hits=100000;
+        long commitTs=0l;
+        for(int i=0;i<hits;i++){
+            commitTs+=cache.get(0x100l,parents).getCommitTimestamp(); //warm up
+        }
+        long thread=Thread.currentThread().getId();
+        long before=threads.getThreadAllocatedBytes(thread);
+        for(int i=0;i<hits;i++){
+            commitTs+=cache.get(0x100l,parents).getCommitTimestamp();
+        }
+        long perHit=(threads.getThreadAllocatedBytes(thread)-before)/hits;
+        Assert.assertEquals(2*hits*0x200l,commitTs);
+        /*
+         * A view is under 100 bytes; copying the entry out, or building its task id and a separate
+         * parent view, would take well over that
+         */
+        Assert.assertTrue("A hit allocated "+perHit+" bytes",perHit<=100);
+    }
+
+    @Test
+    public void testLooksUpParentWhenNeeded() throws Exception{
+        final CompletedTxnCache cache=new CompletedTxnCache(16,1);
+        AtomicInteger lookups=new AtomicInteger();
+        TxnSupplier parents=supplierOf(cache,lookups);
+        TxnView parent=new CommittedTxn(0x100l,0x300l);
+        cache.put(parent);
+        cache.put(new InheritingTxnView(parent,0x101l,0x101l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                true,false,true,true,0x200l,-1l,Txn.State.COMMITTED));
+
+        TxnView child=cache.get(0x101l,parents);
+        Assert.assertEquals(0x100l,child.getParentTxnId());
+        Assert.assertEquals("The parent should not be looked up until it is needed",0,lookups.get());
+        Assert.assertEquals(Txn.State.COMMITTED,child.getEffectiveState());
+        Assert.assertEquals(1,lookups.get());
+    }
+
+    @Test
+    public void testRootParentIsRootTransaction() throws Exception{
+        CompletedTxnCache cache=new CompletedTxnCache(16,1);
+        TxnSupplier parents=supplierOf(cache);
+        cache.put(new RolledBackTxn(0x200l));
+
+        TxnView cached=cache.get(0x200l,parents);
+        Assert.assertNotNull(cached);
+        Assert.assertSame(Txn.ROOT_TRANSACTION,cached.getParentTxnView());
+        Assert.assertEquals(Txn.State.ROLLEDBACK,cached.getEffectiveState());
+        Assert.assertNull(cached.getTaskId());
+        Assert.assertNull("Missing transactions should not be returned",cache.get(0x300l,parents));
+    }
+
+    @Test
+    public void testReplacesExistingEntry() throws Exception{
+        CompletedTxnCache cache=new CompletedTxnCache(16,1);
+        TxnSupplier parents=supplierOf(cache);
+        cache.put(new CommittedTxn(0x100l,0x200l));
+        cache.put(new CommittedTxn(0x100l,0x300l));
+
+        Assert.assertEquals(1,cache.size());
+        Assert.assertEquals(0x300l,cache.get(0x100l,parents).getCommitTimestamp());
+    }
+
+    @Test
+    public void testClockEvictsUnreferencedEntries() throws Exception{
+        CompletedTxnCache cache=new CompletedTxnCache(4,1);
+        TxnSupplier parents=supplierOf(cache);
+        for(long i=1;i<=4;i++){
+            cache.put(new CommittedTxn(i,i+100));
+        }
+        Assert.assertNotNull(cache.get(1l,parents));
+
+        cache.put(new CommittedTxn(5l,105l));
+        Assert.assertEquals(4,cache.size());
+        Assert.assertEquals(1l,cache.getEvictions());
+        Assert.assertTrue("Recently used entry should have been kept",cache.contains(1l));
+        Assert.assertFalse("Unused entry should have been evicted",cache.contains(2l));
+        for(long i=3;i<=5;i++){
+            Assert.assertEquals(i+100,cache.get(i,parents).getCommitTimestamp());
+        }
+    }
+
+    @Test
+    public void testDoesNotExceedCapacity() throws Exception{
+        CompletedTxnCache cache=new CompletedTxnCache(1000,8);
+        TxnSupplier parents=supplierOf(cache);
+        for(long i=1;i<=10000;i++){
+            cache.put(new CommittedTxn(i,i+1));
+        }
+        Assert.assertTrue("Cache has grown past its capacity: "+cache.size(),cache.size()<=cache.capacity());
+        for(long i=1;i<=10000;i++){
+            TxnView txn=cache.get(i,parents);
+            if(txn!=null)
+                Assert.assertEquals(i+1,txn.getCommitTimestamp());
+        }
+    }
+
+    @Test
+    public void testConcurrentReadersSeeConsistentEntries() throws Exception{
+        final CompletedTxnCache cache=new CompletedTxnCache(512,4);
+        final TxnSupplier parents=supplierOf(cache);
+        final AtomicReference<Throwable> error=new AtomicReference<>();
+        Thread[] threads=new Thread[8];
+        for(int t=0;t<threads.length;t++){
+            final boolean writer=t%2==0;
+            threads[t]=new Thread(new Runnable(){
+                @Override
+                public void run(){
+                    try{
+                        ThreadLocalRandom random=ThreadLocalRandom.current();
+                        for(int i=0;i<100000;i++){
+                            long txnId=1+random.nextInt(4096);
+                            if(writer)
+                                cache.put(new CommittedTxn(txnId,2*txnId));
+                            else{
+                                TxnView txn=cache.get(txnId,parents);
+                                if(txn!=null){
+                                    Assert.assertEquals(txnId,txn.getTxnId());
+                                    Assert.assertEquals(2*txnId,txn.getCommitTimestamp());
+                                }
+                            }
+                        }
+                    }catch(Throwable e){
+                        error.compareAndSet(null,e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+        if(error.get()!=null)
+            throw new AssertionError(error.get());
+    }
+
+    private static TxnSupplier supplierOf(CompletedTxnCache cache){
+        return supplierOf(cache,new AtomicInteger());
+    }
+
+    private static TxnSupplier supplierOf(final CompletedTxnCache cache,final AtomicInteger lookups){
+        return new TxnSupplier(){
+            @Override
+            public TxnView getTransaction(long txnId) throws IOException{
+                return getTransaction(txnId,false);
+            }
+
+            @Override
+            public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+                if(txnId==-1) return Txn.ROOT_TRANSACTION;
+                lookups.incrementAndGet();
+                return cache.get(txnId,this);
+            }
+
+            @Override
+            public TxnView[] getTransactions(long[] txnIds) throws IOException{
+                TxnView[] txns=new TxnView[txnIds.length];
+                for(int i=0;i<txnIds.length;i++){
+                    txns[i]=getTransaction(txnIds[i]);
+                }
+                return txns;
+            }
+
+            @Override
+            public boolean transactionCached(long txnId){
+                return cache.contains(txnId);
+            }
+
+            @Override
+            public void cache(TxnView toCache){
+                cache.put(toCache);
+            }
+
+            @Override
+            public TxnView getTransactionFromCache(long txnId){
+                return cache.get(txnId,this);
+            }
+
+            @Override
+            public TaskId getTaskId(long txnId) throws IOException{
+                return null;
+            }
+        };
+    }
+}
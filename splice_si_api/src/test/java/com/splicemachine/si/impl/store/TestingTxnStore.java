@@ -73,6 +73,15 @@ public class TestingTxnStore implements TxnStore{
         else return txn.txn;
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
+
     @Override
     public Txn getTransaction(long txnId,boolean getDestinationTables) throws IOException{
         return getTransaction(txnId);
@@ -256,6 +265,23 @@ public class TestingTxnStore implements TxnStore{
         return true;
     }
 
+    @Override
+    public KeepAliveResult[] keepAlive(long[] txnIds) throws IOException{
+        KeepAliveResult[] results=new KeepAliveResult[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            TxnHolder holder=txnMap.get(txnIds[i]);
+            if(holder==null || holder.txn.getState()!=Txn.State.ACTIVE)
+                results[i]=KeepAliveResult.INACTIVE;
+            else if(isTimedOut(holder))
+                results[i]=KeepAliveResult.TIMED_OUT;
+            else{
+                holder.keepAliveTs=clock.currentTimeMillis();
+                results[i]=KeepAliveResult.ACTIVE;
+            }
+        }
+        return results;
+    }
+
     //		@Override
     public void timeout(long txnId) throws IOException{
         rollback(txnId);
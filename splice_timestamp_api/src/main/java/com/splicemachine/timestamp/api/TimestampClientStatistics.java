@@ -29,5 +29,26 @@ public interface TimestampClientStatistics{
 	long getNumberTimestampRequests();
 	
  	double getAvgTimestampRequestDuration();
+
+	/**
+	 * @return the number of batched requests sent to the server. Each batch fetches
+	 * the timestamps for all of the callers which were waiting when it was sent.
+	 */
+	long getNumberTimestampBatches();
+
+	/**
+	 * @return the average number of timestamps fetched by each batched request.
+	 */
+	double getAvgTimestampBatchSize();
+
+	/**
+	 * @return the median duration of a request for a timestamp, in microseconds (within a factor of two).
+	 */
+	long getTimestampRequestDurationP50Micros();
+
+	/**
+	 * @return the 99th percentile duration of a request for a timestamp, in microseconds (within a factor of two).
+	 */
+	long getTimestampRequestDurationP99Micros();
 	
 }
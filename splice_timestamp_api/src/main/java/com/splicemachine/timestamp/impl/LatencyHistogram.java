@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, bucketed by powers of two of microseconds.
+ *
+ * Percentiles are reported as the upper bound of the bucket they fall in, so are accurate to within
+ * a factor of two, which is plenty to tell a healthy timestamp server from a struggling one.
+ */
+class LatencyHistogram {
+    private static final int BUCKETS = 40; // up to 2^39 us, about 6 days
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long latencyNanos) {
+        long micros = Math.max(1L, latencyNanos / 1000L);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+        counts.incrementAndGet(bucket);
+    }
+
+    /**
+     * @return the latency (in microseconds) under which {@code percentile} of the recorded latencies fall,
+     * or 0 if nothing has been recorded
+     */
+    long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0L)
+            return 0L;
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return 1L << i;
+        }
+        return 1L << (BUCKETS - 1);
+    }
+}
@@ -16,6 +16,8 @@ package com.splicemachine.timestamp.impl;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -48,6 +50,12 @@ import org.apache.log4j.Logger;
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
+ * If batching is enabled, and the server supports it, callers which arrive while
+ * a request is already in flight wait for the next batch, and each batch asks the
+ * server for a range of timestamps, one for every caller in it. At most
+ * {@link #MAX_BATCHES_IN_FLIGHT} batches are outstanding at a time, so the more
+ * callers arrive while the server is busy, the bigger the batches get.
+ * <p>
  * This class should generally not be constructed directly.
  *
  * @author Walt Koetke
@@ -64,6 +72,9 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
      */
     private static final int FIXED_MSG_RECEIVED_LENGTH = 10; // 2 byte client id + 8 byte timestamp
 
+    static final int MAX_BATCH_SIZE = 1024;
+    static final int MAX_BATCHES_IN_FLIGHT = 2;
+
     private enum State {
         DISCONNECTED, CONNECTING, CONNECTED, SHUTDOWN
     }
@@ -97,12 +108,38 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
     private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private AtomicLong numBatches = new AtomicLong(0);
+    private AtomicLong numBatchedTimestamps = new AtomicLong(0);
+    private final LatencyHistogram requestDurations = new LatencyHistogram();
     private TimestampHostProvider timestampHostProvider;
 
+    private final boolean batchRequests;
+    private final Object handshakeLock = new Object();
+    /**
+     * The channel whose protocol has been negotiated, and whether it is using batched requests.
+     */
+    private volatile Channel negotiatedChannel;
+    private volatile boolean batching;
+    /**
+     * Callers waiting for the next batch to be sent.
+     */
+    private final ConcurrentLinkedQueue<ClientCallback> waitingCallers = new ConcurrentLinkedQueue<>();
+    /**
+     * The callers of each batch which has been sent, by batch id.
+     */
+    private final ConcurrentMap<Short, List<ClientCallback>> batches = new ConcurrentHashMap<>();
+    private final AtomicInteger batchCounter = new AtomicInteger(CLIENT_COUNTER_INIT);
+    private final AtomicInteger batchesInFlight = new AtomicInteger(0);
+
 
     public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider) {
+        this(timeoutMillis, timestampHostProvider, false);
+    }
+
+    public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider,boolean batchRequests) {
         this.timeoutMillis = timeoutMillis;
         this.timestampHostProvider = timestampHostProvider;
+        this.batchRequests = batchRequests;
         clientCallbacks = new ConcurrentHashMap<>();
         
         ExecutorService workerExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("timestampClient-worker-%d").setDaemon(true).build());
@@ -232,9 +269,26 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
         // Measure duration of full client request for JMX
         long requestStartTime = System.currentTimeMillis();
+        long requestStartNanos = System.nanoTime();
 
         connectIfNeeded();
 
+        long timestamp;
+        if (batchRequests && negotiateBatching()) {
+            timestamp = getNextBatchedTimestamp();
+        } else {
+            timestamp = getNextSingleTimestamp();
+        }
+
+        // Since request was successful, update JMX metrics
+        numRequests.incrementAndGet();
+        totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
+        requestDurations.record(System.nanoTime() - requestStartNanos);
+
+        return timestamp;
+    }
+
+    private long getNextSingleTimestamp() throws TimestampIOException {
         short clientCallId = (short) clientCallCounter.getAndIncrement();
         final ClientCallback callback = new ClientCallback(clientCallId);
         SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
@@ -302,25 +356,187 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
         SpliceLogUtils.debug(LOG, "Client call complete: %s", callback);
 
-        // Since request was successful, update JMX metrics
-        numRequests.incrementAndGet();
-        totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
+        return timestamp;
+    }
+
+    private long getNextBatchedTimestamp() throws TimestampIOException {
+        ClientCallback callback = new ClientCallback((short) 0);
+        waitingCallers.add(callback);
+        sendBatches();
 
+        try {
+            boolean success = callback.await(timeoutMillis);
+            if (!success) {
+                waitingCallers.remove(callback);
+                // We timed out, close the channel so that the next request recreates the connection
+                Channel c = channel;
+                if (c != null) {
+                    c.close();
+                }
+                doClientErrorThrow(LOG, "Client timed out after %s ms waiting for new timestamp: %s", null, timeoutMillis, callback);
+            }
+        } catch (InterruptedException e) {
+            waitingCallers.remove(callback);
+            doClientErrorThrow(LOG, "Interrupted waiting for timestamp client: %s", e, callback);
+        }
+
+        long timestamp = callback.getNewTimestamp();
+        if (timestamp < 0) {
+            doClientErrorThrow(LOG, "Invalid timestamp found for client: %s", callback.getException(), callback);
+        }
         return timestamp;
     }
 
+    /**
+     * Sends the waiting callers to the server in as few batches as we can, as long as there is room
+     * for more batches in flight. When there isn't, the response to a batch in flight will send them.
+     */
+    private void sendBatches() {
+        while (!waitingCallers.isEmpty()) {
+            if (batchesInFlight.incrementAndGet() > MAX_BATCHES_IN_FLIGHT) {
+                batchesInFlight.decrementAndGet();
+                // a batch may have completed meanwhile and, seeing our increment, left the waiting callers to us
+                if (batchesInFlight.get() < MAX_BATCHES_IN_FLIGHT)
+                    continue;
+                return;
+            }
+            List<ClientCallback> callers = new ArrayList<>();
+            ClientCallback next;
+            while (callers.size() < MAX_BATCH_SIZE && (next = waitingCallers.poll()) != null) {
+                callers.add(next);
+            }
+            if (callers.isEmpty()) {
+                batchesInFlight.decrementAndGet();
+                continue;
+            }
+            sendBatch(callers);
+        }
+    }
+
+    private void sendBatch(List<ClientCallback> callers) {
+        final short batchId = (short) batchCounter.getAndIncrement();
+        batches.put(batchId, callers);
+
+        Channel c = channel;
+        if (c == null || c != negotiatedChannel || !batching) {
+            // the connection was replaced since we negotiated batching, so the callers need to start over
+            failBatch(batchId, new TimestampIOException("Connection to TimestampServer was reset"));
+            return;
+        }
+        ChannelBuffer buffer = ChannelBuffers.buffer(TimestampServer.BATCH_MSG_RECEIVED_LENGTH);
+        buffer.writeShort(batchId);
+        buffer.writeShort(callers.size());
+        SpliceLogUtils.trace(LOG, "Writing request for %s timestamps to server for batch %s", callers.size(), batchId);
+        try {
+            c.write(buffer).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (!future.isSuccess()) {
+                        LOG.error("Error writing batch of timestamp requests to server", future.getCause());
+                        failBatch(batchId, new TimestampIOException("Error writing batch of timestamp requests to server", future.getCause()));
+                        sendBatches();
+                    }
+                }
+            });
+        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can release the callers
+            failBatch(batchId, e);
+        }
+    }
+
+    private void failBatch(short batchId, Exception e) {
+        List<ClientCallback> callers = batches.remove(batchId);
+        if (callers == null)
+            return; // already completed or failed
+        batchesInFlight.decrementAndGet();
+        for (ClientCallback callback : callers) {
+            callback.error(e);
+        }
+    }
+
+    private void failPendingBatches(Exception e) {
+        for (Short batchId : batches.keySet()) {
+            failBatch(batchId, e);
+        }
+    }
+
+    /**
+     * Makes sure the server has been asked whether it supports batched requests on the current
+     * connection.
+     *
+     * @return true if the current connection is using batched requests
+     */
+    private boolean negotiateBatching() throws TimestampIOException {
+        Channel c = channel;
+        if (c != null && c == negotiatedChannel)
+            return batching;
+        synchronized (handshakeLock) {
+            c = channel;
+            if (c == null) {
+                throw new TimestampIOException("Unable to connect to TimestampServer");
+            }
+            if (c != negotiatedChannel) {
+                batching = handshake(c);
+                negotiatedChannel = c;
+            }
+            return batching;
+        }
+    }
+
+    private boolean handshake(Channel c) throws TimestampIOException {
+        ClientCallback request = new ClientCallback(TimestampServer.BATCH_HANDSHAKE_REQUEST);
+        ClientCallback confirm = new ClientCallback(TimestampServer.BATCH_HANDSHAKE_CONFIRM);
+        clientCallbacks.put(TimestampServer.BATCH_HANDSHAKE_REQUEST, request);
+        clientCallbacks.put(TimestampServer.BATCH_HANDSHAKE_CONFIRM, confirm);
+        try {
+            ChannelBuffer buffer = ChannelBuffers.buffer(2 * TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+            buffer.writeShort(TimestampServer.BATCH_HANDSHAKE_REQUEST);
+            buffer.writeShort(TimestampServer.BATCH_HANDSHAKE_CONFIRM);
+            c.write(buffer);
+
+            if (!request.await(timeoutMillis) || request.getException() != null) {
+                c.close();
+                doClientErrorThrow(LOG, "Client timed out after %s ms negotiating batched requests with TimestampServer", request.getException(), timeoutMillis);
+            }
+            if (request.getNewTimestamp() < 0) {
+                SpliceLogUtils.info(LOG, "Using batched timestamp requests (protocol version %s)", -request.getNewTimestamp());
+                return true;
+            }
+            // An older server, which took the handshake as two requests for timestamps. Wait for it to answer
+            // the second one as well, so that its id is free again.
+            confirm.await(timeoutMillis);
+            LOG.info("TimestampServer does not support batched requests, requesting timestamps one at a time");
+            return false;
+        } catch (InterruptedException e) {
+            doClientErrorThrow(LOG, "Interrupted negotiating batched requests with TimestampServer", e);
+            return false;
+        } finally {
+            clientCallbacks.remove(TimestampServer.BATCH_HANDSHAKE_REQUEST);
+            clientCallbacks.remove(TimestampServer.BATCH_HANDSHAKE_CONFIRM);
+        }
+    }
+
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
         assert (buf != null);
+        if (buf.readableBytes() == TimestampServer.BATCH_MSG_SENT_LENGTH) {
+            batchReceived(buf);
+            super.messageReceived(ctx, e);
+            return;
+        }
         ensureReadableBytes(buf, FIXED_MSG_RECEIVED_LENGTH);
 
         short clientCallerId = buf.readShort();
         ensureReadableBytes(buf, 8);
 
         long timestamp = buf.readLong();
-        assert (timestamp > 0);
         ensureReadableBytes(buf, 0);
+        if (clientCallerId == TimestampServer.BATCH_HANDSHAKE_REQUEST && timestamp < 0) {
+            // The server accepted batched requests, and won't send anything more until we do
+            ctx.getPipeline().replace("decoder", "decoder", new FixedLengthFrameDecoder(TimestampServer.BATCH_MSG_SENT_LENGTH));
+        } else {
+            assert (timestamp > 0);
+        }
 
         SpliceLogUtils.debug(LOG, "Response from server: clientCallerId = %s, timestamp = %s", clientCallerId, timestamp);
         Callback cb = clientCallbacks.remove(clientCallerId);
@@ -336,6 +552,34 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         super.messageReceived(ctx, e);
     }
 
+    private void batchReceived(ChannelBuffer buf) throws TimestampIOException {
+        short batchId = buf.readShort();
+        long firstTimestamp = buf.readLong();
+        short count = buf.readShort();
+        assert (firstTimestamp > 0);
+
+        SpliceLogUtils.debug(LOG, "Response from server: batchId = %s, count = %s, first timestamp = %s", batchId, count, firstTimestamp);
+        List<ClientCallback> callers = batches.remove(batchId);
+        if (callers == null) {
+            doClientErrorThrow(LOG, "Timestamp batch with id %s not found, so unable to deliver timestamps starting at %s", null, batchId, firstTimestamp);
+        }
+        batchesInFlight.decrementAndGet();
+        numBatches.incrementAndGet();
+        numBatchedTimestamps.addAndGet(count);
+
+        if (count != callers.size()) {
+            TimestampIOException error = new TimestampIOException("Expected " + callers.size() + " timestamps for batch " + batchId + " but received " + count);
+            for (ClientCallback callback : callers) {
+                callback.error(error);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                callers.get(i).complete(firstTimestamp + i * TimestampOracle.TIMESTAMP_INCREMENT);
+            }
+        }
+        sendBatches();
+    }
+
     @Override
     public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
         SpliceLogUtils.info(LOG, "Successfully connected to server");
@@ -354,6 +598,7 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             channel=null;
             shouldContinue = !state.compareAndSet(s,State.DISCONNECTED);
         }while(shouldContinue);
+        failPendingBatches(new TimestampIOException("TimestampClient was disconnected from the server"));
         connectIfNeeded();
     }
 
@@ -385,6 +630,28 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return a / b;
     }
 
+    @Override
+    public long getNumberTimestampBatches() {
+        return numBatches.get();
+    }
+
+    @Override
+    public double getAvgTimestampBatchSize() {
+        double a = (double) numBatchedTimestamps.get();
+        double b = (double) numBatches.get();
+        return a / b;
+    }
+
+    @Override
+    public long getTimestampRequestDurationP50Micros() {
+        return requestDurations.getPercentileMicros(0.5d);
+    }
+
+    @Override
+    public long getTimestampRequestDurationP99Micros() {
+        return requestDurations.getPercentileMicros(0.99d);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if(state.get() != State.SHUTDOWN) {
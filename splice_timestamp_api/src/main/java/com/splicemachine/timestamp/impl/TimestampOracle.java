@@ -29,7 +29,7 @@ import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 
 public class TimestampOracle implements TimestampOracleStatistics{
-	private static final long TIMESTAMP_INCREMENT = 0x100l;
+	static final long TIMESTAMP_INCREMENT = 0x100l;
 
     private static final Logger LOG = Logger.getLogger(TimestampOracle.class);
 
@@ -97,6 +97,24 @@ public class TimestampOracle implements TimestampOracleStatistics{
 		return nextTS;
 	}
 
+	/**
+	 * Reserves {@code count} consecutive timestamps, {@link #TIMESTAMP_INCREMENT} apart.
+	 *
+	 * @return the first of the timestamps
+	 */
+	public long getNextTimestamps(int count) throws TimestampIOException {
+		assert count > 0;
+		long lastTS = _timestampCounter.addAndGet(TIMESTAMP_INCREMENT * count);
+		long maxTS = _maxReservedTimestamp; // avoid the double volatile read
+		// a large batch may need more than one block
+		while (lastTS > maxTS) {
+			reserveNextBlock(maxTS);
+			maxTS = _maxReservedTimestamp;
+		}
+		_numTimestampsCreated.addAndGet(count); // JMX metric
+		return lastTS - TIMESTAMP_INCREMENT * (count - 1);
+	}
+
     private void reserveNextBlock(long priorMaxReservedTimestamp) throws TimestampIOException {
         synchronized(this)  {
             if (_maxReservedTimestamp > priorMaxReservedTimestamp) return; // some other thread got there first
@@ -40,6 +40,29 @@ public class TimestampServer {
      */
     static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte timestamp
 
+    /*
+     * A client which wants to batch its requests opens the connection by sending these two caller ids
+     * together. Should the server understand batching, it answers the first with a negative "timestamp"
+     * (the protocol version), and from then on both sides use the batch message lengths below. An older
+     * server simply answers both ids with a timestamp each, and the client carries on one request at a time.
+     *
+     * The ids are far apart, so an older client (whose ids come from a counter) will not send them as its
+     * first two requests.
+     */
+    static final short BATCH_HANDSHAKE_REQUEST = (short)0x5442;
+    static final short BATCH_HANDSHAKE_CONFIRM = (short)~0x5442;
+    static final long BATCH_PROTOCOL_VERSION = 1L;
+
+    /**
+     * Fixed number of bytes in a batched request from the client.
+     */
+    static final int BATCH_MSG_RECEIVED_LENGTH = 4; // 2 byte batch id + 2 byte timestamp count
+
+    /**
+     * Fixed number of bytes in the response to a batched request.
+     */
+    static final int BATCH_MSG_SENT_LENGTH = 12; // 2 byte batch id + 8 byte first timestamp + 2 byte timestamp count
+
     private int port;
     private ChannelFactory factory;
     private Channel channel;
@@ -20,10 +20,12 @@ import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.handler.codec.frame.FixedLengthFrameDecoder;
 
 public class TimestampServerHandler extends TimestampBaseHandler {
 
@@ -56,15 +58,53 @@ public class TimestampServerHandler extends TimestampBaseHandler {
 
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
         assert buf != null;
-        ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
 
+        ConnectionState connectionState = (ConnectionState) ctx.getAttachment();
+        if (connectionState == ConnectionState.BATCHED) {
+            ensureReadableBytes(buf, TimestampServer.BATCH_MSG_RECEIVED_LENGTH);
+            short batchId = buf.readShort();
+            short count = buf.readShort();
+            ensureReadableBytes(buf, 0);
+            respondToBatch(e.getChannel(), batchId, count);
+            super.messageReceived(ctx, e);
+            return;
+        }
+
+        ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
         final short callerId = buf.readShort();
         ensureReadableBytes(buf, 0);
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
-        assert nextTimestamp > 0;
+        if (connectionState == null) {
+            if (callerId == TimestampServer.BATCH_HANDSHAKE_REQUEST) {
+                // wait for the rest of the handshake
+                ctx.setAttachment(ConnectionState.HANDSHAKE_STARTED);
+            } else {
+                ctx.setAttachment(ConnectionState.SINGLE);
+                respond(e.getChannel(), callerId, oracle.getNextTimestamp());
+            }
+        } else if (connectionState == ConnectionState.HANDSHAKE_STARTED) {
+            if (callerId == TimestampServer.BATCH_HANDSHAKE_CONFIRM) {
+                // switch the framing before acknowledging; the client won't send anything until it sees the ack
+                ctx.getPipeline().replace("decoder", "decoder", new FixedLengthFrameDecoder(TimestampServer.BATCH_MSG_RECEIVED_LENGTH));
+                ctx.setAttachment(ConnectionState.BATCHED);
+                SpliceLogUtils.info(LOG, "Client %s is using batched timestamp requests", e.getChannel().getRemoteAddress());
+                respond(e.getChannel(), TimestampServer.BATCH_HANDSHAKE_REQUEST, -TimestampServer.BATCH_PROTOCOL_VERSION);
+            } else {
+                // not a handshake after all, just an old client
+                ctx.setAttachment(ConnectionState.SINGLE);
+                respond(e.getChannel(), TimestampServer.BATCH_HANDSHAKE_REQUEST, oracle.getNextTimestamp());
+                respond(e.getChannel(), callerId, oracle.getNextTimestamp());
+            }
+        } else {
+            SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
+            respond(e.getChannel(), callerId, oracle.getNextTimestamp());
+        }
 
+        super.messageReceived(ctx, e);
+    }
+
+    private void respond(Channel channel, final short callerId, long nextTimestamp) {
+        assert nextTimestamp > 0 || callerId == TimestampServer.BATCH_HANDSHAKE_REQUEST;
 
         //
         // Respond to the client
@@ -74,7 +114,26 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         writeBuf.writeShort(callerId);
         writeBuf.writeLong(nextTimestamp);
         SpliceLogUtils.debug(LOG, "Responding to caller %s with timestamp %s", callerId, nextTimestamp);
-        ChannelFuture futureResponse = e.getChannel().write(writeBuf); // Could also use Channels.write
+        write(channel, writeBuf, callerId);
+    }
+
+    private void respondToBatch(Channel channel, final short batchId, short count) throws TimestampIOException {
+        if (count <= 0) {
+            throw new TimestampIOException("Invalid timestamp count " + count + " for batch " + batchId);
+        }
+        long firstTimestamp = oracle.getNextTimestamps(count);
+        assert firstTimestamp > 0;
+
+        ChannelBuffer writeBuf = ChannelBuffers.buffer(TimestampServer.BATCH_MSG_SENT_LENGTH);
+        writeBuf.writeShort(batchId);
+        writeBuf.writeLong(firstTimestamp);
+        writeBuf.writeShort(count);
+        SpliceLogUtils.debug(LOG, "Responding to batch %s with %s timestamps starting at %s", batchId, count, firstTimestamp);
+        write(channel, writeBuf, batchId);
+    }
+
+    private void write(Channel channel, ChannelBuffer writeBuf, final short callerId) {
+        ChannelFuture futureResponse = channel.write(writeBuf); // Could also use Channels.write
         futureResponse.addListener(new ChannelFutureListener() {
                                        @Override
                                        public void operationComplete(ChannelFuture cf) throws Exception {
@@ -85,8 +144,19 @@ public class TimestampServerHandler extends TimestampBaseHandler {
                                        }
                                    }
         );
+    }
 
-        super.messageReceived(ctx, e);
+    /**
+     * The protocol a connection is using, kept as the attachment of the connection's handler context.
+     * A connection with no attachment has not sent anything yet.
+     */
+    private enum ConnectionState {
+        /** The first half of the batch handshake has been received */
+        HANDSHAKE_STARTED,
+        /** One timestamp per request */
+        SINGLE,
+        /** Requests for ranges of timestamps */
+        BATCHED
     }
 
     protected void doError(String message, Throwable t, Object... args) {
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampHostProvider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the throughput of a {@link TimestampClient} requesting timestamps one at a time against one
+ * batching concurrent requests, against a local {@link TimestampServer}.
+ *
+ * Usage: TimestampClientBenchmark [threads] [seconds]
+ */
+public class TimestampClientBenchmark {
+
+    public static void main(String... args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        TimestampServer server = new TimestampServer(0, new TimestampServerHandler(new MemoryBlockManager(), 8192));
+        server.startServer();
+        try {
+            System.out.printf("%d threads, %d seconds%n", threads, seconds);
+            run("single requests", new TimestampClient(10000, new LocalHostProvider(server.getBoundPort()), false), threads, seconds);
+            run("batched requests", new TimestampClient(10000, new LocalHostProvider(server.getBoundPort()), true), threads, seconds);
+        } finally {
+            server.stopServer();
+        }
+    }
+
+    private static void run(String name, final TimestampClient client, int threads, int seconds) throws Exception {
+        client.connectIfNeeded();
+        client.getNextTimestamp(); // warm up the connection
+
+        final AtomicLong count = new AtomicLong();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    long n = 0;
+                    while (System.nanoTime() < end) {
+                        client.getNextTimestamp();
+                        n++;
+                    }
+                    count.addAndGet(n);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("%-18s %,12d timestamps/s  avg batch size %8.1f  latency p50 %,6d us  p99 %,6d us%n",
+                name,
+                count.get() / seconds,
+                client.getNumberTimestampBatches() > 0 ? client.getAvgTimestampBatchSize() : 1d,
+                client.getTimestampRequestDurationP50Micros(),
+                client.getTimestampRequestDurationP99Micros());
+        client.shutdown();
+    }
+
+    private static class MemoryBlockManager implements TimestampBlockManager {
+        @Override
+        public void reserveNextBlock(long currentMaxReserved) {
+        }
+
+        @Override
+        public long initialize() {
+            return 0L;
+        }
+    }
+
+    private static class LocalHostProvider implements TimestampHostProvider {
+        private final int port;
+
+        LocalHostProvider(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public String getHost() {
+            return "localhost";
+        }
+
+        @Override
+        public int getPort() {
+            return port;
+        }
+    }
+}
@@ -24,6 +24,10 @@ import org.jboss.netty.channel.MessageEvent;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
@@ -111,4 +115,62 @@ public class TimestampClientTest {
         }
 
     }
+
+    @Test
+    public void testBatchedRequestsReturnUniqueTimestamps() throws Exception {
+        TimestampServer ts = new TimestampServer(0, new TimestampServerHandler(Mockito.mock(TimestampBlockManager.class, Mockito.RETURNS_DEEP_STUBS), 1000));
+        ts.startServer();
+
+        int port = ts.getBoundPort();
+
+        TimestampHostProvider hostProvider = new TimestampHostProvider() {
+            @Override
+            public String getHost() {
+                return "localhost";
+            }
+            @Override
+            public int getPort() {
+                return port;
+            }
+        };
+        TimestampClient tc = new TimestampClient(1000, hostProvider, true);
+
+        int threads = 8;
+        int perThread = 5000;
+        long[][] timestamps = new long[threads][perThread];
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; ++t) {
+            final long[] mine = timestamps[t];
+            workers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < perThread; ++i) {
+                        mine[i] = tc.getNextTimestamp();
+                        if (i > 0)
+                            assertTrue("Timestamps should increase for a single caller", mine[i] > mine[i - 1]);
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (error.get() != null)
+            throw new AssertionError(error.get());
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; ++t) {
+            System.arraycopy(timestamps[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; ++i) {
+            assertTrue("Duplicate timestamp " + all[i], all[i] > all[i - 1]);
+        }
+        assertTrue("Requests should have been batched", tc.getNumberTimestampBatches() > 0);
+
+        ts.stopServer();
+    }
 }
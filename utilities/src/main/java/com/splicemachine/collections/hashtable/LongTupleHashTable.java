@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.collections.hashtable;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense ordinals to fixed-width tuples of longs, using the RobinHood hashing
+ * of {@link BaseRobinHoodHashTable} without allocating an object per entry.
+ *
+ * Tuples are numbered 0,1,2... in the order they are first added, and are kept back to back in a
+ * single array indexed by ordinal; the slots of the table only hold the hash code and the ordinal of
+ * the tuple they refer to. Callers keep whatever state they need per tuple in their own arrays, indexed
+ * by the ordinal. Entries can't be removed individually, only all at once with {@link #clear()}.
+ *
+ * This class is not thread safe.
+ */
+public class LongTupleHashTable{
+    private final int width;
+    private final float loadFactor;
+
+    private int[] hashCodes;
+    private int[] ordinals;
+    private long[] tuples;
+    private int size;
+
+    private int longestProbeLength;
+    private int positionMask;
+    private int capacity;
+
+    /**
+     * @param width the number of longs in each tuple
+     * @param initialSize the initial number of slots of the table
+     * @param loadFactor the fraction of slots which may be filled before the table is expanded
+     */
+    public LongTupleHashTable(int width,int initialSize,float loadFactor){
+        assert width>0: "Tuples must have at least one element";
+        this.width=width;
+        this.loadFactor=loadFactor;
+
+        int s=1;
+        while(s<initialSize)
+            s<<=1;
+        this.hashCodes=new int[s];
+        this.ordinals=new int[s];
+        this.positionMask=s-1;
+        this.capacity=(int)(loadFactor*s);
+        this.tuples=new long[Math.max(capacity,1)*width];
+    }
+
+    public int width(){ return width; }
+
+    public int size(){ return size; }
+
+    public boolean isEmpty(){ return size<=0; }
+
+    /**
+     * @param tuple the tuple to look up; only the first {@link #width()} elements are used
+     * @return the ordinal of the tuple, or -1 if it hasn't been added
+     */
+    public int get(long[] tuple){
+        int hashCode=hash(tuple);
+        int pos=hashCode&positionMask;
+        for(int i=0;i<=longestProbeLength;i++){
+            int hC=hashCodes[pos];
+            if(hC==0)
+                return -1;
+            if(hC==hashCode && matches(ordinals[pos],tuple))
+                return ordinals[pos];
+            pos=(pos+1)&positionMask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param tuple the tuple to add; only the first {@link #width()} elements are used, and they are copied
+     * @return the ordinal of the tuple. If the tuple was not already present, this is the previous {@link #size()}
+     */
+    public int add(long[] tuple){
+        int hashCode=hash(tuple);
+        int pos=hashCode&positionMask;
+        for(int i=0;i<=longestProbeLength;i++){
+            int hC=hashCodes[pos];
+            if(hC==0)
+                break;
+            if(hC==hashCode && matches(ordinals[pos],tuple))
+                return ordinals[pos];
+            pos=(pos+1)&positionMask;
+        }
+        if(size>=capacity){
+            //we have exceeded the size limit, so rehash the structure
+            expandCapacity();
+        }
+        int ordinal=size++;
+        System.arraycopy(tuple,0,tuples,ordinal*width,width);
+        place(hashCode,ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Copy the tuple with the given ordinal into {@code destination}.
+     */
+    public void getTuple(int ordinal,long[] destination){
+        assert ordinal<size: "No tuple with ordinal "+ordinal;
+        System.arraycopy(tuples,ordinal*width,destination,0,width);
+    }
+
+    /**
+     * @return the number of bytes held by the table
+     */
+    public long heapSize(){
+        return 4L*hashCodes.length+4L*ordinals.length+8L*tuples.length;
+    }
+
+    public void clear(){
+        size=0;
+        longestProbeLength=0;
+        Arrays.fill(hashCodes,0); //fill the hashCode with empty
+    }
+
+    /******************************************************************************************************************/
+    /*private helper methods*/
+
+    private int hash(long[] tuple){
+        long h=0x9E3779B97F4A7C15L;
+        for(int i=0;i<width;i++){
+            h=(h^tuple[i])*0xC6A4A7935BD1E995L;
+            h^=h>>>47;
+        }
+        //final avalanche, as in murmur3's fmix64
+        h^=h>>>33;
+        h*=0xFF51AFD7ED558CCDL;
+        h^=h>>>33;
+        int hashCode=(int)(h^(h>>>32));
+        /*
+         * 0 is reserved to indicate that there is no entry at a position, so we move it
+         * to 1, as BaseRobinHoodHashTable does
+         */
+        return hashCode==0?1:hashCode;
+    }
+
+    private boolean matches(int ordinal,long[] tuple){
+        int offset=ordinal*width;
+        for(int i=0;i<width;i++){
+            if(tuples[offset+i]!=tuple[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void place(int hashCode,int ordinal){
+        int pos=hashCode&positionMask;
+        int probeLength=0;
+        while(true){
+            int hC=hashCodes[pos];
+            if(hC==0){
+                hashCodes[pos]=hashCode;
+                ordinals[pos]=ordinal;
+                break;
+            }
+            int probeLengthCode=getProbeDistance(pos,hC);
+            if(probeLengthCode<probeLength){
+                /*
+                 * We've reached an element with a shorter probe length than us. In this case,
+                 * we swap the element, and adjust the probe length accordingly
+                 */
+                int o=ordinals[pos];
+                hashCodes[pos]=hashCode;
+                ordinals[pos]=ordinal;
+                if(longestProbeLength<probeLength)
+                    longestProbeLength=probeLength;
+
+                probeLength=probeLengthCode;
+                hashCode=hC;
+                ordinal=o;
+            }
+            probeLength++;
+            pos=(pos+1)&positionMask;
+        }
+        if(longestProbeLength<probeLength)
+            longestProbeLength=probeLength;
+    }
+
+    private void expandCapacity(){
+        int[] oldHashCodes=hashCodes;
+        int[] oldOrdinals=ordinals;
+        int newSize=2*oldHashCodes.length;
+
+        hashCodes=new int[newSize];
+        ordinals=new int[newSize];
+        capacity=(int)(loadFactor*newSize);
+        positionMask=newSize-1;
+        longestProbeLength=0;
+        tuples=Arrays.copyOf(tuples,capacity*width);
+        for(int i=0;i<oldHashCodes.length;i++){
+            int hC=oldHashCodes[i];
+            if(hC==0) continue; //we know that that element is not present
+            place(hC,oldOrdinals[i]);
+        }
+    }
+
+    private int getProbeDistance(int currentPosition,int hash){
+        int hc=(hash&positionMask);
+        int dist=currentPosition-hc;
+        if(currentPosition<hc)
+            dist+=positionMask+1;
+        return dist;
+    }
+}
@@ -17,6 +17,7 @@ package com.splicemachine.tools;
 import org.spark_project.guava.base.Preconditions;
 import org.spark_project.guava.cache.*;
 
+import java.util.Collection;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
@@ -49,6 +50,13 @@ public class CachedResourcePool<E,K extends ResourcePool.Key> implements Resourc
         //no-op, rely on timeout to remove it
     }
 
+    /**
+     * @return a view of the resources currently pooled
+     */
+    public Collection<E> values(){
+        return cache.asMap().values();
+    }
+
     public static class Builder<E,K extends Key> {
         private CacheBuilder<K,E> cacheBuilder;
         private Generator<E,K> generator;
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012 - 2019 Splice Machine, Inc.
+ *
+ * This file is part of Splice Machine.
+ * Splice Machine is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3, or (at your option) any later version.
+ * Splice Machine is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License along with Splice Machine.
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.splicemachine.collections.hashtable;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class LongTupleHashTableTest{
+
+    @Test
+    public void assignsOrdinalsInInsertionOrder() throws Exception{
+        LongTupleHashTable table=new LongTupleHashTable(2,4,0.75f);
+        Assert.assertEquals(0,table.add(new long[]{1L,2L}));
+        Assert.assertEquals(1,table.add(new long[]{2L,1L}));
+        Assert.assertEquals(0,table.add(new long[]{1L,2L}));
+        Assert.assertEquals(2,table.add(new long[]{0L,0L}));
+        Assert.assertEquals(3,table.size());
+
+        Assert.assertEquals(1,table.get(new long[]{2L,1L}));
+        Assert.assertEquals(-1,table.get(new long[]{2L,2L}));
+
+        long[] tuple=new long[2];
+        table.getTuple(1,tuple);
+        Assert.assertArrayEquals(new long[]{2L,1L},tuple);
+    }
+
+    @Test
+    public void findsEveryTupleAfterExpanding() throws Exception{
+        LongTupleHashTable table=new LongTupleHashTable(3,1,0.9f);
+        Map<List<Long>,Integer> correct=new HashMap<>();
+        Random random=new Random(0L);
+        long[] tuple=new long[3];
+        for(int i=0;i<100000;i++){
+            //a narrow range so that many tuples repeat
+            for(int j=0;j<tuple.length;j++){
+                tuple[j]=random.nextInt(40)-20;
+            }
+            int ordinal=table.add(tuple);
+            Integer expected=correct.get(asList(tuple));
+            if(expected==null){
+                Assert.assertEquals("New tuples should get the next ordinal",correct.size(),ordinal);
+                correct.put(asList(tuple),ordinal);
+            }else
+                Assert.assertEquals("Incorrect ordinal for "+Arrays.toString(tuple),expected.intValue(),ordinal);
+        }
+        Assert.assertEquals(correct.size(),table.size());
+        for(Map.Entry<List<Long>,Integer> entry : correct.entrySet()){
+            List<Long> key=entry.getKey();
+            for(int j=0;j<tuple.length;j++){
+                tuple[j]=key.get(j);
+            }
+            Assert.assertEquals(entry.getValue().intValue(),table.get(tuple));
+        }
+    }
+
+    @Test
+    public void clearRemovesEveryTuple() throws Exception{
+        LongTupleHashTable table=new LongTupleHashTable(1,16,0.75f);
+        for(long i=0;i<100;i++){
+            table.add(new long[]{i});
+        }
+        table.clear();
+        Assert.assertTrue(table.isEmpty());
+        Assert.assertEquals(-1,table.get(new long[]{5L}));
+        Assert.assertEquals(0,table.add(new long[]{5L}));
+    }
+
+    private static List<Long> asList(long[] tuple){
+        Long[] boxed=new Long[tuple.length];
+        for(int i=0;i<tuple.length;i++){
+            boxed[i]=tuple[i];
+        }
+        return Arrays.asList(boxed);
+    }
+}